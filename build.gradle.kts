@@ -65,6 +65,8 @@ subprojects {
 
     tasks.test {
         useJUnitPlatform()
+        // benchmarks are only run when asked for, with -Pbenchmark
+        systemProperty("moonrise.benchmark", project.hasProperty("benchmark"))
     }
 
     tasks.withType<Test>().configureEach {
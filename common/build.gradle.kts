@@ -67,4 +67,7 @@ dependencies {
 
     // Discord dependencies: https://github.com/discord-jda/JDA
     compileOnly("net.dv8tion:JDA:5.2.2") { exclude(module = "opus-java") }
+
+    testImplementation("com.h2database:h2:2.1.214")
+    testImplementation("com.zaxxer:HikariCP:4.0.3")
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 package me.kubbidev.moonrise.common;
 
 import me.kubbidev.moonrise.common.command.InteractionManager;
+import me.kubbidev.moonrise.common.leaderboard.ExperienceRanking;
 import me.kubbidev.moonrise.common.leaderboard.LeaderboardManager;
 import me.kubbidev.moonrise.common.leaderboard.tracker.ActivityListener;
 import me.kubbidev.moonrise.common.listener.GuildListener;
@@ -9,10 +10,12 @@ import me.kubbidev.moonrise.common.listener.UserListener;
 import me.kubbidev.moonrise.common.plugin.AbstractMoonRisePlugin;
 import me.kubbidev.moonrise.common.retriever.AbstractEntityRetriever;
 import me.kubbidev.moonrise.common.plugin.MoonRisePlugin;
+import me.kubbidev.moonrise.common.storage.MemberStatsBuffer;
 import me.kubbidev.moonrise.common.storage.Storage;
 import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.entities.Activity;
 import net.dv8tion.jda.api.events.session.ReadyEvent;
+import net.dv8tion.jda.api.events.session.SessionRecreateEvent;
 import net.dv8tion.jda.api.events.session.ShutdownEvent;
 import net.dv8tion.jda.api.hooks.ListenerAdapter;
 import net.dv8tion.jda.api.requests.GatewayIntent;
@@ -38,19 +41,25 @@ public class GatewayClient extends AbstractEntityRetriever implements AutoClosea
      */
     private final     InteractionManager interactionManager;
     private final     LeaderboardManager leaderboardManager;
+    /**
+     * Tracks and rewards the activity of members
+     */
+    private final     ActivityListener   activityListener;
     /**
      * Manages the lifecycle and functionality of shards for a distributed client gateway
      */
     private @Nullable ShardManager       shardManager;
 
-    public GatewayClient(MoonRisePlugin plugin, Storage storage) {
-        super(storage);
+    public GatewayClient(MoonRisePlugin plugin, Storage storage, MemberStatsBuffer statsBuffer) {
+        super(storage, statsBuffer, new ExperienceRanking(plugin, storage, statsBuffer));
         this.plugin = plugin;
         this.interactionManager = new InteractionManager(plugin);
 
         // Schedule the leaderboard manager to run scheduled tasks
         this.leaderboardManager = new LeaderboardManager(this);
         this.leaderboardManager.schedule();
+        this.activityListener = new ActivityListener(this);
+        this.activityListener.start();
     }
 
     public void connect(String token) {
@@ -85,7 +94,7 @@ public class GatewayClient extends AbstractEntityRetriever implements AutoClosea
                 new GuildListener(this),
                 new MemberListener(this)
             )
-            .addEventListeners(new ActivityListener(this))
+            .addEventListeners(this.activityListener)
             .addEventListeners(new ListenerAdapter() {
 
                 @Override
@@ -93,6 +102,12 @@ public class GatewayClient extends AbstractEntityRetriever implements AutoClosea
                     GatewayClient.this.onShardReady(e.getJDA());
                 }
 
+                @Override
+                public void onSessionRecreate(@NotNull SessionRecreateEvent e) {
+                    // the voice states missed whilst the session was lost are only known from the new cache
+                    GatewayClient.this.activityListener.recoverSessions(e.getJDA());
+                }
+
                 @Override
                 public void onShutdown(@NotNull ShutdownEvent e) {
                     GatewayClient.this.shutdownLatch.countDown();
@@ -101,6 +116,7 @@ public class GatewayClient extends AbstractEntityRetriever implements AutoClosea
             .build();
     }
 
+    @Override
     public MoonRisePlugin getPlugin() {
         return this.plugin;
     }
@@ -137,6 +153,7 @@ public class GatewayClient extends AbstractEntityRetriever implements AutoClosea
     @Override
     public void close() {
         this.leaderboardManager.close();
+        this.activityListener.close();
 
         if (this.shardManager != null) {
             this.shardManager.shutdown();
@@ -149,6 +166,7 @@ public class GatewayClient extends AbstractEntityRetriever implements AutoClosea
      */
     private void onShardReady(@NotNull JDA shard) {
         this.interactionManager.registerInteraction(shard);
+        this.activityListener.recoverSessions(shard);
     }
 
     @Override
@@ -2,6 +2,7 @@ package me.kubbidev.moonrise.common.commands;
 
 import me.kubbidev.moonrise.common.command.Interaction;
 import me.kubbidev.moonrise.common.command.InteractionContext;
+import me.kubbidev.moonrise.common.leaderboard.ExperienceRank;
 import me.kubbidev.moonrise.common.message.ComponentEmbed;
 import me.kubbidev.moonrise.common.message.source.Source;
 import me.kubbidev.moonrise.common.plugin.MoonRisePlugin;
@@ -118,8 +119,13 @@ public class ProfileCommand implements Interaction {
                 }
             });
 
+        // the profile is still sent if the member couldn't be ranked
+        CompletableFuture<Component> rankFuture = plugin.getGatewayClient().getExperienceRank(target)
+            .thenApply(ProfileCommand::formatRank)
+            .exceptionally(t -> formatRank(Optional.empty()));
+
         Component componentName = Component.text(username);
-        plugin.getGatewayClient().getMember(target).thenComposeAsync(apiMember -> {
+        plugin.getGatewayClient().getMember(target).thenAcceptBothAsync(rankFuture, (apiMember, rank) -> {
 
             Component lastSeen = status == OnlineStatus.OFFLINE || status == OnlineStatus.INVISIBLE
                 ? Component.text("<t:" + apiMember.getLastSeen().getEpochSecond() + ":R>")
@@ -139,6 +145,7 @@ public class ProfileCommand implements Interaction {
             // > **Username:** {}
             // > **Status:** {}
             // > **Last seen:** {}
+            // > **Rank:** {}
             //
             // **__Activities__**
             // {}
@@ -175,6 +182,14 @@ public class ProfileCommand implements Interaction {
                 .append(Component.space())
                 .append(lastSeen)
                 .append(Component.newline())
+                .append(Component.text("> "))
+                .append(Component.translatable()
+                    .key("moonrise.command.profile.rank")
+                    .decorate(TextDecoration.BOLD)
+                    .append(Component.text(":")))
+                .append(Component.space())
+                .append(rank)
+                .append(Component.newline())
                 .append(Component.newline())
                 .append(Component.translatable()
                     .key("moonrise.command.profile.activities")
@@ -182,14 +197,20 @@ public class ProfileCommand implements Interaction {
                 .append(Component.newline())
                 .append(activities)
                 .build());
-
-            return profileFuture;
-        }).thenAcceptAsync(__ -> {
+        }).thenCompose(__ -> profileFuture).thenAcceptAsync(__ -> {
             context.setDeferred(false);
             context.sendMessage(componentEmbed);
         }).join();
     }
 
+    private static Component formatRank(Optional<ExperienceRank> rank) {
+        return rank.<Component>map(r -> Component.translatable("moonrise.command.profile.rank.value",
+                Component.text(r.rank()),
+                Component.text(r.members()),
+                Component.text(r.topPercent())))
+            .orElseGet(() -> Component.translatable("moonrise.command.profile.rank.unranked"));
+    }
+
     @Override
     public @NotNull SlashCommandData getMetadata() {
         return Commands.slash("profile", "Display the supplied user profile.")
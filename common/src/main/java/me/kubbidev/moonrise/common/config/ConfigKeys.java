@@ -5,6 +5,7 @@ import me.kubbidev.moonrise.common.config.generic.key.ConfigKey;
 import me.kubbidev.moonrise.common.config.generic.key.SimpleConfigKey;
 import me.kubbidev.moonrise.common.storage.StorageType;
 import me.kubbidev.moonrise.common.config.generic.key.ConfigKeyFactory;
+import me.kubbidev.moonrise.common.storage.misc.ExperienceWindow;
 import me.kubbidev.moonrise.common.storage.misc.StorageCredentials;
 
 import java.util.List;
@@ -49,6 +50,80 @@ public final class ConfigKeys {
     public static final ConfigKey<Integer> ACTIVITY_EXPERIENCE_MULTIPLIER = integerKey("activity-experience-multiplier",
         1);
 
+    /**
+     * How often, in seconds, the voice activity earned by members still in voice is credited to them.
+     *
+     * <p>A value of 0 or less only credits the activity when members leave, and when shutting down.</p>
+     */
+    public static final ConfigKey<Integer> ACTIVITY_CHECKPOINT_INTERVAL = notReloadable(
+        integerKey("activity-checkpoint-interval", 60));
+
+    /**
+     * How often, in seconds, buffered experience and voice activity increments are written to the storage.
+     *
+     * <p>A value of 0 or less disables buffering, and writes every increment straight away.</p>
+     */
+    public static final ConfigKey<Integer> EXPERIENCE_FLUSH_INTERVAL = notReloadable(
+        integerKey("experience-flush-interval", 10));
+
+    /**
+     * The number of buffered members which triggers an early flush of the experience buffer.
+     */
+    public static final ConfigKey<Integer> EXPERIENCE_FLUSH_MAX_ENTRIES = notReloadable(
+        integerKey("experience-flush-max-entries", 1000));
+
+    /**
+     * The number of days the experience gained by each member on each day is kept for.
+     *
+     * <p>A value of 0 or less keeps the daily gains forever.</p>
+     */
+    public static final ConfigKey<Integer> EXPERIENCE_DAILY_RETENTION = notReloadable(
+        integerKey("experience-daily-retention", 35));
+
+    /**
+     * The number of days the experience gained by each member in each week and month is kept for.
+     *
+     * <p>A value of 0 or less keeps the weekly and monthly gains forever.</p>
+     */
+    public static final ConfigKey<Integer> EXPERIENCE_ROLLUP_RETENTION = notReloadable(
+        integerKey("experience-rollup-retention", 400));
+
+    /**
+     * The number of days after a user was last seen that their members are archived, if they have no more than
+     * {@link #MEMBER_ARCHIVE_MAX_EXPERIENCE} experience.
+     *
+     * <p>A value of 0 or less never archives members.</p>
+     */
+    public static final ConfigKey<Integer> MEMBER_ARCHIVE_AFTER = notReloadable(
+        integerKey("member-archive-after", 0));
+
+    /**
+     * The most experience a member can have to be archived.
+     */
+    public static final ConfigKey<Integer> MEMBER_ARCHIVE_MAX_EXPERIENCE = notReloadable(
+        integerKey("member-archive-max-experience", 50));
+
+    /**
+     * The window of time the leaderboard ranks members by the experience gained within, or null to rank members
+     * by their lifetime experience.
+     */
+    public static final ConfigKey<ExperienceWindow> LEADERBOARD_WINDOW = key(c -> {
+        return ExperienceWindow.parse(c.getString("leaderboard-window", "week"), null);
+    });
+
+    /**
+     * The maximum number of members held across the in-memory experience rankings of all guilds.
+     *
+     * <p>A value of 0 or less disables the rankings, and every ranking is read from the storage.</p>
+     */
+    public static final ConfigKey<Integer> RANKING_MAX_MEMBERS = notReloadable(
+        integerKey("ranking-max-members", 250000));
+
+    /**
+     * The number of minutes the experience ranking of a guild is kept in memory for after it was last used.
+     */
+    public static final ConfigKey<Integer> RANKING_IDLE_TIME = notReloadable(integerKey("ranking-idle-time", 60));
+
     /**
      * The database settings, username, password, etc for use by any database
      */
@@ -61,6 +136,24 @@ public final class ConfigKeys {
         );
     }));
 
+    /**
+     * The database settings of an optional read replica, or null if none is configured.
+     *
+     * <p>Any settings which aren't given default to those of the primary database.</p>
+     */
+    public static final ConfigKey<StorageCredentials> DATABASE_REPLICA_VALUES = notReloadable(key(c -> {
+        String address = c.getString("data.replicas.address", "");
+        if (address.isEmpty()) {
+            return null;
+        }
+        return new StorageCredentials(
+            address,
+            c.getString("data.replicas.database", c.getString("data.database", null)),
+            c.getString("data.replicas.username", c.getString("data.username", null)),
+            c.getString("data.replicas.password", c.getString("data.password", null))
+        );
+    }));
+
     /**
      * The prefix for any SQL tables
      */
@@ -68,6 +161,21 @@ public final class ConfigKeys {
         return c.getString("data.table-prefix", c.getString("data.table_prefix", "moonrise_"));
     }));
 
+    /**
+     * The number of rows fetched at a time when reading large results from a remote database
+     */
+    public static final ConfigKey<Integer> SQL_FETCH_SIZE = notReloadable(key(c -> {
+        return c.getInteger("data.fetch-size", 1000);
+    }));
+
+    /**
+     * The number of hash partitions the members table is split into by guild when it is created, or 0 to leave it
+     * unpartitioned
+     */
+    public static final ConfigKey<Integer> SQL_MEMBER_PARTITIONS = notReloadable(key(c -> {
+        return Math.max(0, c.getInteger("data.member-partitions", 0));
+    }));
+
     /**
      * The name of the storage method being used
      */
@@ -75,6 +183,30 @@ public final class ConfigKeys {
         return StorageType.parse(c.getString("storage-method", "h2"), StorageType.H2);
     }));
 
+    /**
+     * The number of read-only connections opened by the local storage types, in addition to their single write
+     * connection.
+     *
+     * <p>A value of 0 or less performs reads using the write connection.</p>
+     */
+    public static final ConfigKey<Integer> FLATFILE_READ_CONNECTIONS = notReloadable(
+        integerKey("flatfile-read-connections", 4));
+
+    /**
+     * If storage operations should be performed on virtual threads, limited to the number of connections of the
+     * storage, instead of on the shared worker pool.
+     */
+    public static final ConfigKey<Boolean> STORAGE_VIRTUAL_THREADS = notReloadable(
+        booleanKey("storage-virtual-threads", true));
+
+    /**
+     * The interval in seconds between snapshots of the memory storage type.
+     *
+     * <p>A value of 0 or less keeps the data in memory only, and starts with an empty storage every time.</p>
+     */
+    public static final ConfigKey<Integer> MEMORY_SNAPSHOT_INTERVAL = notReloadable(
+        integerKey("memory-snapshot-interval", 0));
+
     /**
      * The URL of the bytebin instance used to upload data
      */
@@ -0,0 +1,331 @@
+package me.kubbidev.moonrise.common.leaderboard;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The members of a guild, ordered by their lifetime experience.
+ *
+ * <p>Members are held in a treap, ordered by descending experience and then ascending user id, where each node
+ * also counts the nodes beneath it. The rank of a member and the highest ranked members are found in logarithmic
+ * time, and experience grants move a member to their new position in logarithmic time.</p>
+ *
+ * <p>Nodes are stored in parallel primitive arrays, and found by user id through an open addressing table, so
+ * the index takes a few dozen bytes per member.</p>
+ *
+ * <p>The index is created empty whilst it is loaded from the storage. Grants are ignored until
+ * {@link #startRecording()} is called at the point the storage is read, and only recorded from then on until
+ * {@link #populate(long[], long[])} is called with the loaded members.</p>
+ */
+public final class ExperienceIndex {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Node 0 is the empty node, its size is always 0
+     */
+    private long[] experience = new long[INITIAL_CAPACITY];
+    private long[] userIds    = new long[INITIAL_CAPACITY];
+    private int[]  left       = new int[INITIAL_CAPACITY];
+    private int[]  right      = new int[INITIAL_CAPACITY];
+    private int[]  sizes      = new int[INITIAL_CAPACITY];
+    private int[]  priorities = new int[INITIAL_CAPACITY];
+    private int    root       = 0;
+    private int    count      = 0;
+
+    /**
+     * The node of each user, by linear probing on the user id. A slot is empty if its node is 0
+     */
+    private long[] slotUserIds = new long[INITIAL_CAPACITY * 2];
+    private int[]  slotNodes   = new int[INITIAL_CAPACITY * 2];
+
+    /**
+     * The grants received whilst loading, or null once the index has been populated
+     */
+    private Map<Long, Long> pending   = new HashMap<>();
+    /**
+     * If grants received whilst loading are recorded, as they are no longer part of the members loaded
+     */
+    private boolean         recording = false;
+
+    /**
+     * The results of {@link #split(int, int)}
+     */
+    private int splitBefore;
+    private int splitAfter;
+
+    /**
+     * Starts recording the grants received whilst loading, as the storage no longer includes them.
+     */
+    public synchronized void startRecording() {
+        this.recording = true;
+    }
+
+    /**
+     * Adds the members loaded from the storage, followed by any grants recorded whilst they were loading.
+     *
+     * @param userIds    the ids of the members
+     * @param experience the experience of each member
+     */
+    public synchronized void populate(long[] userIds, long[] experience) {
+        for (int i = 0; i < userIds.length; i++) {
+            if (findNode(userIds[i]) == 0) {
+                insert(userIds[i], experience[i]);
+            }
+        }
+
+        Map<Long, Long> pending = this.pending;
+        this.pending = null;
+        pending.forEach(this::increment);
+    }
+
+    /**
+     * Gets if the index has been populated.
+     *
+     * @return if the index is populated
+     */
+    public synchronized boolean isPopulated() {
+        return this.pending == null;
+    }
+
+    /**
+     * Adds experience to a member, adding them to the index if they are not yet ranked.
+     *
+     * @param userId     the user id
+     * @param experience the experience to add
+     */
+    public synchronized void increment(long userId, long experience) {
+        if (this.pending != null) {
+            if (this.recording) {
+                this.pending.merge(userId, experience, Long::sum);
+            }
+            return;
+        }
+
+        int node = findNode(userId);
+        if (node == 0) {
+            insert(userId, experience);
+            return;
+        }
+
+        this.root = remove(this.root, node);
+        this.experience[node] += experience;
+        this.left[node] = 0;
+        this.right[node] = 0;
+        this.sizes[node] = 1;
+        this.root = insert(this.root, node);
+    }
+
+    /**
+     * Gets the number of ranked members.
+     *
+     * @return the number of members
+     */
+    public synchronized int size() {
+        return this.count;
+    }
+
+    /**
+     * Gets the rank of a member, the highest ranked member being 1.
+     *
+     * @param userId the user id
+     * @return the rank of the member, or -1 if they are not ranked
+     */
+    public synchronized int rank(long userId) {
+        int node = findNode(userId);
+        if (node == 0) {
+            return -1;
+        }
+
+        int rank = 0;
+        int t = this.root;
+        while (t != node) {
+            if (before(node, t)) {
+                t = this.left[t];
+            } else {
+                rank += this.sizes[this.left[t]] + 1;
+                t = this.right[t];
+            }
+        }
+        return rank + this.sizes[this.left[node]] + 1;
+    }
+
+    /**
+     * Gets the ids of the highest ranked members.
+     *
+     * @param limit the maximum number of members
+     * @return the user ids, from the highest ranked
+     */
+    public synchronized long[] top(int limit) {
+        long[] top = new long[Math.min(limit, this.count)];
+        int[] stack = new int[INITIAL_CAPACITY];
+        int depth = 0;
+        int found = 0;
+
+        // in-order traversal, stopping once enough members have been visited
+        int t = this.root;
+        while (found < top.length) {
+            while (t != 0) {
+                if (depth == stack.length) {
+                    stack = Arrays.copyOf(stack, depth * 2);
+                }
+                stack[depth++] = t;
+                t = this.left[t];
+            }
+            t = stack[--depth];
+            top[found++] = this.userIds[t];
+            t = this.right[t];
+        }
+        return top;
+    }
+
+    private boolean before(int a, int b) {
+        long experienceA = this.experience[a];
+        long experienceB = this.experience[b];
+        if (experienceA != experienceB) {
+            return experienceA > experienceB;
+        }
+        return this.userIds[a] < this.userIds[b];
+    }
+
+    private void update(int node) {
+        this.sizes[node] = this.sizes[this.left[node]] + this.sizes[this.right[node]] + 1;
+    }
+
+    private void insert(long userId, long experience) {
+        int node = ++this.count;
+        if (node == this.experience.length) {
+            int capacity = node + (node >> 1);
+            this.experience = Arrays.copyOf(this.experience, capacity);
+            this.userIds = Arrays.copyOf(this.userIds, capacity);
+            this.left = Arrays.copyOf(this.left, capacity);
+            this.right = Arrays.copyOf(this.right, capacity);
+            this.sizes = Arrays.copyOf(this.sizes, capacity);
+            this.priorities = Arrays.copyOf(this.priorities, capacity);
+        }
+
+        this.experience[node] = experience;
+        this.userIds[node] = userId;
+        this.sizes[node] = 1;
+        this.priorities[node] = ThreadLocalRandom.current().nextInt();
+        this.root = insert(this.root, node);
+        putNode(userId, node);
+    }
+
+    private int insert(int t, int node) {
+        if (t == 0) {
+            return node;
+        }
+        if (this.priorities[node] > this.priorities[t]) {
+            split(t, node);
+            this.left[node] = this.splitBefore;
+            this.right[node] = this.splitAfter;
+            update(node);
+            return node;
+        }
+
+        if (before(node, t)) {
+            this.left[t] = insert(this.left[t], node);
+        } else {
+            this.right[t] = insert(this.right[t], node);
+        }
+        update(t);
+        return t;
+    }
+
+    /**
+     * Splits the tree into the nodes ordered before the given node, and the nodes ordered after it.
+     */
+    private void split(int t, int node) {
+        if (t == 0) {
+            this.splitBefore = 0;
+            this.splitAfter = 0;
+            return;
+        }
+
+        if (before(t, node)) {
+            split(this.right[t], node);
+            this.right[t] = this.splitBefore;
+            update(t);
+            this.splitBefore = t;
+        } else {
+            split(this.left[t], node);
+            this.left[t] = this.splitAfter;
+            update(t);
+            this.splitAfter = t;
+        }
+    }
+
+    private int remove(int t, int node) {
+        if (t == node) {
+            return merge(this.left[t], this.right[t]);
+        }
+
+        if (before(node, t)) {
+            this.left[t] = remove(this.left[t], node);
+        } else {
+            this.right[t] = remove(this.right[t], node);
+        }
+        update(t);
+        return t;
+    }
+
+    private int merge(int a, int b) {
+        if (a == 0) {
+            return b;
+        }
+        if (b == 0) {
+            return a;
+        }
+
+        if (this.priorities[a] > this.priorities[b]) {
+            this.right[a] = merge(this.right[a], b);
+            update(a);
+            return a;
+        } else {
+            this.left[b] = merge(a, this.left[b]);
+            update(b);
+            return b;
+        }
+    }
+
+    private int slot(long userId) {
+        // snowflakes share their high bits, so mix them before masking
+        long hash = userId * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & (this.slotNodes.length - 1);
+    }
+
+    private int findNode(long userId) {
+        int mask = this.slotNodes.length - 1;
+        for (int i = slot(userId); this.slotNodes[i] != 0; i = (i + 1) & mask) {
+            if (this.slotUserIds[i] == userId) {
+                return this.slotNodes[i];
+            }
+        }
+        return 0;
+    }
+
+    private void putNode(long userId, int node) {
+        if (this.count * 2 > this.slotNodes.length) {
+            long[] oldUserIds = this.slotUserIds;
+            int[] oldNodes = this.slotNodes;
+            this.slotUserIds = new long[oldNodes.length * 2];
+            this.slotNodes = new int[oldNodes.length * 2];
+            for (int i = 0; i < oldNodes.length; i++) {
+                if (oldNodes[i] != 0) {
+                    putNode(oldUserIds[i], oldNodes[i]);
+                }
+            }
+        }
+
+        int mask = this.slotNodes.length - 1;
+        int i = slot(userId);
+        while (this.slotNodes[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        this.slotUserIds[i] = userId;
+        this.slotNodes[i] = node;
+    }
+}
@@ -0,0 +1,19 @@
+package me.kubbidev.moonrise.common.leaderboard;
+
+/**
+ * The position of a member within the lifetime experience ranking of their guild.
+ *
+ * @param rank    the rank of the member, the highest ranked member being 1
+ * @param members the number of ranked members in the guild
+ */
+public record ExperienceRank(int rank, int members) {
+
+    /**
+     * Gets the smallest percentage of the highest ranked members which includes the member, at least 1.
+     *
+     * @return the percentage, from 1 to 100
+     */
+    public int topPercent() {
+        return Math.max(1, (int) Math.ceil(this.rank * 100.0 / this.members));
+    }
+}
@@ -0,0 +1,221 @@
+package me.kubbidev.moonrise.common.leaderboard;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import me.kubbidev.moonrise.common.config.ConfigKeys;
+import me.kubbidev.moonrise.common.plugin.MoonRisePlugin;
+import me.kubbidev.moonrise.common.storage.MemberStatsBuffer;
+import me.kubbidev.moonrise.common.storage.Storage;
+import me.kubbidev.moonrise.common.util.CaffeineFactory;
+import me.kubbidev.moonrise.common.util.LongArrayBuilder;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Ranks the members of each guild by their lifetime experience, from an {@link ExperienceIndex} held in memory.
+ *
+ * <p>The index of a guild is loaded from the storage the first time it is needed, and then kept up to date by
+ * the experience grants passing through {@link #increment(long, long, long)}, so that the highest ranked members
+ * and the rank of any member are answered without querying the storage. The index is read from a
+ * {@link MemberStatsBuffer#snapshot(Runnable, Supplier) snapshot} of the storage, so that each grant is counted
+ * once, whether it was written before the index was read or received after. The experience added back onto
+ * members moved out of the archive is counted the same way, except that an index still loading when a member is
+ * restored can't tell whether it read them before or after, so is loaded again.</p>
+ *
+ * <p>The indexes are bounded by the total number of members they hold, and evicted once they haven't been used
+ * for a while. They are also reloaded periodically, to pick up any changes made to the storage directly. Guilds
+ * with more members than the bound aren't indexed, and are ranked from the storage instead.</p>
+ */
+public class ExperienceRanking {
+
+    /**
+     * The time after which an index is reloaded from the storage
+     */
+    private static final long RELOAD_INTERVAL = TimeUnit.HOURS.toNanos(6);
+    /**
+     * The least number of members an index gains before it is weighed again
+     */
+    private static final int  REWEIGH_MEMBERS = 64;
+
+    private final Storage           storage;
+    private final MemberStatsBuffer statsBuffer;
+    private final int               maxMembers;
+
+    /**
+     * The ranking of each guild, weighed by the number of members indexed
+     */
+    private final @Nullable Cache<Long, GuildRanking> guilds;
+
+    public ExperienceRanking(MoonRisePlugin plugin, Storage storage, MemberStatsBuffer statsBuffer) {
+        this.storage = storage;
+        this.statsBuffer = statsBuffer;
+        this.maxMembers = plugin.getConfiguration().get(ConfigKeys.RANKING_MAX_MEMBERS);
+
+        if (this.maxMembers > 0) {
+            this.guilds = CaffeineFactory.newBuilder()
+                .maximumWeight(this.maxMembers)
+                .weigher((Long guildId, GuildRanking ranking) -> ranking.weigh())
+                .expireAfterAccess(plugin.getConfiguration().get(ConfigKeys.RANKING_IDLE_TIME), TimeUnit.MINUTES)
+                .build();
+        } else {
+            this.guilds = null;
+        }
+    }
+
+    /**
+     * Gets the ids of the members of a guild with the highest lifetime experience.
+     *
+     * @param guildId the guild id
+     * @param limit   the maximum number of members
+     * @return the user ids from the highest ranked, or null if the guild isn't indexed
+     */
+    public CompletableFuture<long @Nullable []> getTopUserIds(long guildId, int limit) {
+        return getIndex(guildId).thenApply(index -> index == null ? null : index.top(limit));
+    }
+
+    /**
+     * Gets the rank of a member within their guild.
+     *
+     * @param guildId the guild id
+     * @param userId  the user id
+     * @return the rank of the member, or empty if the guild isn't indexed or the member is not ranked
+     */
+    public CompletableFuture<Optional<ExperienceRank>> getRank(long guildId, long userId) {
+        return getIndex(guildId).thenApply(index -> {
+            if (index == null) {
+                return Optional.empty();
+            }
+
+            synchronized (index) {
+                int rank = index.rank(userId);
+                return rank < 0 ? Optional.empty() : Optional.of(new ExperienceRank(rank, index.size()));
+            }
+        });
+    }
+
+    /**
+     * Adds experience granted to a member to the index of their guild, if it is loaded.
+     *
+     * @param guildId    the guild id
+     * @param userId     the user id
+     * @param experience the experience granted
+     */
+    public void increment(long guildId, long userId, long experience) {
+        if (this.guilds == null || experience == 0) {
+            return;
+        }
+
+        // grants don't count as a use of the index, so the index of a guild nobody looks at is still evicted
+        GuildRanking ranking = this.guilds.policy().getIfPresentQuietly(guildId);
+        if (ranking != null && ranking.index != null) {
+            ranking.index.increment(userId, experience);
+
+            // an entry is only weighed when it is written, so write it again once it holds many more members
+            int weight = ranking.weight;
+            if (ranking.index.size() - weight >= Math.max(REWEIGH_MEMBERS, weight >> 3)) {
+                this.guilds.asMap().replace(guildId, ranking, ranking);
+            }
+        }
+    }
+
+    /**
+     * Adds the archived experience added back onto a member to the index of their guild, if it is loaded.
+     *
+     * @param guildId    the guild id
+     * @param userId     the user id
+     * @param experience the archived experience
+     */
+    public void restore(long guildId, long userId, long experience) {
+        if (this.guilds == null || experience == 0) {
+            return;
+        }
+
+        GuildRanking ranking = this.guilds.policy().getIfPresentQuietly(guildId);
+        if (ranking == null || ranking.index == null) {
+            return;
+        }
+        if (ranking.loaded.isDone()) {
+            increment(guildId, userId, experience);
+        } else {
+            // unlike grants, restores aren't ordered against the snapshot, so the read may already include it
+            this.guilds.asMap().remove(guildId, ranking);
+        }
+    }
+
+    private CompletableFuture<@Nullable ExperienceIndex> getIndex(long guildId) {
+        if (this.guilds == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        GuildRanking ranking = this.guilds.get(guildId, __ -> new GuildRanking(new ExperienceIndex()));
+        if (System.nanoTime() - ranking.created >= RELOAD_INTERVAL) {
+            // reloaded here rather than expired, as the entries are written again whenever they are weighed
+            GuildRanking reloaded = new GuildRanking(new ExperienceIndex());
+            ranking = this.guilds.asMap().replace(guildId, ranking, reloaded)
+                ? reloaded
+                : this.guilds.get(guildId, __ -> new GuildRanking(new ExperienceIndex()));
+        }
+        if (ranking.loading.compareAndSet(false, true)) {
+            load(guildId, ranking);
+        }
+        return ranking.loaded;
+    }
+
+    private void load(long guildId, GuildRanking ranking) {
+        ExperienceIndex index = ranking.index;
+        LongArrayBuilder userIds = new LongArrayBuilder();
+        LongArrayBuilder experience = new LongArrayBuilder();
+
+        // grants are recorded from the point the storage no longer includes them
+        this.statsBuffer.snapshot(index::startRecording, () -> this.storage.forEachMemberExperience(guildId,
+                this.maxMembers + 1, (userId, amount) -> {
+                    userIds.add(userId);
+                    experience.add(amount);
+                }))
+            .whenComplete((v, t) -> {
+                if (t != null) {
+                    this.guilds.asMap().remove(guildId, ranking);
+                    ranking.loaded.completeExceptionally(t);
+                } else if (userIds.size() > this.maxMembers) {
+                    this.guilds.asMap().replace(guildId, ranking, new GuildRanking(null));
+                    ranking.loaded.complete(null);
+                } else {
+                    index.populate(userIds.toArray(), experience.toArray());
+
+                    // weigh the index again now that it holds the members
+                    this.guilds.asMap().replace(guildId, ranking, ranking);
+                    ranking.loaded.complete(index);
+                }
+            });
+    }
+
+    private static final class GuildRanking {
+
+        /**
+         * The index of the guild, or null if the guild has too many members to index
+         */
+        final @Nullable ExperienceIndex                    index;
+        final CompletableFuture<@Nullable ExperienceIndex> loaded;
+        final AtomicBoolean                                loading;
+        final long                                         created = System.nanoTime();
+        /**
+         * The number of members the index held when it was last weighed
+         */
+        volatile int                                       weight  = 0;
+
+        GuildRanking(@Nullable ExperienceIndex index) {
+            this.index = index;
+            this.loaded = index == null ? CompletableFuture.completedFuture(null) : new CompletableFuture<>();
+            this.loading = new AtomicBoolean(index == null);
+        }
+
+        int weigh() {
+            this.weight = this.index == null ? 0 : this.index.size();
+            return this.weight;
+        }
+    }
+}
@@ -3,9 +3,11 @@ package me.kubbidev.moonrise.common.leaderboard;
 import me.kubbidev.moonrise.common.leaderboard.util.Experiences;
 import me.kubbidev.moonrise.common.locale.Message;
 import me.kubbidev.moonrise.common.message.ComponentEmbed;
+import me.kubbidev.moonrise.common.storage.misc.ExperienceWindow;
 import me.kubbidev.moonrise.common.util.Emote;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.TextComponent;
+import org.jetbrains.annotations.Nullable;
 
 import java.time.Instant;
 import java.time.ZonedDateTime;
@@ -22,25 +24,34 @@ public final class Leaderboard {
      * This record stores information about a leaderboard entry, including:
      * <ul>
      *     <li>The name of the participant.</li>
+     *     <li>The experience points ranked by the leaderboard.</li>
      *     <li>The total experience points accumulated by the participant.</li>
      *     <li>The current placement of the participant in the leaderboard.</li>
      *     <li>The previous placement of the participant in the leaderboard.</li>
      * </ul>
      *
      * @param name          The name of the participant for this leaderboard entry.
-     * @param exp           The total experience points associated with this participant.
+     * @param exp           The experience points ranked by the leaderboard, gained within its window.
+     * @param totalExp      The total experience points associated with this participant, determining their level.
      * @param placement     The current ranking or position of the participant in the leaderboard.
      * @param prevPlacement The previous ranking or position of the participant in the leaderboard.
      */
-    public record Entry(String name, long exp, int placement, int prevPlacement) {
+    public record Entry(String name, long exp, long totalExp, int placement, int prevPlacement) {
 
     }
 
-    private final LeaderboardManager leaderboardManager;
-    private final List<Entry>        entries = new ArrayList<>(MAX_ENTRIES);
+    private final LeaderboardManager         leaderboardManager;
+    /**
+     * The window the entries are ranked within, or null if they are ranked by their total experience
+     */
+    private final @Nullable ExperienceWindow window;
+    private final int                        bucket;
+    private final List<Entry>                entries = new ArrayList<>(MAX_ENTRIES);
 
-    public Leaderboard(LeaderboardManager leaderboardManager) {
+    public Leaderboard(LeaderboardManager leaderboardManager, @Nullable ExperienceWindow window, int bucket) {
         this.leaderboardManager = leaderboardManager;
+        this.window = window;
+        this.bucket = bucket;
     }
 
     /**
@@ -57,15 +68,12 @@ public final class Leaderboard {
 
     public ComponentEmbed build() {
         ComponentEmbed embed = new ComponentEmbed()
-            .author(Message.LEADERBOARD_FIELD_HEADER.build())
+            .author(createHeader())
             .thumbnail(
                 "https://static.wikia.nocookie.net/gensin-impact/images/1/17/Achievement_Wonders_of_the_World.png")
             .color(0xFFE193);
 
-        ZonedDateTime nextDate = this.leaderboardManager.getNextScheduleDate();
-        ZonedDateTime pastDate = nextDate.minusWeeks(1);
-
-        embed.title(Message.LEADERBOARD_FIELD_TITLE.build(nextDate, pastDate));
+        embed.title(createTitle());
         embed.field(ComponentEmbed.BLANK_FIELD, createNameField(), true);
         embed.field(ComponentEmbed.BLANK_FIELD, createExpField(), true);
         embed.field(ComponentEmbed.BLANK_FIELD, createLevelField(), true);
@@ -73,6 +81,29 @@ public final class Leaderboard {
         return embed;
     }
 
+    private Component createHeader() {
+        if (this.window == null) {
+            return Message.LEADERBOARD_FIELD_HEADER_ALL_TIME.build();
+        }
+        return switch (this.window) {
+            case DAY -> Message.LEADERBOARD_FIELD_HEADER_DAY.build();
+            case WEEK -> Message.LEADERBOARD_FIELD_HEADER.build();
+            case MONTH -> Message.LEADERBOARD_FIELD_HEADER_MONTH.build();
+        };
+    }
+
+    private Component createTitle() {
+        if (this.window == null) {
+            ZonedDateTime nextDate = this.leaderboardManager.getNextScheduleDate();
+            ZonedDateTime pastDate = nextDate.minusWeeks(1);
+            return Message.LEADERBOARD_FIELD_TITLE.build(nextDate, pastDate);
+        }
+
+        ZonedDateTime start = this.window.start(this.bucket).atStartOfDay(ExperienceWindow.ZONE_ID);
+        ZonedDateTime end = this.window.end(this.bucket).atStartOfDay(ExperienceWindow.ZONE_ID);
+        return Message.LEADERBOARD_FIELD_TITLE.build(end, start);
+    }
+
     private Component createNameField() {
         TextComponent.Builder builder = Component.text();
         this.entries.forEach(entry -> {
@@ -104,7 +135,7 @@ public final class Leaderboard {
     private Component createLevelField() {
         TextComponent.Builder builder = Component.text();
         this.entries.forEach(entry -> {
-            String level = String.valueOf(Experiences.determineLevelFromExperience(entry.exp));
+            String level = String.valueOf(Experiences.determineLevelFromExperience(entry.totalExp));
             builder.append(Message.LEADERBOARD_FIELD_GENERIC.build("level", level));
             builder.append(Component.newline());
         });
@@ -1,12 +1,15 @@
 package me.kubbidev.moonrise.common.leaderboard;
 
 import me.kubbidev.moonrise.common.GatewayClient;
+import me.kubbidev.moonrise.common.config.ConfigKeys;
 import me.kubbidev.moonrise.common.message.source.MessageChannelSource;
 import me.kubbidev.moonrise.common.model.ApiGuild;
 import me.kubbidev.moonrise.common.model.ApiMember;
 import me.kubbidev.moonrise.common.plugin.MoonRisePlugin;
 import me.kubbidev.moonrise.common.plugin.scheduler.SchedulerAdapter;
 import me.kubbidev.moonrise.common.plugin.scheduler.SchedulerTask;
+import me.kubbidev.moonrise.common.storage.misc.ExperienceGain;
+import me.kubbidev.moonrise.common.storage.misc.ExperienceWindow;
 import me.kubbidev.moonrise.common.util.CompletableFutures;
 import me.kubbidev.moonrise.common.util.ImmutableCollectors;
 import net.dv8tion.jda.api.entities.Guild;
@@ -22,13 +25,14 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 public final class LeaderboardManager implements Runnable, AutoCloseable {
 
     /**
-     * A constant representing the UTC timezone as used
+     * A constant representing the timezone as used, the same as the buckets of the experience windows
      */
-    private static final ZoneId        ZONE_ID       = ZoneId.of("Europe/Paris");
+    private static final ZoneId        ZONE_ID       = ExperienceWindow.ZONE_ID;
     /**
      * A constant representing the specific day of the week on which the scheduled operations of the
      * {@link LeaderboardManager} are intended to occur.
@@ -129,13 +133,21 @@ public final class LeaderboardManager implements Runnable, AutoCloseable {
             return CompletableFutures.NULL;
         }
 
-        return getSortedMembers(guild).thenComposeAsync(apiMembers -> {
-            if (apiMembers.isEmpty()) {
+        // the scheduled update runs as a week starts, so rank the window containing the previous day, which is
+        // the week that just ended rather than the few hours of the new one
+        MoonRisePlugin plugin = this.client.getPlugin();
+        ExperienceWindow window = plugin.getStorage().supportsExperienceWindows()
+            ? plugin.getConfiguration().get(ConfigKeys.LEADERBOARD_WINDOW)
+            : null;
+        int bucket = window != null ? window.bucket(getCurrentDate().toLocalDate().minusDays(1)) : 0;
+
+        return getSortedMembers(guild, window, bucket).thenComposeAsync(gains -> {
+            if (gains.isEmpty()) {
                 return CompletableFutures.NULL;
             }
 
-            Leaderboard leaderboard = new Leaderboard(this);
-            CompletableFuture<?> future1 = writeMembers(apiMembers, leaderboard);
+            Leaderboard leaderboard = new Leaderboard(this, window, bucket);
+            CompletableFuture<?> future1 = writeMembers(gains, leaderboard);
             CompletableFuture<?> future2 = sendLeaderboard(channel, leaderboard);
 
             return CompletableFuture.allOf(future1, future2);
@@ -146,15 +158,25 @@ public final class LeaderboardManager implements Runnable, AutoCloseable {
         return guild.getChannelById(GuildMessageChannel.class, apiGuild.getLeaderboardChannelId());
     }
 
-    private CompletableFuture<List<ApiMember>> getSortedMembers(Guild guild) {
-        return this.client.getMembersWithHighestExperience(guild, Leaderboard.MAX_ENTRIES);
+    private CompletableFuture<List<ExperienceGain>> getSortedMembers(Guild guild, @Nullable ExperienceWindow window,
+                                                                      int bucket) {
+        // make sure buffered experience is taken into account
+        return this.client.getPlugin().getStatsBuffer().flush().thenCompose(__ -> {
+            if (window != null) {
+                return this.client.getMembersWithHighestExperience(guild, window, bucket, Leaderboard.MAX_ENTRIES);
+            }
+            return this.client.getMembersWithHighestExperience(guild, Leaderboard.MAX_ENTRIES)
+                .thenApply(members -> members.stream()
+                    .map(member -> new ExperienceGain(member, member.getExperience()))
+                    .collect(Collectors.toList()));
+        });
     }
 
-    private CompletableFuture<Void> writeMembers(List<ApiMember> apiMembers, Leaderboard leaderboard) {
-        List<CompletableFuture<?>> futures = new ArrayList<>(apiMembers.size());
+    private CompletableFuture<Void> writeMembers(List<ExperienceGain> gains, Leaderboard leaderboard) {
+        List<ApiMember> changed = new ArrayList<>();
 
-        for (int i = 0; i < apiMembers.size(); i++) {
-            ApiMember apiMember = apiMembers.get(i);
+        for (int i = 0; i < gains.size(); i++) {
+            ApiMember apiMember = gains.get(i).member();
 
             int currentPlacement = (i + 1);
             int previousPlacement = apiMember.getPlacement();
@@ -164,6 +186,7 @@ public final class LeaderboardManager implements Runnable, AutoCloseable {
 
             leaderboard.registerEntry(new Leaderboard.Entry(
                 apiMember.getDisplayName(),
+                gains.get(i).experience(),
                 apiMember.getExperience(),
                 currentPlacement,
                 previousPlacement
@@ -171,12 +194,11 @@ public final class LeaderboardManager implements Runnable, AutoCloseable {
 
             if (previousPlacement != currentPlacement) {
                 apiMember.setPlacement(currentPlacement);
-
-                futures.add(this.client.saveMember(apiMember));
+                changed.add(apiMember);
             }
         }
 
-        return CompletableFutures.allOf(futures);
+        return this.client.saveMembers(changed);
     }
 
     private CompletableFuture<Message> sendLeaderboard(GuildMessageChannel channel, Leaderboard leaderboard) {
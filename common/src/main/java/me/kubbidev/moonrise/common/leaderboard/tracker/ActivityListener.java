@@ -2,8 +2,14 @@ package me.kubbidev.moonrise.common.leaderboard.tracker;
 
 import com.github.benmanes.caffeine.cache.Cache;
 import me.kubbidev.moonrise.common.GatewayClient;
+import me.kubbidev.moonrise.common.config.ConfigKeys;
+import me.kubbidev.moonrise.common.plugin.MoonRisePlugin;
+import me.kubbidev.moonrise.common.plugin.scheduler.SchedulerAdapter;
+import me.kubbidev.moonrise.common.plugin.scheduler.SchedulerTask;
 import me.kubbidev.moonrise.common.util.CaffeineFactory;
 import me.kubbidev.moonrise.common.util.CompletableFutures;
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.GuildVoiceState;
 import net.dv8tion.jda.api.entities.Member;
 import net.dv8tion.jda.api.entities.channel.middleman.AudioChannel;
@@ -11,25 +17,63 @@ import net.dv8tion.jda.api.events.guild.voice.GenericGuildVoiceEvent;
 import net.dv8tion.jda.api.events.guild.voice.GuildVoiceMuteEvent;
 import net.dv8tion.jda.api.events.guild.voice.GuildVoiceSuppressEvent;
 import net.dv8tion.jda.api.events.guild.voice.GuildVoiceUpdateEvent;
+import net.dv8tion.jda.api.sharding.ShardManager;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
 
-public class ActivityListener extends ActivityService {
+public class ActivityListener extends ActivityService implements AutoCloseable {
+
+    /**
+     * The number of seconds between two ticks of the voice activity
+     */
+    private static final long TICK_INTERVAL = 15;
 
     private final GatewayClient                     client;
     private final Cache<Long, GuildActivityTracker> activityTrackers = CaffeineFactory.newBuilder()
         .expireAfterAccess(Duration.ofDays(10)).build();
 
+    private @Nullable SchedulerTask tickTask       = null;
+    private @Nullable SchedulerTask checkpointTask = null;
+
     public ActivityListener(GatewayClient client) {
         super(client);
         this.client = client;
     }
 
+    /**
+     * Starts the periodic tick of the voice activity, and the periodic checkpoint if enabled.
+     */
+    public void start() {
+        if (this.tickTask != null) {
+            return;
+        }
+
+        MoonRisePlugin plugin = this.client.getPlugin();
+        SchedulerAdapter scheduler = plugin.getBootstrap().getScheduler();
+        this.tickTask = scheduler.asyncRepeating(this::tick, TICK_INTERVAL, TimeUnit.SECONDS);
+
+        int checkpointInterval = plugin.getConfiguration().get(ConfigKeys.ACTIVITY_CHECKPOINT_INTERVAL);
+        if (checkpointInterval > 0) {
+            this.checkpointTask = scheduler.asyncRepeating(this::checkpoint, checkpointInterval, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Advances the voice activity of every tracked channel.
+     */
+    private void tick() {
+        long now = System.currentTimeMillis();
+        this.activityTrackers.asMap().values().forEach(tracker -> tracker.tick(now));
+    }
+
     private boolean isBot(Member member) {
         return member.getUser().isBot();
     }
@@ -84,21 +128,94 @@ public class ActivityListener extends ActivityService {
         var state = tracker.removeChannel(
             oldChannel.getIdLong(), e.getMember());
 
-        if (tracker.isEmpty()) {
-            this.activityTrackers.invalidate(guildId);
-        }
+        // the guild is only dropped if no member joined one of its channels meanwhile
+        this.activityTrackers.asMap().computeIfPresent(guildId, (id, t) -> t.isEmpty() ? null : t);
         return state != null ? super.updateActivity(e, state) : CompletableFutures.NULL;
     }
 
     private CompletableFuture<Void> startRecordingActivity(GuildVoiceUpdateEvent e) {
         AudioChannel newChannel = Objects.requireNonNull(e.getChannelJoined());
-        long guildId = newChannel.getGuild().getIdLong();
+        startRecordingActivity(newChannel.getGuild(), List.of(e.getMember()), __ -> newChannel.getIdLong(), false);
+        return CompletableFutures.NULL;
+    }
 
-        var tracker = this.activityTrackers.get(guildId, __ -> new GuildActivityTracker(this.client.getPlugin()));
-        if (tracker != null) {
-            tracker.addChannel(newChannel.getIdLong(), e.getMember().getIdLong(), isFrozen(e.getMember()));
+    /**
+     * Starts recording the activity of members of a guild.
+     *
+     * @param guild      the guild of the members
+     * @param members    the members to record the activity of
+     * @param channelIds the id of the channel of each member
+     * @param ifAbsent   if members whose activity is already recorded should be left as they are
+     */
+    private void startRecordingActivity(Guild guild, List<Member> members, ToLongFunction<Member> channelIds,
+                                        boolean ifAbsent) {
+        this.activityTrackers.asMap().compute(guild.getIdLong(), (id, tracker) -> {
+            if (tracker == null) {
+                tracker = new GuildActivityTracker(this.client.getPlugin());
+            }
+            for (Member member : members) {
+                if (!ifAbsent || !tracker.isTracked(member.getIdLong())) {
+                    tracker.addChannel(channelIds.applyAsLong(member), member.getIdLong(), isFrozen(member));
+                }
+            }
+            return tracker;
+        });
+    }
+
+    /**
+     * Starts recording the activity of the members who were already in voice when a shard became ready, or when
+     * its session was recreated.
+     *
+     * <p>The voice states cached by the shard are scanned for each guild, and the members found in an allowed
+     * channel are recorded at once.</p>
+     *
+     * @param shard the shard which became ready, or whose session was recreated
+     */
+    public void recoverSessions(JDA shard) {
+        for (Guild guild : shard.getGuildCache()) {
+            List<Member> members = new ArrayList<>();
+            for (GuildVoiceState voiceState : guild.getVoiceStates()) {
+                AudioChannel channel = voiceState.getChannel();
+                if (channel != null && isChannelAllowed(channel) && !isBot(voiceState.getMember())) {
+                    members.add(voiceState.getMember());
+                }
+            }
+
+            if (members.isEmpty()) {
+                continue;
+            }
+
+            this.client.getGuild(guild).thenAcceptAsync(apiGuild -> {
+                if (apiGuild.isLeaderboardEnabled()) {
+                    startRecordingActivity(guild, members, ActivityListener::getChannelId, true);
+                }
+            }).exceptionally(t -> {
+                this.client.getPlugin().getLogger().warn("An error occurred while recovering voice activity", t);
+                return null;
+            });
         }
-        return CompletableFutures.NULL;
+    }
+
+    /**
+     * Credits every member still in voice with the activity they have earned since the last checkpoint.
+     */
+    private void checkpoint() {
+        ShardManager shardManager = this.client.getShardManager().orElse(null);
+        if (shardManager == null) {
+            return;
+        }
+
+        this.activityTrackers.asMap().forEach((guildId, tracker) -> {
+            Guild guild = shardManager.getGuildById(guildId);
+            if (guild == null) {
+                return;
+            }
+
+            tracker.checkpoint((userId, state) -> {
+                Member member = guild.getMemberById(userId);
+                return member == null ? -1 : checkpointActivity(member, state, tracker);
+            });
+        });
     }
 
     private void handleGuildFreezing(GenericGuildVoiceEvent e) {
@@ -125,4 +242,24 @@ public class ActivityListener extends ActivityService {
     private static boolean isFrozen(GuildVoiceState voiceState) {
         return !voiceState.inAudioChannel() || voiceState.isMuted() || voiceState.isSuppressed();
     }
+
+    private static long getChannelId(Member member) {
+        return Objects.requireNonNull(Objects.requireNonNull(member.getVoiceState()).getChannel()).getIdLong();
+    }
+
+    /**
+     * Stops ticking the voice activity, and credits the members still in voice with the activity they have earned.
+     */
+    @Override
+    public void close() {
+        if (this.tickTask != null) {
+            this.tickTask.cancel();
+            this.tickTask = null;
+        }
+        if (this.checkpointTask != null) {
+            this.checkpointTask.cancel();
+            this.checkpointTask = null;
+        }
+        checkpoint();
+    }
 }
@@ -4,16 +4,16 @@ import me.kubbidev.moonrise.common.GatewayClient;
 import me.kubbidev.moonrise.common.config.ConfigKeys;
 import me.kubbidev.moonrise.common.leaderboard.activity.MemberState;
 import me.kubbidev.moonrise.common.util.CompletableFutures;
-import me.kubbidev.moonrise.common.util.ExpiringSet;
-import me.kubbidev.moonrise.common.util.Long2;
+import me.kubbidev.moonrise.common.util.CooldownTable;
+import net.dv8tion.jda.api.entities.Member;
 import net.dv8tion.jda.api.events.guild.voice.GuildVoiceUpdateEvent;
 import net.dv8tion.jda.api.events.message.MessageReceivedEvent;
 import net.dv8tion.jda.api.hooks.ListenerAdapter;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.Random;
-import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 
 public abstract class ActivityService extends ListenerAdapter {
@@ -21,9 +21,9 @@ public abstract class ActivityService extends ListenerAdapter {
     private final GatewayClient client;
     private final Random        random           = new Random();
     /**
-     * A thread-safe set that holds {@link Long2} identifiers to manage a cooldown period
+     * The message cooldown of each member, by user id and guild id
      */
-    private final Set<Long2>    messageCooldowns = ExpiringSet.newExpiringSet(1, TimeUnit.MINUTES);
+    private final CooldownTable messageCooldowns = new CooldownTable(1, TimeUnit.MINUTES);
 
     public ActivityService(GatewayClient client) {
         this.client = client;
@@ -34,16 +34,43 @@ public abstract class ActivityService extends ListenerAdapter {
     }
 
     protected CompletableFuture<Void> updateActivity(GuildVoiceUpdateEvent e, MemberState state) {
-        return this.client.modifyMember(e.getMember(), apiMember -> {
-            long f = (long) (state.getActivityPoints().get() * getExperienceMultiplier() * 15);
-            long g = apiMember.getExperience() + f;
+        long f = (long) (state.activityPoints() * getExperienceMultiplier() * 15);
+        long h = state.activityTime();
 
-            long h = state.getActivityTime().get();
-            long i = apiMember.getVoiceActivity() + h;
+        return this.client.incrementMemberStats(e.getMember(), f, h);
+    }
 
-            apiMember.setExperience(g);
-            apiMember.setVoiceActivity(i);
-        });
+    /**
+     * Credits a member still in voice with the activity they have earned so far.
+     *
+     * <p>Only whole experience is granted, the points left over are kept by the member for later. If the
+     * experience can't be written, the activity credited is given back to the member by the tracker.</p>
+     *
+     * @param member  the member
+     * @param state   the activity earned by the member since the last checkpoint
+     * @param tracker the tracker of the guild the activity is deducted from
+     * @return the activity points credited
+     */
+    protected double checkpointActivity(Member member, MemberState state, GuildActivityTracker tracker) {
+        int multiplier = getExperienceMultiplier();
+        long f = (long) (state.activityPoints() * multiplier * 15);
+        long h = state.activityTime();
+        double credited = multiplier > 0 ? f / (multiplier * 15.0) : state.activityPoints();
+
+        // given back asynchronously, as the tracker only deducts the activity once this has returned
+        Executor executor = this.client.getPlugin().getBootstrap().getScheduler().async();
+        this.client.incrementMemberStats(member, f, h).exceptionallyAsync(t -> {
+            MemberState uncredited = new MemberState(h, credited);
+            if (tracker.restore(member.getIdLong(), uncredited)) {
+                this.client.getPlugin().getLogger().warn("Unable to checkpoint the voice activity of " + member
+                    + ", it is kept for later", t);
+            } else {
+                this.client.getPlugin().getLogger().warn("Unable to checkpoint the voice activity of " + member
+                    + ", " + uncredited + " is lost as they have left", t);
+            }
+            return null;
+        }, executor);
+        return credited;
     }
 
     protected void updateMessageActivity(MessageReceivedEvent e) {
@@ -57,12 +84,8 @@ public abstract class ActivityService extends ListenerAdapter {
                 return CompletableFutures.NULL;
             }
 
-            return this.client.modifyMember(member, apiMember -> {
-                long f = this.random.nextLong(15L, 25L) * getExperienceMultiplier();
-                long g = apiMember.getExperience() + f;
-
-                apiMember.setExperience(g);
-            });
+            long f = this.random.nextLong(15L, 25L) * getExperienceMultiplier();
+            return this.client.incrementMemberStats(member, f, 0);
         });
     }
 
@@ -72,13 +95,8 @@ public abstract class ActivityService extends ListenerAdapter {
             return;
         }
 
-        Long2 identifier = new Long2(
-            e.getAuthor().getIdLong(),
-            e.getGuild().getIdLong());
-
-        if (!this.messageCooldowns.contains(identifier)) {
+        if (this.messageCooldowns.tryAcquire(e.getAuthor().getIdLong(), e.getGuild().getIdLong())) {
             updateMessageActivity(e);
-            this.messageCooldowns.add(identifier);
         }
     }
 }
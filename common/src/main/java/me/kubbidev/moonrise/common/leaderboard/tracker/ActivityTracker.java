@@ -6,133 +6,331 @@ import me.kubbidev.moonrise.common.plugin.MoonRisePlugin;
 import net.dv8tion.jda.api.entities.Member;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * A class that tracks and calculates the voice activity of members in a synchronized and thread-safe manner.
+ * A class that tracks and calculates the voice activity of the members of a channel in a thread-safe manner.
+ *
+ * <p>Every member who isn't frozen earns the same activity at any given time, which only depends on the number of
+ * speaking members in the channel. Rather than crediting each member whenever the channel changes, the channel keeps
+ * the activity a member would have earned since it was created, and each member remembers its value at the time
+ * they started earning. The activity of a member is then the difference between the two, so joining, leaving and
+ * freezing only touch the channel totals and the member concerned, whatever the size of the channel.</p>
+ *
+ * <p>Members are stored in parallel primitive arrays, and the channel totals are also advanced by
+ * {@link #tick(long)} at a fixed interval. Activity points are accumulated as an exact integer weight, the
+ * speaking time multiplied by the number of speaking members, and only converted to points when read, so the
+ * points earned don't depend on how often the totals are advanced.</p>
  */
 public class ActivityTracker {
 
-    private final MoonRisePlugin         plugin;
+    private static final int    INITIAL_CAPACITY  = 4;
     /**
-     * A thread-safe map that holds the voice activity states of members in the form of {@link MemberState}
+     * The points earned for each minute spent speaking, for each speaking member
      */
-    private final Map<Long, MemberState> states = new ConcurrentHashMap<>();
+    private static final double POINTS_PER_MINUTE = 0.4;
+
+    private final MoonRisePlugin plugin;
+
+    /**
+     * The maximum number of speaking members counted, refreshed from the configuration on every tick
+     */
+    private int  maxVoices;
+    /**
+     * The number of members who are not frozen
+     */
+    private int  speaking       = 0;
+    /**
+     * The time the channel totals were last advanced to
+     */
+    private long lastAdvanced;
+    /**
+     * The activity time and weight earned by a member who was never frozen since the channel was created
+     */
+    private long totalTime   = 0;
+    private long totalWeight = 0;
+
+    /**
+     * The members of the channel, the first {@link #size} slots being used
+     */
+    private long[]    userIds        = new long[INITIAL_CAPACITY];
+    private boolean[] frozen         = new boolean[INITIAL_CAPACITY];
+    private long[]    activityTime   = new long[INITIAL_CAPACITY];
+    private long[]    activityWeight = new long[INITIAL_CAPACITY];
+    /**
+     * The channel totals when each member last had their activity settled
+     */
+    private long[]    timeMarks      = new long[INITIAL_CAPACITY];
+    private long[]    weightMarks    = new long[INITIAL_CAPACITY];
+    private int       size           = 0;
+
+    /**
+     * The slot of each member in the arrays
+     */
+    private final Map<Long, Integer> slots = new HashMap<>();
 
     public ActivityTracker(MoonRisePlugin plugin) {
+        this(plugin, System.currentTimeMillis());
+    }
+
+    ActivityTracker(MoonRisePlugin plugin, long now) {
         this.plugin = plugin;
+        this.maxVoices = plugin.getConfiguration().get(ConfigKeys.ACTIVITY_MAX_VOICES);
+        this.lastAdvanced = now;
     }
 
     /**
-     * Checks if the collection of voice activity states is empty.
+     * Checks if the channel has no member left.
      *
-     * @return true if the collection of states is empty, false otherwise
+     * @return true if the channel is empty, false otherwise
      */
-    public boolean isEmpty() {
-        synchronized (this.states) {
-            return this.states.isEmpty();
-        }
+    public synchronized boolean isEmpty() {
+        return this.size == 0;
     }
 
     /**
      * Adds a new member to the {@link ActivityTracker} with a specified frozen state.
-     * <p>
-     * Invokes the accumulate method to ensure current activity metrics are updated prior to adding a new member.
      *
      * @param userId The unique identifier of the member to be added.
      * @param frozen A boolean indicating whether the member should initially be marked as frozen.
      */
     public void addMember(long userId, boolean frozen) {
-        synchronized (this.states) {
-            this.accumulate();
-            this.states.put(userId, new MemberState(frozen));
+        addMember(userId, frozen, System.currentTimeMillis());
+    }
+
+    synchronized void addMember(long userId, boolean frozen, long now) {
+        advance(now);
+
+        Integer existing = this.slots.get(userId);
+        if (existing != null) {
+            // a member only joins once, but start them over like the previous state was replaced
+            removeSlot(existing);
+        }
+
+        int slot = this.size++;
+        if (slot == this.userIds.length) {
+            grow();
+        }
+
+        this.userIds[slot] = userId;
+        this.frozen[slot] = frozen;
+        this.activityTime[slot] = 0;
+        this.activityWeight[slot] = 0;
+        this.timeMarks[slot] = this.totalTime;
+        this.weightMarks[slot] = this.totalWeight;
+        this.slots.put(userId, slot);
+        if (!frozen) {
+            this.speaking++;
         }
     }
 
     /**
      * Removes a member from the {@link ActivityTracker} associated with the given user id.
-     * <p>
-     * Invokes the accumulate method to ensure current activity metrics are updated before the removal.
      *
      * @param member The member to be removed.
-     * @return The state of the removed {@link MemberState} if a member with the specified id existed, or null if no
-     * such member was found.
+     * @return The {@link MemberState} earned by the removed member if a member with the specified id existed, or null
+     * if no such member was found.
      */
-    public synchronized @Nullable MemberState removeMember(Member member) {
-        synchronized (this.states) {
-            this.accumulate();
-            return this.states.remove(member.getIdLong());
+    public @Nullable MemberState removeMember(Member member) {
+        return removeMember(member.getIdLong(), System.currentTimeMillis());
+    }
+
+    synchronized @Nullable MemberState removeMember(long userId, long now) {
+        Integer slot = this.slots.get(userId);
+        if (slot == null) {
+            return null;
         }
+
+        advance(now);
+        settle(slot);
+        MemberState state = new MemberState(this.activityTime[slot], points(this.activityWeight[slot]));
+        removeSlot(slot);
+        return state;
     }
 
     /**
-     * Updates the frozen state of a specific {@link MemberState} in the voice activity tracker.
-     * <p>
-     * Invokes the accumulate method to ensure any ongoing activity metrics are updated before altering the member's
-     * frozen state.
-     * <p>
-     * If a member with the specified id exists, its frozen state is updated to the provided value.
+     * Updates the frozen state of a member of the channel.
+     *
+     * <p>If a member with the specified id exists, its frozen state is updated to the provided value.</p>
      *
      * @param userId The unique identifier of the member whose frozen state is to be modified.
      * @param frozen A boolean value indicating the new frozen state for the member. Set to {@code true} to mark the
      *               member as frozen, or {@code false} to unfreeze.
      */
-    public synchronized void freeze(long userId, boolean frozen) {
-        synchronized (this.states) {
-            this.accumulate();
-            var state = this.states.get(userId);
-            if (state != null) {
-                state.setFrozen(frozen);
-            }
+    public void freeze(long userId, boolean frozen) {
+        freeze(userId, frozen, System.currentTimeMillis());
+    }
+
+    synchronized void freeze(long userId, boolean frozen, long now) {
+        Integer slot = this.slots.get(userId);
+        if (slot == null || this.frozen[slot] == frozen) {
+            return;
         }
+
+        advance(now);
+        settle(slot);
+        this.frozen[slot] = frozen;
+        this.speaking += frozen ? -1 : 1;
+    }
+
+    /**
+     * Checks if a member is in the channel.
+     *
+     * @param userId the user id
+     * @return true if the member is tracked, false otherwise
+     */
+    public synchronized boolean containsMember(long userId) {
+        return this.slots.containsKey(userId);
     }
 
     /**
-     * Accumulates activity metrics for all {@link MemberState} currently tracked in the voice states.
-     * <p>
-     * <ul>
-     * <li>Iterates through each {@link MemberState} in the `states` map and updates its activity metrics,
-     * including activity time and activity points, based on its current state.</li>
+     * Credits every member with the activity they have earned since the last checkpoint, so that it isn't lost if
+     * their session never ends.
      *
-     * <li>Ignores members that are marked as frozen using the {@code isFrozen} flag.</li>
-     * <li>Caps the number of active members contributing to the activity calculations to {@code MAX_VOICES},
-     * if {@code MAX_VOICES} is greater than 0.</li>
-     * </ul>
+     * <p>The activity credited is deducted from the members, who keep earning from where they were.</p>
      *
-     * <b>Key considerations:</b>
-     * <ul>
-     * <li>Members are only eligible for activity accumulation if they are not frozen, as determined by
-     * {@link MemberState#isFrozen()}.</li>
+     * @param checkpoint the function crediting each member
+     */
+    public void checkpoint(Checkpoint checkpoint) {
+        checkpoint(checkpoint, System.currentTimeMillis());
+    }
+
+    synchronized void checkpoint(Checkpoint checkpoint, long now) {
+        advance(now);
+        for (int slot = 0; slot < this.size; slot++) {
+            settle(slot);
+            long time = this.activityTime[slot];
+            long weight = this.activityWeight[slot];
+            if (time == 0 && weight == 0) {
+                continue;
+            }
+
+            double credited = checkpoint.credit(this.userIds[slot], new MemberState(time, points(weight)));
+            if (credited >= 0) {
+                this.activityTime[slot] = 0;
+                this.activityWeight[slot] -= Math.round(credited / POINTS_PER_MINUTE * 60000);
+            }
+        }
+    }
+
+    /**
+     * Gives a member back the activity deducted by a checkpoint which couldn't be credited after all, so that it is
+     * credited by a later checkpoint or when their session ends.
      *
-     * <li>Activity time and points are computed based on the duration since the last accumulation and the
-     * current count of active speaking members.</li>
+     * @param userId the user id
+     * @param state  the activity deducted from the member
+     * @return true if the member is still tracked and has been given the activity back, false otherwise
+     */
+    public synchronized boolean restore(long userId, MemberState state) {
+        Integer slot = this.slots.get(userId);
+        if (slot == null) {
+            return false;
+        }
+
+        this.activityTime[slot] += state.activityTime();
+        this.activityWeight[slot] += Math.round(state.activityPoints() / POINTS_PER_MINUTE * 60000);
+        return true;
+    }
+
+    /**
+     * Advances the channel totals to the given time, and picks up any change to the maximum number of voices.
      *
-     * <li>Ensures concurrent updates to {@link MemberState#getActivityTime()} and
-     * {@link MemberState#getActivityPoints()} remain thread-safe using atomic operations.</li>
+     * @param now the current time, in milliseconds
+     */
+    public synchronized void tick(long now) {
+        advance(now);
+        this.maxVoices = this.plugin.getConfiguration().get(ConfigKeys.ACTIVITY_MAX_VOICES);
+    }
+
+    /**
+     * Converts an activity weight, in milliseconds multiplied by the number of speaking members, to points.
+     */
+    static double points(long weight) {
+        return weight / 60000.0 * POINTS_PER_MINUTE;
+    }
+
+    /**
+     * Adds the activity earned by a speaking member since the totals were last advanced.
      *
-     * <li>Updates the `lastAccumulated` timestamp for all members to the current time, even when no activity
-     * data is modified.</li>
-     * </ul>
+     * <p>Members only earn activity whilst more than one of them are speaking, and the number of speaking members
+     * counted is capped to the maximum number of voices, if it is greater than 0.</p>
      */
-    private void accumulate() {
-        long currentMillis = System.currentTimeMillis();
-        long speakingMembers = this.states.values().stream().filter(m -> !m.isFrozen()).count();
+    private void advance(long now) {
+        long speakingMembers = this.speaking;
+        if (this.maxVoices > 0) {
+            speakingMembers = Math.min(speakingMembers, this.maxVoices);
+        }
 
-        int maxVoiceMembers = this.plugin.getConfiguration().get(ConfigKeys.ACTIVITY_MAX_VOICES);
-        if (maxVoiceMembers > 0) {
-            speakingMembers = Math.min(speakingMembers, maxVoiceMembers);
+        if (speakingMembers > 1) {
+            long duration = now - this.lastAdvanced;
+
+            this.totalTime += duration;
+            this.totalWeight += duration * speakingMembers;
         }
 
-        for (MemberState value : this.states.values()) {
-            if (!value.isFrozen() && speakingMembers > 1) {
-                long duration = currentMillis - value.getLastAccumulated();
+        this.lastAdvanced = now;
+    }
 
-                value.getActivityTime().addAndGet(duration);
-                value.getActivityPoints().addAndGet((duration / 60000.0F * speakingMembers * 0.4F));
-            }
+    /**
+     * Credits a member with the activity earned since they were last settled.
+     */
+    private void settle(int slot) {
+        if (!this.frozen[slot]) {
+            this.activityTime[slot] += this.totalTime - this.timeMarks[slot];
+            this.activityWeight[slot] += this.totalWeight - this.weightMarks[slot];
+        }
+        this.timeMarks[slot] = this.totalTime;
+        this.weightMarks[slot] = this.totalWeight;
+    }
 
-            value.setLastAccumulated(currentMillis);
+    /**
+     * Removes a member by moving the last member into their slot.
+     */
+    private void removeSlot(int slot) {
+        long userId = this.userIds[slot];
+        this.slots.remove(userId);
+        if (!this.frozen[slot]) {
+            this.speaking--;
+        }
+
+        int last = --this.size;
+        if (slot != last) {
+            this.userIds[slot] = this.userIds[last];
+            this.frozen[slot] = this.frozen[last];
+            this.activityTime[slot] = this.activityTime[last];
+            this.activityWeight[slot] = this.activityWeight[last];
+            this.timeMarks[slot] = this.timeMarks[last];
+            this.weightMarks[slot] = this.weightMarks[last];
+            this.slots.put(this.userIds[slot], slot);
         }
     }
+
+    private void grow() {
+        int capacity = this.userIds.length * 2;
+        this.userIds = Arrays.copyOf(this.userIds, capacity);
+        this.frozen = Arrays.copyOf(this.frozen, capacity);
+        this.activityTime = Arrays.copyOf(this.activityTime, capacity);
+        this.activityWeight = Arrays.copyOf(this.activityWeight, capacity);
+        this.timeMarks = Arrays.copyOf(this.timeMarks, capacity);
+        this.weightMarks = Arrays.copyOf(this.weightMarks, capacity);
+    }
+
+    /**
+     * Credits a member with the activity they have earned during a checkpoint.
+     */
+    @FunctionalInterface
+    public interface Checkpoint {
+
+        /**
+         * Credits a member with the activity they have earned since the last checkpoint.
+         *
+         * @param userId the user id
+         * @param state  the activity earned by the member
+         * @return the activity points credited, which may be less than earned, or a negative value if the member
+         * couldn't be credited and should keep their activity
+         */
+        double credit(long userId, MemberState state);
+    }
 }
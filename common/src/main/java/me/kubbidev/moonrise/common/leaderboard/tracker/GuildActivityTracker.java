@@ -11,12 +11,20 @@ import java.time.Duration;
 
 /**
  * The GuildActivityTracker class is responsible for managing and tracking user activity in various guild channels.
+ *
+ * <p>Each channel is tracked and locked on its own, and the channel of each user is indexed, so that a change to
+ * a member only involves the channel they are in.</p>
  */
 public final class GuildActivityTracker {
 
     private final MoonRisePlugin               plugin;
     private final Cache<Long, ActivityTracker> activityTrackers = CaffeineFactory.newBuilder()
         .expireAfterAccess(Duration.ofDays(10)).build();
+    /**
+     * The id of the channel each tracked user is in
+     */
+    private final Cache<Long, Long>            userChannels     = CaffeineFactory.newBuilder()
+        .expireAfterAccess(Duration.ofDays(10)).build();
 
     public GuildActivityTracker(MoonRisePlugin plugin) {
         this.plugin = plugin;
@@ -28,9 +36,7 @@ public final class GuildActivityTracker {
      * @return true if there are no activity trackers currently stored in the cache, false otherwise
      */
     public boolean isEmpty() {
-        synchronized (this.activityTrackers) {
-            return this.activityTrackers.estimatedSize() == 0;
-        }
+        return this.activityTrackers.asMap().isEmpty();
     }
 
     /**
@@ -46,12 +52,15 @@ public final class GuildActivityTracker {
      *                  activity tracker.
      */
     public void addChannel(long channelId, long userId, boolean frozen) {
-        synchronized (this.activityTrackers) {
-            var tracker = this.activityTrackers.get(channelId, __ -> new ActivityTracker(this.plugin));
-            if (tracker != null) {
-                tracker.addMember(userId, frozen);
+        // the member is added whilst the channel is mapped, so an emptied channel can't be removed meanwhile
+        this.activityTrackers.asMap().compute(channelId, (id, tracker) -> {
+            if (tracker == null) {
+                tracker = new ActivityTracker(this.plugin);
             }
-        }
+            tracker.addMember(userId, frozen);
+            return tracker;
+        });
+        this.userChannels.put(userId, channelId);
     }
 
     /**
@@ -68,35 +77,85 @@ public final class GuildActivityTracker {
      * or channel was not found.
      */
     public @Nullable MemberState removeChannel(long channelId, Member member) {
-        synchronized (this.activityTrackers) {
-            var tracker = this.activityTrackers.getIfPresent(channelId);
-            if (tracker == null) {
-                return null;
-            }
+        this.userChannels.asMap().remove(member.getIdLong(), channelId);
 
-            var state = tracker.removeMember(member);
-            if (tracker.isEmpty()) {
-                this.activityTrackers.invalidate(channelId);
-            }
-            return state;
-        }
+        MemberState[] state = new MemberState[1];
+        this.activityTrackers.asMap().computeIfPresent(channelId, (id, tracker) -> {
+            state[0] = tracker.removeMember(member);
+            return tracker.isEmpty() ? null : tracker;
+        });
+        return state[0];
     }
 
     /**
-     * Updates the frozen state of a specific user across all activity trackers.
-     * <p>
-     * This method iterates through all {@link ActivityTracker} instances stored in the `activityTrackers` cache and
-     * applies the specified frozen state to the user with the given user id.
-     * <p>
-     * It ensures thread safety by synchronizing access to the `activityTrackers` map.
+     * Updates the frozen state of a specific user in the channel they are in.
      *
      * @param userId The unique identifier of the user whose frozen state is to be modified.
      * @param frozen A boolean indicating the new frozen state for the user. Set to {@code true} to mark the user as
      *               frozen, or {@code false} to unfreeze.
      */
     public void freeze(long userId, boolean frozen) {
-        synchronized (this.activityTrackers) {
-            this.activityTrackers.asMap().values().forEach(tracker -> tracker.freeze(userId, frozen));
+        Long channelId = this.userChannels.getIfPresent(userId);
+        if (channelId == null) {
+            return;
+        }
+
+        var tracker = this.activityTrackers.getIfPresent(channelId);
+        if (tracker != null) {
+            tracker.freeze(userId, frozen);
+        }
+    }
+
+    /**
+     * Checks if a user is tracked in any channel of the guild.
+     *
+     * @param userId the user id
+     * @return true if the user is tracked, false otherwise
+     */
+    public boolean isTracked(long userId) {
+        Long channelId = this.userChannels.getIfPresent(userId);
+        if (channelId == null) {
+            return false;
         }
+
+        var tracker = this.activityTrackers.getIfPresent(channelId);
+        return tracker != null && tracker.containsMember(userId);
+    }
+
+    /**
+     * Credits every member of the guild with the activity they have earned since the last checkpoint.
+     *
+     * @param checkpoint the function crediting each member
+     */
+    public void checkpoint(ActivityTracker.Checkpoint checkpoint) {
+        this.activityTrackers.asMap().values().forEach(tracker -> tracker.checkpoint(checkpoint));
+    }
+
+    /**
+     * Gives a member back the activity deducted by a checkpoint which couldn't be credited after all, in the channel
+     * they are currently in.
+     *
+     * @param userId the user id
+     * @param state  the activity deducted from the member
+     * @return true if the member is still tracked and has been given the activity back, false otherwise
+     * @see ActivityTracker#restore(long, MemberState)
+     */
+    public boolean restore(long userId, MemberState state) {
+        Long channelId = this.userChannels.getIfPresent(userId);
+        if (channelId == null) {
+            return false;
+        }
+
+        var tracker = this.activityTrackers.getIfPresent(channelId);
+        return tracker != null && tracker.restore(userId, state);
+    }
+
+    /**
+     * Advances the activity of every channel of the guild to the given time.
+     *
+     * @param now the current time, in milliseconds
+     */
+    public void tick(long now) {
+        this.activityTrackers.asMap().values().forEach(tracker -> tracker.tick(now));
     }
 }
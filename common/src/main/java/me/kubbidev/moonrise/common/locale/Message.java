@@ -254,6 +254,7 @@ public interface Message {
         // "&f-  &bStorage:"
         // "     &3Type: &f{}"
         // "     &3Some meta value: {}"
+        // "     &3Shared Loads: {}/{}"
         // "&f-  &3Extensions:"
         // "     &f{}"
         // "&f-  &bInstance:"
@@ -339,6 +340,28 @@ public interface Message {
                         .append(text(size, GREEN))
                     ));
                 }
+
+                if (storageMeta.loads() != null && storageMeta.sharedLoads() != null) {
+                    builder.append(newline());
+                    builder.append(prefixed(text()
+                        .color(DARK_AQUA)
+                        .append(text("     "))
+                        .append(translatable("moonrise.command.info.storage.meta.shared-loads-key"))
+                        .append(text(": "))
+                        .append(text(storageMeta.sharedLoads() + "/" + storageMeta.loads(), GREEN))
+                    ));
+                }
+
+                if (storageMeta.queueDepth() != null && storageMeta.averageWait() != null) {
+                    builder.append(newline());
+                    builder.append(prefixed(text()
+                        .color(DARK_AQUA)
+                        .append(text("     "))
+                        .append(translatable("moonrise.command.info.storage.meta.queue-key"))
+                        .append(text(": "))
+                        .append(text(storageMeta.queueDepth() + " (" + storageMeta.averageWait() + "ms)", GREEN))
+                    ));
+                }
             })),
         prefixed(text()
             .color(AQUA)
@@ -453,12 +476,106 @@ public interface Message {
         .append(FULL_STOP)
     );
 
+    Args0 MIGRATION_CONSOLE_ONLY = () -> prefixed(translatable()
+        // "&cStorage migrations can only be started from the console."
+        .key("moonrise.command.migrate.console-only")
+        .color(RED)
+        .append(FULL_STOP)
+    );
+
+    Args1<String> MIGRATION_UNKNOWN_STORAGE_TYPE = name -> prefixed(translatable()
+        // "&cUnknown storage type &4{}&c."
+        .key("moonrise.command.migrate.unknown-storage-type")
+        .color(RED)
+        .args(text(name, DARK_RED))
+        .append(FULL_STOP)
+    );
+
+    Args0 MIGRATION_SAME_STORAGE_TYPE = () -> prefixed(translatable()
+        // "&cThe storage types to migrate from and to must be different."
+        .key("moonrise.command.migrate.same-storage-type")
+        .color(RED)
+        .append(FULL_STOP)
+    );
+
+    Args0 MIGRATION_ALREADY_RUNNING = () -> prefixed(translatable()
+        // "&cA storage migration is already running."
+        .key("moonrise.command.migrate.already-running")
+        .color(RED)
+        .append(FULL_STOP)
+    );
+
+    Args2<String, String> MIGRATION_STARTING = (from, to) -> prefixed(translatable()
+        // "&bMigrating all data from &3{}&b to &3{}&b..."
+        .key("moonrise.command.migrate.starting")
+        .color(AQUA)
+        .args(text(from, DARK_AQUA), text(to, DARK_AQUA))
+    );
+
+    Args2<String, String> MIGRATION_RESUMING = (from, to) -> prefixed(translatable()
+        // "&bResuming the previous migration from &3{}&b to &3{}&b..."
+        .key("moonrise.command.migrate.resuming")
+        .color(AQUA)
+        .args(text(from, DARK_AQUA), text(to, DARK_AQUA))
+    );
+
+    Args3<String, Long, Long> MIGRATION_PROGRESS = (table, rows, rowsPerSecond) -> prefixed(text()
+        // "&3{}: &f{} rows copied &7({} rows/s)"
+        .color(DARK_AQUA)
+        .append(text(table))
+        .append(text(": "))
+        .append(translatable("moonrise.command.migrate.rows-copied", WHITE, text(rows)))
+        .append(space())
+        .append(text()
+            .color(GRAY)
+            .append(OPEN_BRACKET)
+            .append(translatable("moonrise.command.migrate.rows-per-second", text(rowsPerSecond)))
+            .append(CLOSE_BRACKET)
+        )
+    );
+
+    Args1<Long> MIGRATION_COMPLETE = seconds -> prefixed(translatable()
+        // "&aMigration complete, took {} seconds."
+        .key("moonrise.command.migrate.complete")
+        .color(GREEN)
+        .args(text(seconds))
+        .append(FULL_STOP)
+    );
+
+    Args0 MIGRATION_FAILED = () -> prefixed(text()
+        // "&cThe migration failed, run the command again to resume it. Check the console for errors."
+        .color(RED)
+        .append(translatable("moonrise.command.migrate.failed"))
+        .append(FULL_STOP)
+        .append(space())
+        .append(translatable("moonrise.command.misc.check-console-for-errors"))
+        .append(FULL_STOP)
+    );
+
     Args0 LEADERBOARD_FIELD_HEADER = () -> translatable()
         // This week's leaderboard:
         .key("moonrise.leaderboard.field-header")
         .append(text(':'))
         .build();
 
+    Args0 LEADERBOARD_FIELD_HEADER_DAY = () -> translatable()
+        // Daily leaderboard:
+        .key("moonrise.leaderboard.field-header-day")
+        .append(text(':'))
+        .build();
+
+    Args0 LEADERBOARD_FIELD_HEADER_MONTH = () -> translatable()
+        // Monthly leaderboard:
+        .key("moonrise.leaderboard.field-header-month")
+        .append(text(':'))
+        .build();
+
+    Args0 LEADERBOARD_FIELD_HEADER_ALL_TIME = () -> translatable()
+        // All-time leaderboard:
+        .key("moonrise.leaderboard.field-header-all-time")
+        .append(text(':'))
+        .build();
+
     Args2<ZonedDateTime, ZonedDateTime> LEADERBOARD_FIELD_TITLE = (next, last) -> text()
         // `{}` - `{}`
         .append(text('`'))
@@ -4,6 +4,8 @@ import me.kubbidev.moonrise.common.plugin.MoonRisePlugin;
 import me.kubbidev.moonrise.common.storage.misc.DataConstraints;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Objects;
+
 /**
  * A Discord guild.
  *
@@ -17,6 +19,15 @@ public class ApiGuild extends Snowflake {
     private           boolean        leaderboardEnabled   = false;
     private           long           leaderboardChannelId = 0;
 
+    /**
+     * The stored fields of a guild
+     */
+    public enum Field {
+        NAME, ICON, LEADERBOARD_ENABLED, LEADERBOARD_CHANNEL
+    }
+
+    private final DirtyFields<Field> dirtyFields = new DirtyFields<>(Field.class);
+
     public ApiGuild(long id, MoonRisePlugin plugin) {
         super(id);
         this.plugin = plugin;
@@ -26,6 +37,30 @@ public class ApiGuild extends Snowflake {
         return this.plugin;
     }
 
+    /**
+     * Creates a copy of the guild, including which fields have been changed.
+     *
+     * @return the copy
+     */
+    public ApiGuild copy() {
+        ApiGuild copy = new ApiGuild(this.id, this.plugin);
+        copy.name = this.name;
+        copy.icon = this.icon;
+        copy.leaderboardEnabled = this.leaderboardEnabled;
+        copy.leaderboardChannelId = this.leaderboardChannelId;
+        copy.dirtyFields.copyFrom(this.dirtyFields);
+        return copy;
+    }
+
+    /**
+     * Gets the fields which have been changed since the guild was last loaded or saved.
+     *
+     * @return the changed fields
+     */
+    public DirtyFields<Field> getDirtyFields() {
+        return this.dirtyFields;
+    }
+
     /**
      * Gets the name associated with the guild.
      *
@@ -38,7 +73,11 @@ public class ApiGuild extends Snowflake {
     }
 
     public void setName(@Nullable String name) {
-        this.name = DataConstraints.sanitize(name);
+        String value = DataConstraints.sanitize(name);
+        if (!Objects.equals(this.name, value)) {
+            this.name = value;
+            this.dirtyFields.mark(Field.NAME);
+        }
     }
 
     /**
@@ -53,7 +92,11 @@ public class ApiGuild extends Snowflake {
     }
 
     public void setIcon(@Nullable String icon) {
-        this.icon = DataConstraints.sanitize(icon);
+        String value = DataConstraints.sanitize(icon);
+        if (!Objects.equals(this.icon, value)) {
+            this.icon = value;
+            this.dirtyFields.mark(Field.ICON);
+        }
     }
 
     public boolean isLeaderboardEnabled() {
@@ -61,7 +104,10 @@ public class ApiGuild extends Snowflake {
     }
 
     public void setLeaderboardEnabled(boolean leaderboardEnabled) {
-        this.leaderboardEnabled = leaderboardEnabled;
+        if (this.leaderboardEnabled != leaderboardEnabled) {
+            this.leaderboardEnabled = leaderboardEnabled;
+            this.dirtyFields.mark(Field.LEADERBOARD_ENABLED);
+        }
     }
 
     public long getLeaderboardChannelId() {
@@ -69,6 +115,9 @@ public class ApiGuild extends Snowflake {
     }
 
     public void setLeaderboardChannelId(long leaderboardChannelId) {
-        this.leaderboardChannelId = leaderboardChannelId;
+        if (this.leaderboardChannelId != leaderboardChannelId) {
+            this.leaderboardChannelId = leaderboardChannelId;
+            this.dirtyFields.mark(Field.LEADERBOARD_CHANNEL);
+        }
     }
 }
@@ -26,10 +26,43 @@ public class ApiMember extends ApiUser {
      */
     private           int    placement   = -1;
 
+    /**
+     * The stored fields of a member, in addition to the {@link ApiUser.Field user fields}
+     */
+    public enum Field {
+        NICKNAME, GUILD_AVATAR, BIOGRAPHY, EXPERIENCE, VOICE_ACTIVITY, PLACEMENT
+    }
+
+    private final DirtyFields<Field> dirtyMemberFields = new DirtyFields<>(Field.class);
+
     public ApiMember(long id, MoonRisePlugin plugin) {
         super(id, plugin);
     }
 
+    @Override
+    public ApiMember copy() {
+        ApiMember copy = new ApiMember(this.id, this.plugin);
+        copyUserFields(copy);
+        copy.guildId = this.guildId;
+        copy.nickname = this.nickname;
+        copy.guildAvatar = this.guildAvatar;
+        copy.biography = this.biography;
+        copy.experience = this.experience;
+        copy.voiceActivity = this.voiceActivity;
+        copy.placement = this.placement;
+        copy.dirtyMemberFields.copyFrom(this.dirtyMemberFields);
+        return copy;
+    }
+
+    /**
+     * Gets the member fields which have been changed since the member was last loaded or saved.
+     *
+     * @return the changed member fields
+     */
+    public DirtyFields<Field> getDirtyMemberFields() {
+        return this.dirtyMemberFields;
+    }
+
     public long getGuildId() {
         return this.guildId;
     }
@@ -50,7 +83,11 @@ public class ApiMember extends ApiUser {
     }
 
     public void setNickname(@Nullable String nickname) {
-        this.nickname = DataConstraints.sanitize(nickname);
+        String value = DataConstraints.sanitize(nickname);
+        if (!Objects.equals(this.nickname, value)) {
+            this.nickname = value;
+            this.dirtyMemberFields.mark(Field.NICKNAME);
+        }
     }
 
     /**
@@ -75,7 +112,11 @@ public class ApiMember extends ApiUser {
     }
 
     public void setGuildAvatar(@Nullable String guildAvatar) {
-        this.guildAvatar = DataConstraints.sanitize(guildAvatar);
+        String value = DataConstraints.sanitize(guildAvatar);
+        if (!Objects.equals(this.guildAvatar, value)) {
+            this.guildAvatar = value;
+            this.dirtyMemberFields.mark(Field.GUILD_AVATAR);
+        }
     }
 
     /**
@@ -117,7 +158,11 @@ public class ApiMember extends ApiUser {
      * @param biography the member's biography
      */
     public void setBiography(@Nullable String biography) {
-        this.biography = DataConstraints.sanitize(biography);
+        String value = DataConstraints.sanitize(biography);
+        if (!Objects.equals(this.biography, value)) {
+            this.biography = value;
+            this.dirtyMemberFields.mark(Field.BIOGRAPHY);
+        }
     }
 
     public long getExperience() {
@@ -125,7 +170,10 @@ public class ApiMember extends ApiUser {
     }
 
     public void setExperience(long experience) {
-        this.experience = experience;
+        if (this.experience != experience) {
+            this.experience = experience;
+            this.dirtyMemberFields.mark(Field.EXPERIENCE);
+        }
     }
 
     public long getVoiceActivity() {
@@ -133,7 +181,10 @@ public class ApiMember extends ApiUser {
     }
 
     public void setVoiceActivity(long voiceActivity) {
-        this.voiceActivity = voiceActivity;
+        if (this.voiceActivity != voiceActivity) {
+            this.voiceActivity = voiceActivity;
+            this.dirtyMemberFields.mark(Field.VOICE_ACTIVITY);
+        }
     }
 
     public int getPlacement() {
@@ -141,7 +192,10 @@ public class ApiMember extends ApiUser {
     }
 
     public void setPlacement(int placement) {
-        this.placement = placement;
+        if (this.placement != placement) {
+            this.placement = placement;
+            this.dirtyMemberFields.mark(Field.PLACEMENT);
+        }
     }
 
     @Override
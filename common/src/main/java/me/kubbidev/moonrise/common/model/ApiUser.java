@@ -6,7 +6,9 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.time.Instant;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * A Discord user.
@@ -25,6 +27,15 @@ public class ApiUser extends Snowflake {
     private @Nullable   String         avatar             = null;
     private @NotNull    Instant        lastSeen           = Instant.now();
 
+    /**
+     * The stored fields of a user
+     */
+    public enum Field {
+        USERNAME, GLOBAL_NAME, AVATAR, LAST_SEEN
+    }
+
+    private final DirtyFields<Field> dirtyUserFields = new DirtyFields<>(Field.class);
+
     public ApiUser(long id, MoonRisePlugin plugin) {
         super(id);
         this.plugin = plugin;
@@ -34,6 +45,54 @@ public class ApiUser extends Snowflake {
         return this.plugin;
     }
 
+    /**
+     * Creates a copy of the user, including which fields have been changed.
+     *
+     * @return the copy
+     */
+    public ApiUser copy() {
+        ApiUser copy = new ApiUser(this.id, this.plugin);
+        copyUserFields(copy);
+        return copy;
+    }
+
+    /**
+     * Copies the user fields, and which of them have been changed, to another user.
+     *
+     * @param copy the user to copy to
+     */
+    protected void copyUserFields(ApiUser copy) {
+        copy.username = this.username;
+        copy.globalName = this.globalName;
+        copy.avatar = this.avatar;
+        copy.lastSeen = this.lastSeen;
+        copy.dirtyUserFields.copyFrom(this.dirtyUserFields);
+    }
+
+    /**
+     * Gets the user fields which have been changed since the user was last loaded or saved.
+     *
+     * @return the changed user fields
+     */
+    public DirtyFields<Field> getDirtyUserFields() {
+        return this.dirtyUserFields;
+    }
+
+    /**
+     * Gets the changed user fields, and resets them to unchanged.
+     *
+     * <p>A user is never stored without a username, so no field is returned until it is known.</p>
+     *
+     * @return the changed user fields
+     */
+    public Set<Field> drainDirtyUserFields() {
+        Set<Field> fields = this.dirtyUserFields.drain();
+        if (this.username == null) {
+            fields.clear();
+        }
+        return fields;
+    }
+
     /**
      * Gets the unique username associated with the user.
      *
@@ -46,7 +105,11 @@ public class ApiUser extends Snowflake {
     }
 
     public void setUsername(@Nullable String username) {
-        this.username = DataConstraints.sanitize(username, true);
+        String value = DataConstraints.sanitize(username, true);
+        if (!Objects.equals(this.username, value)) {
+            this.username = value;
+            this.dirtyUserFields.mark(Field.USERNAME);
+        }
     }
 
     public boolean isUsernameMatching(@Nullable String name) {
@@ -83,7 +146,11 @@ public class ApiUser extends Snowflake {
     }
 
     public void setGlobalName(@Nullable String globalName) {
-        this.globalName = DataConstraints.sanitize(globalName);
+        String value = DataConstraints.sanitize(globalName);
+        if (!Objects.equals(this.globalName, value)) {
+            this.globalName = value;
+            this.dirtyUserFields.mark(Field.GLOBAL_NAME);
+        }
     }
 
     /**
@@ -96,7 +163,11 @@ public class ApiUser extends Snowflake {
     }
 
     public void setAvatar(@Nullable String avatar) {
-        this.avatar = DataConstraints.sanitize(avatar);
+        String value = DataConstraints.sanitize(avatar);
+        if (!Objects.equals(this.avatar, value)) {
+            this.avatar = value;
+            this.dirtyUserFields.mark(Field.AVATAR);
+        }
     }
 
     /**
@@ -132,6 +203,9 @@ public class ApiUser extends Snowflake {
      * @param lastSeen the last seen {@link Instant}
      */
     public void setLastSeen(@NotNull Instant lastSeen) {
-        this.lastSeen = lastSeen;
+        if (!this.lastSeen.equals(lastSeen)) {
+            this.lastSeen = lastSeen;
+            this.dirtyUserFields.mark(Field.LAST_SEEN);
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,92 @@
+package me.kubbidev.moonrise.common.model;
+
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Tracks which fields of a model have been changed since it was last loaded or saved.
+ *
+ * <p>Until the model has been loaded from or written to the storage, every field is considered changed, so that
+ * the first save writes the whole row even if it still has its default values.</p>
+ *
+ * @param <F> the field type
+ */
+public final class DirtyFields<F extends Enum<F>> {
+
+    private final Class<F>   type;
+    private final EnumSet<F> dirty;
+
+    /**
+     * If the fields are known to be stored
+     */
+    private boolean persisted = false;
+
+    DirtyFields(Class<F> type) {
+        this.type = type;
+        this.dirty = EnumSet.noneOf(type);
+    }
+
+    /**
+     * Marks the field as changed.
+     *
+     * @param field the field
+     */
+    public synchronized void mark(F field) {
+        this.dirty.add(field);
+    }
+
+    /**
+     * Marks the fields as changed, for example after failing to save them.
+     *
+     * @param fields the fields
+     */
+    public synchronized void markAll(Collection<F> fields) {
+        this.dirty.addAll(fields);
+    }
+
+    public synchronized boolean isEmpty() {
+        return this.persisted && this.dirty.isEmpty();
+    }
+
+    /**
+     * Gets the changed fields, and resets them to unchanged.
+     *
+     * <p>All fields are returned if they haven't been stored yet, they are then expected to be written.</p>
+     *
+     * @return the changed fields
+     */
+    public synchronized Set<F> drain() {
+        EnumSet<F> fields = this.persisted ? EnumSet.copyOf(this.dirty) : EnumSet.allOf(this.type);
+        this.dirty.clear();
+        this.persisted = true;
+        return fields;
+    }
+
+    /**
+     * Replaces the changed fields with those of another instance.
+     *
+     * @param other the other instance
+     */
+    void copyFrom(DirtyFields<F> other) {
+        EnumSet<F> fields;
+        boolean persisted;
+        synchronized (other) {
+            fields = EnumSet.copyOf(other.dirty);
+            persisted = other.persisted;
+        }
+        synchronized (this) {
+            this.dirty.clear();
+            this.dirty.addAll(fields);
+            this.persisted = persisted;
+        }
+    }
+
+    /**
+     * Resets all fields to unchanged, once they have been loaded from the storage.
+     */
+    public synchronized void clear() {
+        this.dirty.clear();
+        this.persisted = true;
+    }
+}
@@ -11,6 +11,7 @@ import me.kubbidev.moonrise.common.config.generic.adapter.EnvironmentVariableCon
 import me.kubbidev.moonrise.common.config.generic.adapter.MultiConfigurationAdapter;
 import me.kubbidev.moonrise.common.config.generic.adapter.SystemPropertyConfigAdapter;
 import me.kubbidev.moonrise.common.GatewayClient;
+import me.kubbidev.moonrise.common.storage.MemberStatsBuffer;
 import me.kubbidev.moonrise.common.storage.Storage;
 import me.kubbidev.moonrise.common.storage.StorageMetadata;
 import me.kubbidev.moonrise.common.storage.StorageType;
@@ -49,6 +50,7 @@ public abstract class AbstractMoonRisePlugin implements MoonRisePlugin {
     private BytebinClient         bytebin;
     private TranslationRepository translationRepository;
     private Storage               storage;
+    private MemberStatsBuffer     statsBuffer;
     private MoonRiseApiProvider   apiProvider;
     private EventDispatcher       eventDispatcher;
     private GatewayClient         gateway;
@@ -108,6 +110,8 @@ public abstract class AbstractMoonRisePlugin implements MoonRisePlugin {
 
         // initialise storage
         this.storage = StorageType.getInstance(this);
+        this.statsBuffer = new MemberStatsBuffer(this, this.storage);
+        this.statsBuffer.start();
 
         // register commands
         this.registerCommands();
@@ -116,7 +120,11 @@ public abstract class AbstractMoonRisePlugin implements MoonRisePlugin {
         this.setupManagers();
 
         // establish the connection
-        this.gateway = new GatewayClient(this, this.storage);
+        this.gateway = new GatewayClient(this, this.storage, this.statsBuffer);
+        this.gateway.preloadGuilds().exceptionally(t -> {
+            getLogger().warn("Unable to preload guilds", t);
+            return null;
+        }).join();
         this.gateway.connect(getConfiguration().get(ConfigKeys.AUTHENTICATION_TOKEN));
 
         // setup platform hooks
@@ -154,6 +162,9 @@ public abstract class AbstractMoonRisePlugin implements MoonRisePlugin {
         // remove any hooks into the platform
         this.removePlatformHooks();
 
+        // write any buffered member stats
+        this.statsBuffer.close();
+
         // close storage
         getLogger().info("Closing storage...");
         this.storage.shutdown();
@@ -270,9 +281,24 @@ public abstract class AbstractMoonRisePlugin implements MoonRisePlugin {
         if (meta.ping() != null) {
             map.put("storagePing", meta.ping());
         }
+        if (meta.replicaConnected() != null) {
+            map.put("storageReplicaConnected", meta.replicaConnected());
+        }
         if (meta.sizeBytes() != null) {
             map.put("storageSizeBytes", meta.sizeBytes());
         }
+        if (meta.loads() != null) {
+            map.put("storageLoads", meta.loads());
+        }
+        if (meta.sharedLoads() != null) {
+            map.put("storageSharedLoads", meta.sharedLoads());
+        }
+        if (meta.queueDepth() != null) {
+            map.put("storageQueueDepth", meta.queueDepth());
+        }
+        if (meta.averageWait() != null) {
+            map.put("storageAverageWaitMillis", meta.averageWait());
+        }
 
         return HealthCheckResult.healthy(map);
     }
@@ -316,6 +342,11 @@ public abstract class AbstractMoonRisePlugin implements MoonRisePlugin {
         return this.storage;
     }
 
+    @Override
+    public MemberStatsBuffer getStatsBuffer() {
+        return this.statsBuffer;
+    }
+
     @Override
     public MoonRiseApiProvider getApiProvider() {
         return this.apiProvider;
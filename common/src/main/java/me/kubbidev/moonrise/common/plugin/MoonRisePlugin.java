@@ -5,6 +5,7 @@ import me.kubbidev.moonrise.common.api.MoonRiseApiProvider;
 import me.kubbidev.moonrise.common.sender.command.CommandManager;
 import me.kubbidev.moonrise.common.sender.command.abstraction.Command;
 import me.kubbidev.moonrise.common.GatewayClient;
+import me.kubbidev.moonrise.common.storage.MemberStatsBuffer;
 import me.kubbidev.moonrise.common.storage.Storage;
 import me.kubbidev.moonrise.common.event.EventDispatcher;
 import me.kubbidev.moonrise.common.config.MoonRiseConfiguration;
@@ -55,6 +56,13 @@ public interface MoonRisePlugin {
      */
     Storage getStorage();
 
+    /**
+     * Gets the buffer used to coalesce member stat increments before they are written to the storage.
+     *
+     * @return the member stats buffer
+     */
+    MemberStatsBuffer getStatsBuffer();
+
     /**
      * Gets a wrapped logger instance for the platform.
      *
@@ -1,15 +1,33 @@
 package me.kubbidev.moonrise.common.retriever;
 
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.google.common.primitives.Longs;
+import me.kubbidev.moonrise.common.leaderboard.ExperienceRank;
+import me.kubbidev.moonrise.common.leaderboard.ExperienceRanking;
 import me.kubbidev.moonrise.common.model.ApiGuild;
 import me.kubbidev.moonrise.common.model.ApiMember;
 import me.kubbidev.moonrise.common.model.ApiUser;
+import me.kubbidev.moonrise.common.plugin.MoonRisePlugin;
+import me.kubbidev.moonrise.common.storage.MemberStatsBuffer;
 import me.kubbidev.moonrise.common.storage.Storage;
+import me.kubbidev.moonrise.common.storage.misc.ExperienceGain;
+import me.kubbidev.moonrise.common.storage.misc.ExperienceWindow;
+import me.kubbidev.moonrise.common.util.CaffeineFactory;
+import me.kubbidev.moonrise.common.util.Long2;
 import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.Member;
 import net.dv8tion.jda.api.entities.User;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
@@ -17,14 +35,70 @@ import java.util.function.Consumer;
 
 public abstract class AbstractEntityRetriever implements EntityRetriever {
 
-    private final Storage storage;
+    /**
+     * The maximum number of guilds kept in the guild cache
+     */
+    private static final int GUILD_CACHE_SIZE = 10_000;
 
-    public AbstractEntityRetriever(Storage storage) {
+    /**
+     * The maximum number of members whose stored names and avatars are remembered
+     */
+    private static final int IDENTITY_CACHE_SIZE = 100_000;
+
+    private static final Set<ApiUser.Field>   IDENTITY_USER_FIELDS   = EnumSet.of(
+        ApiUser.Field.USERNAME, ApiUser.Field.GLOBAL_NAME, ApiUser.Field.AVATAR);
+    private static final Set<ApiMember.Field> IDENTITY_MEMBER_FIELDS = EnumSet.of(
+        ApiMember.Field.NICKNAME, ApiMember.Field.GUILD_AVATAR);
+
+    private final Storage           storage;
+    private final MemberStatsBuffer statsBuffer;
+    private final ExperienceRanking ranking;
+
+    /**
+     * Read-through cache of guilds, kept up to date by {@link #modifyGuild(Guild, Consumer)}
+     */
+    private final AsyncCache<Long, ApiGuild> guildCache = CaffeineFactory.newBuilder()
+        .maximumSize(GUILD_CACHE_SIZE)
+        .expireAfterAccess(Duration.ofDays(10)).buildAsync();
+
+    /**
+     * A hash of the names and avatars last stored for each member granted experience, by guild id and user id, so
+     * that they are only written when a member is first seen or they change
+     */
+    private final Cache<Long2, Integer> identities = CaffeineFactory.newBuilder()
+        .maximumSize(IDENTITY_CACHE_SIZE)
+        .expireAfterAccess(Duration.ofHours(6)).build();
+
+    public AbstractEntityRetriever(Storage storage, MemberStatsBuffer statsBuffer, ExperienceRanking ranking) {
         this.storage = storage;
+        this.statsBuffer = statsBuffer;
+        this.ranking = ranking;
+
+        // archived experience is added back by the storage, rather than granted through this retriever
+        storage.setRestoreListener(ranking::restore);
     }
 
+    public abstract MoonRisePlugin getPlugin();
+
     public abstract Executor actionExecutor();
 
+    /**
+     * Loads the stored guilds into the guild cache, up to its maximum size.
+     *
+     * @return a {@link CompletableFuture} that completes once the guilds have been cached
+     */
+    public CompletableFuture<Void> preloadGuilds() {
+        return this.storage.loadGuilds().thenAccept(guilds -> {
+            int preloaded = 0;
+            for (ApiGuild guild : guilds) {
+                if (preloaded++ == GUILD_CACHE_SIZE) {
+                    break;
+                }
+                this.guildCache.asMap().putIfAbsent(guild.getId(), CompletableFuture.completedFuture(guild));
+            }
+        });
+    }
+
     @Override
     public CompletableFuture<ApiUser> getUser(User user) {
         return this.storage.loadUser(user.getIdLong())
@@ -54,20 +128,26 @@ public abstract class AbstractEntityRetriever implements EntityRetriever {
 
     @Override
     public CompletableFuture<ApiGuild> getGuild(Guild guild) {
-        return this.storage.loadGuild(guild.getIdLong())
-            .thenCompose(data -> {
-                if (updateGuild(data, guild)) {
-                    return this.storage.saveGuild(data)
-                        .thenApply(v -> data);
-                } else {
-                    return CompletableFuture.completedFuture(data);
-                }
-            });
+        long guildId = guild.getIdLong();
+        CompletableFuture<ApiGuild> cached = this.guildCache.get(guildId, (id, executor) -> this.storage.loadGuild(id));
+        return cached.thenCompose(data -> {
+            // the cached guild is shared by every caller, so it is never changed in place
+            ApiGuild updated = data.copy();
+            if (updateGuild(updated, guild)) {
+                return this.storage.saveGuild(updated).thenApply(v -> {
+                    this.guildCache.asMap().replace(guildId, cached, CompletableFuture.completedFuture(updated));
+                    return updated;
+                });
+            } else {
+                return CompletableFuture.completedFuture(data);
+            }
+        });
     }
 
     @Override
     public CompletableFuture<Void> modifyGuild(Guild guild, Consumer<ApiGuild> action) {
-        return this.storage.loadGuild(guild.getIdLong())
+        long guildId = guild.getIdLong();
+        return this.storage.loadGuild(guildId)
             .thenApplyAsync(data -> {
                 updateGuild(data, guild);
                 return data;
@@ -76,7 +156,8 @@ public abstract class AbstractEntityRetriever implements EntityRetriever {
                 action.accept(data);
                 return data;
             }, this.actionExecutor())
-            .thenCompose(this.storage::saveGuild);
+            .thenCompose(data -> this.storage.saveGuild(data)
+                .thenRun(() -> this.guildCache.put(guildId, CompletableFuture.completedFuture(data))));
     }
 
     @Override
@@ -113,14 +194,98 @@ public abstract class AbstractEntityRetriever implements EntityRetriever {
             .thenCompose(this.storage::saveMember);
     }
 
+    @Override
+    public CompletableFuture<List<ApiMember>> getMembers(Guild guild, Collection<Long> userIds) {
+        return this.storage.loadMembers(guild.getIdLong(), userIds);
+    }
+
     @Override
     public CompletableFuture<Void> saveMember(ApiMember member) {
         return this.storage.saveMember(member);
     }
 
+    @Override
+    public CompletableFuture<Void> saveMembers(Collection<ApiMember> members) {
+        return this.storage.saveMembers(members);
+    }
+
+    @Override
+    public CompletableFuture<Void> incrementMemberStats(Member member, long experience, long voiceActivity) {
+        long guildId = member.getGuild().getIdLong();
+        long userId = member.getIdLong();
+        saveIdentity(member);
+        return this.statsBuffer.add(guildId, userId, experience, voiceActivity,
+            () -> this.ranking.increment(guildId, userId, experience));
+    }
+
+    /**
+     * Stores the names and avatars of a member granted experience, which is otherwise only done when the member
+     * is loaded, so that members who have only been granted experience are named in the leaderboard.
+     *
+     * <p>The fields are written without loading the member first, and only when the member is first seen or they
+     * have changed since they were last written.</p>
+     */
+    private void saveIdentity(Member member) {
+        User user = member.getUser();
+        Long2 key = new Long2(member.getGuild().getIdLong(), member.getIdLong());
+        int identity = Objects.hash(user.getName(), user.getGlobalName(), user.getAvatarUrl(), member.getNickname(),
+            member.getAvatarUrl());
+
+        Integer stored = this.identities.asMap().put(key, identity);
+        if (stored != null && stored == identity) {
+            return;
+        }
+
+        ApiMember data = new ApiMember(member.getIdLong(), getPlugin());
+        data.setGuildId(key.a());
+        updateMember(data, member);
+        data.getDirtyUserFields().markAll(IDENTITY_USER_FIELDS);
+        data.getDirtyMemberFields().markAll(IDENTITY_MEMBER_FIELDS);
+        this.storage.saveMember(data).exceptionally(t -> {
+            // written again the next time the member is granted experience
+            this.identities.asMap().remove(key, identity);
+            getPlugin().getLogger().warn("Unable to save the identity of " + member, t);
+            return null;
+        });
+    }
+
     @Override
     public CompletableFuture<List<ApiMember>> getMembersWithHighestExperience(Guild guild, int limit) {
-        return this.storage.loadMembersWithHighestExperience(guild.getIdLong(), limit);
+        long guildId = guild.getIdLong();
+        return this.ranking.getTopUserIds(guildId, limit).thenCompose(userIds -> {
+            if (userIds == null) {
+                return this.storage.loadMembersWithHighestExperience(guildId, limit);
+            }
+
+            // the members are loaded by key, and put back in the order of the ranking
+            return this.storage.loadMembers(guildId, Longs.asList(userIds)).thenApply(members -> {
+                Map<Long, ApiMember> byId = new HashMap<>(members.size());
+                for (ApiMember member : members) {
+                    byId.put(member.getId(), member);
+                }
+
+                List<ApiMember> sorted = new ArrayList<>(userIds.length);
+                for (long userId : userIds) {
+                    ApiMember member = byId.get(userId);
+                    if (member != null) {
+                        sorted.add(member);
+                    }
+                }
+                return sorted;
+            });
+        });
+    }
+
+    @Override
+    public CompletableFuture<Optional<ExperienceRank>> getExperienceRank(Member member) {
+        return this.ranking.getRank(member.getGuild().getIdLong(), member.getIdLong());
+    }
+
+    @Override
+    public CompletableFuture<List<ExperienceGain>> getMembersWithHighestExperience(Guild guild,
+                                                                                   ExperienceWindow window,
+                                                                                   int bucket, int limit) {
+        return this.storage.loadMembersWithHighestExperience(guild.getIdLong(), window, bucket, limit);
     }
 
     private static boolean updateUser(ApiUser internal, User user) {
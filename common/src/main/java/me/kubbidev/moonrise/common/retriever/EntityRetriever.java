@@ -1,13 +1,18 @@
 package me.kubbidev.moonrise.common.retriever;
 
+import me.kubbidev.moonrise.common.leaderboard.ExperienceRank;
 import me.kubbidev.moonrise.common.model.ApiGuild;
 import me.kubbidev.moonrise.common.model.ApiMember;
 import me.kubbidev.moonrise.common.model.ApiUser;
+import me.kubbidev.moonrise.common.storage.misc.ExperienceGain;
+import me.kubbidev.moonrise.common.storage.misc.ExperienceWindow;
 import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.Member;
 import net.dv8tion.jda.api.entities.User;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
@@ -52,7 +57,69 @@ public interface EntityRetriever {
 
     CompletableFuture<Void> modifyMember(Member member, Consumer<ApiMember> action);
 
+    /**
+     * Retrieves the stored {@link ApiMember}s of a {@link Guild} for the given user ids, in a single storage
+     * operation.
+     *
+     * <p>Unlike {@link #getMember(Member)}, the members are not refreshed from their JDA counterpart.</p>
+     *
+     * @param guild   the guild the members belong to
+     * @param userIds the ids of the members to retrieve
+     * @return a {@link CompletableFuture} that will complete with a member for each of the given ids
+     */
+    CompletableFuture<List<ApiMember>> getMembers(Guild guild, Collection<Long> userIds);
+
     CompletableFuture<Void> saveMember(ApiMember member);
 
+    /**
+     * Saves several {@link ApiMember}s in a single storage operation.
+     *
+     * @param members the members to save
+     * @return a {@link CompletableFuture} that completes once all members have been saved
+     */
+    CompletableFuture<Void> saveMembers(Collection<ApiMember> members);
+
+    /**
+     * Atomically adds experience and voice activity to the given {@link Member}, without loading it first.
+     *
+     * <p>The increment may be buffered and written to the storage at a later time.</p>
+     *
+     * @param member        the member to increment the stats of
+     * @param experience    the experience to add
+     * @param voiceActivity the voice activity time to add, in milliseconds
+     * @return a {@link CompletableFuture} that completes once the increment has been accepted
+     */
+    CompletableFuture<Void> incrementMemberStats(Member member, long experience, long voiceActivity);
+
+    /**
+     * Gets the members of the given {@link Guild} with the highest lifetime experience.
+     *
+     * @param guild the guild
+     * @param limit the maximum number of members
+     * @return a {@link CompletableFuture} of the members, in descending order of experience
+     */
     CompletableFuture<List<ApiMember>> getMembersWithHighestExperience(Guild guild, int limit);
+
+    /**
+     * Gets the rank of the given {@link Member} by lifetime experience within their guild.
+     *
+     * @param member the member
+     * @return a {@link CompletableFuture} of the rank of the member, or empty if it isn't known
+     */
+    CompletableFuture<Optional<ExperienceRank>> getExperienceRank(Member member);
+
+    /**
+     * Gets the members of the given {@link Guild} who gained the most experience within a bucket of the window.
+     *
+     * <p>The storage must {@link me.kubbidev.moonrise.common.storage.Storage#supportsExperienceWindows() support}
+     * windows, otherwise the future completes exceptionally.</p>
+     *
+     * @param guild  the guild
+     * @param window the window
+     * @param bucket the bucket of the window
+     * @param limit  the maximum number of members
+     * @return a {@link CompletableFuture} of the experience gained by each member, in descending order
+     */
+    CompletableFuture<List<ExperienceGain>> getMembersWithHighestExperience(Guild guild, ExperienceWindow window,
+                                                                            int bucket, int limit);
 }
\ No newline at end of file
@@ -10,6 +10,7 @@ import me.kubbidev.moonrise.common.sender.command.tabcomplete.TabCompletions;
 import me.kubbidev.moonrise.common.sender.command.util.ArgumentList;
 import me.kubbidev.moonrise.common.sender.commands.HelpCommand;
 import me.kubbidev.moonrise.common.sender.commands.InfoCommand;
+import me.kubbidev.moonrise.common.sender.commands.MigrateCommand;
 import me.kubbidev.moonrise.common.sender.commands.ReloadConfigCommand;
 import me.kubbidev.moonrise.common.sender.commands.TranslationsCommand;
 import me.kubbidev.moonrise.common.config.ConfigKeys;
@@ -60,6 +61,7 @@ public class CommandManager {
             .add(new HelpCommand())
             .add(new InfoCommand())
             .add(new ReloadConfigCommand())
+            .add(new MigrateCommand())
             .add(new TranslationsCommand())
             .build()
             .stream()
@@ -11,6 +11,7 @@ public enum BuiltinPermission implements CommandPermission {
     HELP("help"),
     INFO("info"),
     RELOAD_CONFIG("reloadconfig"),
+    MIGRATE("migrate"),
     TRANSLATIONS("translations");
 
     public static final String ROOT = "moonrise.";
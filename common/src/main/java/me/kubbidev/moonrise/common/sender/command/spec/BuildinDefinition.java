@@ -17,6 +17,7 @@ public enum BuildinDefinition implements CommandDefinition {
     HELP(arg("commands", "commands...", false)),
     INFO,
     RELOAD_CONFIG,
+    MIGRATE(arg("from", true), arg("to", true)),
     TRANSLATIONS(arg("install", false));
 
     private final @Nullable List<Argument> args;
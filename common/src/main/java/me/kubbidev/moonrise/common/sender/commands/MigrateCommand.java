@@ -0,0 +1,104 @@
+package me.kubbidev.moonrise.common.sender.commands;
+
+import me.kubbidev.moonrise.common.locale.Message;
+import me.kubbidev.moonrise.common.plugin.MoonRisePlugin;
+import me.kubbidev.moonrise.common.sender.Sender;
+import me.kubbidev.moonrise.common.sender.command.abstraction.Command;
+import me.kubbidev.moonrise.common.sender.command.access.BuiltinPermission;
+import me.kubbidev.moonrise.common.sender.command.spec.BuildinDefinition;
+import me.kubbidev.moonrise.common.sender.command.tabcomplete.CompletionSupplier;
+import me.kubbidev.moonrise.common.sender.command.tabcomplete.TabCompleter;
+import me.kubbidev.moonrise.common.sender.command.util.ArgumentList;
+import me.kubbidev.moonrise.common.storage.StorageMigration;
+import me.kubbidev.moonrise.common.storage.StorageType;
+import me.kubbidev.moonrise.common.util.Predicates;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+public class MigrateCommand extends Command {
+
+    /**
+     * The interval between progress reports, in seconds
+     */
+    private static final long REPORT_INTERVAL = 5;
+
+    /**
+     * If a migration is currently running, which continues after the command has returned
+     */
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    public MigrateCommand() {
+        super("Migrate", BuildinDefinition.MIGRATE, BuiltinPermission.MIGRATE, Predicates.not(2));
+    }
+
+    @Override
+    public void execute(MoonRisePlugin plugin, Sender sender, ArgumentList args, String label) {
+        if (!sender.isConsole()) {
+            Message.MIGRATION_CONSOLE_ONLY.send(sender);
+            return;
+        }
+
+        StorageType from = StorageType.parse(args.get(0), null);
+        StorageType to = StorageType.parse(args.get(1), null);
+        if (from == null || to == null) {
+            Message.MIGRATION_UNKNOWN_STORAGE_TYPE.send(sender, from == null ? args.get(0) : args.get(1));
+            return;
+        }
+        if (from == to) {
+            Message.MIGRATION_SAME_STORAGE_TYPE.send(sender);
+            return;
+        }
+        if (!this.running.compareAndSet(false, true)) {
+            Message.MIGRATION_ALREADY_RUNNING.send(sender);
+            return;
+        }
+
+        // migrations can take hours, so don't hold up the command executor
+        StorageMigration migration = new StorageMigration(plugin, from, to);
+        plugin.getBootstrap().getScheduler().executeAsync(() -> {
+            try {
+                if (migration.loadProgress()) {
+                    Message.MIGRATION_RESUMING.send(sender, name(from), name(to));
+                } else {
+                    Message.MIGRATION_STARTING.send(sender, name(from), name(to));
+                }
+
+                migration.run(() -> report(sender, migration), REPORT_INTERVAL);
+                report(sender, migration);
+                Message.MIGRATION_COMPLETE.send(sender, migration.getElapsedSeconds());
+            } catch (Exception e) {
+                plugin.getLogger().severe("Exception whilst migrating from " + from + " to " + to, e);
+                Message.MIGRATION_FAILED.send(sender);
+            } finally {
+                this.running.set(false);
+            }
+        });
+    }
+
+    private static void report(Sender sender, StorageMigration migration) {
+        for (StorageMigration.Table table : StorageMigration.Table.values()) {
+            Message.MIGRATION_PROGRESS.send(sender, name(table), migration.getCopied(table),
+                migration.getRowsPerSecond(table));
+        }
+    }
+
+    private static String name(Enum<?> value) {
+        return value.name().toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public List<String> tabComplete(MoonRisePlugin plugin, Sender sender, ArgumentList args) {
+        List<String> types = Arrays.stream(StorageType.values())
+            .map(MigrateCommand::name)
+            .collect(Collectors.toList());
+
+        return TabCompleter.create()
+            .at(0, CompletionSupplier.startsWith(types))
+            .at(1, CompletionSupplier.startsWith(types))
+            .complete(args);
+    }
+}
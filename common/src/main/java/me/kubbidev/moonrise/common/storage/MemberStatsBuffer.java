@@ -0,0 +1,310 @@
+package me.kubbidev.moonrise.common.storage;
+
+import me.kubbidev.moonrise.common.config.ConfigKeys;
+import me.kubbidev.moonrise.common.plugin.MoonRisePlugin;
+import me.kubbidev.moonrise.common.plugin.scheduler.SchedulerTask;
+import me.kubbidev.moonrise.common.storage.misc.MemberStatsDelta;
+import me.kubbidev.moonrise.common.util.CompletableFutures;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * A write-behind buffer sitting in front of {@link Storage#incrementMemberStats(Collection)}.
+ *
+ * <p>Increments for the same member on the same day are coalesced in memory, and periodically written to the
+ * storage as a single batch. Each increment keeps the day it was granted, so that a flush running after midnight
+ * still counts it towards the buckets of the previous day. A flush is also triggered early once the number of
+ * buffered entries reaches the configured maximum.</p>
+ *
+ * <p>A {@link #snapshot(Runnable, Supplier) snapshot} reads the storage at a point where every increment accepted
+ * before it has been written, and none accepted after it, so that a reader can account for the increments which
+ * follow exactly once.</p>
+ */
+public class MemberStatsBuffer implements AutoCloseable {
+
+    /**
+     * The number of times the final flush is attempted when closing
+     */
+    private static final int  CLOSE_ATTEMPTS    = 3;
+    /**
+     * The delay before the final flush is attempted again, doubled after each attempt, in milliseconds
+     */
+    private static final long CLOSE_RETRY_DELAY = 500;
+
+    private final MoonRisePlugin plugin;
+    private final Storage        storage;
+
+    /**
+     * The pending increments, keyed by guild id, user id and day
+     */
+    private final Map<Key, MemberStatsDelta>   pending  = new ConcurrentHashMap<>();
+    /**
+     * If a flush triggered by the size threshold is currently running
+     */
+    private final AtomicBoolean                flushing = new AtomicBoolean(false);
+    private final int                          maxEntries;
+    private final int                          interval;
+
+    /**
+     * Held to accept or drain increments, and held exclusively to take a snapshot
+     */
+    private final ReadWriteLock                snapshotLock = new ReentrantReadWriteLock();
+    /**
+     * The number of snapshots which haven't been read yet. Until they are, increments are only written by them
+     */
+    private final AtomicInteger                snapshots    = new AtomicInteger(0);
+    /**
+     * The writes to the storage which haven't completed yet
+     */
+    private final Set<CompletableFuture<Void>> writes       = ConcurrentHashMap.newKeySet();
+
+    private volatile @Nullable SchedulerTask flushTask = null;
+
+    public MemberStatsBuffer(MoonRisePlugin plugin, Storage storage) {
+        this.plugin = plugin;
+        this.storage = storage;
+        this.maxEntries = plugin.getConfiguration().get(ConfigKeys.EXPERIENCE_FLUSH_MAX_ENTRIES);
+        this.interval = plugin.getConfiguration().get(ConfigKeys.EXPERIENCE_FLUSH_INTERVAL);
+    }
+
+    /**
+     * Starts the periodic flush, if buffering is enabled.
+     *
+     * <p>Increments are written straight away until the buffer is started.</p>
+     */
+    public void start() {
+        if (this.interval > 0 && this.flushTask == null) {
+            this.flushTask = this.plugin.getBootstrap().getScheduler().asyncRepeating(this::flush, this.interval,
+                TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Gets the number of pending increments, one per member and day.
+     *
+     * @return the buffer size
+     */
+    public int size() {
+        return this.pending.size();
+    }
+
+    /**
+     * Buffers an increment to the stats of a member.
+     *
+     * <p>If buffering is disabled, the increment is written straight away.</p>
+     *
+     * @param guildId       the guild id
+     * @param userId        the user id
+     * @param experience    the experience to add
+     * @param voiceActivity the voice activity time to add, in milliseconds
+     * @param accepted      run once the increment has been accepted, on the same side of any snapshot
+     * @return a future which completes once the increment has been accepted
+     */
+    public CompletableFuture<Void> add(long guildId, long userId, long experience, long voiceActivity,
+                                       Runnable accepted) {
+        CompletableFuture<Void> future = CompletableFutures.NULL;
+        this.snapshotLock.readLock().lock();
+        try {
+            if (this.flushTask == null && this.snapshots.get() == 0) {
+                future = track(this.storage.incrementMemberStats(guildId, userId, experience, voiceActivity));
+            } else {
+                MemberStatsDelta delta = new MemberStatsDelta(guildId, userId, experience, voiceActivity);
+                this.pending.merge(Key.of(delta), delta, MemberStatsDelta::add);
+            }
+            accepted.run();
+        } finally {
+            this.snapshotLock.readLock().unlock();
+        }
+
+        if (this.flushTask != null && this.pending.size() >= this.maxEntries
+            && this.flushing.compareAndSet(false, true)) {
+            flush().whenComplete((v, t) -> this.flushing.set(false));
+        }
+        return future;
+    }
+
+    /**
+     * Writes all pending increments to the storage.
+     *
+     * <p>If the write fails, the increments are put back into the buffer to be retried by the next flush.</p>
+     *
+     * @return a future which completes once the increments have been written
+     */
+    public CompletableFuture<Void> flush() {
+        CompletableFuture<Void> write;
+        this.snapshotLock.readLock().lock();
+        try {
+            // the increments accepted after a snapshot are only written once it has been read
+            if (this.pending.isEmpty() || this.snapshots.get() != 0) {
+                return CompletableFutures.NULL;
+            }
+            write = write(drain());
+        } finally {
+            this.snapshotLock.readLock().unlock();
+        }
+        return write.exceptionally(t -> null);
+    }
+
+    /**
+     * Writes all pending increments, and then reads the storage once it holds every increment accepted so far.
+     *
+     * <p>The given action is run at the point the snapshot is taken, with no increment being accepted at the same
+     * time. Increments accepted before it are written before the storage is read, and increments accepted after
+     * it are held back until the storage has been read.</p>
+     *
+     * @param atSnapshot run at the point the snapshot is taken
+     * @param read       reads the storage
+     * @param <T>        the type of the result
+     * @return a future which completes with the result of the read, or exceptionally if any increment accepted
+     * before the snapshot couldn't be written
+     */
+    public <T> CompletableFuture<T> snapshot(Runnable atSnapshot, Supplier<CompletableFuture<T>> read) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        CompletableFuture<?>[] earlier;
+        List<MemberStatsDelta> batch;
+
+        this.snapshots.incrementAndGet();
+        this.snapshotLock.writeLock().lock();
+        try {
+            earlier = this.writes.toArray(new CompletableFuture<?>[0]);
+            batch = drain();
+            atSnapshot.run();
+            // later snapshots are only taken once this one has been read
+            track(done);
+        } finally {
+            this.snapshotLock.writeLock().unlock();
+        }
+
+        CompletableFuture<Void> written = CompletableFuture.allOf(earlier)
+            .thenCompose(v -> batch.isEmpty() ? CompletableFutures.NULL : write(batch));
+        CompletableFuture<T> result = written.thenCompose(v -> read.get());
+        result.whenComplete((r, t) -> {
+            written.whenComplete((v, writeFailure) -> {
+                if (writeFailure != null) {
+                    done.completeExceptionally(writeFailure);
+                } else {
+                    done.complete(null);
+                }
+            });
+
+            // without buffering, the increments held back are written straight away
+            if (this.snapshots.decrementAndGet() == 0 && this.flushTask == null) {
+                flush();
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Removes every pending increment.
+     */
+    private List<MemberStatsDelta> drain() {
+        // remove entries one by one, so increments added concurrently are never lost
+        List<MemberStatsDelta> batch = new ArrayList<>(this.pending.size());
+        for (Key key : this.pending.keySet()) {
+            MemberStatsDelta delta = this.pending.remove(key);
+            if (delta != null) {
+                batch.add(delta);
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * Writes a batch of increments, putting them back into the buffer if the write fails.
+     */
+    private CompletableFuture<Void> write(List<MemberStatsDelta> batch) {
+        return track(this.storage.incrementMemberStats(batch).whenComplete((v, t) -> {
+            if (t != null) {
+                this.plugin.getLogger().warn("Unable to flush " + batch.size() + " buffered member stats", t);
+                for (MemberStatsDelta delta : batch) {
+                    this.pending.merge(Key.of(delta), delta, MemberStatsDelta::add);
+                }
+            }
+        }));
+    }
+
+    private CompletableFuture<Void> track(CompletableFuture<Void> write) {
+        this.writes.add(write);
+        write.whenComplete((v, t) -> this.writes.remove(write));
+        return write;
+    }
+
+    /**
+     * Stops the periodic flush, and drains the buffer.
+     *
+     * <p>Outstanding snapshots and writes are waited for first, as they put their increments back into the buffer
+     * if they fail. The final flush is then retried a few times with an increasing delay, after which the
+     * increments which still couldn't be written are logged, so that they can be restored manually.</p>
+     */
+    @Override
+    public void close() {
+        SchedulerTask task = this.flushTask;
+        if (task != null) {
+            task.cancel();
+            this.flushTask = null;
+        }
+
+        long delay = CLOSE_RETRY_DELAY;
+        for (int attempt = 0; attempt < CLOSE_ATTEMPTS; attempt++) {
+            awaitWrites();
+            if (this.pending.isEmpty()) {
+                break;
+            }
+
+            if (attempt > 0) {
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                delay *= 2;
+            }
+            flush();
+        }
+        awaitWrites();
+
+        if (!this.pending.isEmpty()) {
+            this.plugin.getLogger().severe("Unable to write " + this.pending.size() + " buffered member stats, "
+                + "they are lost (guild id, user id, experience, voice activity, day):");
+            for (MemberStatsDelta delta : this.pending.values()) {
+                this.plugin.getLogger().severe(delta.guildId() + ", " + delta.userId() + ", "
+                    + delta.experience() + ", " + delta.voiceActivity() + ", " + delta.date());
+            }
+            this.pending.clear();
+        }
+    }
+
+    /**
+     * Waits for every write and snapshot which hasn't completed yet, including those started meanwhile.
+     */
+    private void awaitWrites() {
+        // a snapshot is tracked as a write until it has been read, and stops holding back increments just after
+        while (!this.writes.isEmpty() || this.snapshots.get() != 0) {
+            CompletableFuture.allOf(this.writes.toArray(new CompletableFuture<?>[0])).handle((v, t) -> null).join();
+            Thread.onSpinWait();
+        }
+    }
+
+    private record Key(long guildId, long userId, LocalDate date) {
+
+        static Key of(MemberStatsDelta delta) {
+            return new Key(delta.guildId(), delta.userId(), delta.date());
+        }
+    }
+}
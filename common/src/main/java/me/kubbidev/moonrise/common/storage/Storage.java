@@ -1,29 +1,90 @@
 package me.kubbidev.moonrise.common.storage;
 
+import me.kubbidev.moonrise.common.config.ConfigKeys;
 import me.kubbidev.moonrise.common.model.ApiGuild;
 import me.kubbidev.moonrise.common.model.ApiMember;
 import me.kubbidev.moonrise.common.model.ApiUser;
 import me.kubbidev.moonrise.common.model.Snowflake;
 import me.kubbidev.moonrise.common.storage.implementation.StorageImplementation;
 import me.kubbidev.moonrise.common.plugin.MoonRisePlugin;
+import me.kubbidev.moonrise.common.plugin.scheduler.SchedulerTask;
+import me.kubbidev.moonrise.common.storage.misc.ExperienceGain;
+import me.kubbidev.moonrise.common.storage.misc.ExperienceWindow;
+import me.kubbidev.moonrise.common.storage.misc.MemberStatsDelta;
 import me.kubbidev.moonrise.common.util.AsyncInterface;
+import me.kubbidev.moonrise.common.util.Long2;
+import me.kubbidev.moonrise.common.util.SingleFlight;
+import org.jetbrains.annotations.Nullable;
 
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongConsumer;
 
 /**
  * Provides a {@link CompletableFuture} based API for interacting with a {@link StorageImplementation}.
  */
 public class Storage extends AsyncInterface {
 
+    /**
+     * The interval between deletions of experience gains older than the configured retention, in hours
+     */
+    private static final long RETENTION_INTERVAL = 24;
+
+    /**
+     * The interval between archivals of inactive members, in hours
+     */
+    private static final long ARCHIVE_INTERVAL = 6;
+
+    /**
+     * The number of members archived at a time, and the delay between each batch in milliseconds, so that the
+     * members table is never locked for long
+     */
+    private static final int  ARCHIVE_BATCH_SIZE  = 500;
+    private static final long ARCHIVE_BATCH_DELAY = 500;
+
     private final MoonRisePlugin        plugin;
     private final StorageImplementation implementation;
 
+    /**
+     * The executor storage operations are performed on, or null to use the plugin's worker pool
+     */
+    private final StorageExecutor executor;
+
+    /**
+     * Concurrent loads of the same user or member share a single query, each caller receiving its own copy of the
+     * result since it may be modified and saved
+     */
+    private final SingleFlight<Long, ApiUser>    userLoads   = new SingleFlight<>();
+    private final SingleFlight<Long2, ApiMember> memberLoads = new SingleFlight<>();
+
+    private @Nullable SchedulerTask retentionTask = null;
+    private @Nullable SchedulerTask archiveTask   = null;
+
+    /**
+     * If an archival is running, which continues over several scheduled batches
+     */
+    private final AtomicBoolean archiving = new AtomicBoolean(false);
+
     public Storage(MoonRisePlugin plugin, StorageImplementation implementation) {
         super(plugin);
         this.plugin = plugin;
         this.implementation = implementation;
+        this.executor = plugin.getConfiguration().get(ConfigKeys.STORAGE_VIRTUAL_THREADS)
+            ? new StorageExecutor(implementation.getMaxConcurrentOperations())
+            : null;
+    }
+
+    @Override
+    protected Executor executor() {
+        return this.executor != null ? this.executor : super.executor();
     }
 
     public StorageImplementation getImplementation() {
@@ -34,15 +95,45 @@ public class Storage extends AsyncInterface {
         return this.implementation.getImplementationName();
     }
 
+    public boolean supportsExperienceWindows() {
+        return this.implementation.supportsExperienceWindows();
+    }
+
+    public void setRestoreListener(StorageImplementation.RestoreListener listener) {
+        this.implementation.setRestoreListener(listener);
+    }
+
     public void init() {
         try {
             this.implementation.init();
         } catch (Exception e) {
             this.plugin.getLogger().severe("Failed to init storage implementation", e);
         }
+
+        this.retentionTask = this.plugin.getBootstrap().getScheduler().asyncRepeating(
+            this::pruneExperienceGains, RETENTION_INTERVAL, TimeUnit.HOURS);
+        this.archiveTask = this.plugin.getBootstrap().getScheduler().asyncRepeating(
+            this::archiveMembers, ARCHIVE_INTERVAL, TimeUnit.HOURS);
     }
 
     public void shutdown() {
+        if (this.retentionTask != null) {
+            this.retentionTask.cancel();
+        }
+        if (this.archiveTask != null) {
+            this.archiveTask.cancel();
+        }
+
+        if (this.executor != null) {
+            try {
+                if (!this.executor.shutdown(1, TimeUnit.MINUTES)) {
+                    this.plugin.getLogger().severe("Timed out waiting for storage operations to complete");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
         try {
             this.implementation.shutdown();
         } catch (Exception e) {
@@ -51,11 +142,19 @@ public class Storage extends AsyncInterface {
     }
 
     public StorageMetadata getMeta() {
-        return this.implementation.getMeta();
+        StorageMetadata meta = this.implementation.getMeta();
+        meta.loads(this.userLoads.requests() + this.memberLoads.requests());
+        meta.sharedLoads(this.userLoads.shared() + this.memberLoads.shared());
+        if (this.executor != null) {
+            meta.queueDepth(this.executor.getQueueDepth());
+            meta.averageWait(this.executor.getAverageWaitMillis());
+        }
+        return meta;
     }
 
     public CompletableFuture<ApiUser> loadUser(long userId) {
-        return future(() -> this.implementation.loadUser(userId));
+        return this.userLoads.load(userId, () -> future(() -> this.implementation.loadUser(userId)))
+            .thenApply(ApiUser::copy);
     }
 
     public CompletableFuture<ApiGuild> loadGuild(long guildId) {
@@ -67,13 +166,24 @@ public class Storage extends AsyncInterface {
     }
 
     public CompletableFuture<ApiMember> loadMember(long guildId, long userId) {
-        return future(() -> this.implementation.loadMember(guildId, userId));
+        return this.memberLoads.load(new Long2(guildId, userId),
+            () -> future(() -> this.implementation.loadMember(guildId, userId))).thenApply(ApiMember::copy);
+    }
+
+    public CompletableFuture<List<ApiMember>> loadMembers(long guildId, Collection<Long> userIds) {
+        return future(() -> this.implementation.loadMembers(guildId, userIds));
     }
 
     public CompletableFuture<List<ApiMember>> loadMembersWithHighestExperience(long guildId, int limit) {
         return future(() -> this.implementation.loadMembersWithHighestExperience(guildId, limit));
     }
 
+    public CompletableFuture<List<ExperienceGain>> loadMembersWithHighestExperience(long guildId,
+                                                                                   ExperienceWindow window,
+                                                                                   int bucket, int limit) {
+        return future(() -> this.implementation.loadMembersWithHighestExperience(guildId, window, bucket, limit));
+    }
+
     public CompletableFuture<Void> saveUser(ApiUser user) {
         return future(() -> this.implementation.saveUser(user));
     }
@@ -86,6 +196,91 @@ public class Storage extends AsyncInterface {
         return future(() -> this.implementation.saveMember(member));
     }
 
+    public CompletableFuture<Void> saveMembers(Collection<ApiMember> members) {
+        return future(() -> this.implementation.saveMembers(members));
+    }
+
+    public CompletableFuture<Void> incrementMemberStats(long guildId, long userId, long experience,
+                                                        long voiceActivity) {
+        return future(() -> this.implementation.incrementMemberStats(guildId, userId, experience, voiceActivity));
+    }
+
+    public CompletableFuture<Void> incrementMemberStats(Collection<MemberStatsDelta> deltas) {
+        return future(() -> this.implementation.incrementMemberStats(deltas));
+    }
+
+    /**
+     * Deletes the experience gained within buckets which ended before the configured retention, the daily buckets
+     * and the weekly and monthly rollups each having their own retention.
+     */
+    private void pruneExperienceGains() {
+        LocalDate today = ExperienceWindow.today();
+        for (ExperienceWindow window : ExperienceWindow.values()) {
+            int retention = this.plugin.getConfiguration().get(window == ExperienceWindow.DAY
+                ? ConfigKeys.EXPERIENCE_DAILY_RETENTION
+                : ConfigKeys.EXPERIENCE_ROLLUP_RETENTION);
+            if (retention <= 0) {
+                continue;
+            }
+
+            try {
+                this.implementation.pruneExperienceGains(window, window.bucket(today.minusDays(retention)));
+            } catch (Exception e) {
+                this.plugin.getLogger().warn("Unable to delete old experience gains of window " + window, e);
+            }
+        }
+    }
+
+    /**
+     * Moves members who are no longer active into the archive, after restoring any archived members who have
+     * become active again.
+     */
+    private void archiveMembers() {
+        int days = this.plugin.getConfiguration().get(ConfigKeys.MEMBER_ARCHIVE_AFTER);
+        if (days <= 0 || !this.archiving.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            List<Long2> restored;
+            do {
+                restored = this.implementation.restoreArchivedMembers(ARCHIVE_BATCH_SIZE);
+            } while (restored.size() == ARCHIVE_BATCH_SIZE);
+        } catch (Exception e) {
+            this.plugin.getLogger().warn("Unable to restore archived members", e);
+        }
+
+        long maxExperience = this.plugin.getConfiguration().get(ConfigKeys.MEMBER_ARCHIVE_MAX_EXPERIENCE);
+        Instant lastSeenBefore = Instant.now().minus(days, ChronoUnit.DAYS);
+        archiveMembers(maxExperience, lastSeenBefore, Long.MIN_VALUE, Long.MIN_VALUE, 0);
+    }
+
+    /**
+     * Archives a single batch of members, scheduling the next batch after a short delay until there are no more
+     * members to archive.
+     */
+    private void archiveMembers(long maxExperience, Instant lastSeenBefore, long afterUserId, long afterGuildId,
+                                int archived) {
+        try {
+            List<Long2> batch = this.implementation.archiveMembers(maxExperience, lastSeenBefore, afterUserId,
+                afterGuildId, ARCHIVE_BATCH_SIZE);
+            if (batch.size() == ARCHIVE_BATCH_SIZE) {
+                Long2 last = batch.getLast();
+                this.plugin.getBootstrap().getScheduler().asyncLater(() -> archiveMembers(maxExperience,
+                    lastSeenBefore, last.b(), last.a(), archived + batch.size()), ARCHIVE_BATCH_DELAY,
+                    TimeUnit.MILLISECONDS);
+                return;
+            }
+
+            if (archived + batch.size() != 0) {
+                this.plugin.getLogger().info("Archived " + (archived + batch.size()) + " inactive members");
+            }
+        } catch (Exception e) {
+            this.plugin.getLogger().warn("Unable to archive inactive members", e);
+        }
+        this.archiving.set(false);
+    }
+
     public CompletableFuture<Set<Snowflake>> getUniqueUsers() {
         return future(this.implementation::getUniqueUsers);
     }
@@ -101,4 +296,41 @@ public class Storage extends AsyncInterface {
     public CompletableFuture<Set<Snowflake>> getUniqueMembers(long guildId) {
         return future(() -> this.implementation.getUniqueMembers(guildId));
     }
+
+    public CompletableFuture<long[]> getUniqueUserIds() {
+        return future(this.implementation::getUniqueUserIds);
+    }
+
+    public CompletableFuture<long[]> getUniqueGuildIds() {
+        return future(this.implementation::getUniqueGuildIds);
+    }
+
+    public CompletableFuture<long[]> getUniqueMemberIds() {
+        return future(() -> this.implementation.getUniqueMemberIds());
+    }
+
+    public CompletableFuture<long[]> getUniqueMemberIds(long guildId) {
+        return future(() -> this.implementation.getUniqueMemberIds(guildId));
+    }
+
+    public CompletableFuture<Void> forEachUserId(LongConsumer visitor) {
+        return future(() -> this.implementation.forEachUserId(visitor));
+    }
+
+    public CompletableFuture<Void> forEachGuildId(LongConsumer visitor) {
+        return future(() -> this.implementation.forEachGuildId(visitor));
+    }
+
+    public CompletableFuture<Void> forEachMemberId(LongConsumer visitor) {
+        return future(() -> this.implementation.forEachMemberId(visitor));
+    }
+
+    public CompletableFuture<Void> forEachMemberId(long guildId, LongConsumer visitor) {
+        return future(() -> this.implementation.forEachMemberId(guildId, visitor));
+    }
+
+    public CompletableFuture<Void> forEachMemberExperience(long guildId, int limit,
+                                                           StorageImplementation.ExperienceVisitor visitor) {
+        return future(() -> this.implementation.forEachMemberExperience(guildId, limit, visitor));
+    }
 }
@@ -0,0 +1,94 @@
+package me.kubbidev.moonrise.common.storage;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An {@link Executor} which runs storage operations on virtual threads.
+ *
+ * <p>No more operations run at once than the storage implementation can serve, for example the size of its
+ * connection pool. Operations over that limit wait for a permit as parked virtual threads, instead of
+ * occupying a thread of the plugin's worker pool, or blocking (and pinning) inside the driver while
+ * waiting for a connection.</p>
+ */
+final class StorageExecutor implements Executor {
+
+    private final ExecutorService executor;
+    private final Semaphore       permits;
+
+    /**
+     * The number of operations currently waiting for a permit
+     */
+    private final AtomicInteger queued     = new AtomicInteger();
+    /**
+     * The number of operations which have acquired a permit, and the total time they spent waiting for it
+     */
+    private final LongAdder     operations = new LongAdder();
+    private final LongAdder     waitNanos  = new LongAdder();
+
+    StorageExecutor(int maxConcurrentOperations) {
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual()
+            .name("moonrise-storage-", 0)
+            .factory());
+        this.permits = new Semaphore(Math.max(1, maxConcurrentOperations), true);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        long submitted = System.nanoTime();
+        this.queued.incrementAndGet();
+        try {
+            this.executor.execute(() -> {
+                this.permits.acquireUninterruptibly();
+                this.queued.decrementAndGet();
+                this.operations.increment();
+                this.waitNanos.add(System.nanoTime() - submitted);
+                try {
+                    task.run();
+                } finally {
+                    this.permits.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            this.queued.decrementAndGet();
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the number of operations currently waiting to run.
+     *
+     * @return the queue depth
+     */
+    public int getQueueDepth() {
+        return this.queued.get();
+    }
+
+    /**
+     * Gets the average time operations have spent waiting to run.
+     *
+     * @return the average wait time, in milliseconds
+     */
+    public long getAverageWaitMillis() {
+        long operations = this.operations.sum();
+        return operations == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(this.waitNanos.sum() / operations);
+    }
+
+    /**
+     * Stops accepting new operations, and waits for the submitted ones to complete.
+     *
+     * @param timeout the maximum time to wait
+     * @param unit    the unit of the timeout
+     * @return true if all operations completed
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean shutdown(long timeout, TimeUnit unit) throws InterruptedException {
+        this.executor.shutdown();
+        return this.executor.awaitTermination(timeout, unit);
+    }
+}
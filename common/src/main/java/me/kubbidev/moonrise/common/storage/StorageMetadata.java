@@ -5,8 +5,14 @@ public class StorageMetadata {
     // remote
     private Boolean connected;
     private Integer ping;
+    private Boolean replicaConnected;
     // local
     private Long    sizeBytes;
+    // all
+    private Long    loads;
+    private Long    sharedLoads;
+    private Integer queueDepth;
+    private Long    averageWait;
 
     public Boolean connected() {
         return this.connected;
@@ -16,6 +22,14 @@ public class StorageMetadata {
         this.connected = connected;
     }
 
+    public Boolean replicaConnected() {
+        return this.replicaConnected;
+    }
+
+    public void replicaConnected(boolean replicaConnected) {
+        this.replicaConnected = replicaConnected;
+    }
+
     public Integer ping() {
         return this.ping;
     }
@@ -31,4 +45,36 @@ public class StorageMetadata {
     public void sizeBytes(long sizeBytes) {
         this.sizeBytes = sizeBytes;
     }
+
+    public Long loads() {
+        return this.loads;
+    }
+
+    public void loads(long loads) {
+        this.loads = loads;
+    }
+
+    public Long sharedLoads() {
+        return this.sharedLoads;
+    }
+
+    public void sharedLoads(long sharedLoads) {
+        this.sharedLoads = sharedLoads;
+    }
+
+    public Integer queueDepth() {
+        return this.queueDepth;
+    }
+
+    public void queueDepth(int queueDepth) {
+        this.queueDepth = queueDepth;
+    }
+
+    public Long averageWait() {
+        return this.averageWait;
+    }
+
+    public void averageWait(long averageWait) {
+        this.averageWait = averageWait;
+    }
 }
@@ -0,0 +1,367 @@
+package me.kubbidev.moonrise.common.storage;
+
+import me.kubbidev.moonrise.common.model.ApiGuild;
+import me.kubbidev.moonrise.common.model.ApiMember;
+import me.kubbidev.moonrise.common.model.ApiUser;
+import me.kubbidev.moonrise.common.plugin.MoonRisePlugin;
+import me.kubbidev.moonrise.common.storage.implementation.StorageImplementation;
+import me.kubbidev.moonrise.common.storage.misc.BucketGain;
+import me.kubbidev.moonrise.common.storage.misc.ExperienceWindow;
+import me.kubbidev.moonrise.common.util.Long2;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Copies every user, guild and member, and the experience gained within each window, from one storage type to
+ * another.
+ *
+ * <p>The tables are copied in parallel, a page at a time, so that only a bounded number of rows is held in
+ * memory. The position reached in each table is saved to a progress file after every page, so that an
+ * interrupted migration between the same storage types carries on from where it stopped.</p>
+ */
+public class StorageMigration {
+
+    /**
+     * The number of rows read from the source and written to the target at a time
+     */
+    private static final int PAGE_SIZE = 1000;
+
+    private static final String PROGRESS_FILE = "moonrise-migration.properties";
+
+    private static final Set<ApiUser.Field>   USER_FIELDS   = EnumSet.allOf(ApiUser.Field.class);
+    private static final Set<ApiGuild.Field>  GUILD_FIELDS  = EnumSet.allOf(ApiGuild.Field.class);
+    private static final Set<ApiMember.Field> MEMBER_FIELDS = EnumSet.allOf(ApiMember.Field.class);
+
+    public enum Table {
+        USERS, GUILDS, MEMBERS, EXPERIENCE_GAINS
+    }
+
+    private final MoonRisePlugin plugin;
+    private final StorageType    from;
+    private final StorageType    to;
+    private final Path           progressFile;
+
+    /**
+     * The last copied key of each table, see {@link #checkpoint(String, long)}
+     */
+    private final Properties             progress = new Properties();
+    private final Map<Table, LongAdder>  copied   = new EnumMap<>(Table.class);
+    private       long                   startTime;
+    private volatile boolean             stopped  = false;
+
+    public StorageMigration(MoonRisePlugin plugin, StorageType from, StorageType to) {
+        this.plugin = plugin;
+        this.from = from;
+        this.to = to;
+        this.progressFile = plugin.getBootstrap().getDataDirectory().resolve(PROGRESS_FILE);
+        for (Table table : Table.values()) {
+            this.copied.put(table, new LongAdder());
+        }
+    }
+
+    /**
+     * Loads the progress of a previous migration between the same storage types, if there is one.
+     *
+     * @return if the migration will resume from a previous migration
+     * @throws IOException if the progress file can't be read
+     */
+    public boolean loadProgress() throws IOException {
+        if (!Files.exists(this.progressFile)) {
+            return false;
+        }
+
+        Properties saved = new Properties();
+        try (Reader reader = Files.newBufferedReader(this.progressFile, StandardCharsets.UTF_8)) {
+            saved.load(reader);
+        }
+        if (!this.from.name().equals(saved.getProperty("from")) || !this.to.name().equals(saved.getProperty("to"))) {
+            return false;
+        }
+
+        this.progress.putAll(saved);
+        return true;
+    }
+
+    /**
+     * Performs the migration, blocking until it completes.
+     *
+     * @param reporter called periodically whilst the migration is running
+     * @param interval the interval between reports, in seconds
+     * @throws Exception if the migration fails, in which case it can be resumed later
+     */
+    public void run(Runnable reporter, long interval) throws Exception {
+        this.progress.setProperty("from", this.from.name());
+        this.progress.setProperty("to", this.to.name());
+        this.startTime = System.nanoTime();
+
+        StorageImplementation source = null;
+        StorageImplementation target = null;
+        try {
+            source = open(this.from);
+            target = open(this.to);
+
+            StorageImplementation s = source;
+            StorageImplementation t = target;
+            CompletableFuture<Void> future = CompletableFuture.allOf(
+                copy(() -> copyUsers(s, t)),
+                copy(() -> copyGuilds(s, t)),
+                copy(() -> copyMembers(s, t)),
+                copy(() -> copyExperienceGains(s, t))
+            );
+
+            while (true) {
+                try {
+                    future.get(interval, TimeUnit.SECONDS);
+                    break;
+                } catch (TimeoutException e) {
+                    reporter.run();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause() instanceof MigrationException m ? m.getCause() : e.getCause();
+                    throw cause instanceof Exception exception ? exception : e;
+                }
+            }
+        } finally {
+            close(source, this.from);
+            close(target, this.to);
+        }
+
+        Files.deleteIfExists(this.progressFile);
+    }
+
+    /**
+     * Gets the number of rows copied from the table by this migration.
+     *
+     * @param table the table
+     * @return the number of rows
+     */
+    public long getCopied(Table table) {
+        return this.copied.get(table).sum();
+    }
+
+    /**
+     * Gets the average number of rows of the table copied each second.
+     *
+     * @param table the table
+     * @return the number of rows per second
+     */
+    public long getRowsPerSecond(Table table) {
+        long elapsed = System.nanoTime() - this.startTime;
+        return elapsed <= 0 ? 0 : getCopied(table) * TimeUnit.SECONDS.toNanos(1) / elapsed;
+    }
+
+    /**
+     * Gets the time elapsed since the migration started.
+     *
+     * @return the elapsed time, in seconds
+     */
+    public long getElapsedSeconds() {
+        return TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - this.startTime);
+    }
+
+    private void copyUsers(StorageImplementation source, StorageImplementation target) throws Exception {
+        long after = cursor("users");
+        StorageImplementation.PageReader<ApiUser> pages = source.userPages(after, PAGE_SIZE);
+        List<ApiUser> page;
+        while (!this.stopped && !(page = pages.next()).isEmpty()) {
+            for (ApiUser user : page) {
+                user.getDirtyUserFields().markAll(USER_FIELDS);
+            }
+            target.saveUsers(page);
+
+            after = page.getLast().getId();
+            checkpoint("users", after);
+            this.copied.get(Table.USERS).add(page.size());
+        }
+    }
+
+    private void copyGuilds(StorageImplementation source, StorageImplementation target) throws Exception {
+        long after = cursor("guilds");
+        StorageImplementation.PageReader<ApiGuild> pages = source.guildPages(after, PAGE_SIZE);
+        List<ApiGuild> page;
+        while (!this.stopped && !(page = pages.next()).isEmpty()) {
+            for (ApiGuild guild : page) {
+                guild.getDirtyFields().markAll(GUILD_FIELDS);
+            }
+            target.saveGuilds(page);
+
+            after = page.getLast().getId();
+            checkpoint("guilds", after);
+            this.copied.get(Table.GUILDS).add(page.size());
+        }
+    }
+
+    private void copyMembers(StorageImplementation source, StorageImplementation target) throws Exception {
+        // archived members aren't read with the members table, so move them all back before reading it
+        boolean archived = true;
+        while (!this.stopped && archived) {
+            archived = !source.unarchiveMembers(PAGE_SIZE).isEmpty();
+        }
+
+        long afterUser = cursor("members.user");
+        long afterGuild = cursor("members.guild");
+        StorageImplementation.PageReader<ApiMember> pages = source.memberPages(afterUser, afterGuild, PAGE_SIZE);
+        List<ApiMember> page;
+        while (!this.stopped && !(page = pages.next()).isEmpty()) {
+            saveMembers(target, page);
+
+            afterUser = page.getLast().getId();
+            afterGuild = page.getLast().getGuildId();
+            checkpoint("members.user", afterUser, "members.guild", afterGuild);
+            this.copied.get(Table.MEMBERS).add(page.size());
+        }
+
+        // members archived whilst the table was being read could have been skipped, so copy them on their own
+        List<Long2> restored;
+        while (!this.stopped && !(restored = source.unarchiveMembers(PAGE_SIZE)).isEmpty()) {
+            List<ApiMember> members = new ArrayList<>(restored.size());
+            for (Long2 key : restored) {
+                members.add(source.loadMember(key.a(), key.b()));
+            }
+            saveMembers(target, members);
+            this.copied.get(Table.MEMBERS).add(members.size());
+        }
+    }
+
+    private static void saveMembers(StorageImplementation target, List<ApiMember> members) throws Exception {
+        // the user fields are copied along with the users table
+        for (ApiMember member : members) {
+            member.getDirtyUserFields().clear();
+            member.getDirtyMemberFields().markAll(MEMBER_FIELDS);
+        }
+        target.saveMembers(members);
+    }
+
+    private void copyExperienceGains(StorageImplementation source, StorageImplementation target) throws Exception {
+        if (!source.supportsExperienceWindows()) {
+            return;
+        }
+        if (!target.supportsExperienceWindows()) {
+            this.plugin.getLogger().warn("The experience gained within each window isn't copied, as " + this.to
+                + " doesn't keep it. Leaderboards will rank members by their lifetime experience instead.");
+            return;
+        }
+
+        for (ExperienceWindow window : ExperienceWindow.values()) {
+            String key = "gains." + window.name().toLowerCase(Locale.ROOT);
+            long afterGuild = cursor(key + ".guild");
+            int afterBucket = (int) Math.max(cursor(key + ".bucket"), Integer.MIN_VALUE);
+            long afterUser = cursor(key + ".user");
+            StorageImplementation.PageReader<BucketGain> pages = source.experienceGainPages(window, afterGuild,
+                afterBucket, afterUser, PAGE_SIZE);
+            List<BucketGain> page;
+            while (!this.stopped && !(page = pages.next()).isEmpty()) {
+                target.saveExperienceGains(window, page);
+
+                BucketGain last = page.getLast();
+                checkpoint(key + ".guild", last.guildId(), key + ".bucket", last.bucket(), key + ".user",
+                    last.userId());
+                this.copied.get(Table.EXPERIENCE_GAINS).add(page.size());
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface CopyTask {
+
+        void run() throws Exception;
+    }
+
+    private CompletableFuture<Void> copy(CopyTask task) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                task.run();
+            } catch (Exception e) {
+                // stop the other tables from being copied, so the migration fails as soon as possible
+                this.stopped = true;
+                throw new MigrationException(e);
+            }
+        }, this.plugin.getBootstrap().getScheduler().async());
+    }
+
+    private long cursor(String key) {
+        String value = this.progress.getProperty(key);
+        return value == null ? Long.MIN_VALUE : Long.parseLong(value);
+    }
+
+    private void checkpoint(String key, long value) throws IOException {
+        synchronized (this.progress) {
+            this.progress.setProperty(key, Long.toString(value));
+            saveProgress();
+        }
+    }
+
+    private void checkpoint(String key1, long value1, String key2, long value2) throws IOException {
+        synchronized (this.progress) {
+            this.progress.setProperty(key1, Long.toString(value1));
+            this.progress.setProperty(key2, Long.toString(value2));
+            saveProgress();
+        }
+    }
+
+    private void checkpoint(String key1, long value1, String key2, long value2, String key3, long value3)
+        throws IOException {
+        synchronized (this.progress) {
+            this.progress.setProperty(key1, Long.toString(value1));
+            this.progress.setProperty(key2, Long.toString(value2));
+            this.progress.setProperty(key3, Long.toString(value3));
+            saveProgress();
+        }
+    }
+
+    private void saveProgress() throws IOException {
+        Path temp = this.progressFile.resolveSibling(PROGRESS_FILE + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            this.progress.store(writer, "MoonRise storage migration progress");
+        }
+        Files.move(temp, this.progressFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Opens the storage of the given type, reusing the active storage if it is the same type.
+     */
+    private StorageImplementation open(StorageType type) throws Exception {
+        if (type == StorageType.getRequiredType(this.plugin)) {
+            return this.plugin.getStorage().getImplementation();
+        }
+
+        this.plugin.getDependencyManager().loadStorageDependencies(type);
+        StorageImplementation implementation = type.createNewImplementation(this.plugin);
+        implementation.init();
+        return implementation;
+    }
+
+    private void close(@Nullable StorageImplementation implementation, StorageType type) {
+        if (implementation != null && type != StorageType.getRequiredType(this.plugin)) {
+            implementation.shutdown();
+        }
+    }
+
+    private static final class MigrationException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        MigrationException(Exception cause) {
+            super(cause);
+        }
+    }
+}
@@ -4,6 +4,8 @@ import com.google.common.collect.ImmutableList;
 import me.kubbidev.moonrise.common.config.ConfigKeys;
 import me.kubbidev.moonrise.common.storage.implementation.StorageImplementation;
 import me.kubbidev.moonrise.common.storage.implementation.custom.CustomStorageProviders;
+import me.kubbidev.moonrise.common.storage.implementation.journal.JournalStorage;
+import me.kubbidev.moonrise.common.storage.implementation.memory.MemoryStorage;
 import me.kubbidev.moonrise.common.storage.implementation.sql.SqlStorage;
 import me.kubbidev.moonrise.common.storage.implementation.sql.connection.file.H2ConnectionFactory;
 import me.kubbidev.moonrise.common.storage.implementation.sql.connection.file.SqliteConnectionFactory;
@@ -24,8 +26,11 @@ public enum StorageType {
         @NotNull StorageImplementation createNewImplementation(@NotNull MoonRisePlugin plugin) {
             return new SqlStorage(
                 plugin,
-                new MariaDbConnectionFactory(plugin.getConfiguration().get(ConfigKeys.DATABASE_VALUES)),
-                plugin.getConfiguration().get(ConfigKeys.SQL_TABLE_PREFIX)
+                new MariaDbConnectionFactory(plugin.getConfiguration().get(ConfigKeys.DATABASE_VALUES),
+                    plugin.getConfiguration().get(ConfigKeys.DATABASE_REPLICA_VALUES)),
+                plugin.getConfiguration().get(ConfigKeys.SQL_TABLE_PREFIX),
+                plugin.getConfiguration().get(ConfigKeys.SQL_FETCH_SIZE),
+                plugin.getConfiguration().get(ConfigKeys.SQL_MEMBER_PARTITIONS)
             );
         }
     },
@@ -34,8 +39,11 @@ public enum StorageType {
         @NotNull StorageImplementation createNewImplementation(@NotNull MoonRisePlugin plugin) {
             return new SqlStorage(
                 plugin,
-                new MySqlConnectionFactory(plugin.getConfiguration().get(ConfigKeys.DATABASE_VALUES)),
-                plugin.getConfiguration().get(ConfigKeys.SQL_TABLE_PREFIX)
+                new MySqlConnectionFactory(plugin.getConfiguration().get(ConfigKeys.DATABASE_VALUES),
+                    plugin.getConfiguration().get(ConfigKeys.DATABASE_REPLICA_VALUES)),
+                plugin.getConfiguration().get(ConfigKeys.SQL_TABLE_PREFIX),
+                plugin.getConfiguration().get(ConfigKeys.SQL_FETCH_SIZE),
+                plugin.getConfiguration().get(ConfigKeys.SQL_MEMBER_PARTITIONS)
             );
         }
     },
@@ -44,8 +52,11 @@ public enum StorageType {
         @NotNull StorageImplementation createNewImplementation(@NotNull MoonRisePlugin plugin) {
             return new SqlStorage(
                 plugin,
-                new PostgresConnectionFactory(plugin.getConfiguration().get(ConfigKeys.DATABASE_VALUES)),
-                plugin.getConfiguration().get(ConfigKeys.SQL_TABLE_PREFIX)
+                new PostgresConnectionFactory(plugin.getConfiguration().get(ConfigKeys.DATABASE_VALUES),
+                    plugin.getConfiguration().get(ConfigKeys.DATABASE_REPLICA_VALUES)),
+                plugin.getConfiguration().get(ConfigKeys.SQL_TABLE_PREFIX),
+                plugin.getConfiguration().get(ConfigKeys.SQL_FETCH_SIZE),
+                plugin.getConfiguration().get(ConfigKeys.SQL_MEMBER_PARTITIONS)
             );
         }
     },
@@ -56,7 +67,8 @@ public enum StorageType {
         @NotNull StorageImplementation createNewImplementation(@NotNull MoonRisePlugin plugin) {
             return new SqlStorage(
                 plugin,
-                new SqliteConnectionFactory(plugin.getBootstrap().getDataDirectory().resolve("moonrise-sqlite.db")),
+                new SqliteConnectionFactory(plugin.getBootstrap().getDataDirectory().resolve("moonrise-sqlite.db"),
+                    plugin.getConfiguration().get(ConfigKeys.FLATFILE_READ_CONNECTIONS)),
                 plugin.getConfiguration().get(ConfigKeys.SQL_TABLE_PREFIX)
             );
         }
@@ -66,12 +78,32 @@ public enum StorageType {
         @NotNull StorageImplementation createNewImplementation(@NotNull MoonRisePlugin plugin) {
             return new SqlStorage(
                 plugin,
-                new H2ConnectionFactory(plugin.getBootstrap().getDataDirectory().resolve("moonrise-h2-v2")),
+                new H2ConnectionFactory(plugin.getBootstrap().getDataDirectory().resolve("moonrise-h2-v2"),
+                    plugin.getConfiguration().get(ConfigKeys.FLATFILE_READ_CONNECTIONS)),
                 plugin.getConfiguration().get(ConfigKeys.SQL_TABLE_PREFIX)
             );
         }
     },
 
+    JOURNAL("journal") {
+        @Override
+        @NotNull StorageImplementation createNewImplementation(@NotNull MoonRisePlugin plugin) {
+            return new JournalStorage(plugin, plugin.getBootstrap().getDataDirectory().resolve("journal"));
+        }
+    },
+
+    // In memory
+    MEMORY("memory") {
+        @Override
+        @NotNull StorageImplementation createNewImplementation(@NotNull MoonRisePlugin plugin) {
+            return new MemoryStorage(
+                plugin,
+                plugin.getBootstrap().getDataDirectory().resolve("moonrise-memory.snapshot"),
+                plugin.getConfiguration().get(ConfigKeys.MEMORY_SNAPSHOT_INTERVAL)
+            );
+        }
+    },
+
     // Custom
     CUSTOM("custom") {
         @Override
@@ -6,9 +6,23 @@ import me.kubbidev.moonrise.common.model.ApiUser;
 import me.kubbidev.moonrise.common.model.Snowflake;
 import me.kubbidev.moonrise.common.storage.StorageMetadata;
 import me.kubbidev.moonrise.common.plugin.MoonRisePlugin;
+import me.kubbidev.moonrise.common.storage.misc.BucketGain;
+import me.kubbidev.moonrise.common.storage.misc.ExperienceGain;
+import me.kubbidev.moonrise.common.storage.misc.ExperienceWindow;
+import me.kubbidev.moonrise.common.storage.misc.MemberStatsDelta;
+import me.kubbidev.moonrise.common.util.Long2;
+import me.kubbidev.moonrise.common.util.LongArrayBuilder;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
 
 public interface StorageImplementation {
 
@@ -22,6 +36,27 @@ public interface StorageImplementation {
 
     StorageMetadata getMeta();
 
+    /**
+     * Gets the maximum number of operations which can usefully be performed at once, for example the size of
+     * a connection pool.
+     *
+     * @return the maximum number of concurrent operations
+     */
+    default int getMaxConcurrentOperations() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Gets if the experience gained by members is kept within the buckets of each {@link ExperienceWindow}, so
+     * that members can be ranked by the experience gained within a window.
+     *
+     * @return if members can be ranked within a window
+     * @see #loadMembersWithHighestExperience(long, ExperienceWindow, int, int)
+     */
+    default boolean supportsExperienceWindows() {
+        return false;
+    }
+
     ApiUser loadUser(long userId) throws Exception;
 
     ApiGuild loadGuild(long guildId) throws Exception;
@@ -30,14 +65,322 @@ public interface StorageImplementation {
 
     ApiMember loadMember(long guildId, long userId) throws Exception;
 
+    /**
+     * Loads several members of the same guild at once.
+     *
+     * <p>A member is returned for each of the given ids, in iteration order, even if no data is stored for it
+     * yet.</p>
+     *
+     * @param guildId the guild id
+     * @param userIds the ids of the members to load
+     * @return the loaded members
+     */
+    List<ApiMember> loadMembers(long guildId, Collection<Long> userIds) throws Exception;
+
     List<ApiMember> loadMembersWithHighestExperience(long guildId, int limit) throws Exception;
 
+    /**
+     * Loads the members of the guild who gained the most experience within a bucket of the window, in descending
+     * order of the experience gained.
+     *
+     * <p>The default implementation has no record of when experience was gained, so doesn't support it.</p>
+     *
+     * @param guildId the guild id
+     * @param window  the window
+     * @param bucket  the bucket of the window, see {@link ExperienceWindow#bucket(java.time.LocalDate)}
+     * @param limit   the maximum number of members to load
+     * @return the experience gained by each member
+     * @throws Exception if an error occurs
+     * @throws UnsupportedOperationException if the implementation doesn't {@link #supportsExperienceWindows()
+     *                                       support} windows
+     */
+    default List<ExperienceGain> loadMembersWithHighestExperience(long guildId, ExperienceWindow window, int bucket,
+                                                                  int limit) throws Exception {
+        throw new UnsupportedOperationException(getImplementationName() + " doesn't keep experience gains");
+    }
+
+    /**
+     * Deletes the experience gained within the buckets of the window before the given bucket.
+     *
+     * @param window       the window
+     * @param beforeBucket the first bucket to keep
+     * @throws Exception if an error occurs
+     */
+    default void pruneExperienceGains(ExperienceWindow window, int beforeBucket) throws Exception {
+
+    }
+
+    /**
+     * Reads the experience gained within every bucket of the window which comes after the given gain, a page at a
+     * time and in ascending order of guild id, bucket and then user id.
+     *
+     * <p>The default implementation keeps no experience gains, so reads none.</p>
+     *
+     * @param window       the window
+     * @param afterGuildId the guild id to start after, or {@link Long#MIN_VALUE} to start from the first gain
+     * @param afterBucket  the bucket to start after, within the same guild id
+     * @param afterUserId  the user id to start after, within the same guild id and bucket
+     * @param limit        the maximum number of gains in a page
+     * @return the reader of the pages
+     * @throws Exception if an error occurs
+     * @see #memberPages(long, long, int)
+     */
+    default PageReader<BucketGain> experienceGainPages(ExperienceWindow window, long afterGuildId, int afterBucket,
+                                                       long afterUserId, int limit) throws Exception {
+        return ArrayList::new;
+    }
+
+    /**
+     * Saves the experience gained within buckets of the window, replacing the experience stored for the same
+     * members and buckets.
+     *
+     * @param window the window
+     * @param gains  the gains to save
+     * @throws Exception if an error occurs
+     * @throws UnsupportedOperationException if the implementation doesn't {@link #supportsExperienceWindows()
+     *                                       support} windows
+     */
+    default void saveExperienceGains(ExperienceWindow window, Collection<BucketGain> gains) throws Exception {
+        throw new UnsupportedOperationException(getImplementationName() + " doesn't keep experience gains");
+    }
+
+    /**
+     * Loads the users with the lowest ids greater than the given id, in ascending order of id.
+     *
+     * <p>The default implementation visits every user id to find the page, so {@link #userPages(long, int)}
+     * should be used to read several pages.</p>
+     *
+     * @param afterId the id to start after, or {@link Long#MIN_VALUE} to start from the first user
+     * @param limit   the maximum number of users to load
+     * @return the loaded users
+     * @throws Exception if an error occurs
+     */
+    default List<ApiUser> loadUserPage(long afterId, int limit) throws Exception {
+        return userPages(afterId, limit).next();
+    }
+
+    /**
+     * Loads the guilds with the lowest ids greater than the given id, in ascending order of id.
+     *
+     * @param afterId the id to start after, or {@link Long#MIN_VALUE} to start from the first guild
+     * @param limit   the maximum number of guilds to load
+     * @return the loaded guilds
+     * @throws Exception if an error occurs
+     * @see #loadUserPage(long, int)
+     */
+    default List<ApiGuild> loadGuildPage(long afterId, int limit) throws Exception {
+        return guildPages(afterId, limit).next();
+    }
+
+    /**
+     * Loads the members which come after the given member, in ascending order of user id and then guild id.
+     *
+     * <p>Only the member fields are guaranteed to be populated, the user fields may be left at their
+     * defaults.</p>
+     *
+     * @param afterUserId  the user id to start after, or {@link Long#MIN_VALUE} to start from the first member
+     * @param afterGuildId the guild id to start after, within the same user id
+     * @param limit        the maximum number of members to load
+     * @return the loaded members
+     * @throws Exception if an error occurs
+     * @see #loadUserPage(long, int)
+     */
+    default List<ApiMember> loadMemberPage(long afterUserId, long afterGuildId, int limit) throws Exception {
+        return memberPages(afterUserId, afterGuildId, limit).next();
+    }
+
+    /**
+     * Reads every user with an id greater than the given id, a page at a time and in ascending order of id.
+     *
+     * <p>The default implementation visits every user id once, and keeps them sorted for the following pages.</p>
+     *
+     * @param afterId the id to start after, or {@link Long#MIN_VALUE} to start from the first user
+     * @param limit   the maximum number of users in a page
+     * @return the reader of the pages
+     * @throws Exception if an error occurs
+     */
+    default PageReader<ApiUser> userPages(long afterId, int limit) throws Exception {
+        long[] ids = getUniqueUserIds();
+        int[] next = {firstIndexAfter(ids, afterId)};
+        return () -> {
+            List<ApiUser> page = new ArrayList<>(Math.min(limit, ids.length - next[0]));
+            for (; next[0] < ids.length && page.size() < limit; next[0]++) {
+                page.add(loadUser(ids[next[0]]));
+            }
+            return page;
+        };
+    }
+
+    /**
+     * Reads every guild with an id greater than the given id, a page at a time and in ascending order of id.
+     *
+     * @param afterId the id to start after, or {@link Long#MIN_VALUE} to start from the first guild
+     * @param limit   the maximum number of guilds in a page
+     * @return the reader of the pages
+     * @throws Exception if an error occurs
+     * @see #userPages(long, int)
+     */
+    default PageReader<ApiGuild> guildPages(long afterId, int limit) throws Exception {
+        long[] ids = getUniqueGuildIds();
+        int[] next = {firstIndexAfter(ids, afterId)};
+        return () -> {
+            List<ApiGuild> page = new ArrayList<>(Math.min(limit, ids.length - next[0]));
+            for (; next[0] < ids.length && page.size() < limit; next[0]++) {
+                page.add(loadGuild(ids[next[0]]));
+            }
+            return page;
+        };
+    }
+
+    /**
+     * Reads every member which comes after the given member, a page at a time and in ascending order of user id
+     * and then guild id.
+     *
+     * @param afterUserId  the user id to start after, or {@link Long#MIN_VALUE} to start from the first member
+     * @param afterGuildId the guild id to start after, within the same user id
+     * @param limit        the maximum number of members in a page
+     * @return the reader of the pages
+     * @throws Exception if an error occurs
+     * @see #loadMemberPage(long, long, int)
+     * @see #userPages(long, int)
+     */
+    default PageReader<ApiMember> memberPages(long afterUserId, long afterGuildId, int limit) throws Exception {
+        Comparator<Long2> order = Comparator.comparingLong(Long2::b).thenComparingLong(Long2::a);
+        List<Long2> keys = new ArrayList<>();
+        forEachMemberKey(keys::add);
+        keys.sort(order);
+
+        int first = Collections.binarySearch(keys, new Long2(afterGuildId, afterUserId), order);
+        int[] next = {first >= 0 ? first + 1 : -first - 1};
+        return () -> {
+            List<ApiMember> page = new ArrayList<>(Math.min(limit, keys.size() - next[0]));
+            for (; next[0] < keys.size() && page.size() < limit; next[0]++) {
+                Long2 key = keys.get(next[0]);
+                page.add(loadMember(key.a(), key.b()));
+            }
+            return page;
+        };
+    }
+
+    /**
+     * Moves members who are no longer active out of the members table and into an archive, so that the members
+     * table only grows with the active population.
+     *
+     * <p>Members are archived if they have no more than the given experience, and their user was last seen before
+     * the given time. An archived member is moved back when it is next loaded, keeping any experience gained in
+     * the meantime. Members are examined in order of user id and then guild id, starting after the given member,
+     * so that each batch continues where the previous one stopped. The default implementation archives nothing.</p>
+     *
+     * @param maxExperience  the most experience an archived member can have
+     * @param lastSeenBefore the time the user of an archived member must not have been seen since
+     * @param afterUserId    the user id to start after, or {@link Long#MIN_VALUE} to start from the first member
+     * @param afterGuildId   the guild id to start after, within the same user id
+     * @param limit          the maximum number of members to archive
+     * @return the guild id and user id of each member selected for archiving, in the order they were examined
+     * @throws Exception if an error occurs
+     */
+    default List<Long2> archiveMembers(long maxExperience, Instant lastSeenBefore, long afterUserId,
+                                       long afterGuildId, int limit) throws Exception {
+        return new ArrayList<>();
+    }
+
+    /**
+     * Moves archived members back into the members table if they have been granted experience since they were
+     * archived, which creates a new row for the member without loading it first.
+     *
+     * @param limit the maximum number of members to restore
+     * @return the guild id and user id of each restored member
+     * @throws Exception if an error occurs
+     * @see #archiveMembers(long, Instant, long, long, int)
+     */
+    default List<Long2> restoreArchivedMembers(int limit) throws Exception {
+        return new ArrayList<>();
+    }
+
+    /**
+     * Moves archived members back into the members table, whether or not they have been granted experience since
+     * they were archived, so that every member can be read from the members table.
+     *
+     * @param limit the maximum number of members to restore
+     * @return the guild id and user id of each restored member, empty once the archive is empty
+     * @throws Exception if an error occurs
+     * @see #archiveMembers(long, Instant, long, long, int)
+     */
+    default List<Long2> unarchiveMembers(int limit) throws Exception {
+        return new ArrayList<>();
+    }
+
+    /**
+     * Sets the listener told of the experience added back onto members as they are moved out of the archive, once
+     * it has been written. The default implementation archives nothing, so never tells the listener.
+     *
+     * @param listener the listener
+     * @see #archiveMembers(long, Instant, long, long, int)
+     */
+    default void setRestoreListener(RestoreListener listener) {
+    }
+
     void saveUser(ApiUser user) throws Exception;
 
+    /**
+     * Saves several users at once.
+     *
+     * @param users the users to save
+     * @throws Exception if an error occurs
+     */
+    default void saveUsers(Collection<ApiUser> users) throws Exception {
+        for (ApiUser user : users) {
+            saveUser(user);
+        }
+    }
+
     void saveGuild(ApiGuild guild) throws Exception;
 
+    /**
+     * Saves several guilds at once.
+     *
+     * @param guilds the guilds to save
+     * @throws Exception if an error occurs
+     */
+    default void saveGuilds(Collection<ApiGuild> guilds) throws Exception {
+        for (ApiGuild guild : guilds) {
+            saveGuild(guild);
+        }
+    }
+
     void saveMember(ApiMember member) throws Exception;
 
+    /**
+     * Saves several members at once, within a single transaction.
+     *
+     * @param members the members to save
+     */
+    void saveMembers(Collection<ApiMember> members) throws Exception;
+
+    /**
+     * Atomically adds the given amounts onto the stats of a member, creating the member if it doesn't exist yet.
+     *
+     * <p>Implementations must not read the member beforehand, so that concurrent increments are never lost. The
+     * experience is also added onto the current bucket of each {@link ExperienceWindow}, if the implementation
+     * keeps a record of when experience was gained.</p>
+     *
+     * @param guildId       the guild id
+     * @param userId        the user id
+     * @param experience    the experience to add
+     * @param voiceActivity the voice activity time to add, in milliseconds
+     * @throws Exception if an error occurs
+     */
+    void incrementMemberStats(long guildId, long userId, long experience, long voiceActivity) throws Exception;
+
+    /**
+     * Atomically adds each of the given deltas onto the stats of their member, as a single batch.
+     *
+     * @param deltas the deltas to apply, a member having at most one per day
+     * @throws Exception if an error occurs
+     * @see #incrementMemberStats(long, long, long, long)
+     */
+    void incrementMemberStats(Collection<MemberStatsDelta> deltas) throws Exception;
+
     Set<Snowflake> getUniqueUsers() throws Exception;
 
     Set<Snowflake> getUniqueGuilds() throws Exception;
@@ -45,4 +388,181 @@ public interface StorageImplementation {
     Set<Snowflake> getUniqueMembers() throws Exception;
 
     Set<Snowflake> getUniqueMembers(long guildId) throws Exception;
+
+    /**
+     * Passes the id of every user to the visitor, without holding them all in memory at once.
+     *
+     * @param visitor the visitor
+     * @throws Exception if an error occurs
+     */
+    default void forEachUserId(LongConsumer visitor) throws Exception {
+        getUniqueUsers().forEach(user -> visitor.accept(user.getId()));
+    }
+
+    /**
+     * Passes the id of every guild to the visitor, without holding them all in memory at once.
+     *
+     * @param visitor the visitor
+     * @throws Exception if an error occurs
+     */
+    default void forEachGuildId(LongConsumer visitor) throws Exception {
+        getUniqueGuilds().forEach(guild -> visitor.accept(guild.getId()));
+    }
+
+    /**
+     * Passes the user id of every member to the visitor, without holding them all in memory at once.
+     *
+     * <p>A user who is a member of several guilds is visited once for each of them.</p>
+     *
+     * @param visitor the visitor
+     * @throws Exception if an error occurs
+     */
+    default void forEachMemberId(LongConsumer visitor) throws Exception {
+        getUniqueMembers().forEach(member -> visitor.accept(member.getId()));
+    }
+
+    /**
+     * Passes the user id of every member of the guild to the visitor, without holding them all in memory at once.
+     *
+     * @param guildId the guild id
+     * @param visitor the visitor
+     * @throws Exception if an error occurs
+     */
+    default void forEachMemberId(long guildId, LongConsumer visitor) throws Exception {
+        getUniqueMembers(guildId).forEach(member -> visitor.accept(member.getId()));
+    }
+
+    /**
+     * Passes the user id and experience of the members of the guild with the highest experience to the visitor, in
+     * descending order of experience, without loading the members themselves.
+     *
+     * @param guildId the guild id
+     * @param limit   the maximum number of members to visit
+     * @param visitor the visitor
+     * @throws Exception if an error occurs
+     */
+    default void forEachMemberExperience(long guildId, int limit, ExperienceVisitor visitor) throws Exception {
+        for (ApiMember member : loadMembersWithHighestExperience(guildId, limit)) {
+            visitor.accept(member.getId(), member.getExperience());
+        }
+    }
+
+    /**
+     * Gets the ids of all users, in ascending order.
+     *
+     * @return the user ids
+     * @throws Exception if an error occurs
+     */
+    default long[] getUniqueUserIds() throws Exception {
+        LongArrayBuilder ids = new LongArrayBuilder();
+        forEachUserId(ids);
+        return ids.toSortedDistinctArray();
+    }
+
+    /**
+     * Gets the ids of all guilds, in ascending order.
+     *
+     * @return the guild ids
+     * @throws Exception if an error occurs
+     */
+    default long[] getUniqueGuildIds() throws Exception {
+        LongArrayBuilder ids = new LongArrayBuilder();
+        forEachGuildId(ids);
+        return ids.toSortedDistinctArray();
+    }
+
+    /**
+     * Gets the ids of all users who are a member of any guild, in ascending order and without duplicates.
+     *
+     * @return the member ids
+     * @throws Exception if an error occurs
+     */
+    default long[] getUniqueMemberIds() throws Exception {
+        LongArrayBuilder ids = new LongArrayBuilder();
+        forEachMemberId(ids);
+        return ids.toSortedDistinctArray();
+    }
+
+    /**
+     * Gets the user ids of all members of the guild, in ascending order.
+     *
+     * @param guildId the guild id
+     * @return the member ids
+     * @throws Exception if an error occurs
+     */
+    default long[] getUniqueMemberIds(long guildId) throws Exception {
+        LongArrayBuilder ids = new LongArrayBuilder();
+        forEachMemberId(guildId, ids);
+        return ids.toSortedDistinctArray();
+    }
+
+    /**
+     * Visits the key of every member, as the guild id and then the user id.
+     *
+     * <p>The default implementation only visits the members of guilds returned by {@link #getUniqueGuilds()}.</p>
+     *
+     * @param visitor the visitor
+     * @throws Exception if an error occurs
+     */
+    default void forEachMemberKey(Consumer<Long2> visitor) throws Exception {
+        for (long guildId : getUniqueGuildIds()) {
+            forEachMemberId(guildId, userId -> visitor.accept(new Long2(guildId, userId)));
+        }
+    }
+
+    /**
+     * Gets the index of the first id greater than the given id, within distinct ids in ascending order.
+     */
+    private static int firstIndexAfter(long[] ids, long afterId) {
+        int index = Arrays.binarySearch(ids, afterId);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    /**
+     * Reads a table a page at a time, see {@link #userPages(long, int)}.
+     *
+     * @param <T> the row type
+     */
+    @FunctionalInterface
+    interface PageReader<T> {
+
+        /**
+         * Loads the next page.
+         *
+         * @return the rows of the page, or an empty list once every row has been read
+         * @throws Exception if an error occurs
+         */
+        List<T> next() throws Exception;
+    }
+
+    /**
+     * Visits the experience of members, see {@link #forEachMemberExperience(long, int, ExperienceVisitor)}.
+     */
+    @FunctionalInterface
+    interface ExperienceVisitor {
+
+        /**
+         * Visits the experience of a member.
+         *
+         * @param userId     the user id
+         * @param experience the experience of the member
+         */
+        void accept(long userId, long experience);
+    }
+
+    /**
+     * Told of restored members, see {@link #setRestoreListener(RestoreListener)}.
+     */
+    @FunctionalInterface
+    interface RestoreListener {
+
+        /**
+         * Called once the archived experience of a member has been added back onto them.
+         *
+         * @param guildId    the guild id
+         * @param userId     the user id
+         * @param experience the archived experience added back
+         */
+        void restored(long guildId, long userId, long experience);
+    }
 }
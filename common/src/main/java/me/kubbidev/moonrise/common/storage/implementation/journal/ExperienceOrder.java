@@ -0,0 +1,66 @@
+package me.kubbidev.moonrise.common.storage.implementation.journal;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.LongConsumer;
+
+/**
+ * The members of a guild, ordered by their experience.
+ *
+ * <p>Updates are made whilst holding the journal's write lock, whereas reads may happen concurrently and are
+ * weakly consistent.</p>
+ */
+final class ExperienceOrder {
+
+    private static final Comparator<Entry> ORDER = Comparator.comparingLong(Entry::experience).reversed()
+        .thenComparingLong(Entry::userId);
+
+    private final Map<Long, Long>      experience = new ConcurrentHashMap<>();
+    private final NavigableSet<Entry> ranking    = new ConcurrentSkipListSet<>(ORDER);
+
+    /**
+     * Records the current experience of a member.
+     *
+     * @param userId     the user id
+     * @param experience the experience of the member
+     */
+    void update(long userId, long experience) {
+        Long previous = this.experience.put(userId, experience);
+        if (previous != null) {
+            if (previous == experience) {
+                return;
+            }
+            this.ranking.remove(new Entry(previous, userId));
+        }
+        this.ranking.add(new Entry(experience, userId));
+    }
+
+    /**
+     * Gets the ids of the members with the highest experience, in descending order.
+     *
+     * @param limit the maximum number of members
+     * @return the user ids
+     */
+    long[] top(int limit) {
+        long[] userIds = new long[Math.min(limit, this.experience.size())];
+        int size = 0;
+        for (Entry entry : this.ranking) {
+            if (size == userIds.length) {
+                break;
+            }
+            userIds[size++] = entry.userId();
+        }
+        return size == userIds.length ? userIds : Arrays.copyOf(userIds, size);
+    }
+
+    void forEachMemberId(LongConsumer visitor) {
+        this.experience.keySet().forEach(visitor::accept);
+    }
+
+    private record Entry(long experience, long userId) {
+    }
+}
@@ -0,0 +1,208 @@
+package me.kubbidev.moonrise.common.storage.implementation.journal;
+
+import me.kubbidev.moonrise.common.model.ApiGuild;
+import me.kubbidev.moonrise.common.model.ApiMember;
+import me.kubbidev.moonrise.common.model.ApiUser;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Set;
+
+/**
+ * A record stored in the journal, encoded as a type byte followed by its fields.
+ *
+ * <p>The same encoding is used by the snapshots of the memory storage.</p>
+ */
+public sealed interface JournalRecord {
+
+    byte USER   = 1;
+    byte GUILD  = 2;
+    byte MEMBER = 3;
+
+    /**
+     * Writes the record, including its type, into the buffer.
+     *
+     * @param buffer the buffer
+     */
+    void write(ByteBuffer buffer);
+
+    /**
+     * Reads a record previously written by {@link #write(ByteBuffer)}.
+     *
+     * @param buffer the buffer
+     * @return the record
+     * @throws IOException if the record type is unknown
+     */
+    static JournalRecord read(ByteBuffer buffer) throws IOException {
+        byte type = buffer.get();
+        return switch (type) {
+            case USER -> new User(buffer.getLong(), getString(buffer), getString(buffer), getString(buffer),
+                buffer.getLong());
+            case GUILD -> new Guild(buffer.getLong(), getString(buffer), getString(buffer), buffer.get() != 0,
+                buffer.getLong());
+            case MEMBER -> new Member(buffer.getLong(), buffer.getLong(), getString(buffer), getString(buffer),
+                getString(buffer), buffer.getLong(), buffer.getLong(), buffer.getInt());
+            default -> throw new IOException("Unknown journal record type: " + type);
+        };
+    }
+
+    private static void putString(ByteBuffer buffer, @Nullable String value) {
+        if (value == null) {
+            buffer.putInt(-1);
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            buffer.putInt(bytes.length);
+            buffer.put(bytes);
+        }
+    }
+
+    private static @Nullable String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    record User(long id, @Nullable String username, @Nullable String globalName, @Nullable String avatar,
+                long lastSeen) implements JournalRecord {
+
+        public static User of(ApiUser user) {
+            return new User(user.getId(), user.getUsername(), user.getGlobalName().orElse(null), user.getAvatar(),
+                user.getLastSeen().toEpochMilli());
+        }
+
+        /**
+         * Creates a copy of this record with the given fields taken from the user.
+         */
+        public User merge(ApiUser user, Set<ApiUser.Field> fields) {
+            User changes = of(user);
+            return new User(this.id,
+                fields.contains(ApiUser.Field.USERNAME) ? changes.username : this.username,
+                fields.contains(ApiUser.Field.GLOBAL_NAME) ? changes.globalName : this.globalName,
+                fields.contains(ApiUser.Field.AVATAR) ? changes.avatar : this.avatar,
+                fields.contains(ApiUser.Field.LAST_SEEN) ? changes.lastSeen : this.lastSeen);
+        }
+
+        public void apply(ApiUser user) {
+            user.setUsername(this.username);
+            user.setGlobalName(this.globalName);
+            user.setAvatar(this.avatar);
+            user.setLastSeen(Instant.ofEpochMilli(this.lastSeen));
+            user.getDirtyUserFields().clear();
+        }
+
+        @Override
+        public void write(ByteBuffer buffer) {
+            buffer.put(USER);
+            buffer.putLong(this.id);
+            putString(buffer, this.username);
+            putString(buffer, this.globalName);
+            putString(buffer, this.avatar);
+            buffer.putLong(this.lastSeen);
+        }
+    }
+
+    record Guild(long id, @Nullable String name, @Nullable String icon, boolean leaderboardEnabled,
+                 long leaderboardChannelId) implements JournalRecord {
+
+        public static Guild of(ApiGuild guild) {
+            return new Guild(guild.getId(), guild.getName(), guild.getIcon(), guild.isLeaderboardEnabled(),
+                guild.getLeaderboardChannelId());
+        }
+
+        /**
+         * Creates a copy of this record with the given fields taken from the guild.
+         */
+        public Guild merge(ApiGuild guild, Set<ApiGuild.Field> fields) {
+            Guild changes = of(guild);
+            return new Guild(this.id,
+                fields.contains(ApiGuild.Field.NAME) ? changes.name : this.name,
+                fields.contains(ApiGuild.Field.ICON) ? changes.icon : this.icon,
+                fields.contains(ApiGuild.Field.LEADERBOARD_ENABLED) ? changes.leaderboardEnabled
+                    : this.leaderboardEnabled,
+                fields.contains(ApiGuild.Field.LEADERBOARD_CHANNEL) ? changes.leaderboardChannelId
+                    : this.leaderboardChannelId);
+        }
+
+        public void apply(ApiGuild guild) {
+            guild.setName(this.name);
+            guild.setIcon(this.icon);
+            guild.setLeaderboardEnabled(this.leaderboardEnabled);
+            guild.setLeaderboardChannelId(this.leaderboardChannelId);
+            guild.getDirtyFields().clear();
+        }
+
+        @Override
+        public void write(ByteBuffer buffer) {
+            buffer.put(GUILD);
+            buffer.putLong(this.id);
+            putString(buffer, this.name);
+            putString(buffer, this.icon);
+            buffer.put((byte) (this.leaderboardEnabled ? 1 : 0));
+            buffer.putLong(this.leaderboardChannelId);
+        }
+    }
+
+    record Member(long guildId, long userId, @Nullable String nickname, @Nullable String guildAvatar,
+                  @Nullable String biography, long experience, long voiceActivity, int placement)
+        implements JournalRecord {
+
+        public static Member empty(long guildId, long userId) {
+            return new Member(guildId, userId, null, null, null, 0, 0, -1);
+        }
+
+        public static Member of(ApiMember member) {
+            return new Member(member.getGuildId(), member.getId(), member.getNickname().orElse(null),
+                member.getGuildAvatar(), member.getBiography().orElse(null), member.getExperience(),
+                member.getVoiceActivity(), member.getPlacement());
+        }
+
+        /**
+         * Creates a copy of this record with the given fields taken from the member.
+         */
+        public Member merge(ApiMember member, Set<ApiMember.Field> fields) {
+            Member changes = of(member);
+            return new Member(this.guildId, this.userId,
+                fields.contains(ApiMember.Field.NICKNAME) ? changes.nickname : this.nickname,
+                fields.contains(ApiMember.Field.GUILD_AVATAR) ? changes.guildAvatar : this.guildAvatar,
+                fields.contains(ApiMember.Field.BIOGRAPHY) ? changes.biography : this.biography,
+                fields.contains(ApiMember.Field.EXPERIENCE) ? changes.experience : this.experience,
+                fields.contains(ApiMember.Field.VOICE_ACTIVITY) ? changes.voiceActivity : this.voiceActivity,
+                fields.contains(ApiMember.Field.PLACEMENT) ? changes.placement : this.placement);
+        }
+
+        public Member increment(long experience, long voiceActivity) {
+            return new Member(this.guildId, this.userId, this.nickname, this.guildAvatar, this.biography,
+                this.experience + experience, this.voiceActivity + voiceActivity, this.placement);
+        }
+
+        public void apply(ApiMember member) {
+            member.setNickname(this.nickname);
+            member.setGuildAvatar(this.guildAvatar);
+            member.setBiography(this.biography);
+            member.setExperience(this.experience);
+            member.setVoiceActivity(this.voiceActivity);
+            member.setPlacement(this.placement);
+            member.getDirtyMemberFields().clear();
+        }
+
+        @Override
+        public void write(ByteBuffer buffer) {
+            buffer.put(MEMBER);
+            buffer.putLong(this.guildId);
+            buffer.putLong(this.userId);
+            putString(buffer, this.nickname);
+            putString(buffer, this.guildAvatar);
+            putString(buffer, this.biography);
+            buffer.putLong(this.experience);
+            buffer.putLong(this.voiceActivity);
+            buffer.putInt(this.placement);
+        }
+    }
+}
@@ -0,0 +1,531 @@
+package me.kubbidev.moonrise.common.storage.implementation.journal;
+
+import me.kubbidev.moonrise.common.model.ApiGuild;
+import me.kubbidev.moonrise.common.model.ApiMember;
+import me.kubbidev.moonrise.common.model.ApiUser;
+import me.kubbidev.moonrise.common.model.Snowflake;
+import me.kubbidev.moonrise.common.plugin.MoonRisePlugin;
+import me.kubbidev.moonrise.common.plugin.scheduler.SchedulerTask;
+import me.kubbidev.moonrise.common.storage.StorageMetadata;
+import me.kubbidev.moonrise.common.storage.implementation.StorageImplementation;
+import me.kubbidev.moonrise.common.storage.misc.MemberStatsDelta;
+import me.kubbidev.moonrise.common.util.Long2;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.stream.Stream;
+
+/**
+ * A storage implementation which appends every change to a journal of memory-mapped segment files.
+ *
+ * <p>The location of the latest record of each user, guild and member is held in memory, along with the members
+ * of each guild ordered by experience, so reads never need to scan the journal. The indexes are rebuilt by
+ * replaying the segments when the storage is initialised.</p>
+ *
+ * <p>Records which have been superseded are reclaimed by periodically compacting mostly dead segments, copying
+ * their remaining live records to the end of the journal.</p>
+ */
+public class JournalStorage implements StorageImplementation {
+
+    /**
+     * The size of each segment file
+     */
+    static final int SEGMENT_SIZE = 16 * 1024 * 1024;
+
+    /**
+     * The proportion of live data below which a full segment is compacted
+     */
+    private static final double COMPACTION_THRESHOLD = 0.5;
+
+    /**
+     * The interval between compactions, in minutes
+     */
+    private static final long COMPACTION_INTERVAL = 10;
+
+    private final MoonRisePlugin plugin;
+    private final Path           directory;
+    private final int            segmentSize;
+
+    /**
+     * Guards appends, index updates and compaction
+     */
+    private final Lock          writeLock   = new ReentrantLock();
+    /**
+     * Guards the removal of compacted segments from concurrent reads
+     */
+    private final ReadWriteLock segmentLock = new ReentrantReadWriteLock();
+
+    private final NavigableMap<Integer, Segment> segments = new ConcurrentSkipListMap<>();
+    private       Segment                        activeSegment;
+    private       ByteBuffer                     writeBuffer = ByteBuffer.allocate(4096);
+
+    /**
+     * The location of the latest record of each entity, see {@link #location(int, int)}
+     */
+    private final Map<Long, Long>  users   = new ConcurrentHashMap<>();
+    private final Map<Long, Long>  guilds  = new ConcurrentHashMap<>();
+    private final Map<Long2, Long> members = new ConcurrentHashMap<>();
+
+    private final Map<Long, ExperienceOrder> experience = new ConcurrentHashMap<>();
+
+    private @Nullable SchedulerTask compactionTask = null;
+
+    public JournalStorage(MoonRisePlugin plugin, Path directory) {
+        this(plugin, directory, SEGMENT_SIZE);
+    }
+
+    public JournalStorage(MoonRisePlugin plugin, Path directory, int segmentSize) {
+        this.plugin = plugin;
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+    }
+
+    @Override
+    public MoonRisePlugin getPlugin() {
+        return this.plugin;
+    }
+
+    @Override
+    public String getImplementationName() {
+        return "Journal";
+    }
+
+    @Override
+    public void init() throws Exception {
+        Files.createDirectories(this.directory);
+
+        List<Integer> ids = new ArrayList<>();
+        try (Stream<Path> files = Files.list(this.directory)) {
+            files.mapToInt(Segment::parseId).filter(id -> id >= 0).forEach(ids::add);
+        }
+        ids.sort(null);
+
+        for (int id : ids) {
+            Segment segment = Segment.open(this.directory, id, this.segmentSize);
+            this.segments.put(id, segment);
+            segment.scan((offset, size, record) -> {
+                segment.retain(size);
+                index(record, location(id, offset));
+            });
+        }
+
+        if (this.segments.isEmpty()) {
+            this.segments.put(0, Segment.open(this.directory, 0, this.segmentSize));
+        }
+        this.activeSegment = this.segments.lastEntry().getValue();
+
+        this.compactionTask = this.plugin.getBootstrap().getScheduler().asyncRepeating(() -> {
+            try {
+                compact();
+            } catch (IOException e) {
+                this.plugin.getLogger().severe("Exception whilst compacting the journal", e);
+            }
+        }, COMPACTION_INTERVAL, TimeUnit.MINUTES);
+    }
+
+    @Override
+    public void shutdown() {
+        if (this.compactionTask != null) {
+            this.compactionTask.cancel();
+        }
+
+        this.writeLock.lock();
+        try {
+            for (Segment segment : this.segments.values()) {
+                segment.close();
+            }
+        } catch (IOException e) {
+            this.plugin.getLogger().severe("Exception whilst closing the journal", e);
+        } finally {
+            this.writeLock.unlock();
+        }
+    }
+
+    @Override
+    public StorageMetadata getMeta() {
+        StorageMetadata metadata = new StorageMetadata();
+        long size = 0;
+        for (Segment segment : this.segments.values()) {
+            size += segment.position();
+        }
+        metadata.sizeBytes(size);
+        return metadata;
+    }
+
+    @Override
+    public ApiUser loadUser(long userId) throws Exception {
+        ApiUser user = new ApiUser(userId, this.plugin);
+        if (read(this.users, userId) instanceof JournalRecord.User record) {
+            record.apply(user);
+        }
+        return user;
+    }
+
+    @Override
+    public ApiGuild loadGuild(long guildId) throws Exception {
+        ApiGuild guild = new ApiGuild(guildId, this.plugin);
+        if (read(this.guilds, guildId) instanceof JournalRecord.Guild record) {
+            record.apply(guild);
+        }
+        return guild;
+    }
+
+    @Override
+    public Set<ApiGuild> loadGuilds() throws Exception {
+        Set<ApiGuild> guilds = new HashSet<>();
+        for (long guildId : this.guilds.keySet()) {
+            guilds.add(loadGuild(guildId));
+        }
+        return guilds;
+    }
+
+    @Override
+    public ApiMember loadMember(long guildId, long userId) throws Exception {
+        ApiMember member = new ApiMember(userId, this.plugin);
+        member.setGuildId(guildId);
+
+        // the user data is only populated alongside existing member data, the same as the SQL join
+        if (read(this.members, new Long2(guildId, userId)) instanceof JournalRecord.Member record) {
+            if (read(this.users, userId) instanceof JournalRecord.User user) {
+                user.apply(member);
+            }
+            record.apply(member);
+        }
+        return member;
+    }
+
+    @Override
+    public List<ApiMember> loadMembers(long guildId, Collection<Long> userIds) throws Exception {
+        List<ApiMember> members = new ArrayList<>(userIds.size());
+        for (long userId : new LinkedHashSet<>(userIds)) {
+            members.add(loadMember(guildId, userId));
+        }
+        return members;
+    }
+
+    @Override
+    public List<ApiMember> loadMembersWithHighestExperience(long guildId, int limit) throws Exception {
+        ExperienceOrder index = this.experience.get(guildId);
+        if (index == null) {
+            return new ArrayList<>();
+        }
+
+        List<ApiMember> members = new ArrayList<>();
+        for (long userId : index.top(limit)) {
+            members.add(loadMember(guildId, userId));
+        }
+        return members;
+    }
+
+    @Override
+    public void saveUser(ApiUser user) throws Exception {
+        Set<ApiUser.Field> fields = user.drainDirtyUserFields();
+        if (fields.isEmpty()) {
+            return;
+        }
+
+        this.writeLock.lock();
+        try {
+            writeUser(user, fields);
+        } catch (IOException e) {
+            user.getDirtyUserFields().markAll(fields);
+            throw e;
+        } finally {
+            this.writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void saveGuild(ApiGuild guild) throws Exception {
+        Set<ApiGuild.Field> fields = guild.getDirtyFields().drain();
+        if (fields.isEmpty()) {
+            return;
+        }
+
+        this.writeLock.lock();
+        try {
+            JournalRecord.Guild record = read(this.guilds, guild.getId()) instanceof JournalRecord.Guild current
+                ? current.merge(guild, fields)
+                : JournalRecord.Guild.of(guild);
+            append(record);
+        } catch (IOException e) {
+            guild.getDirtyFields().markAll(fields);
+            throw e;
+        } finally {
+            this.writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void saveMember(ApiMember member) throws Exception {
+        saveMembers(List.of(member));
+    }
+
+    @Override
+    public void saveMembers(Collection<ApiMember> members) throws Exception {
+        if (members.isEmpty()) {
+            return;
+        }
+
+        this.writeLock.lock();
+        try {
+            for (ApiMember member : members) {
+                Set<ApiUser.Field> userFields = member.drainDirtyUserFields();
+                Set<ApiMember.Field> memberFields = member.getDirtyMemberFields().drain();
+                try {
+                    if (!userFields.isEmpty()) {
+                        writeUser(member, userFields);
+                    }
+                    if (!memberFields.isEmpty()) {
+                        writeMember(member, memberFields);
+                    }
+                } catch (IOException e) {
+                    member.getDirtyUserFields().markAll(userFields);
+                    member.getDirtyMemberFields().markAll(memberFields);
+                    throw e;
+                }
+            }
+        } finally {
+            this.writeLock.unlock();
+        }
+    }
+
+    private void writeUser(ApiUser user, Set<ApiUser.Field> fields) throws IOException {
+        JournalRecord.User record = read(this.users, user.getId()) instanceof JournalRecord.User current
+            ? current.merge(user, fields)
+            : JournalRecord.User.of(user);
+        append(record);
+    }
+
+    private void writeMember(ApiMember member, Set<ApiMember.Field> fields) throws IOException {
+        Long2 key = new Long2(member.getGuildId(), member.getId());
+        JournalRecord.Member record = read(this.members, key) instanceof JournalRecord.Member current
+            ? current.merge(member, fields)
+            : JournalRecord.Member.of(member);
+        append(record);
+    }
+
+    @Override
+    public void incrementMemberStats(long guildId, long userId, long experience, long voiceActivity)
+        throws Exception {
+        incrementMemberStats(List.of(new MemberStatsDelta(guildId, userId, experience, voiceActivity)));
+    }
+
+    @Override
+    public void incrementMemberStats(Collection<MemberStatsDelta> deltas) throws Exception {
+        this.writeLock.lock();
+        try {
+            for (MemberStatsDelta delta : deltas) {
+                JournalRecord.Member current = read(this.members, new Long2(delta.guildId(), delta.userId()))
+                    instanceof JournalRecord.Member member
+                    ? member
+                    : JournalRecord.Member.empty(delta.guildId(), delta.userId());
+                append(current.increment(delta.experience(), delta.voiceActivity()));
+            }
+        } finally {
+            this.writeLock.unlock();
+        }
+    }
+
+    @Override
+    public Set<Snowflake> getUniqueUsers() throws Exception {
+        Set<Snowflake> users = new HashSet<>();
+        forEachUserId(id -> users.add(Snowflake.of(id)));
+        return users;
+    }
+
+    @Override
+    public Set<Snowflake> getUniqueGuilds() throws Exception {
+        Set<Snowflake> guilds = new HashSet<>();
+        forEachGuildId(id -> guilds.add(Snowflake.of(id)));
+        return guilds;
+    }
+
+    @Override
+    public Set<Snowflake> getUniqueMembers() throws Exception {
+        Set<Snowflake> members = new HashSet<>();
+        forEachMemberId(id -> members.add(Snowflake.of(id)));
+        return members;
+    }
+
+    @Override
+    public Set<Snowflake> getUniqueMembers(long guildId) throws Exception {
+        Set<Snowflake> members = new HashSet<>();
+        forEachMemberId(guildId, id -> members.add(Snowflake.of(id)));
+        return members;
+    }
+
+    @Override
+    public void forEachUserId(LongConsumer visitor) {
+        this.users.keySet().forEach(visitor::accept);
+    }
+
+    @Override
+    public void forEachGuildId(LongConsumer visitor) {
+        this.guilds.keySet().forEach(visitor::accept);
+    }
+
+    @Override
+    public void forEachMemberId(LongConsumer visitor) {
+        this.members.keySet().forEach(key -> visitor.accept(key.b()));
+    }
+
+    @Override
+    public void forEachMemberKey(Consumer<Long2> visitor) {
+        this.members.keySet().forEach(visitor);
+    }
+
+    @Override
+    public void forEachMemberId(long guildId, LongConsumer visitor) {
+        ExperienceOrder index = this.experience.get(guildId);
+        if (index != null) {
+            index.forEachMemberId(visitor);
+        }
+    }
+
+    /**
+     * Rewrites the live records of every full segment which is mostly made up of superseded records, and deletes
+     * the segment.
+     *
+     * @throws IOException if an error occurs
+     */
+    public void compact() throws IOException {
+        for (Segment segment : this.segments.values()) {
+            this.writeLock.lock();
+            try {
+                if (segment == this.activeSegment
+                    || segment.liveBytes() >= segment.position() * COMPACTION_THRESHOLD) {
+                    continue;
+                }
+
+                int id = segment.id();
+                segment.scan((offset, size, record) -> {
+                    if (currentLocation(record) == location(id, offset)) {
+                        append(record);
+                    }
+                });
+
+                // the copies must be durable before the originals are removed
+                this.activeSegment.force();
+
+                this.segmentLock.writeLock().lock();
+                try {
+                    this.segments.remove(id);
+                } finally {
+                    this.segmentLock.writeLock().unlock();
+                }
+                segment.delete();
+            } finally {
+                this.writeLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Appends the record to the journal and points the index at it. Must be called whilst holding the write lock.
+     */
+    private void append(JournalRecord record) throws IOException {
+        ByteBuffer data = encode(record);
+        int size = Segment.HEADER_SIZE + data.remaining();
+        if (size > this.segmentSize) {
+            throw new IOException("Record of " + size + " bytes exceeds the journal segment size");
+        }
+
+        if (!this.activeSegment.hasSpace(size)) {
+            this.activeSegment.force();
+            Segment next = Segment.open(this.directory, this.activeSegment.id() + 1, this.segmentSize);
+            this.segments.put(next.id(), next);
+            this.activeSegment = next;
+        }
+
+        int offset = this.activeSegment.append(data);
+        index(record, location(this.activeSegment.id(), offset));
+    }
+
+    private ByteBuffer encode(JournalRecord record) {
+        while (true) {
+            try {
+                this.writeBuffer.clear();
+                record.write(this.writeBuffer);
+                return this.writeBuffer.flip();
+            } catch (BufferOverflowException e) {
+                this.writeBuffer = ByteBuffer.allocate(this.writeBuffer.capacity() * 2);
+            }
+        }
+    }
+
+    /**
+     * Points the index at the record stored at the given location, releasing the record it previously pointed at.
+     */
+    private void index(JournalRecord record, long location) {
+        Long previous = switch (record) {
+            case JournalRecord.User user -> this.users.put(user.id(), location);
+            case JournalRecord.Guild guild -> this.guilds.put(guild.id(), location);
+            case JournalRecord.Member member -> {
+                this.experience.computeIfAbsent(member.guildId(), id -> new ExperienceOrder())
+                    .update(member.userId(), member.experience());
+                yield this.members.put(new Long2(member.guildId(), member.userId()), location);
+            }
+        };
+
+        if (previous != null) {
+            this.segments.get(segmentId(previous)).release(offset(previous));
+        }
+    }
+
+    private long currentLocation(JournalRecord record) {
+        Long location = switch (record) {
+            case JournalRecord.User user -> this.users.get(user.id());
+            case JournalRecord.Guild guild -> this.guilds.get(guild.id());
+            case JournalRecord.Member member -> this.members.get(new Long2(member.guildId(), member.userId()));
+        };
+        return location == null ? -1 : location;
+    }
+
+    /**
+     * Reads the latest record of an entity, looking up its location whilst holding the segment lock so that the
+     * segment can't be removed by a compaction in between.
+     */
+    private <K> @Nullable JournalRecord read(Map<K, Long> index, K key) throws IOException {
+        this.segmentLock.readLock().lock();
+        try {
+            Long location = index.get(key);
+            return location == null ? null : this.segments.get(segmentId(location)).read(offset(location));
+        } finally {
+            this.segmentLock.readLock().unlock();
+        }
+    }
+
+    private static long location(int segmentId, int offset) {
+        return ((long) segmentId << 32) | (offset & 0xFFFFFFFFL);
+    }
+
+    private static int segmentId(long location) {
+        return (int) (location >>> 32);
+    }
+
+    private static int offset(long location) {
+        return (int) location;
+    }
+}
@@ -0,0 +1,212 @@
+package me.kubbidev.moonrise.common.storage.implementation.journal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * A journal file, mapped into memory.
+ *
+ * <p>Each entry is written as its length, a CRC32 checksum and the encoded {@link JournalRecord}. Entries are only
+ * ever appended, and are read using absolute positions so that concurrent readers don't share any buffer
+ * state.</p>
+ */
+final class Segment {
+
+    /**
+     * The size of the length and checksum written before each record
+     */
+    static final int HEADER_SIZE = 8;
+
+    private static final String FILE_PREFIX = "segment-";
+    private static final String FILE_SUFFIX = ".journal";
+
+    private final int              id;
+    private final Path             file;
+    private final FileChannel      channel;
+    private final MappedByteBuffer buffer;
+
+    /**
+     * The offset the next entry is appended at, guarded by the journal's write lock
+     */
+    private int position = 0;
+
+    /**
+     * The number of bytes used by entries which are still referenced by the index
+     */
+    private final AtomicLong liveBytes = new AtomicLong();
+
+    private Segment(int id, Path file, FileChannel channel, MappedByteBuffer buffer) {
+        this.id = id;
+        this.file = file;
+        this.channel = channel;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Opens the segment with the given id, creating it with the given size if it doesn't exist.
+     *
+     * @param directory the journal directory
+     * @param id        the segment id
+     * @param size      the size of new segments
+     * @return the segment
+     * @throws IOException if an error occurs
+     */
+    static Segment open(Path directory, int id, int size) throws IOException {
+        Path file = directory.resolve(FILE_PREFIX + id + FILE_SUFFIX);
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+        try {
+            long capacity = Math.max(channel.size(), size);
+            return new Segment(id, file, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity));
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the id of the segment stored in the given file, or -1 if it isn't a segment.
+     *
+     * @param file the file
+     * @return the segment id
+     */
+    static int parseId(Path file) {
+        String name = file.getFileName().toString();
+        if (!name.startsWith(FILE_PREFIX) || !name.endsWith(FILE_SUFFIX)) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    @FunctionalInterface
+    interface EntryVisitor {
+
+        void accept(int offset, int size, JournalRecord record) throws IOException;
+    }
+
+    /**
+     * Reads every entry in the segment, stopping at the first empty, incomplete or corrupt entry, which is where
+     * following entries will be appended.
+     *
+     * @param visitor the visitor
+     * @throws IOException if an entry can't be decoded
+     */
+    void scan(EntryVisitor visitor) throws IOException {
+        int offset = 0;
+        while (offset + HEADER_SIZE <= this.buffer.capacity()) {
+            int length = this.buffer.getInt(offset);
+            if (length <= 0 || offset + HEADER_SIZE + length > this.buffer.capacity()) {
+                break;
+            }
+
+            ByteBuffer data = this.buffer.slice(offset + HEADER_SIZE, length);
+            CRC32 crc = new CRC32();
+            crc.update(data.duplicate());
+            if ((int) crc.getValue() != this.buffer.getInt(offset + 4)) {
+                break;
+            }
+
+            visitor.accept(offset, HEADER_SIZE + length, JournalRecord.read(data));
+            offset += HEADER_SIZE + length;
+        }
+        this.position = offset;
+    }
+
+    /**
+     * Gets if an entry of the given size can be appended to the segment.
+     *
+     * @param size the size of the entry, including its header
+     * @return if there is space
+     */
+    boolean hasSpace(int size) {
+        return this.position + size <= this.buffer.capacity();
+    }
+
+    /**
+     * Appends an entry containing the given encoded record.
+     *
+     * @param data the encoded record
+     * @return the offset of the entry
+     */
+    int append(ByteBuffer data) {
+        int offset = this.position;
+        int length = data.remaining();
+
+        CRC32 crc = new CRC32();
+        crc.update(data.duplicate());
+
+        // write the length last, so that a partially written entry is never read
+        this.buffer.put(offset + HEADER_SIZE, data, data.position(), length);
+        this.buffer.putInt(offset + 4, (int) crc.getValue());
+        this.buffer.putInt(offset, length);
+
+        this.position = offset + HEADER_SIZE + length;
+        this.liveBytes.addAndGet(HEADER_SIZE + length);
+        return offset;
+    }
+
+    /**
+     * Reads the record of the entry at the given offset.
+     *
+     * @param offset the offset of the entry
+     * @return the record
+     * @throws IOException if the record can't be decoded
+     */
+    JournalRecord read(int offset) throws IOException {
+        return JournalRecord.read(this.buffer.slice(offset + HEADER_SIZE, this.buffer.getInt(offset)));
+    }
+
+    /**
+     * Marks the entry at the given offset as no longer referenced by the index.
+     *
+     * @param offset the offset of the entry
+     */
+    void release(int offset) {
+        this.liveBytes.addAndGet(-(HEADER_SIZE + this.buffer.getInt(offset)));
+    }
+
+    void retain(int size) {
+        this.liveBytes.addAndGet(size);
+    }
+
+    int id() {
+        return this.id;
+    }
+
+    int position() {
+        return this.position;
+    }
+
+    int capacity() {
+        return this.buffer.capacity();
+    }
+
+    long liveBytes() {
+        return this.liveBytes.get();
+    }
+
+    void force() {
+        this.buffer.force();
+    }
+
+    void close() throws IOException {
+        this.buffer.force();
+        this.channel.close();
+    }
+
+    void delete() throws IOException {
+        this.channel.close();
+        Files.deleteIfExists(this.file);
+    }
+}
@@ -0,0 +1,443 @@
+package me.kubbidev.moonrise.common.storage.implementation.memory;
+
+import me.kubbidev.moonrise.common.model.ApiGuild;
+import me.kubbidev.moonrise.common.model.ApiMember;
+import me.kubbidev.moonrise.common.model.ApiUser;
+import me.kubbidev.moonrise.common.model.Snowflake;
+import me.kubbidev.moonrise.common.plugin.MoonRisePlugin;
+import me.kubbidev.moonrise.common.plugin.scheduler.SchedulerTask;
+import me.kubbidev.moonrise.common.storage.StorageMetadata;
+import me.kubbidev.moonrise.common.storage.implementation.StorageImplementation;
+import me.kubbidev.moonrise.common.storage.implementation.journal.JournalRecord;
+import me.kubbidev.moonrise.common.storage.misc.MemberStatsDelta;
+import me.kubbidev.moonrise.common.util.Long2;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.stream.Collectors;
+
+/**
+ * A storage implementation which only keeps data in memory.
+ *
+ * <p>Each user, guild and member is held as an immutable record keyed by its id, and replaced atomically when
+ * saved or incremented. If a snapshot file is configured, the data is periodically written to it in the
+ * {@link JournalRecord} encoding, and restored from it when the storage is initialised.</p>
+ */
+public class MemoryStorage implements StorageImplementation {
+
+    private static final int SNAPSHOT_MAGIC   = 0x4D52534E; // "MRSN"
+    private static final int SNAPSHOT_VERSION = 1;
+
+    private static final Comparator<JournalRecord.Member> HIGHEST_EXPERIENCE =
+        Comparator.comparingLong(JournalRecord.Member::experience).reversed()
+            .thenComparingLong(JournalRecord.Member::userId);
+
+    private final MoonRisePlugin plugin;
+    private final @Nullable Path snapshotFile;
+    private final int            snapshotInterval;
+
+    private final Map<Long, JournalRecord.User>              users   = new ConcurrentHashMap<>();
+    private final Map<Long, JournalRecord.Guild>             guilds  = new ConcurrentHashMap<>();
+    private final Map<Long, Map<Long, JournalRecord.Member>> members = new ConcurrentHashMap<>();
+
+    /**
+     * Prevents a periodic snapshot from running at the same time as the final snapshot
+     */
+    private final Lock snapshotLock = new ReentrantLock();
+
+    private @Nullable SchedulerTask snapshotTask = null;
+
+    /**
+     * Creates a new memory storage.
+     *
+     * @param plugin           the plugin
+     * @param snapshotFile     the file to write snapshots to, or null to never write snapshots
+     * @param snapshotInterval the interval between snapshots in seconds, or 0 to never write snapshots
+     */
+    public MemoryStorage(MoonRisePlugin plugin, @Nullable Path snapshotFile, int snapshotInterval) {
+        this.plugin = plugin;
+        this.snapshotFile = snapshotInterval > 0 ? snapshotFile : null;
+        this.snapshotInterval = snapshotInterval;
+    }
+
+    @Override
+    public MoonRisePlugin getPlugin() {
+        return this.plugin;
+    }
+
+    @Override
+    public String getImplementationName() {
+        return "Memory";
+    }
+
+    @Override
+    public void init() throws Exception {
+        if (this.snapshotFile == null) {
+            return;
+        }
+
+        if (Files.exists(this.snapshotFile)) {
+            restore(this.snapshotFile);
+        }
+
+        this.snapshotTask = this.plugin.getBootstrap().getScheduler().asyncRepeating(() -> {
+            try {
+                snapshot();
+            } catch (IOException e) {
+                this.plugin.getLogger().severe("Exception whilst writing a memory storage snapshot", e);
+            }
+        }, this.snapshotInterval, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void shutdown() {
+        if (this.snapshotTask != null) {
+            this.snapshotTask.cancel();
+        }
+
+        if (this.snapshotFile != null) {
+            try {
+                snapshot();
+            } catch (IOException e) {
+                this.plugin.getLogger().severe("Exception whilst writing a memory storage snapshot", e);
+            }
+        }
+    }
+
+    @Override
+    public StorageMetadata getMeta() {
+        StorageMetadata metadata = new StorageMetadata();
+        if (this.snapshotFile != null) {
+            try {
+                if (Files.exists(this.snapshotFile)) {
+                    metadata.sizeBytes(Files.size(this.snapshotFile));
+                }
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+        return metadata;
+    }
+
+    @Override
+    public ApiUser loadUser(long userId) {
+        ApiUser user = new ApiUser(userId, this.plugin);
+        JournalRecord.User record = this.users.get(userId);
+        if (record != null) {
+            record.apply(user);
+        }
+        return user;
+    }
+
+    @Override
+    public ApiGuild loadGuild(long guildId) {
+        ApiGuild guild = new ApiGuild(guildId, this.plugin);
+        JournalRecord.Guild record = this.guilds.get(guildId);
+        if (record != null) {
+            record.apply(guild);
+        }
+        return guild;
+    }
+
+    @Override
+    public Set<ApiGuild> loadGuilds() {
+        Set<ApiGuild> guilds = new HashSet<>();
+        for (JournalRecord.Guild record : this.guilds.values()) {
+            ApiGuild guild = new ApiGuild(record.id(), this.plugin);
+            record.apply(guild);
+            guilds.add(guild);
+        }
+        return guilds;
+    }
+
+    @Override
+    public ApiMember loadMember(long guildId, long userId) {
+        Map<Long, JournalRecord.Member> guildMembers = this.members.get(guildId);
+        return loadMember(guildId, userId, guildMembers == null ? null : guildMembers.get(userId));
+    }
+
+    private ApiMember loadMember(long guildId, long userId, @Nullable JournalRecord.Member record) {
+        ApiMember member = new ApiMember(userId, this.plugin);
+        member.setGuildId(guildId);
+
+        // the user data is only populated alongside existing member data, the same as the SQL join
+        if (record != null) {
+            JournalRecord.User user = this.users.get(userId);
+            if (user != null) {
+                user.apply(member);
+            }
+            record.apply(member);
+        }
+        return member;
+    }
+
+    @Override
+    public List<ApiMember> loadMembers(long guildId, Collection<Long> userIds) {
+        List<ApiMember> members = new ArrayList<>(userIds.size());
+        for (long userId : new LinkedHashSet<>(userIds)) {
+            members.add(loadMember(guildId, userId));
+        }
+        return members;
+    }
+
+    @Override
+    public List<ApiMember> loadMembersWithHighestExperience(long guildId, int limit) {
+        Map<Long, JournalRecord.Member> guildMembers = this.members.get(guildId);
+        if (guildMembers == null) {
+            return new ArrayList<>();
+        }
+
+        return guildMembers.values().stream()
+            .sorted(HIGHEST_EXPERIENCE)
+            .limit(limit)
+            .map(record -> loadMember(guildId, record.userId(), record))
+            .collect(Collectors.toList());
+    }
+
+    @Override
+    public void saveUser(ApiUser user) {
+        Set<ApiUser.Field> fields = user.drainDirtyUserFields();
+        if (!fields.isEmpty()) {
+            writeUser(user, fields);
+        }
+    }
+
+    private void writeUser(ApiUser user, Set<ApiUser.Field> fields) {
+        this.users.compute(user.getId(), (id, current) -> current == null
+            ? JournalRecord.User.of(user)
+            : current.merge(user, fields));
+    }
+
+    @Override
+    public void saveGuild(ApiGuild guild) {
+        Set<ApiGuild.Field> fields = guild.getDirtyFields().drain();
+        if (!fields.isEmpty()) {
+            this.guilds.compute(guild.getId(), (id, current) -> current == null
+                ? JournalRecord.Guild.of(guild)
+                : current.merge(guild, fields));
+        }
+    }
+
+    @Override
+    public void saveMember(ApiMember member) {
+        Set<ApiUser.Field> userFields = member.drainDirtyUserFields();
+        if (!userFields.isEmpty()) {
+            writeUser(member, userFields);
+        }
+
+        Set<ApiMember.Field> memberFields = member.getDirtyMemberFields().drain();
+        if (!memberFields.isEmpty()) {
+            guildMembers(member.getGuildId()).compute(member.getId(), (id, current) -> current == null
+                ? JournalRecord.Member.of(member)
+                : current.merge(member, memberFields));
+        }
+    }
+
+    @Override
+    public void saveMembers(Collection<ApiMember> members) {
+        for (ApiMember member : members) {
+            saveMember(member);
+        }
+    }
+
+    @Override
+    public void incrementMemberStats(long guildId, long userId, long experience, long voiceActivity) {
+        guildMembers(guildId).compute(userId, (id, current) -> (current == null
+            ? JournalRecord.Member.empty(guildId, userId)
+            : current).increment(experience, voiceActivity));
+    }
+
+    @Override
+    public void incrementMemberStats(Collection<MemberStatsDelta> deltas) {
+        for (MemberStatsDelta delta : deltas) {
+            incrementMemberStats(delta.guildId(), delta.userId(), delta.experience(), delta.voiceActivity());
+        }
+    }
+
+    private Map<Long, JournalRecord.Member> guildMembers(long guildId) {
+        return this.members.computeIfAbsent(guildId, id -> new ConcurrentHashMap<>());
+    }
+
+    @Override
+    public Set<Snowflake> getUniqueUsers() {
+        Set<Snowflake> users = new HashSet<>();
+        forEachUserId(id -> users.add(Snowflake.of(id)));
+        return users;
+    }
+
+    @Override
+    public Set<Snowflake> getUniqueGuilds() {
+        Set<Snowflake> guilds = new HashSet<>();
+        forEachGuildId(id -> guilds.add(Snowflake.of(id)));
+        return guilds;
+    }
+
+    @Override
+    public Set<Snowflake> getUniqueMembers() {
+        Set<Snowflake> members = new HashSet<>();
+        forEachMemberId(id -> members.add(Snowflake.of(id)));
+        return members;
+    }
+
+    @Override
+    public Set<Snowflake> getUniqueMembers(long guildId) {
+        Set<Snowflake> members = new HashSet<>();
+        forEachMemberId(guildId, id -> members.add(Snowflake.of(id)));
+        return members;
+    }
+
+    @Override
+    public void forEachUserId(LongConsumer visitor) {
+        this.users.keySet().forEach(visitor::accept);
+    }
+
+    @Override
+    public void forEachGuildId(LongConsumer visitor) {
+        this.guilds.keySet().forEach(visitor::accept);
+    }
+
+    @Override
+    public void forEachMemberId(LongConsumer visitor) {
+        for (Map<Long, JournalRecord.Member> guildMembers : this.members.values()) {
+            guildMembers.keySet().forEach(visitor::accept);
+        }
+    }
+
+    @Override
+    public void forEachMemberKey(Consumer<Long2> visitor) {
+        this.members.forEach((guildId, guildMembers) -> {
+            for (long userId : guildMembers.keySet()) {
+                visitor.accept(new Long2(guildId, userId));
+            }
+        });
+    }
+
+    @Override
+    public void forEachMemberId(long guildId, LongConsumer visitor) {
+        Map<Long, JournalRecord.Member> guildMembers = this.members.get(guildId);
+        if (guildMembers != null) {
+            guildMembers.keySet().forEach(visitor::accept);
+        }
+    }
+
+    /**
+     * Writes every record to the snapshot file, replacing the previous snapshot once complete.
+     *
+     * <p>Saves made whilst the snapshot is being written may or may not be included.</p>
+     *
+     * @throws IOException if an error occurs
+     */
+    public void snapshot() throws IOException {
+        if (this.snapshotFile == null) {
+            return;
+        }
+
+        this.snapshotLock.lock();
+        try {
+            Path temp = this.snapshotFile.resolveSibling(this.snapshotFile.getFileName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+                SnapshotWriter writer = new SnapshotWriter(channel);
+                for (JournalRecord.User record : this.users.values()) {
+                    writer.write(record);
+                }
+                for (JournalRecord.Guild record : this.guilds.values()) {
+                    writer.write(record);
+                }
+                for (Map<Long, JournalRecord.Member> guildMembers : this.members.values()) {
+                    for (JournalRecord.Member record : guildMembers.values()) {
+                        writer.write(record);
+                    }
+                }
+                writer.flush();
+                channel.force(true);
+            }
+            Files.move(temp, this.snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            this.snapshotLock.unlock();
+        }
+    }
+
+    private void restore(Path file) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (buffer.remaining() < 8 || buffer.getInt() != SNAPSHOT_MAGIC) {
+            throw new IOException("Not a memory storage snapshot: " + file);
+        }
+        int version = buffer.getInt();
+        if (version != SNAPSHOT_VERSION) {
+            throw new IOException("Unsupported memory storage snapshot version: " + version);
+        }
+
+        while (buffer.hasRemaining()) {
+            switch (JournalRecord.read(buffer)) {
+                case JournalRecord.User user -> this.users.put(user.id(), user);
+                case JournalRecord.Guild guild -> this.guilds.put(guild.id(), guild);
+                case JournalRecord.Member member -> guildMembers(member.guildId()).put(member.userId(), member);
+            }
+        }
+    }
+
+    /**
+     * Encodes records into a buffer, writing it to the snapshot file each time it fills up.
+     */
+    private static final class SnapshotWriter {
+        private final FileChannel channel;
+        private       ByteBuffer  buffer = ByteBuffer.allocate(64 * 1024);
+
+        SnapshotWriter(FileChannel channel) {
+            this.channel = channel;
+            this.buffer.putInt(SNAPSHOT_MAGIC);
+            this.buffer.putInt(SNAPSHOT_VERSION);
+        }
+
+        void write(JournalRecord record) throws IOException {
+            while (true) {
+                int start = this.buffer.position();
+                try {
+                    record.write(this.buffer);
+                    return;
+                } catch (BufferOverflowException e) {
+                    this.buffer.position(start);
+                    if (start == 0) {
+                        this.buffer = ByteBuffer.allocate(this.buffer.capacity() * 2);
+                    } else {
+                        flush();
+                    }
+                }
+            }
+        }
+
+        void flush() throws IOException {
+            this.buffer.flip();
+            while (this.buffer.hasRemaining()) {
+                this.channel.write(this.buffer);
+            }
+            this.buffer.clear();
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package me.kubbidev.moonrise.common.storage.implementation.sql;
 
+import org.jetbrains.annotations.Nullable;
+
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
@@ -8,6 +10,7 @@ import java.nio.charset.StandardCharsets;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -19,6 +22,9 @@ public final class SchemaReader {
 
     private static final Pattern CREATE_TABLE_PATTERN = Pattern.compile("^CREATE TABLE [`\"']([^`\"']+)[`\"'].*");
     private static final Pattern CREATE_INDEX_PATTERN = Pattern.compile("^CREATE INDEX.* ON [`\"']([^`\"']+)[`\"'].*");
+    private static final Pattern INDEX_NAME_PATTERN   = Pattern.compile("^(?:CREATE|DROP) INDEX [`\"']([^`\"']+)[`\"'].*");
+    private static final Pattern PARTITION_OF_PATTERN =
+        Pattern.compile("^CREATE TABLE [`\"'][^`\"']+[`\"'] PARTITION OF [`\"']([^`\"']+)[`\"'].*");
 
     /**
      * Parses a schema file to a list of SQL statements
@@ -71,14 +77,63 @@ public final class SchemaReader {
     }
 
     /**
-     * Filters which statements should be executed based on the current list of tables in the database
+     * Gets the name of the index created or dropped by the statement, if it is a named index statement
      *
-     * @param statements    the statements to filter
-     * @param currentTables the current tables in the database
+     * @param statement the statement
+     * @return the index name, or null if the statement doesn't refer to a named index
+     */
+    public static @Nullable String indexFromStatement(String statement) {
+        Matcher index = INDEX_NAME_PATTERN.matcher(statement);
+        if (index.matches()) {
+            return index.group(1).toLowerCase(Locale.ROOT);
+        }
+        return null;
+    }
+
+    /**
+     * Gets the name of the partitioned table the statement creates a partition of, if it creates a partition
+     *
+     * @param statement the statement
+     * @return the partitioned table name, or null if the statement doesn't create a partition
+     */
+    public static @Nullable String partitionedTableFromStatement(String statement) {
+        Matcher partition = PARTITION_OF_PATTERN.matcher(statement);
+        if (partition.matches()) {
+            return partition.group(1).toLowerCase(Locale.ROOT);
+        }
+        return null;
+    }
+
+    /**
+     * Filters which statements should be executed based on the current tables and indexes in the database.
+     *
+     * <p>Tables are only created if they are missing. Named indexes are created if they are missing, even on
+     * tables which already exist, and {@code DROP INDEX} statements are only executed if the index still exists.
+     * This allows additive index changes to be applied to existing installations. Partitions are only created
+     * along with their table, since an existing table can't be partitioned after the fact.</p>
+     *
+     * @param statements     the statements to filter
+     * @param currentTables  the current tables in the database
+     * @param currentIndexes the current index names in the database
      * @return the filtered list of statements
      */
-    public static List<String> filterStatements(List<String> statements, List<String> currentTables) {
-        return statements.stream().filter(s -> !currentTables.contains(tableFromStatement(s)))
-            .collect(Collectors.toList());
+    public static List<String> filterStatements(List<String> statements, List<String> currentTables,
+                                                Set<String> currentIndexes) {
+        return statements.stream().filter(s -> {
+            if (s.startsWith("DROP INDEX")) {
+                return currentIndexes.contains(indexFromStatement(s));
+            }
+
+            String partitioned = partitionedTableFromStatement(s);
+            if (partitioned != null) {
+                return !currentTables.contains(partitioned);
+            }
+
+            String index = indexFromStatement(s);
+            if (index != null) {
+                return !currentIndexes.contains(index);
+            }
+            return !currentTables.contains(tableFromStatement(s));
+        }).collect(Collectors.toList());
     }
-}
\ No newline at end of file
+}
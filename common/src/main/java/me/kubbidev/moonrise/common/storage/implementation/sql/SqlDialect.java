@@ -0,0 +1,210 @@
+package me.kubbidev.moonrise.common.storage.implementation.sql;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * The SQL dialects spoken by the supported database drivers.
+ *
+ * <p>Statements are written using the same {@code '{prefix}table'} quoting convention as the rest of
+ * {@link SqlStorage}, and are passed through the {@link StatementProcessor} before being executed.</p>
+ */
+public enum SqlDialect {
+
+    /**
+     * {@code INSERT ... ON CONFLICT (...) DO UPDATE}
+     */
+    POSTGRESQL {
+        @Override
+        public String upsert(String table, List<String> keys, List<String> columns, List<String> updates) {
+            return insert(table, columns) + " ON CONFLICT (" + String.join(", ", keys) + ") DO UPDATE SET "
+                + map(updates, c -> c + "=EXCLUDED." + c);
+        }
+
+        @Override
+        public String increment(String table, List<String> keys, List<String> columns, List<String> increments) {
+            return insert(table, columns) + " ON CONFLICT (" + String.join(", ", keys) + ") DO UPDATE SET "
+                + map(increments, c -> c + "='" + table + "'." + c + "+EXCLUDED." + c);
+        }
+
+        @Override
+        public List<String> partitionByHash(String createTable, String table, String column, int partitions) {
+            List<String> statements = new ArrayList<>(partitions + 1);
+            statements.add(createTable + " PARTITION BY HASH (" + column + ")");
+            for (int i = 0; i < partitions; i++) {
+                statements.add("CREATE TABLE '" + table + "_p" + i + "' PARTITION OF '" + table + "'"
+                    + " FOR VALUES WITH (MODULUS " + partitions + ", REMAINDER " + i + ")");
+            }
+            return statements;
+        }
+    },
+
+    /**
+     * {@code INSERT ... ON CONFLICT (...) DO UPDATE} (SQLite 3.24+)
+     */
+    SQLITE {
+        @Override
+        public String upsert(String table, List<String> keys, List<String> columns, List<String> updates) {
+            return insert(table, columns) + " ON CONFLICT (" + String.join(", ", keys) + ") DO UPDATE SET "
+                + map(updates, c -> c + "=excluded." + c);
+        }
+
+        @Override
+        public String increment(String table, List<String> keys, List<String> columns, List<String> increments) {
+            return insert(table, columns) + " ON CONFLICT (" + String.join(", ", keys) + ") DO UPDATE SET "
+                + map(increments, c -> c + "='" + table + "'." + c + "+excluded." + c);
+        }
+
+        @Override
+        public String forUpdate(String select) {
+            // a single writer holds the whole database until its transaction ends
+            return select;
+        }
+    },
+
+    /**
+     * {@code INSERT ... ON DUPLICATE KEY UPDATE} (MySQL and MariaDB)
+     */
+    MYSQL {
+        @Override
+        public String upsert(String table, List<String> keys, List<String> columns, List<String> updates) {
+            return insert(table, columns) + " ON DUPLICATE KEY UPDATE "
+                + map(updates, c -> c + "=VALUES(" + c + ")");
+        }
+
+        @Override
+        public String increment(String table, List<String> keys, List<String> columns, List<String> increments) {
+            return insert(table, columns) + " ON DUPLICATE KEY UPDATE "
+                + map(increments, c -> c + "=" + c + "+VALUES(" + c + ")");
+        }
+
+        @Override
+        public List<String> partitionByHash(String createTable, String table, String column, int partitions) {
+            return List.of(createTable + " PARTITION BY KEY (" + column + ") PARTITIONS " + partitions);
+        }
+    },
+
+    /**
+     * {@code MERGE INTO ... KEY (...)} and {@code MERGE INTO ... USING ...}
+     */
+    H2 {
+        @Override
+        public String upsert(String table, List<String> keys, List<String> columns, List<String> updates) {
+            if (updates.size() + keys.size() == columns.size()) {
+                return "MERGE INTO '" + table + "' (" + String.join(", ", columns) + ") KEY ("
+                    + String.join(", ", keys) + ") VALUES (" + placeholders(columns.size()) + ")";
+            }
+            return merge(table, keys, columns, map(updates, c -> c + "=s." + c));
+        }
+
+        @Override
+        public String increment(String table, List<String> keys, List<String> columns, List<String> increments) {
+            return merge(table, keys, columns, map(increments, c -> c + "='" + table + "'." + c + "+s." + c));
+        }
+
+        private static String merge(String table, List<String> keys, List<String> columns, String update) {
+            return "MERGE INTO '" + table + "' USING (VALUES (" + placeholders(columns.size()) + ")) AS s ("
+                + String.join(", ", columns) + ") ON " + map(keys, c -> "'" + table + "'." + c + "=s." + c, " AND ")
+                + " WHEN MATCHED THEN UPDATE SET " + update
+                + " WHEN NOT MATCHED THEN INSERT (" + String.join(", ", columns) + ") VALUES ("
+                + map(columns, c -> "s." + c) + ")";
+        }
+    };
+
+    /**
+     * Creates a single statement which inserts a row, or updates every non-key column of the row if one already
+     * exists with the same key.
+     *
+     * <p>Parameters are bound in the order of {@code columns}.</p>
+     *
+     * @param table   the table name, including the {@code {prefix}} placeholder
+     * @param keys    the primary key columns
+     * @param columns all columns to write, including the keys
+     * @return the upsert statement
+     */
+    public String upsert(String table, List<String> keys, List<String> columns) {
+        List<String> updates = columns.stream().filter(c -> !keys.contains(c)).collect(Collectors.toList());
+        return upsert(table, keys, columns, updates);
+    }
+
+    /**
+     * Creates a single statement which inserts a row, or updates only the {@code updates} columns of the row if
+     * one already exists with the same key.
+     *
+     * <p>Columns which are not being updated are left untouched on existing rows, so they cannot overwrite
+     * changes written concurrently by something else. Parameters are bound in the order of {@code columns}.</p>
+     *
+     * @param table   the table name, including the {@code {prefix}} placeholder
+     * @param keys    the primary key columns
+     * @param columns all columns to write when inserting, including the keys
+     * @param updates the non-key columns to write when the row already exists
+     * @return the upsert statement
+     */
+    public abstract String upsert(String table, List<String> keys, List<String> columns, List<String> updates);
+
+    /**
+     * Creates a single statement which inserts a row, or adds the given values onto the {@code increments} columns
+     * of the row if one already exists with the same key.
+     *
+     * <p>The existing row is never read by the caller, so concurrent increments cannot overwrite each other.
+     * Parameters are bound in the order of {@code columns}.</p>
+     *
+     * @param table      the table name, including the {@code {prefix}} placeholder
+     * @param keys       the primary key columns
+     * @param columns    all columns to write when inserting, including the keys
+     * @param increments the numeric columns to add onto when the row already exists
+     * @return the increment statement
+     */
+    public abstract String increment(String table, List<String> keys, List<String> columns, List<String> increments);
+
+    /**
+     * Rewrites a {@code CREATE TABLE} statement so that the table is split into partitions by the hash of a
+     * column.
+     *
+     * <p>The column must be part of every unique key of the table. Rows are only read from the partitions which
+     * could hold them, so queries filtering on a single value of the column only touch one partition.</p>
+     *
+     * @param createTable the statement creating the table
+     * @param table       the table name, including the {@code {prefix}} placeholder
+     * @param column      the column to partition by
+     * @param partitions  the number of partitions
+     * @return the statements creating the partitioned table, in the order they should be executed
+     * @throws UnsupportedOperationException if the dialect doesn't support partitioned tables
+     */
+    public List<String> partitionByHash(String createTable, String table, String column, int partitions) {
+        throw new UnsupportedOperationException(name() + " doesn't support partitioned tables");
+    }
+
+    /**
+     * Rewrites a {@code SELECT} statement so that the rows it reads are locked against concurrent writes until the
+     * end of the transaction.
+     *
+     * <p>The statement must read from a single table.</p>
+     *
+     * @param select the statement selecting the rows to lock
+     * @return the locking statement
+     */
+    public String forUpdate(String select) {
+        return select.stripTrailing() + " FOR UPDATE";
+    }
+
+    private static String insert(String table, List<String> columns) {
+        return "INSERT INTO '" + table + "' (" + String.join(", ", columns) + ") VALUES ("
+            + placeholders(columns.size()) + ")";
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    private static String map(List<String> columns, Function<String, String> mapper) {
+        return map(columns, mapper, ", ");
+    }
+
+    private static String map(List<String> columns, Function<String, String> mapper, String delimiter) {
+        return columns.stream().map(mapper).collect(Collectors.joining(delimiter));
+    }
+}
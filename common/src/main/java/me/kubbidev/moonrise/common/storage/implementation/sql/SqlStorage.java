@@ -8,8 +8,13 @@ import me.kubbidev.moonrise.common.storage.StorageMetadata;
 import me.kubbidev.moonrise.common.storage.implementation.StorageImplementation;
 import me.kubbidev.moonrise.common.storage.implementation.sql.connection.ConnectionFactory;
 import me.kubbidev.moonrise.common.plugin.MoonRisePlugin;
+import me.kubbidev.moonrise.common.storage.misc.BucketGain;
 import me.kubbidev.moonrise.common.storage.misc.DataConstraints;
+import me.kubbidev.moonrise.common.storage.misc.ExperienceGain;
+import me.kubbidev.moonrise.common.storage.misc.ExperienceWindow;
+import me.kubbidev.moonrise.common.storage.misc.MemberStatsDelta;
 import me.kubbidev.moonrise.common.util.ImmutableCollectors;
+import me.kubbidev.moonrise.common.util.Long2;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
@@ -17,6 +22,10 @@ import java.io.InputStream;
 import java.sql.*;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+import java.util.stream.Collectors;
 
 public class SqlStorage implements StorageImplementation {
 
@@ -27,22 +36,19 @@ public class SqlStorage implements StorageImplementation {
             LIMIT 1
         """;
 
-    private static final String USER_UPDATE_BY_ID = """
-            UPDATE '{prefix}users'
-            SET username=?, global_name=?, avatar=?, last_seen=?
-            WHERE id=?
-        """;
-
-    private static final String USER_INSERT = """
-            INSERT INTO '{prefix}users' (id, username, global_name, avatar, last_seen)
-            VALUES (?, ?, ?, ?, ?)
-        """;
-
     private static final String USER_SELECT_IDS = """
             SELECT id
             FROM '{prefix}users'
         """;
 
+    private static final String USER_SELECT_PAGE = """
+            SELECT id, username, global_name, avatar, last_seen
+            FROM '{prefix}users'
+            WHERE id>?
+            ORDER BY id
+            LIMIT ?
+        """;
+
     private static final String GUILD_SELECT_ALL = """
             SELECT id, name, icon, leaderboard, leaderboard_channel
             FROM '{prefix}guilds'
@@ -55,15 +61,12 @@ public class SqlStorage implements StorageImplementation {
             LIMIT 1
         """;
 
-    private static final String GUILD_UPDATE_BY_ID = """
-            UPDATE '{prefix}guilds'
-            SET name=?, icon=?, leaderboard=?, leaderboard_channel=?
-            WHERE id=?
-        """;
-
-    private static final String GUILD_INSERT = """
-            INSERT INTO '{prefix}guilds' (id, name, icon, leaderboard, leaderboard_channel)
-            VALUES (?, ?, ?, ?, ?)
+    private static final String GUILD_SELECT_PAGE = """
+            SELECT id, name, icon, leaderboard, leaderboard_channel
+            FROM '{prefix}guilds'
+            WHERE id>?
+            ORDER BY id
+            LIMIT ?
         """;
 
     private static final String GUILD_SELECT_IDS = """
@@ -72,31 +75,153 @@ public class SqlStorage implements StorageImplementation {
         """;
 
     private static final String MEMBER_SELECT_ALL_WITH_HIGHEST_EXPERIENCE = """
-            SELECT user_id, nickname, guild_avatar, biography, experience, voice_activity, placement
+            SELECT m.user_id, m.nickname, m.guild_avatar, m.biography, m.experience, m.voice_activity, m.placement,
+                   u.username, u.global_name, u.avatar, u.last_seen
+            FROM '{prefix}members' m
+            LEFT JOIN '{prefix}users' u ON u.id=m.user_id
+            WHERE m.guild_id=?
+            ORDER BY m.experience DESC
+            LIMIT ?
+        """;
+
+    private static final String MEMBER_SELECT_EXPERIENCE_BY_GUILD_ID = """
+            SELECT user_id, experience
             FROM '{prefix}members'
             WHERE guild_id=?
             ORDER BY experience DESC
             LIMIT ?
         """;
 
-    private static final String MEMBER_SELECT_BY_IDS = """
-            SELECT nickname, guild_avatar, biography, experience, voice_activity, placement
+    private static final String MEMBER_SELECT_PAGE = """
+            SELECT user_id, guild_id, nickname, guild_avatar, biography, experience, voice_activity, placement
             FROM '{prefix}members'
-            WHERE user_id=? AND guild_id=?
-            LIMIT 1
+            WHERE user_id>? OR (user_id=? AND guild_id>?)
+            ORDER BY user_id, guild_id
+            LIMIT ?
+        """;
+
+    private static final String MEMBER_SELECT_BY_GUILD_ID_AND_USER_IDS = """
+            SELECT m.user_id, m.nickname, m.guild_avatar, m.biography, m.experience, m.voice_activity, m.placement,
+                   u.username, u.global_name, u.avatar, u.last_seen, 0 AS archived
+            FROM '{prefix}members' m
+            LEFT JOIN '{prefix}users' u ON u.id=m.user_id
+            WHERE m.guild_id=? AND m.user_id IN ({ids})
+            UNION ALL
+            SELECT user_id, NULL, NULL, NULL, NULL, NULL, NULL, NULL, NULL, NULL, NULL, 1
+            FROM '{prefix}members_archive'
+            WHERE guild_id=? AND user_id IN ({ids})
+        """;
+
+    private static final String MEMBER_SELECT_FIELDS_BY_GUILD_ID_AND_USER_IDS = """
+            SELECT user_id, nickname, guild_avatar, biography, experience, voice_activity, placement
+            FROM '{prefix}members'
+            WHERE guild_id=? AND user_id IN ({ids})
         """;
 
-    private static final String MEMBER_UPDATE_BY_IDS = """
-            UPDATE '{prefix}members'
-            SET nickname=?, guild_avatar=?, biography=?, experience=?, voice_activity=?, placement=?
+    private static final String MEMBER_SELECT_COLD_PAGE = """
+            SELECT m.user_id, m.guild_id
+            FROM '{prefix}members' m
+            JOIN '{prefix}users' u ON u.id=m.user_id
+            WHERE (m.user_id>? OR (m.user_id=? AND m.guild_id>?)) AND m.experience<=? AND u.last_seen<?
+              AND NOT EXISTS (
+                SELECT 1 FROM '{prefix}members_archive' a WHERE a.user_id=m.user_id AND a.guild_id=m.guild_id
+              )
+            ORDER BY m.user_id, m.guild_id
+            LIMIT ?
+        """;
+
+    private static final String MEMBER_SELECT_COLD_RANGE = """
+            SELECT user_id, guild_id
+            FROM '{prefix}members'
+            WHERE (user_id>? OR (user_id=? AND guild_id>=?)) AND (user_id<? OR (user_id=? AND guild_id<=?))
+              AND experience<=?
+        """;
+
+    private static final String MEMBER_DELETE_COLD = """
+            DELETE FROM '{prefix}members'
+            WHERE user_id=? AND guild_id=? AND experience<=?
+        """;
+
+    private static final String ARCHIVE_INSERT_COLD = """
+            INSERT INTO '{prefix}members_archive'
+                (user_id, guild_id, nickname, guild_avatar, biography, experience, voice_activity, placement)
+            SELECT user_id, guild_id, nickname, guild_avatar, biography, experience, voice_activity, placement
+            FROM '{prefix}members'
+            WHERE user_id=? AND guild_id=? AND experience<=?
+        """;
+
+    private static final String ARCHIVE_SELECT_BY_GUILD_ID_AND_USER_IDS = """
+            SELECT user_id, nickname, guild_avatar, biography, experience, voice_activity, placement
+            FROM '{prefix}members_archive'
+            WHERE guild_id=? AND user_id IN ({ids})
+        """;
+
+    private static final String ARCHIVE_SELECT_RESTORABLE = """
+            SELECT a.user_id, a.guild_id
+            FROM '{prefix}members_archive' a
+            JOIN '{prefix}members' m ON m.user_id=a.user_id AND m.guild_id=a.guild_id
+            LIMIT ?
+        """;
+
+    private static final String ARCHIVE_SELECT_PAGE = """
+            SELECT user_id, guild_id
+            FROM '{prefix}members_archive'
+            LIMIT ?
+        """;
+
+    private static final String ARCHIVE_DELETE = """
+            DELETE FROM '{prefix}members_archive'
             WHERE user_id=? AND guild_id=?
         """;
 
-    private static final String MEMBER_INSERT = """
-            INSERT INTO '{prefix}members' (user_id, guild_id, nickname, guild_avatar, biography, experience, voice_activity, placement)
-            VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+    private static final String ARCHIVE_DELETE_KEPT = """
+            DELETE FROM '{prefix}members_archive'
+            WHERE user_id=? AND guild_id=? AND EXISTS (
+                SELECT 1 FROM '{prefix}members' m WHERE m.user_id=? AND m.guild_id=?
+            )
         """;
 
+    private static final String GAIN_SELECT_ALL_WITH_HIGHEST_EXPERIENCE = """
+            SELECT g.user_id, g.experience AS gained,
+                   m.nickname, m.guild_avatar, m.biography, m.experience, m.voice_activity, m.placement,
+                   u.username, u.global_name, u.avatar, u.last_seen
+            FROM '{table}' g
+            JOIN '{prefix}members' m ON m.user_id=g.user_id AND m.guild_id=g.guild_id
+            LEFT JOIN '{prefix}users' u ON u.id=g.user_id
+            WHERE g.guild_id=? AND g.bucket=?
+            ORDER BY g.experience DESC
+            LIMIT ?
+        """;
+
+    private static final String GAIN_SELECT_PAGE = """
+            SELECT guild_id, bucket, user_id, experience
+            FROM '{table}'
+            WHERE guild_id>? OR (guild_id=? AND (bucket>? OR (bucket=? AND user_id>?)))
+            ORDER BY guild_id, bucket, user_id
+            LIMIT ?
+        """;
+
+    private static final String GAIN_DELETE_BEFORE_BUCKET = """
+            DELETE FROM '{table}'
+            WHERE bucket<?
+        """;
+
+    /**
+     * The maximum number of ids bound to a single {@code IN (...)} clause, kept below the default
+     * host parameter limit of older SQLite versions
+     */
+    private static final int MAX_IDS_PER_QUERY = 500;
+
+    /**
+     * The maximum number of rows sent to the database in a single batch
+     */
+    private static final int MAX_BATCH_SIZE = 1000;
+
+    /**
+     * The default number of rows fetched from the database at a time when streaming a query
+     */
+    private static final int DEFAULT_FETCH_SIZE = 1000;
+
     private static final String MEMBER_SELECT_USER_ID_BY_GUILD_ID = """
             SELECT user_id
             FROM '{prefix}members'
@@ -108,15 +233,107 @@ public class SqlStorage implements StorageImplementation {
             FROM '{prefix}members'
         """;
 
+    private static final List<String> USER_KEYS    = List.of("id");
+    private static final List<String> USER_COLUMNS = List.of("id", "username", "global_name", "avatar", "last_seen");
+
+    private static final List<String> GUILD_KEYS    = List.of("id");
+    private static final List<String> GUILD_COLUMNS = List.of("id", "name", "icon", "leaderboard",
+        "leaderboard_channel");
+
+    private static final List<String> MEMBER_KEYS    = List.of("user_id", "guild_id");
+    private static final List<String> MEMBER_COLUMNS = List.of("user_id", "guild_id", "nickname", "guild_avatar",
+        "biography", "experience", "voice_activity", "placement");
+    private static final List<String> MEMBER_STATS   = List.of("experience", "voice_activity");
+
+    private static final List<String> GAIN_KEYS    = List.of("guild_id", "bucket", "user_id");
+    private static final List<String> GAIN_COLUMNS = List.of("guild_id", "bucket", "user_id", "experience");
+    private static final List<String> GAIN_STATS   = List.of("experience");
+
     private final MoonRisePlugin plugin;
 
     private final ConnectionFactory  connectionFactory;
     private final StatementProcessor statementProcessor;
 
+    /**
+     * The number of rows fetched from the database at a time when streaming a query
+     */
+    private final int fetchSize;
+
+    /**
+     * The number of hash partitions the members table is split into by guild when it is created, or 0 for none
+     */
+    private final int memberPartitions;
+
+    /**
+     * Single statement increment, generated for the dialect of the connection factory
+     */
+    private final String memberIncrement;
+    /**
+     * Locks the members which could be archived within a page, generated for the dialect of the connection factory
+     */
+    private final String memberLockColdRange;
+
+    /**
+     * The increment, ranking, retention and migration statements of the experience gained within each window
+     */
+    private final Map<ExperienceWindow, String> gainIncrements  = new EnumMap<>(ExperienceWindow.class);
+    private final Map<ExperienceWindow, String> gainSelects     = new EnumMap<>(ExperienceWindow.class);
+    private final Map<ExperienceWindow, String> gainDeletes     = new EnumMap<>(ExperienceWindow.class);
+    private final Map<ExperienceWindow, String> gainPageSelects = new EnumMap<>(ExperienceWindow.class);
+    private final Map<ExperienceWindow, String> gainUpserts     = new EnumMap<>(ExperienceWindow.class);
+
+    /**
+     * Upserts which only update the changed columns of existing rows, generated for each set of changed fields
+     * on first use
+     */
+    private final Map<Set<ApiUser.Field>, String>   userUpdates   = new ConcurrentHashMap<>();
+    private final Map<Set<ApiGuild.Field>, String>  guildUpdates  = new ConcurrentHashMap<>();
+    private final Map<Set<ApiMember.Field>, String> memberUpdates = new ConcurrentHashMap<>();
+
+    /**
+     * The processed form of each query constant and generated upsert
+     */
+    private final Map<String, String> processedQueries = new ConcurrentHashMap<>();
+
+    private volatile @Nullable RestoreListener restoreListener = null;
+
     public SqlStorage(MoonRisePlugin plugin, ConnectionFactory connectionFactory, String prefix) {
+        this(plugin, connectionFactory, prefix, DEFAULT_FETCH_SIZE);
+    }
+
+    public SqlStorage(MoonRisePlugin plugin, ConnectionFactory connectionFactory, String prefix, int fetchSize) {
+        this(plugin, connectionFactory, prefix, fetchSize, 0);
+    }
+
+    public SqlStorage(MoonRisePlugin plugin, ConnectionFactory connectionFactory, String prefix, int fetchSize,
+                      int memberPartitions) {
         this.plugin = plugin;
         this.connectionFactory = connectionFactory;
+        this.fetchSize = fetchSize > 0 ? fetchSize : DEFAULT_FETCH_SIZE;
+        this.memberPartitions = Math.max(0, memberPartitions);
         this.statementProcessor = connectionFactory.getStatementProcessor().compose(s -> s.replace("{prefix}", prefix));
+
+        SqlDialect dialect = connectionFactory.getDialect();
+        this.memberIncrement = dialect.increment("{prefix}members", MEMBER_KEYS, MEMBER_COLUMNS, MEMBER_STATS);
+        this.memberLockColdRange = dialect.forUpdate(MEMBER_SELECT_COLD_RANGE);
+
+        for (String query : List.of(USER_SELECT_BY_ID, USER_SELECT_IDS, USER_SELECT_PAGE, GUILD_SELECT_ALL,
+            GUILD_SELECT_BY_ID, GUILD_SELECT_IDS, GUILD_SELECT_PAGE, MEMBER_SELECT_ALL_WITH_HIGHEST_EXPERIENCE,
+            MEMBER_SELECT_EXPERIENCE_BY_GUILD_ID,
+            MEMBER_SELECT_PAGE, MEMBER_SELECT_USER_ID_BY_GUILD_ID, MEMBER_SELECT_USER_IDS,
+            MEMBER_SELECT_COLD_PAGE, MEMBER_DELETE_COLD, ARCHIVE_INSERT_COLD, ARCHIVE_SELECT_RESTORABLE, ARCHIVE_SELECT_PAGE, ARCHIVE_DELETE, ARCHIVE_DELETE_KEPT,
+            this.memberIncrement, this.memberLockColdRange)) {
+            register(query);
+        }
+
+        for (ExperienceWindow window : ExperienceWindow.values()) {
+            String table = gainTable(window);
+            this.gainIncrements.put(window, register(dialect.increment(table, GAIN_KEYS, GAIN_COLUMNS, GAIN_STATS)));
+            this.gainSelects.put(window, register(GAIN_SELECT_ALL_WITH_HIGHEST_EXPERIENCE.replace("{table}", table)));
+            this.gainDeletes.put(window, register(GAIN_DELETE_BEFORE_BUCKET.replace("{table}", table)));
+            this.gainPageSelects.put(window, register(GAIN_SELECT_PAGE.replace("{table}", table)));
+            this.gainUpserts.put(window, register(dialect.upsert(table, GAIN_KEYS, GAIN_COLUMNS)));
+        }
     }
 
     @Override
@@ -140,12 +357,7 @@ public class SqlStorage implements StorageImplementation {
     @Override
     public void init() throws Exception {
         this.connectionFactory.init(this.plugin);
-
-        List<String> tables;
-        try (Connection c = this.connectionFactory.getConnection()) {
-            tables = listTables(c);
-        }
-        applySchema(tables);
+        applySchema();
     }
 
     @Override
@@ -162,26 +374,47 @@ public class SqlStorage implements StorageImplementation {
         return this.connectionFactory.getMeta();
     }
 
+    @Override
+    public int getMaxConcurrentOperations() {
+        return this.connectionFactory.getMaximumConnections();
+    }
+
+    @Override
+    public boolean supportsExperienceWindows() {
+        return true;
+    }
+
+    @Override
+    public void setRestoreListener(RestoreListener listener) {
+        this.restoreListener = listener;
+    }
+
     @Override
     public ApiUser loadUser(long userId) throws Exception {
         return this.populateUser(new ApiUser(userId, this.plugin));
     }
 
     private <T extends ApiUser> T populateUser(T user) throws SQLException {
-        return this.executeQuery(USER_SELECT_BY_ID, ps -> ps.setLong(1, user.getId()), rs -> {
-            if (rs.next()) {
-                user.setUsername(rs.getString("username"));
-                user.setGlobalName(rs.getString("global_name"));
-                user.setAvatar(rs.getString("avatar"));
-                user.setLastSeen(Instant.ofEpochMilli(rs.getLong("last_seen")));
-            }
-            return user;
-        });
+        return this.executeQuery(Consistency.LATEST, USER_SELECT_BY_ID, ps -> ps.setLong(1, user.getId()),
+            rs -> {
+                if (rs.next()) {
+                    populateUser(user, rs);
+                }
+                return user;
+            });
+    }
+
+    private static void populateUser(ApiUser user, ResultSet rs) throws SQLException {
+        user.setUsername(rs.getString("username"));
+        user.setGlobalName(rs.getString("global_name"));
+        user.setAvatar(rs.getString("avatar"));
+        user.setLastSeen(Instant.ofEpochMilli(rs.getLong("last_seen")));
+        user.getDirtyUserFields().clear();
     }
 
     @Override
     public ApiGuild loadGuild(long guildId) throws Exception {
-        return this.executeQuery(GUILD_SELECT_BY_ID, ps -> ps.setLong(1, guildId), rs -> {
+        return this.executeQuery(Consistency.LATEST, GUILD_SELECT_BY_ID, ps -> ps.setLong(1, guildId), rs -> {
             ApiGuild guild = new ApiGuild(guildId, this.plugin);
             if (rs.next()) {
                 populateGuild(guild, rs);
@@ -192,7 +425,7 @@ public class SqlStorage implements StorageImplementation {
 
     @Override
     public Set<ApiGuild> loadGuilds() throws Exception {
-        return getAllAsSet(GUILD_SELECT_ALL, null,
+        return getAllAsSet(Consistency.LATEST, GUILD_SELECT_ALL, null,
             rs -> populateGuild(new ApiGuild(rs.getLong("id"), this.plugin), rs));
     }
 
@@ -201,33 +434,318 @@ public class SqlStorage implements StorageImplementation {
         guild.setIcon(rs.getString("icon"));
         guild.setLeaderboardEnabled(rs.getBoolean("leaderboard"));
         guild.setLeaderboardChannelId(rs.getLong("leaderboard_channel"));
+        guild.getDirtyFields().clear();
         return guild;
     }
 
     @Override
     public ApiMember loadMember(long guildId, long userId) throws Exception {
-        return this.executeQuery(MEMBER_SELECT_BY_IDS, ps -> {
-            ps.setLong(1, userId);
-            ps.setLong(2, guildId);
-        }, rs -> {
+        return loadMembers(guildId, List.of(userId)).getFirst();
+    }
+
+    @Override
+    public List<ApiMember> loadMembers(long guildId, Collection<Long> userIds) throws Exception {
+        Map<Long, ApiMember> members = new LinkedHashMap<>();
+        for (long userId : userIds) {
             ApiMember member = new ApiMember(userId, this.plugin);
             member.setGuildId(guildId);
+            members.put(userId, member);
+        }
 
-            if (rs.next()) {
-                populateMember(member, rs);
+        // saves only write the changed columns, so a member read slightly out of date can't overwrite newer data.
+        // Experience granted since a member was archived creates a new row, which doesn't hold the archived stats,
+        // so archived members are read again from the primary once they have been moved back
+        List<Long> archived = readMembers(Consistency.STALE_ALLOWED, guildId, new ArrayList<>(members.keySet()),
+            members);
+        if (!archived.isEmpty()) {
+            restoreMembers(guildId, archived);
+            readMembers(Consistency.LATEST, guildId, archived, members);
+        }
+        return new ArrayList<>(members.values());
+    }
+
+    /**
+     * Populates the members with the given ids from the members table.
+     *
+     * @return the ids of the members which are archived
+     */
+    private List<Long> readMembers(Consistency consistency, long guildId, List<Long> userIds,
+                                   Map<Long, ApiMember> members) throws SQLException {
+        List<Long> archived = new ArrayList<>();
+        try (Connection c = consistency.getConnection(this.connectionFactory)) {
+            // the ids are bound once for each table
+            int chunkSize = MAX_IDS_PER_QUERY / 2;
+            for (int i = 0; i < userIds.size(); i += chunkSize) {
+                List<Long> chunk = userIds.subList(i, Math.min(i + chunkSize, userIds.size()));
+                executeQuery(c, withIds(MEMBER_SELECT_BY_GUILD_ID_AND_USER_IDS, chunk),
+                    ps -> bindGuildAndUserIds(ps, bindGuildAndUserIds(ps, 1, guildId, chunk), guildId, chunk),
+                    rs -> {
+                        while (rs.next()) {
+                            long userId = rs.getLong("user_id");
+                            if (rs.getBoolean("archived")) {
+                                archived.add(userId);
+                            } else {
+                                populateMember(members.get(userId), rs);
+                            }
+                        }
+                        return null;
+                    });
+            }
+        }
+        return archived;
+    }
+
+    /**
+     * Moves the members back from the archive, if they have been archived.
+     *
+     * <p>The archived stats are added onto the members rather than replacing them, as experience could have been
+     * granted since a member was archived, creating a new row. The other archived fields are only restored if
+     * the new row doesn't have them.</p>
+     *
+     * @return the ids of the restored members
+     */
+    private List<Long> restoreMembers(long guildId, List<Long> userIds) throws SQLException {
+        List<Long> restored = new ArrayList<>();
+        List<ApiMember> archived = new ArrayList<>();
+        executeTransaction(c -> {
+            for (ApiMember member : selectMemberFields(c, ARCHIVE_SELECT_BY_GUILD_ID_AND_USER_IDS, guildId,
+                userIds).values()) {
+                // only one of several concurrent restores can delete the archived row, the others find nothing to do
+                if (executeUpdate(c, ARCHIVE_DELETE, ps -> bindMemberKey(ps, guildId, member.getId())) != 0) {
+                    archived.add(member);
+                    restored.add(member.getId());
+                }
+            }
+            if (archived.isEmpty()) {
+                return;
+            }
+
+            Map<Long, ApiMember> current = selectMemberFields(c, MEMBER_SELECT_FIELDS_BY_GUILD_ID_AND_USER_IDS,
+                guildId, restored);
+            executeBatch(c, this.memberIncrement, archived, (ps, member) -> bindMemberIncrement(ps, guildId,
+                member.getId(), member.getExperience(), member.getVoiceActivity()));
+
+            Map<Set<ApiMember.Field>, List<ApiMember>> batches = new HashMap<>();
+            for (ApiMember member : archived) {
+                Set<ApiMember.Field> fields = missingFields(current.get(member.getId()));
+                if (!fields.isEmpty()) {
+                    batches.computeIfAbsent(fields, f -> new ArrayList<>()).add(member);
+                }
+            }
+            for (Map.Entry<Set<ApiMember.Field>, List<ApiMember>> batch : batches.entrySet()) {
+                executeBatch(c, memberUpsert(batch.getKey()), batch.getValue(), SqlStorage::bindMember);
             }
-            return member;
         });
+
+        RestoreListener listener = this.restoreListener;
+        if (listener != null) {
+            for (ApiMember member : archived) {
+                listener.restored(guildId, member.getId(), member.getExperience());
+            }
+        }
+        return restored;
+    }
+
+    /**
+     * Moves the members back from the archive, a guild at a time, see {@link #restoreMembers(long, List)}.
+     */
+    private void restoreMembers(List<Long2> keys) throws SQLException {
+        Map<Long, List<Long>> guilds = keys.stream()
+            .collect(Collectors.groupingBy(Long2::a, Collectors.mapping(Long2::b, Collectors.toList())));
+        for (Map.Entry<Long, List<Long>> guild : guilds.entrySet()) {
+            restoreMembers(guild.getKey(), guild.getValue());
+        }
+    }
+
+    /**
+     * Gets the member fields which are unset on the current row of a member, and so are restored from the archive.
+     */
+    private static Set<ApiMember.Field> missingFields(@Nullable ApiMember current) {
+        Set<ApiMember.Field> fields = EnumSet.noneOf(ApiMember.Field.class);
+        if (current == null || current.getNickname().isEmpty()) {
+            fields.add(ApiMember.Field.NICKNAME);
+        }
+        if (current == null || current.getGuildAvatar() == null) {
+            fields.add(ApiMember.Field.GUILD_AVATAR);
+        }
+        if (current == null || current.getBiography().isEmpty()) {
+            fields.add(ApiMember.Field.BIOGRAPHY);
+        }
+        if (current == null || current.getPlacement() < 0) {
+            fields.add(ApiMember.Field.PLACEMENT);
+        }
+        return fields;
+    }
+
+    private Map<Long, ApiMember> selectMemberFields(Connection c, String query, long guildId, List<Long> userIds)
+        throws SQLException {
+        Map<Long, ApiMember> members = new HashMap<>();
+        for (int i = 0; i < userIds.size(); i += MAX_IDS_PER_QUERY) {
+            List<Long> chunk = userIds.subList(i, Math.min(i + MAX_IDS_PER_QUERY, userIds.size()));
+            executeQuery(c, withIds(query, chunk), ps -> bindGuildAndUserIds(ps, 1, guildId, chunk), rs -> {
+                while (rs.next()) {
+                    ApiMember member = populateMemberFields(guildId, rs.getLong("user_id"), rs);
+                    members.put(member.getId(), member);
+                }
+                return null;
+            });
+        }
+        return members;
+    }
+
+    private ApiMember populateMemberFields(long guildId, long userId, ResultSet rs) throws SQLException {
+        ApiMember member = new ApiMember(userId, this.plugin);
+        member.setGuildId(guildId);
+        populateMemberFields(member, rs);
+        return member;
+    }
+
+    private static void bindMemberKey(PreparedStatement ps, long guildId, long userId) throws SQLException {
+        ps.setLong(1, userId);
+        ps.setLong(2, guildId);
+    }
+
+    private static String withIds(String query, List<Long> ids) {
+        return query.replace("{ids}", String.join(", ", Collections.nCopies(ids.size(), "?")));
+    }
+
+    /**
+     * Binds the guild id and then each user id, starting from the given parameter index.
+     *
+     * @return the index of the next parameter
+     */
+    private static int bindGuildAndUserIds(PreparedStatement ps, int index, long guildId, List<Long> userIds)
+        throws SQLException {
+        ps.setLong(index++, guildId);
+        for (long userId : userIds) {
+            ps.setLong(index++, userId);
+        }
+        return index;
     }
 
     @Override
     public List<ApiMember> loadMembersWithHighestExperience(long guildId, int limit) throws Exception {
-        return getAllAsList(MEMBER_SELECT_ALL_WITH_HIGHEST_EXPERIENCE, ps -> {
+        return getAllAsList(Consistency.STALE_ALLOWED, MEMBER_SELECT_ALL_WITH_HIGHEST_EXPERIENCE, ps -> {
             ps.setLong(1, guildId);
             ps.setInt(2, limit);
         }, rs -> loadMemberFromResult(guildId, rs));
     }
 
+    @Override
+    public List<ExperienceGain> loadMembersWithHighestExperience(long guildId, ExperienceWindow window, int bucket,
+                                                                 int limit) throws Exception {
+        return getAllAsList(Consistency.STALE_ALLOWED, this.gainSelects.get(window), ps -> {
+            ps.setLong(1, guildId);
+            ps.setInt(2, bucket);
+            ps.setInt(3, limit);
+        }, rs -> new ExperienceGain(loadMemberFromResult(guildId, rs), rs.getLong("gained")));
+    }
+
+    @Override
+    public void pruneExperienceGains(ExperienceWindow window, int beforeBucket) throws Exception {
+        executeStatement(this.gainDeletes.get(window), ps -> ps.setInt(1, beforeBucket));
+    }
+
+    @Override
+    public PageReader<BucketGain> experienceGainPages(ExperienceWindow window, long afterGuildId, int afterBucket,
+                                                      long afterUserId, int limit) {
+        BucketGain[] after = {new BucketGain(afterGuildId, afterBucket, afterUserId, 0)};
+        return () -> {
+            BucketGain last = after[0];
+            List<BucketGain> page = getAllAsList(Consistency.LATEST, this.gainPageSelects.get(window), ps -> {
+                ps.setLong(1, last.guildId());
+                ps.setLong(2, last.guildId());
+                ps.setInt(3, last.bucket());
+                ps.setInt(4, last.bucket());
+                ps.setLong(5, last.userId());
+                ps.setInt(6, limit);
+            }, rs -> new BucketGain(rs.getLong("guild_id"), rs.getInt("bucket"), rs.getLong("user_id"),
+                rs.getLong("experience")));
+            if (!page.isEmpty()) {
+                after[0] = page.getLast();
+            }
+            return page;
+        };
+    }
+
+    @Override
+    public void saveExperienceGains(ExperienceWindow window, Collection<BucketGain> gains) throws Exception {
+        executeTransaction(c -> executeBatch(c, this.gainUpserts.get(window), gains, (ps, gain) -> {
+            ps.setLong(1, gain.guildId());
+            ps.setInt(2, gain.bucket());
+            ps.setLong(3, gain.userId());
+            ps.setLong(4, gain.experience());
+        }));
+    }
+
+    @Override
+    public List<Long2> archiveMembers(long maxExperience, Instant lastSeenBefore, long afterUserId,
+                                      long afterGuildId, int limit) throws Exception {
+        List<Long2> cold = getAllAsList(Consistency.LATEST, MEMBER_SELECT_COLD_PAGE, ps -> {
+            ps.setLong(1, afterUserId);
+            ps.setLong(2, afterUserId);
+            ps.setLong(3, afterGuildId);
+            ps.setLong(4, maxExperience);
+            ps.setLong(5, lastSeenBefore.toEpochMilli());
+            ps.setInt(6, limit);
+        }, rs -> new Long2(rs.getLong("guild_id"), rs.getLong("user_id")));
+
+        if (cold.isEmpty()) {
+            return cold;
+        }
+
+        // the page is locked first, so no experience can be granted between a member being copied and deleted.
+        // The experience is still checked again, so a member granted enough experience since being selected
+        // stays, and the archived copy of any member left in place is dropped
+        Long2 first = cold.getFirst();
+        Long2 last = cold.getLast();
+        BatchConsumer<Long2> binder = (ps, key) -> {
+            bindMemberKey(ps, key.a(), key.b());
+            ps.setLong(3, maxExperience);
+        };
+        executeTransaction(c -> {
+            executeQuery(c, this.memberLockColdRange, ps -> {
+                ps.setLong(1, first.b());
+                ps.setLong(2, first.b());
+                ps.setLong(3, first.a());
+                ps.setLong(4, last.b());
+                ps.setLong(5, last.b());
+                ps.setLong(6, last.a());
+                ps.setLong(7, maxExperience);
+            }, rs -> {
+                // some drivers only lock the rows as they are fetched
+                while (rs.next()) {
+                    rs.getLong("user_id");
+                }
+                return null;
+            });
+            executeBatch(c, ARCHIVE_INSERT_COLD, cold, binder);
+            executeBatch(c, MEMBER_DELETE_COLD, cold, binder);
+            executeBatch(c, ARCHIVE_DELETE_KEPT, cold, (ps, key) -> {
+                bindMemberKey(ps, key.a(), key.b());
+                ps.setLong(3, key.b());
+                ps.setLong(4, key.a());
+            });
+        });
+        return cold;
+    }
+
+    @Override
+    public List<Long2> restoreArchivedMembers(int limit) throws Exception {
+        List<Long2> active = getAllAsList(Consistency.LATEST, ARCHIVE_SELECT_RESTORABLE, ps -> ps.setInt(1, limit),
+            rs -> new Long2(rs.getLong("guild_id"), rs.getLong("user_id")));
+        restoreMembers(active);
+        return active;
+    }
+
+    @Override
+    public List<Long2> unarchiveMembers(int limit) throws Exception {
+        List<Long2> archived = getAllAsList(Consistency.LATEST, ARCHIVE_SELECT_PAGE, ps -> ps.setInt(1, limit),
+            rs -> new Long2(rs.getLong("guild_id"), rs.getLong("user_id")));
+        restoreMembers(archived);
+        return archived;
+    }
+
     private ApiMember loadMemberFromResult(long guildId, ResultSet rs) throws SQLException {
         ApiMember member = new ApiMember(rs.getLong("user_id"), this.plugin);
         member.setGuildId(guildId);
@@ -236,125 +754,532 @@ public class SqlStorage implements StorageImplementation {
         return member;
     }
 
-    private void populateMember(ApiMember member, ResultSet rs) throws SQLException {
-        this.populateUser(member);
+    @Override
+    public List<ApiUser> loadUserPage(long afterId, int limit) throws Exception {
+        return getAllAsList(Consistency.LATEST, USER_SELECT_PAGE, ps -> {
+            ps.setLong(1, afterId);
+            ps.setInt(2, limit);
+        }, rs -> {
+            ApiUser user = new ApiUser(rs.getLong("id"), this.plugin);
+            populateUser(user, rs);
+            return user;
+        });
+    }
+
+    @Override
+    public List<ApiGuild> loadGuildPage(long afterId, int limit) throws Exception {
+        return getAllAsList(Consistency.LATEST, GUILD_SELECT_PAGE, ps -> {
+            ps.setLong(1, afterId);
+            ps.setInt(2, limit);
+        }, rs -> populateGuild(new ApiGuild(rs.getLong("id"), this.plugin), rs));
+    }
+
+    @Override
+    public List<ApiMember> loadMemberPage(long afterUserId, long afterGuildId, int limit) throws Exception {
+        return getAllAsList(Consistency.LATEST, MEMBER_SELECT_PAGE, ps -> {
+            ps.setLong(1, afterUserId);
+            ps.setLong(2, afterUserId);
+            ps.setLong(3, afterGuildId);
+            ps.setInt(4, limit);
+        }, rs -> {
+            ApiMember member = new ApiMember(rs.getLong("user_id"), this.plugin);
+            member.setGuildId(rs.getLong("guild_id"));
+            populateMemberFields(member, rs);
+            return member;
+        });
+    }
+
+    @Override
+    public PageReader<ApiUser> userPages(long afterId, int limit) {
+        // each page continues from the last key of the previous one, through the primary key index
+        long[] after = {afterId};
+        return () -> {
+            List<ApiUser> page = loadUserPage(after[0], limit);
+            if (!page.isEmpty()) {
+                after[0] = page.getLast().getId();
+            }
+            return page;
+        };
+    }
+
+    @Override
+    public PageReader<ApiGuild> guildPages(long afterId, int limit) {
+        long[] after = {afterId};
+        return () -> {
+            List<ApiGuild> page = loadGuildPage(after[0], limit);
+            if (!page.isEmpty()) {
+                after[0] = page.getLast().getId();
+            }
+            return page;
+        };
+    }
+
+    @Override
+    public PageReader<ApiMember> memberPages(long afterUserId, long afterGuildId, int limit) {
+        long[] after = {afterUserId, afterGuildId};
+        return () -> {
+            List<ApiMember> page = loadMemberPage(after[0], after[1], limit);
+            if (!page.isEmpty()) {
+                after[0] = page.getLast().getId();
+                after[1] = page.getLast().getGuildId();
+            }
+            return page;
+        };
+    }
+
+    /**
+     * Populates the member from a row of the members table joined with the users table.
+     *
+     * <p>The user columns are {@code null} if the member has no matching user row yet, in
+     * which case the user defaults are kept.</p>
+     */
+    private static void populateMember(ApiMember member, ResultSet rs) throws SQLException {
+        if (rs.getString("username") != null) {
+            populateUser(member, rs);
+        }
+        populateMemberFields(member, rs);
+    }
 
+    private static void populateMemberFields(ApiMember member, ResultSet rs) throws SQLException {
         member.setNickname(rs.getString("nickname"));
         member.setGuildAvatar(rs.getString("guild_avatar"));
         member.setBiography(rs.getString("biography"));
         member.setExperience(rs.getLong("experience"));
         member.setVoiceActivity(rs.getLong("voice_activity"));
         member.setPlacement(rs.getInt("placement"));
+        member.getDirtyMemberFields().clear();
     }
 
     @Override
     public void saveUser(ApiUser user) throws Exception {
-        saveStatement(USER_SELECT_BY_ID, USER_UPDATE_BY_ID, USER_INSERT,
-            ps -> ps.setLong(1, user.getId()),
-            ps -> {
-                // where
-                ps.setLong(5, user.getId());
-
-                // content
-                ps.setString(1, DataConstraints.desanitize(user.getUsername(), true));
-                ps.setString(2, DataConstraints.desanitize(user.getGlobalName().orElse(null)));
-                ps.setString(3, DataConstraints.desanitize(user.getAvatar()));
-                ps.setLong(4, user.getLastSeen().toEpochMilli());
-            },
-            ps -> {
-                // where
-                ps.setLong(1, user.getId());
-
-                // content
-                ps.setString(2, DataConstraints.desanitize(user.getUsername(), true));
-                ps.setString(3, DataConstraints.desanitize(user.getGlobalName().orElse(null)));
-                ps.setString(4, DataConstraints.desanitize(user.getAvatar()));
-                ps.setLong(5, user.getLastSeen().toEpochMilli());
-            });
+        Set<ApiUser.Field> fields = user.drainDirtyUserFields();
+        if (fields.isEmpty()) {
+            return;
+        }
+
+        try {
+            executeStatement(userUpsert(fields), ps -> bindUser(ps, user));
+        } catch (SQLException e) {
+            user.getDirtyUserFields().markAll(fields);
+            throw e;
+        }
+    }
+
+    @Override
+    public void saveUsers(Collection<ApiUser> users) throws Exception {
+        Map<Long, ApiUser> uniqueUsers = new LinkedHashMap<>();
+        Map<Long, Set<ApiUser.Field>> userFields = new HashMap<>();
+        for (ApiUser user : users) {
+            uniqueUsers.put(user.getId(), user);
+            userFields.computeIfAbsent(user.getId(), id -> EnumSet.noneOf(ApiUser.Field.class))
+                .addAll(user.drainDirtyUserFields());
+        }
+
+        Map<Set<ApiUser.Field>, List<ApiUser>> batches = new HashMap<>();
+        uniqueUsers.forEach((id, user) -> {
+            Set<ApiUser.Field> fields = userFields.get(id);
+            if (!fields.isEmpty()) {
+                batches.computeIfAbsent(fields, f -> new ArrayList<>()).add(user);
+            }
+        });
+        if (batches.isEmpty()) {
+            return;
+        }
 
+        try {
+            executeTransaction(c -> {
+                for (Map.Entry<Set<ApiUser.Field>, List<ApiUser>> batch : batches.entrySet()) {
+                    executeBatch(c, userUpsert(batch.getKey()), batch.getValue(), SqlStorage::bindUser);
+                }
+            });
+        } catch (SQLException e) {
+            for (ApiUser user : users) {
+                user.getDirtyUserFields().markAll(userFields.get(user.getId()));
+            }
+            throw e;
+        }
     }
 
     @Override
     public void saveGuild(ApiGuild guild) throws Exception {
-        saveStatement(GUILD_SELECT_BY_ID, GUILD_UPDATE_BY_ID, GUILD_INSERT,
-            ps -> ps.setLong(1, guild.getId()),
-            ps -> {
-                // where
-                ps.setLong(5, guild.getId());
-
-                // content
-                ps.setString(1, DataConstraints.desanitize(guild.getName()));
-                ps.setString(2, DataConstraints.desanitize(guild.getIcon()));
-                ps.setBoolean(3, guild.isLeaderboardEnabled());
-                ps.setLong(4, guild.getLeaderboardChannelId());
-            },
-            ps -> {
-                // where
-                ps.setLong(1, guild.getId());
-
-                // content
-                ps.setString(2, DataConstraints.desanitize(guild.getName()));
-                ps.setString(3, DataConstraints.desanitize(guild.getIcon()));
-                ps.setBoolean(4, guild.isLeaderboardEnabled());
-                ps.setLong(5, guild.getLeaderboardChannelId());
+        Set<ApiGuild.Field> fields = guild.getDirtyFields().drain();
+        if (fields.isEmpty()) {
+            return;
+        }
+
+        try {
+            executeStatement(guildUpsert(fields), ps -> bindGuild(ps, guild));
+        } catch (SQLException e) {
+            guild.getDirtyFields().markAll(fields);
+            throw e;
+        }
+    }
+
+    @Override
+    public void saveGuilds(Collection<ApiGuild> guilds) throws Exception {
+        Map<Long, ApiGuild> uniqueGuilds = new LinkedHashMap<>();
+        Map<Long, Set<ApiGuild.Field>> guildFields = new HashMap<>();
+        for (ApiGuild guild : guilds) {
+            uniqueGuilds.put(guild.getId(), guild);
+            guildFields.computeIfAbsent(guild.getId(), id -> EnumSet.noneOf(ApiGuild.Field.class))
+                .addAll(guild.getDirtyFields().drain());
+        }
+
+        Map<Set<ApiGuild.Field>, List<ApiGuild>> batches = new HashMap<>();
+        uniqueGuilds.forEach((id, guild) -> {
+            Set<ApiGuild.Field> fields = guildFields.get(id);
+            if (!fields.isEmpty()) {
+                batches.computeIfAbsent(fields, f -> new ArrayList<>()).add(guild);
+            }
+        });
+        if (batches.isEmpty()) {
+            return;
+        }
+
+        try {
+            executeTransaction(c -> {
+                for (Map.Entry<Set<ApiGuild.Field>, List<ApiGuild>> batch : batches.entrySet()) {
+                    executeBatch(c, guildUpsert(batch.getKey()), batch.getValue(), SqlStorage::bindGuild);
+                }
             });
+        } catch (SQLException e) {
+            for (ApiGuild guild : guilds) {
+                guild.getDirtyFields().markAll(guildFields.get(guild.getId()));
+            }
+            throw e;
+        }
     }
 
     @Override
     public void saveMember(ApiMember member) throws Exception {
-        saveUser(member);
-        saveStatement(MEMBER_SELECT_BY_IDS, MEMBER_UPDATE_BY_IDS, MEMBER_INSERT,
-            ps -> {
-                ps.setLong(1, member.getId());
-                ps.setLong(2, member.getGuildId());
-            },
-            ps -> {
-                // where
-                ps.setLong(7, member.getId());
-                ps.setLong(8, member.getGuildId());
-
-                // content
-                ps.setString(1, DataConstraints.desanitize(member.getNickname().orElse(null)));
-                ps.setString(2, DataConstraints.desanitize(member.getGuildAvatar()));
-                ps.setString(3, DataConstraints.desanitize(member.getBiography().orElse(null)));
-                ps.setLong(4, member.getExperience());
-                ps.setLong(5, member.getVoiceActivity());
-                ps.setLong(6, member.getPlacement());
-            },
-            ps -> {
-                // where
-                ps.setLong(1, member.getId());
-                ps.setLong(2, member.getGuildId());
-
-                // content
-                ps.setString(3, DataConstraints.desanitize(member.getNickname().orElse(null)));
-                ps.setString(4, DataConstraints.desanitize(member.getGuildAvatar()));
-                ps.setString(5, DataConstraints.desanitize(member.getBiography().orElse(null)));
-                ps.setLong(6, member.getExperience());
-                ps.setLong(7, member.getVoiceActivity());
-                ps.setLong(8, member.getPlacement());
+        Set<ApiUser.Field> userFields = member.drainDirtyUserFields();
+        Set<ApiMember.Field> memberFields = member.getDirtyMemberFields().drain();
+        if (userFields.isEmpty() && memberFields.isEmpty()) {
+            return;
+        }
+
+        try (Connection c = this.connectionFactory.getConnection()) {
+            if (!userFields.isEmpty()) {
+                executeStatement(c, userUpsert(userFields), ps -> bindUser(ps, member));
+            }
+            if (!memberFields.isEmpty()) {
+                executeStatement(c, memberUpsert(memberFields), ps -> bindMember(ps, member));
+            }
+        } catch (SQLException e) {
+            member.getDirtyUserFields().markAll(userFields);
+            member.getDirtyMemberFields().markAll(memberFields);
+            throw e;
+        }
+    }
+
+    @Override
+    public void saveMembers(Collection<ApiMember> members) throws Exception {
+        if (members.isEmpty()) {
+            return;
+        }
+
+        // a single batch must not upsert the same row twice (rejected by PostgreSQL once rewritten)
+        Map<Long, ApiMember> users = new LinkedHashMap<>();
+        Map<Long, Set<ApiUser.Field>> userFields = new HashMap<>();
+        Map<Long2, ApiMember> uniqueMembers = new LinkedHashMap<>();
+        Map<Long2, Set<ApiMember.Field>> memberFields = new HashMap<>();
+        for (ApiMember member : members) {
+            users.put(member.getId(), member);
+            userFields.computeIfAbsent(member.getId(), id -> EnumSet.noneOf(ApiUser.Field.class))
+                .addAll(member.drainDirtyUserFields());
+
+            Long2 key = new Long2(member.getGuildId(), member.getId());
+            uniqueMembers.put(key, member);
+            memberFields.computeIfAbsent(key, k -> EnumSet.noneOf(ApiMember.Field.class))
+                .addAll(member.getDirtyMemberFields().drain());
+        }
+
+        // rows with the same changed fields share the same statement, so can be sent as one batch
+        Map<Set<ApiUser.Field>, List<ApiMember>> userBatches = new HashMap<>();
+        users.forEach((id, member) -> {
+            Set<ApiUser.Field> fields = userFields.get(id);
+            if (!fields.isEmpty()) {
+                userBatches.computeIfAbsent(fields, f -> new ArrayList<>()).add(member);
+            }
+        });
+
+        Map<Set<ApiMember.Field>, List<ApiMember>> memberBatches = new HashMap<>();
+        uniqueMembers.forEach((key, member) -> {
+            Set<ApiMember.Field> fields = memberFields.get(key);
+            if (!fields.isEmpty()) {
+                memberBatches.computeIfAbsent(fields, f -> new ArrayList<>()).add(member);
+            }
+        });
+
+        if (userBatches.isEmpty() && memberBatches.isEmpty()) {
+            return;
+        }
+
+        try {
+            executeTransaction(c -> {
+                for (Map.Entry<Set<ApiUser.Field>, List<ApiMember>> batch : userBatches.entrySet()) {
+                    executeBatch(c, userUpsert(batch.getKey()), batch.getValue(), SqlStorage::bindUser);
+                }
+                for (Map.Entry<Set<ApiMember.Field>, List<ApiMember>> batch : memberBatches.entrySet()) {
+                    executeBatch(c, memberUpsert(batch.getKey()), batch.getValue(), SqlStorage::bindMember);
+                }
             });
+        } catch (SQLException e) {
+            for (ApiMember member : members) {
+                member.getDirtyUserFields().markAll(userFields.get(member.getId()));
+                member.getDirtyMemberFields().markAll(memberFields.get(new Long2(member.getGuildId(), member.getId())));
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the upsert which writes the whole user row when inserting, but only the given fields when updating.
+     */
+    private String userUpsert(Set<ApiUser.Field> fields) {
+        return this.userUpdates.computeIfAbsent(fields, f -> register(this.connectionFactory.getDialect()
+            .upsert("{prefix}users", USER_KEYS, USER_COLUMNS, columns(f, SqlStorage::userColumn))));
+    }
+
+    private String guildUpsert(Set<ApiGuild.Field> fields) {
+        return this.guildUpdates.computeIfAbsent(fields, f -> register(this.connectionFactory.getDialect()
+            .upsert("{prefix}guilds", GUILD_KEYS, GUILD_COLUMNS, columns(f, SqlStorage::guildColumn))));
+    }
+
+    private String memberUpsert(Set<ApiMember.Field> fields) {
+        return this.memberUpdates.computeIfAbsent(fields, f -> register(this.connectionFactory.getDialect()
+            .upsert("{prefix}members", MEMBER_KEYS, MEMBER_COLUMNS, columns(f, SqlStorage::memberColumn))));
+    }
+
+    private static <F extends Enum<F>> List<String> columns(Set<F> fields, Function<F, String> mapper) {
+        return fields.stream().map(mapper).collect(Collectors.toList());
+    }
+
+    private static String userColumn(ApiUser.Field field) {
+        return switch (field) {
+            case USERNAME -> "username";
+            case GLOBAL_NAME -> "global_name";
+            case AVATAR -> "avatar";
+            case LAST_SEEN -> "last_seen";
+        };
+    }
+
+    private static String guildColumn(ApiGuild.Field field) {
+        return switch (field) {
+            case NAME -> "name";
+            case ICON -> "icon";
+            case LEADERBOARD_ENABLED -> "leaderboard";
+            case LEADERBOARD_CHANNEL -> "leaderboard_channel";
+        };
+    }
+
+    private static String memberColumn(ApiMember.Field field) {
+        return switch (field) {
+            case NICKNAME -> "nickname";
+            case GUILD_AVATAR -> "guild_avatar";
+            case BIOGRAPHY -> "biography";
+            case EXPERIENCE -> "experience";
+            case VOICE_ACTIVITY -> "voice_activity";
+            case PLACEMENT -> "placement";
+        };
+    }
+
+    private static void bindMember(PreparedStatement ps, ApiMember member) throws SQLException {
+        ps.setLong(1, member.getId());
+        ps.setLong(2, member.getGuildId());
+        ps.setString(3, DataConstraints.desanitize(member.getNickname().orElse(null)));
+        ps.setString(4, DataConstraints.desanitize(member.getGuildAvatar()));
+        ps.setString(5, DataConstraints.desanitize(member.getBiography().orElse(null)));
+        ps.setLong(6, member.getExperience());
+        ps.setLong(7, member.getVoiceActivity());
+        ps.setLong(8, member.getPlacement());
+    }
+
+    @Override
+    public void incrementMemberStats(long guildId, long userId, long experience, long voiceActivity)
+        throws Exception {
+        incrementMemberStats(List.of(new MemberStatsDelta(guildId, userId, experience, voiceActivity)));
+    }
+
+    @Override
+    public void incrementMemberStats(Collection<MemberStatsDelta> deltas) throws Exception {
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        // a member may have deltas for several days, but a batch must not upsert the same row twice
+        Collection<MemberStatsDelta> members = coalesce(deltas);
+
+        // the gains are counted towards the buckets of the day they were granted, whenever they are written
+        Map<ExperienceWindow, Map<Integer, Collection<MemberStatsDelta>>> gains = new EnumMap<>(ExperienceWindow.class);
+        for (ExperienceWindow window : ExperienceWindow.values()) {
+            Map<Integer, List<MemberStatsDelta>> buckets = deltas.stream()
+                .filter(delta -> delta.experience() != 0)
+                .collect(Collectors.groupingBy(delta -> window.bucket(delta.date()), TreeMap::new,
+                    Collectors.toList()));
+
+            Map<Integer, Collection<MemberStatsDelta>> coalesced = new TreeMap<>();
+            buckets.forEach((bucket, bucketDeltas) -> coalesced.put(bucket, coalesce(bucketDeltas)));
+            gains.put(window, coalesced);
+        }
+
+        executeTransaction(c -> {
+            executeBatch(c, this.memberIncrement, members, (ps, delta) -> bindMemberIncrement(ps, delta.guildId(),
+                delta.userId(), delta.experience(), delta.voiceActivity()));
+
+            // keep the total gained within each bucket of each window up to date, so that rankings over a window
+            // never need to sum the individual gains
+            for (Map.Entry<ExperienceWindow, Map<Integer, Collection<MemberStatsDelta>>> window : gains.entrySet()) {
+                for (Map.Entry<Integer, Collection<MemberStatsDelta>> bucket : window.getValue().entrySet()) {
+                    executeBatch(c, this.gainIncrements.get(window.getKey()), bucket.getValue(), (ps, delta) -> {
+                        ps.setLong(1, delta.guildId());
+                        ps.setInt(2, bucket.getKey());
+                        ps.setLong(3, delta.userId());
+                        ps.setLong(4, delta.experience());
+                    });
+                }
+            }
+        });
+    }
+
+    /**
+     * Combines the deltas of the same member, whatever their day.
+     */
+    private static Collection<MemberStatsDelta> coalesce(Collection<MemberStatsDelta> deltas) {
+        Map<Long2, MemberStatsDelta> members = new LinkedHashMap<>();
+        for (MemberStatsDelta delta : deltas) {
+            members.merge(new Long2(delta.guildId(), delta.userId()), delta, MemberStatsDelta::add);
+        }
+        return members.values();
+    }
+
+    private static void bindMemberIncrement(PreparedStatement ps, long guildId, long userId, long experience,
+                                            long voiceActivity) throws SQLException {
+        ps.setLong(1, userId);
+        ps.setLong(2, guildId);
+        ps.setString(3, DataConstraints.desanitize(null));
+        ps.setString(4, DataConstraints.desanitize(null));
+        ps.setString(5, DataConstraints.desanitize(null));
+        ps.setLong(6, experience);
+        ps.setLong(7, voiceActivity);
+        ps.setLong(8, -1);
+    }
+
+    private static String gainTable(ExperienceWindow window) {
+        return switch (window) {
+            case DAY -> "{prefix}experience_daily";
+            case WEEK -> "{prefix}experience_weekly";
+            case MONTH -> "{prefix}experience_monthly";
+        };
+    }
+
+    private static void bindGuild(PreparedStatement ps, ApiGuild guild) throws SQLException {
+        ps.setLong(1, guild.getId());
+        ps.setString(2, DataConstraints.desanitize(guild.getName()));
+        ps.setString(3, DataConstraints.desanitize(guild.getIcon()));
+        ps.setBoolean(4, guild.isLeaderboardEnabled());
+        ps.setLong(5, guild.getLeaderboardChannelId());
+    }
+
+    private static void bindUser(PreparedStatement ps, ApiUser user) throws SQLException {
+        ps.setLong(1, user.getId());
+        ps.setString(2, DataConstraints.desanitize(user.getUsername(), true));
+        ps.setString(3, DataConstraints.desanitize(user.getGlobalName().orElse(null)));
+        ps.setString(4, DataConstraints.desanitize(user.getAvatar()));
+        ps.setLong(5, user.getLastSeen().toEpochMilli());
     }
 
     @Override
     public Set<Snowflake> getUniqueUsers() throws Exception {
-        return getAllAsSet(USER_SELECT_IDS, null, rs -> Snowflake.of(rs.getLong("id")));
+        Set<Snowflake> users = new HashSet<>();
+        forEachUserId(id -> users.add(Snowflake.of(id)));
+        return users;
     }
 
     @Override
     public Set<Snowflake> getUniqueGuilds() throws Exception {
-        return getAllAsSet(GUILD_SELECT_IDS, null, rs -> Snowflake.of(rs.getLong("id")));
+        Set<Snowflake> guilds = new HashSet<>();
+        forEachGuildId(id -> guilds.add(Snowflake.of(id)));
+        return guilds;
     }
 
     @Override
     public Set<Snowflake> getUniqueMembers() throws Exception {
-        return getAllAsSet(MEMBER_SELECT_USER_IDS, null, rs -> Snowflake.of(rs.getLong("user_id")));
+        Set<Snowflake> members = new HashSet<>();
+        forEachMemberId(id -> members.add(Snowflake.of(id)));
+        return members;
     }
 
     @Override
     public Set<Snowflake> getUniqueMembers(long guildId) throws Exception {
-        return getAllAsSet(MEMBER_SELECT_USER_ID_BY_GUILD_ID, ps -> ps.setLong(1, guildId),
-            rs -> Snowflake.of(rs.getLong("user_id")));
+        Set<Snowflake> members = new HashSet<>();
+        forEachMemberId(guildId, id -> members.add(Snowflake.of(id)));
+        return members;
+    }
+
+    @Override
+    public void forEachUserId(LongConsumer visitor) throws Exception {
+        streamIds(USER_SELECT_IDS, null, visitor);
+    }
+
+    @Override
+    public void forEachGuildId(LongConsumer visitor) throws Exception {
+        streamIds(GUILD_SELECT_IDS, null, visitor);
+    }
+
+    @Override
+    public void forEachMemberId(LongConsumer visitor) throws Exception {
+        streamIds(MEMBER_SELECT_USER_IDS, null, visitor);
+    }
+
+    @Override
+    public void forEachMemberId(long guildId, LongConsumer visitor) throws Exception {
+        streamIds(MEMBER_SELECT_USER_ID_BY_GUILD_ID, ps -> ps.setLong(1, guildId), visitor);
+    }
+
+    @Override
+    public void forEachMemberExperience(long guildId, int limit, ExperienceVisitor visitor) throws Exception {
+        // read from the primary, as increments written before are expected to be included
+        stream(Consistency.LATEST, MEMBER_SELECT_EXPERIENCE_BY_GUILD_ID, ps -> {
+            ps.setLong(1, guildId);
+            ps.setInt(2, limit);
+        }, rs -> visitor.accept(rs.getLong("user_id"), rs.getLong("experience")));
+    }
+
+    /**
+     * Processes the query once, so that it doesn't need to be processed again when executed.
+     */
+    private String register(String query) {
+        this.processedQueries.put(query, this.statementProcessor.process(query));
+        return query;
+    }
+
+    /**
+     * Gets the processed form of the query, only processing it if it hasn't been registered.
+     */
+    private String process(String query) {
+        String processed = this.processedQueries.get(query);
+        return processed != null ? processed : this.statementProcessor.process(query);
+    }
+
+    /**
+     * How up to date the data read by a query needs to be
+     */
+    private enum Consistency {
+
+        /**
+         * Read from the primary database, reflecting every completed write
+         */
+        LATEST,
+
+        /**
+         * May be read from a replica, whose data can lag slightly behind the primary
+         */
+        STALE_ALLOWED;
+
+        Connection getConnection(ConnectionFactory connectionFactory) throws SQLException {
+            return connectionFactory.getReadConnection(this == STALE_ALLOWED);
+        }
     }
 
     @FunctionalInterface
@@ -371,7 +1296,7 @@ public class SqlStorage implements StorageImplementation {
 
     private void executeStatement(Connection c, String query, @Nullable StatementConsumer consumer)
         throws SQLException {
-        try (PreparedStatement statement = c.prepareStatement(this.statementProcessor.process(query))) {
+        try (PreparedStatement statement = c.prepareStatement(process(query))) {
             if (consumer != null) {
                 consumer.accept(statement);
             }
@@ -385,9 +1310,77 @@ public class SqlStorage implements StorageImplementation {
         }
     }
 
+    @FunctionalInterface
+    private interface BatchConsumer<T> {
+
+        void accept(PreparedStatement ps, T value) throws SQLException;
+    }
+
+    @FunctionalInterface
+    private interface TransactionConsumer {
+
+        void accept(Connection c) throws SQLException;
+    }
+
+    /**
+     * Runs the given action on a single connection, within a single transaction.
+     */
+    private void executeTransaction(TransactionConsumer consumer) throws SQLException {
+        try (Connection c = this.connectionFactory.getConnection()) {
+            boolean autoCommit = c.getAutoCommit();
+            c.setAutoCommit(false);
+            try {
+                consumer.accept(c);
+                c.commit();
+            } catch (SQLException e) {
+                c.rollback();
+                throw e;
+            } finally {
+                c.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    /**
+     * Executes the query once for each of the given values, sending them to the database in chunks of
+     * {@link #MAX_BATCH_SIZE}.
+     */
+    private <T> void executeBatch(Connection c, String query, Collection<T> values, BatchConsumer<T> consumer)
+        throws SQLException {
+        if (values.isEmpty()) {
+            return;
+        }
+
+        try (PreparedStatement statement = c.prepareStatement(process(query))) {
+            int size = 0;
+            for (T value : values) {
+                consumer.accept(statement, value);
+                statement.addBatch();
+
+                if (++size == MAX_BATCH_SIZE) {
+                    statement.executeBatch();
+                    size = 0;
+                }
+            }
+            if (size != 0) {
+                statement.executeBatch();
+            }
+        }
+    }
+
+    private int executeUpdate(Connection c, String query, @Nullable StatementConsumer consumer)
+        throws SQLException {
+        try (PreparedStatement statement = c.prepareStatement(process(query))) {
+            if (consumer != null) {
+                consumer.accept(statement);
+            }
+            return statement.executeUpdate();
+        }
+    }
+
     private <T> T executeQuery(Connection c, String query, @Nullable StatementConsumer consumer,
                                ResultSetFunction<T> function) throws SQLException {
-        try (PreparedStatement statement = c.prepareStatement(this.statementProcessor.process(query))) {
+        try (PreparedStatement statement = c.prepareStatement(process(query))) {
             if (consumer != null) {
                 consumer.accept(statement);
             }
@@ -398,22 +1391,69 @@ public class SqlStorage implements StorageImplementation {
         }
     }
 
-    private <T> T executeQuery(String query, @Nullable StatementConsumer consumer, ResultSetFunction<T> function)
-        throws SQLException {
-        try (Connection c = this.connectionFactory.getConnection()) {
+    private <T> T executeQuery(Consistency consistency, String query, @Nullable StatementConsumer consumer,
+                               ResultSetFunction<T> function) throws SQLException {
+        try (Connection c = consistency.getConnection(this.connectionFactory)) {
             return executeQuery(c, query, consumer, function);
         }
     }
 
+    /**
+     * Passes the first column of each row to the visitor as the rows are read, see
+     * {@link #stream(Consistency, String, StatementConsumer, RowVisitor)}.
+     */
+    private void streamIds(String query, @Nullable StatementConsumer consumer, LongConsumer visitor)
+        throws SQLException {
+        stream(Consistency.STALE_ALLOWED, query, consumer, rs -> visitor.accept(rs.getLong(1)));
+    }
+
+    /**
+     * Passes each row to the visitor as the rows are read, fetching them from the database {@link #fetchSize} rows
+     * at a time instead of all at once.
+     *
+     * <p>The query runs within a transaction, as PostgreSQL only uses a cursor when auto-commit is disabled.
+     * MySQL uses a cursor as the connection is opened with {@code useCursorFetch}, and MariaDB streams the
+     * result by default once a fetch size is set.</p>
+     */
+    private void stream(Consistency consistency, String query, @Nullable StatementConsumer consumer,
+                        RowVisitor visitor) throws SQLException {
+        try (Connection c = consistency.getConnection(this.connectionFactory)) {
+            boolean autoCommit = c.getAutoCommit();
+            c.setAutoCommit(false);
+            try {
+                executeQuery(c, query, ps -> {
+                    ps.setFetchSize(this.fetchSize);
+                    if (consumer != null) {
+                        consumer.accept(ps);
+                    }
+                }, rs -> {
+                    while (rs.next()) {
+                        visitor.accept(rs);
+                    }
+                    return null;
+                });
+            } finally {
+                c.rollback();
+                c.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowVisitor {
+
+        void accept(ResultSet rs) throws SQLException;
+    }
+
     @FunctionalInterface
     private interface CollectionFactory<T> {
 
         Collection<T> create();
     }
 
-    private <T> Collection<T> getAll(String query, @Nullable StatementConsumer consumer, ResultSetFunction<T> function,
-                                     CollectionFactory<T> factory) throws SQLException {
-        return executeQuery(query, consumer, rs -> {
+    private <T> Collection<T> getAll(Consistency consistency, String query, @Nullable StatementConsumer consumer,
+                                     ResultSetFunction<T> function, CollectionFactory<T> factory) throws SQLException {
+        return executeQuery(consistency, query, consumer, rs -> {
             Collection<T> collection = factory.create();
             while (rs.next()) {
                 collection.add(function.apply(rs));
@@ -422,31 +1462,14 @@ public class SqlStorage implements StorageImplementation {
         });
     }
 
-    private <T> List<T> getAllAsList(String query, @Nullable StatementConsumer consumer, ResultSetFunction<T> function)
-        throws SQLException {
-        return (List<T>) getAll(query, consumer, function, ArrayList::new);
-    }
-
-    private <T> Set<T> getAllAsSet(String query, @Nullable StatementConsumer consumer, ResultSetFunction<T> function)
-        throws SQLException {
-        return (Set<T>) getAll(query, consumer, function, HashSet::new);
+    private <T> List<T> getAllAsList(Consistency consistency, String query, @Nullable StatementConsumer consumer,
+                                     ResultSetFunction<T> function) throws SQLException {
+        return (List<T>) getAll(consistency, query, consumer, function, ArrayList::new);
     }
 
-    private void saveStatement(
-        String existsQuery,
-        String updateQuery,
-        String insertQuery,
-        @Nullable StatementConsumer existsAction,
-        @Nullable StatementConsumer updateAction,
-        @Nullable StatementConsumer insertAction
-    ) throws SQLException {
-        try (Connection c = this.connectionFactory.getConnection()) {
-            if (executeQuery(c, existsQuery, existsAction, ResultSet::next)) {
-                executeStatement(c, updateQuery, updateAction);
-            } else {
-                executeStatement(c, insertQuery, insertAction);
-            }
-        }
+    private <T> Set<T> getAllAsSet(Consistency consistency, String query, @Nullable StatementConsumer consumer,
+                                   ResultSetFunction<T> function) throws SQLException {
+        return (Set<T>) getAll(consistency, query, consumer, function, HashSet::new);
     }
 
     private static List<String> listTables(Connection connection) throws SQLException {
@@ -459,7 +1482,79 @@ public class SqlStorage implements StorageImplementation {
         return tables;
     }
 
-    private void applySchema(List<String> existingTables) throws IOException, SQLException {
+    private static Set<String> listIndexes(Connection connection, Collection<String> tables) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+
+        // resolve the names as stored by the database, as some drivers match them case-sensitively
+        List<String> tableNames = new ArrayList<>();
+        try (var rs = metaData.getTables(connection.getCatalog(), null, "%", null)) {
+            while (rs.next()) {
+                String table = rs.getString(3);
+                if (tables.contains(table.toLowerCase(Locale.ROOT))) {
+                    tableNames.add(table);
+                }
+            }
+        }
+
+        Set<String> indexes = new HashSet<>();
+        for (String table : tableNames) {
+            try (var rs = metaData.getIndexInfo(connection.getCatalog(), null, table, false, true)) {
+                while (rs.next()) {
+                    String index = rs.getString("INDEX_NAME");
+                    if (index != null) {
+                        indexes.add(index.toLowerCase(Locale.ROOT));
+                    }
+                }
+            }
+        }
+        return indexes;
+    }
+
+    /**
+     * Drops the unnamed (user_id, guild_id) index which older H2 schemas created on the members table, as it
+     * duplicates the primary key.
+     *
+     * <p>H2 generates the name of an unnamed index, so it can't be dropped by the schema, and is found by its
+     * columns instead.</p>
+     */
+    private void dropUnnamedMemberIndex(Connection connection) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        String members = this.statementProcessor.process("{prefix}members");
+
+        String table = null;
+        try (var rs = metaData.getTables(connection.getCatalog(), null, "%", null)) {
+            while (rs.next()) {
+                if (rs.getString(3).equalsIgnoreCase(members)) {
+                    table = rs.getString(3);
+                }
+            }
+        }
+        if (table == null) {
+            return;
+        }
+
+        // the columns of each non-unique index, in order
+        Map<String, List<String>> indexColumns = new LinkedHashMap<>();
+        try (var rs = metaData.getIndexInfo(connection.getCatalog(), null, table, false, true)) {
+            while (rs.next()) {
+                String index = rs.getString("INDEX_NAME");
+                if (index != null && rs.getBoolean("NON_UNIQUE")) {
+                    indexColumns.computeIfAbsent(index, __ -> new ArrayList<>())
+                        .add(rs.getString("COLUMN_NAME").toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+
+        try (Statement s = connection.createStatement()) {
+            for (Map.Entry<String, List<String>> index : indexColumns.entrySet()) {
+                if (index.getValue().equals(List.of("user_id", "guild_id"))) {
+                    s.execute("DROP INDEX \"" + index.getKey() + "\"");
+                }
+            }
+        }
+    }
+
+    private void applySchema() throws IOException, SQLException {
         String schemaFileName =
             "me/kubbidev/moonrise/schema/" + this.getImplementationName().toLowerCase(Locale.ROOT) + ".sql";
 
@@ -469,11 +1564,27 @@ public class SqlStorage implements StorageImplementation {
                 throw new IOException("Couldn't locate schema file for " + this.getImplementationName());
             }
 
-            statements = SchemaReader.getStatements(is).stream()
-                .map(this.statementProcessor::process).collect(ImmutableCollectors.toList());
+            statements = SchemaReader.getStatements(is);
         }
+        if (this.memberPartitions > 0) {
+            statements = partitionMembers(statements);
+        }
+        statements = statements.stream().map(this.statementProcessor::process).collect(ImmutableCollectors.toList());
 
-        statements = SchemaReader.filterStatements(statements, existingTables);
+        try (Connection c = this.connectionFactory.getConnection()) {
+            List<String> tables = listTables(c);
+            Set<String> indexes = listIndexes(c, statements.stream()
+                .filter(s -> s.startsWith("CREATE TABLE"))
+                .map(SchemaReader::tableFromStatement)
+                .filter(tables::contains)
+                .collect(ImmutableCollectors.toList()));
+
+            statements = SchemaReader.filterStatements(statements, tables, indexes);
+
+            if (this.connectionFactory.getDialect() == SqlDialect.H2) {
+                dropUnnamedMemberIndex(c);
+            }
+        }
         if (statements.isEmpty()) {
             return;
         }
@@ -509,4 +1620,25 @@ public class SqlStorage implements StorageImplementation {
             }
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Replaces the statement creating the members table with statements creating it hash partitioned by guild.
+     *
+     * <p>Every key of the members table includes the guild id, so queries for a single guild, such as the
+     * leaderboards, only read the partition holding that guild.</p>
+     */
+    private List<String> partitionMembers(List<String> statements) {
+        SqlDialect dialect = this.connectionFactory.getDialect();
+        List<String> partitioned = new ArrayList<>(statements.size() + this.memberPartitions);
+        for (String statement : statements) {
+            if (statement.startsWith("CREATE TABLE")
+                && SchemaReader.tableFromStatement(statement).equals("{prefix}members")) {
+                partitioned.addAll(dialect.partitionByHash(statement, "{prefix}members", "guild_id",
+                    this.memberPartitions));
+            } else {
+                partitioned.add(statement);
+            }
+        }
+        return partitioned;
+    }
+}
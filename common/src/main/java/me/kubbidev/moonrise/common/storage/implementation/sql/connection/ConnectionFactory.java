@@ -1,6 +1,7 @@
 package me.kubbidev.moonrise.common.storage.implementation.sql.connection;
 
 import me.kubbidev.moonrise.common.storage.StorageMetadata;
+import me.kubbidev.moonrise.common.storage.implementation.sql.SqlDialect;
 import me.kubbidev.moonrise.common.storage.implementation.sql.StatementProcessor;
 import me.kubbidev.moonrise.common.plugin.MoonRisePlugin;
 
@@ -19,5 +20,42 @@ public interface ConnectionFactory {
 
     StatementProcessor getStatementProcessor();
 
+    SqlDialect getDialect();
+
     Connection getConnection() throws SQLException;
+
+    /**
+     * Gets the maximum number of connections which can be in use at once.
+     *
+     * @return the maximum number of connections
+     */
+    int getMaximumConnections();
+
+    /**
+     * Gets a connection which is only used to read data.
+     *
+     * <p>Factories which don't distinguish between reads and writes return a regular
+     * {@link #getConnection() connection}.</p>
+     *
+     * @return the connection
+     * @throws SQLException if any error occurs
+     */
+    default Connection getReadConnection() throws SQLException {
+        return getConnection();
+    }
+
+    /**
+     * Gets a connection which is only used to read data, optionally allowing it to be served by a replica
+     * whose data may lag behind writes made using {@link #getConnection()}.
+     *
+     * <p>Factories without a replica, or whose replica is unhealthy, return a regular
+     * {@link #getReadConnection() read connection}.</p>
+     *
+     * @param allowStale if the data read may be slightly out of date
+     * @return the connection
+     * @throws SQLException if any error occurs
+     */
+    default Connection getReadConnection(boolean allowStale) throws SQLException {
+        return getReadConnection();
+    }
 }
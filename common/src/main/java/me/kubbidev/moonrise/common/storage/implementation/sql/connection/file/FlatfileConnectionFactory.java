@@ -1,5 +1,6 @@
 package me.kubbidev.moonrise.common.storage.implementation.sql.connection.file;
 
+import me.kubbidev.moonrise.common.plugin.MoonRisePlugin;
 import me.kubbidev.moonrise.common.storage.StorageMetadata;
 import me.kubbidev.moonrise.common.storage.implementation.sql.connection.ConnectionFactory;
 
@@ -11,20 +12,27 @@ import java.sql.SQLException;
 
 /**
  * Abstract {@link ConnectionFactory} using a file based database driver.
+ *
+ * <p>All writes go through a single connection. If enabled, reads are spread over a small pool of read-only
+ * connections so that they don't have to wait for writes to complete.</p>
  */
 abstract class FlatfileConnectionFactory implements ConnectionFactory {
 
     /**
-     * The current open connection, if any
+     * The path to the database file
      */
-    private       NonClosableConnection connection;
+    private final Path file;
     /**
-     * The path to the database file
+     * The number of read-only connections, or 0 to perform reads using the write connection
      */
-    private final Path                  file;
+    private final int  readConnections;
 
-    FlatfileConnectionFactory(Path file) {
+    private FlatfileConnectionPool writePool;
+    private FlatfileConnectionPool readPool;
+
+    FlatfileConnectionFactory(Path file, int readConnections) {
         this.file = file;
+        this.readConnections = readConnections;
     }
 
     /**
@@ -36,20 +44,58 @@ abstract class FlatfileConnectionFactory implements ConnectionFactory {
      */
     protected abstract Connection createConnection(Path file) throws SQLException;
 
+    /**
+     * Creates a read-only connection to the database.
+     *
+     * @param file the database file
+     * @return the connection
+     * @throws SQLException if any error occurs
+     */
+    protected abstract Connection createReadConnection(Path file) throws SQLException;
+
+    /**
+     * Gets if reads are performed using a separate pool of read-only connections.
+     *
+     * @return if read connections are enabled
+     */
+    protected boolean isReadPoolEnabled() {
+        return this.readConnections > 0;
+    }
+
+    @Override
+    public void init(MoonRisePlugin plugin) {
+        this.writePool = new FlatfileConnectionPool("write", 1, () -> createConnection(this.file));
+        if (isReadPoolEnabled()) {
+            this.readPool = new FlatfileConnectionPool("read", this.readConnections,
+                () -> createReadConnection(this.file));
+        }
+    }
+
+    @Override
+    public int getMaximumConnections() {
+        return isReadPoolEnabled() ? 1 + this.readConnections : 1;
+    }
+
     @Override
     public Connection getConnection() throws SQLException {
-        NonClosableConnection connection = this.connection;
-        if (connection == null || connection.isClosed()) {
-            connection = new NonClosableConnection(createConnection(this.file));
-            this.connection = connection;
+        return this.writePool.getConnection();
+    }
+
+    @Override
+    public Connection getReadConnection() throws SQLException {
+        if (this.readPool == null) {
+            return getConnection();
         }
-        return connection;
+        return this.readPool.getConnection();
     }
 
     @Override
     public void shutdown() throws Exception {
-        if (this.connection != null) {
-            this.connection.shutdown();
+        if (this.readPool != null) {
+            this.readPool.shutdown();
+        }
+        if (this.writePool != null) {
+            this.writePool.shutdown();
         }
     }
 
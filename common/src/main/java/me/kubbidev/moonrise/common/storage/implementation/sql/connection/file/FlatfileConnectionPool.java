@@ -0,0 +1,105 @@
+package me.kubbidev.moonrise.common.storage.implementation.sql.connection.file;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A small fixed size pool of connections to a file based database.
+ *
+ * <p>Connections are opened lazily, and are checked out exclusively until they are
+ * {@link Connection#close() closed}.</p>
+ */
+final class FlatfileConnectionPool {
+
+    /**
+     * The maximum time to wait for a connection to be returned to the pool
+     */
+    private static final long CONNECTION_TIMEOUT_SECONDS = 30;
+
+    @FunctionalInterface
+    interface ConnectionSupplier {
+
+        Connection create() throws SQLException;
+    }
+
+    private final String             name;
+    private final int                size;
+    private final ConnectionSupplier supplier;
+
+    /**
+     * The connections which are not currently checked out
+     */
+    private final BlockingQueue<NonClosableConnection> idle;
+    /**
+     * All connections opened by the pool
+     */
+    private final List<NonClosableConnection>          connections = new CopyOnWriteArrayList<>();
+
+    FlatfileConnectionPool(String name, int size, ConnectionSupplier supplier) {
+        this.name = name;
+        this.size = size;
+        this.supplier = supplier;
+        this.idle = new ArrayBlockingQueue<>(size);
+    }
+
+    /**
+     * Checks out a connection, waiting for one to be returned if they are all in use.
+     *
+     * @return the connection
+     * @throws SQLException if a connection couldn't be opened, or none was returned in time
+     */
+    Connection getConnection() throws SQLException {
+        NonClosableConnection connection = this.idle.poll();
+        if (connection == null) {
+            connection = tryOpen();
+        }
+        if (connection == null) {
+            try {
+                connection = this.idle.poll(CONNECTION_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted whilst waiting for a " + this.name + " connection", e);
+            }
+            if (connection == null) {
+                throw new SQLException("Timed out waiting for a " + this.name + " connection");
+            }
+        }
+
+        if (connection.isClosed()) {
+            this.connections.remove(connection);
+            connection = open();
+        }
+
+        connection.lease();
+        return connection;
+    }
+
+    private synchronized NonClosableConnection tryOpen() throws SQLException {
+        if (this.connections.size() >= this.size) {
+            return null;
+        }
+        return open();
+    }
+
+    private NonClosableConnection open() throws SQLException {
+        NonClosableConnection connection = new NonClosableConnection(this.supplier.create(), this.idle::offer);
+        this.connections.add(connection);
+        return connection;
+    }
+
+    /**
+     * Closes all connections opened by the pool.
+     */
+    void shutdown() throws SQLException {
+        for (NonClosableConnection connection : this.connections) {
+            connection.shutdown();
+        }
+        this.connections.clear();
+        this.idle.clear();
+    }
+}
@@ -1,5 +1,6 @@
 package me.kubbidev.moonrise.common.storage.implementation.sql.connection.file;
 
+import me.kubbidev.moonrise.common.storage.implementation.sql.SqlDialect;
 import me.kubbidev.moonrise.common.storage.implementation.sql.StatementProcessor;
 import me.kubbidev.moonrise.common.dependencies.Dependency;
 import me.kubbidev.moonrise.common.plugin.MoonRisePlugin;
@@ -21,8 +22,8 @@ public class H2ConnectionFactory extends FlatfileConnectionFactory {
 
     private Constructor<?> connectionConstructor;
 
-    public H2ConnectionFactory(Path file) {
-        super(file);
+    public H2ConnectionFactory(Path file, int readConnections) {
+        super(file, readConnections);
     }
 
     @Override
@@ -32,6 +33,8 @@ public class H2ConnectionFactory extends FlatfileConnectionFactory {
 
     @Override
     public void init(MoonRisePlugin plugin) {
+        super.init(plugin);
+
         ClassLoader classLoader = plugin.getDependencyManager().obtainClassLoaderWith(EnumSet.of(Dependency.H2_DRIVER));
         try {
             Class<?> connectionClass = classLoader.loadClass("org.h2.jdbc.JdbcConnection");
@@ -55,6 +58,15 @@ public class H2ConnectionFactory extends FlatfileConnectionFactory {
         }
     }
 
+    @Override
+    protected Connection createReadConnection(Path file) throws SQLException {
+        // connections within the same process share the database, and MVStore lets readers
+        // see the last committed state without blocking on the writer
+        Connection connection = createConnection(file);
+        connection.setReadOnly(true);
+        return connection;
+    }
+
     @Override
     protected Path getWriteFile() {
         // h2 appends '.mv.db' to the end of the database name
@@ -66,4 +78,9 @@ public class H2ConnectionFactory extends FlatfileConnectionFactory {
     public StatementProcessor getStatementProcessor() {
         return STATEMENT_PROCESSOR;
     }
+
+    @Override
+    public SqlDialect getDialect() {
+        return SqlDialect.H2;
+    }
 }
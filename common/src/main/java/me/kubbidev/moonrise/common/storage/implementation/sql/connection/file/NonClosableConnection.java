@@ -1,31 +1,68 @@
 package me.kubbidev.moonrise.common.storage.implementation.sql.connection.file;
 
+import org.jetbrains.annotations.Nullable;
+
 import java.sql.*;
 import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 /**
  * A wrapper around a {@link Connection} which blocks usage of the default {@link #close()} method.
+ *
+ * <p>As the connection is kept open, statements prepared with {@link #prepareStatement(String)} are cached and
+ * reused once closed.</p>
+ *
+ * <p>If the connection belongs to a {@link FlatfileConnectionPool}, {@link #close()} returns it to the pool
+ * instead.</p>
  */
 public class NonClosableConnection implements Connection {
 
-    private final Connection delegate;
+    /**
+     * The maximum number of distinct queries to cache statements for
+     */
+    private static final int MAX_CACHED_QUERIES = 64;
+
+    private final Connection             delegate;
+    private final PreparedStatementCache statementCache = new PreparedStatementCache(MAX_CACHED_QUERIES);
+
+    /**
+     * Called to return the connection to its pool, if any
+     */
+    private final @Nullable Consumer<NonClosableConnection> release;
+    private final           AtomicBoolean                   leased = new AtomicBoolean(false);
 
     public NonClosableConnection(Connection delegate) {
+        this(delegate, null);
+    }
+
+    NonClosableConnection(Connection delegate, @Nullable Consumer<NonClosableConnection> release) {
         this.delegate = delegate;
+        this.release = release;
+    }
+
+    /**
+     * Marks the connection as checked out of its pool.
+     */
+    void lease() {
+        this.leased.set(true);
     }
 
     /**
      * Actually {@link #close() closes} the underlying connection.
      */
     public final void shutdown() throws SQLException {
+        this.statementCache.close();
         this.delegate.close();
     }
 
     @Override
     public void close() throws SQLException {
-        // do nothing
+        if (this.release != null && this.leased.compareAndSet(true, false)) {
+            this.release.accept(this);
+        }
     }
 
     @Override
@@ -42,6 +79,15 @@ public class NonClosableConnection implements Connection {
         return this.delegate.unwrap(iface);
     }
 
+    @Override
+    public PreparedStatement prepareStatement(String sql) throws SQLException {
+        PreparedStatement statement = this.statementCache.take(sql);
+        if (statement == null || statement.isClosed()) {
+            statement = this.delegate.prepareStatement(sql);
+        }
+        return new CachedPreparedStatement(statement, sql, this.statementCache);
+    }
+
     // Forward to the delegate connection
 
     @Override
@@ -49,11 +95,6 @@ public class NonClosableConnection implements Connection {
         return this.delegate.createStatement();
     }
 
-    @Override
-    public PreparedStatement prepareStatement(String sql) throws SQLException {
-        return this.delegate.prepareStatement(sql);
-    }
-
     @Override
     public CallableStatement prepareCall(String sql) throws SQLException {
         return this.delegate.prepareCall(sql);
@@ -0,0 +1,87 @@
+package me.kubbidev.moonrise.common.storage.implementation.sql.connection.file;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded cache of idle {@link PreparedStatement}s, for a connection which is kept open for the whole lifetime
+ * of the storage.
+ *
+ * <p>Statements are checked out exclusively, so the connection can still be shared between threads. The least
+ * recently used queries are evicted (and their statements closed) once more than {@code maxQueries} are
+ * cached.</p>
+ */
+final class PreparedStatementCache {
+
+    /**
+     * The maximum number of idle statements kept for the same query
+     */
+    private static final int MAX_STATEMENTS_PER_QUERY = 4;
+
+    private final Map<String, Deque<PreparedStatement>> idle;
+
+    PreparedStatementCache(int maxQueries) {
+        this.idle = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Deque<PreparedStatement>> eldest) {
+                if (size() > maxQueries) {
+                    closeAll(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Checks out an idle statement for the given query.
+     *
+     * @param sql the query
+     * @return an idle statement, or null if none are cached
+     */
+    synchronized PreparedStatement take(String sql) {
+        Deque<PreparedStatement> statements = this.idle.get(sql);
+        return statements != null ? statements.poll() : null;
+    }
+
+    /**
+     * Returns a statement which is no longer in use to the cache.
+     *
+     * @param sql       the query of the statement
+     * @param statement the statement
+     * @return true if the statement was cached, false if it should be closed by the caller
+     */
+    synchronized boolean offer(String sql, PreparedStatement statement) {
+        Deque<PreparedStatement> statements = this.idle.computeIfAbsent(sql, s -> new ArrayDeque<>());
+        if (statements.size() >= MAX_STATEMENTS_PER_QUERY) {
+            return false;
+        }
+        statements.push(statement);
+        return true;
+    }
+
+    /**
+     * Closes all idle statements.
+     */
+    synchronized void close() {
+        for (Iterator<Deque<PreparedStatement>> it = this.idle.values().iterator(); it.hasNext(); ) {
+            closeAll(it.next());
+            it.remove();
+        }
+    }
+
+    private static void closeAll(Deque<PreparedStatement> statements) {
+        for (PreparedStatement statement : statements) {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                // ignore
+            }
+        }
+    }
+}
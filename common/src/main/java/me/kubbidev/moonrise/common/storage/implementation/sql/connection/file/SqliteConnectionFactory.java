@@ -1,5 +1,6 @@
 package me.kubbidev.moonrise.common.storage.implementation.sql.connection.file;
 
+import me.kubbidev.moonrise.common.storage.implementation.sql.SqlDialect;
 import me.kubbidev.moonrise.common.storage.implementation.sql.StatementProcessor;
 import me.kubbidev.moonrise.common.dependencies.Dependency;
 import me.kubbidev.moonrise.common.plugin.MoonRisePlugin;
@@ -15,8 +16,13 @@ public class SqliteConnectionFactory extends FlatfileConnectionFactory {
 
     private Constructor<?> connectionConstructor;
 
-    public SqliteConnectionFactory(Path file) {
-        super(file);
+    /**
+     * The SQLITE_OPEN_READONLY flag
+     */
+    private static final int OPEN_READONLY = 0x00000001;
+
+    public SqliteConnectionFactory(Path file, int readConnections) {
+        super(file, readConnections);
     }
 
     @Override
@@ -26,6 +32,8 @@ public class SqliteConnectionFactory extends FlatfileConnectionFactory {
 
     @Override
     public void init(MoonRisePlugin plugin) {
+        super.init(plugin);
+
         ClassLoader classLoader = plugin.getDependencyManager()
             .obtainClassLoaderWith(EnumSet.of(Dependency.SQLITE_DRIVER));
         try {
@@ -38,9 +46,26 @@ public class SqliteConnectionFactory extends FlatfileConnectionFactory {
 
     @Override
     protected Connection createConnection(Path file) throws SQLException {
+        Properties properties = new Properties();
+        if (isReadPoolEnabled()) {
+            // write-ahead logging allows the read connections to read whilst a write is in progress
+            properties.setProperty("journal_mode", "WAL");
+            properties.setProperty("synchronous", "NORMAL");
+        }
+        return createConnection(file, properties);
+    }
+
+    @Override
+    protected Connection createReadConnection(Path file) throws SQLException {
+        Properties properties = new Properties();
+        properties.setProperty("open_mode", String.valueOf(OPEN_READONLY));
+        return createConnection(file, properties);
+    }
+
+    private Connection createConnection(Path file, Properties properties) throws SQLException {
         try {
             return (Connection) this.connectionConstructor.newInstance("jdbc:sqlite:" + file.toString(),
-                file.toString(), new Properties());
+                file.toString(), properties);
         } catch (ReflectiveOperationException e) {
             if (e.getCause() instanceof SQLException) {
                 throw (SQLException) e.getCause();
@@ -53,4 +78,9 @@ public class SqliteConnectionFactory extends FlatfileConnectionFactory {
     public StatementProcessor getStatementProcessor() {
         return StatementProcessor.USE_BACKTICKS;
     }
+
+    @Override
+    public SqlDialect getDialect() {
+        return SqlDialect.SQLITE;
+    }
 }
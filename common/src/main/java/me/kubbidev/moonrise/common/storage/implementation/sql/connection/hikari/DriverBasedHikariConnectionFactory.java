@@ -2,6 +2,7 @@ package me.kubbidev.moonrise.common.storage.implementation.sql.connection.hikari
 
 import com.zaxxer.hikari.HikariConfig;
 import me.kubbidev.moonrise.common.storage.misc.StorageCredentials;
+import org.jetbrains.annotations.Nullable;
 
 import java.sql.Driver;
 import java.sql.DriverManager;
@@ -13,8 +14,8 @@ import java.util.Enumeration;
  */
 public abstract class DriverBasedHikariConnectionFactory extends HikariConnectionFactory {
 
-    public DriverBasedHikariConnectionFactory(StorageCredentials configuration) {
-        super(configuration);
+    public DriverBasedHikariConnectionFactory(StorageCredentials configuration, @Nullable StorageCredentials replica) {
+        super(configuration, replica);
     }
 
     protected abstract String driverClassName();
@@ -8,6 +8,7 @@ import me.kubbidev.moonrise.common.storage.implementation.sql.connection.Connect
 import me.kubbidev.moonrise.common.storage.misc.StorageCredentials;
 import me.kubbidev.moonrise.common.plugin.MoonRisePlugin;
 import me.kubbidev.moonrise.common.plugin.logging.PluginLogger;
+import org.jetbrains.annotations.Nullable;
 
 import java.sql.Connection;
 import java.sql.SQLException;
@@ -22,11 +23,35 @@ import java.util.concurrent.TimeUnit;
  */
 public abstract class HikariConnectionFactory implements ConnectionFactory {
 
-    private final StorageCredentials configuration;
-    private       HikariDataSource   hikari;
+    /**
+     * The number of connections kept in the pool
+     */
+    private static final int MAXIMUM_POOL_SIZE = 10;
+
+    /**
+     * How long to wait for a connection from the replica pool before reading from the primary instead
+     */
+    private static final long REPLICA_CONNECTION_TIMEOUT = TimeUnit.SECONDS.toMillis(1);
+
+    /**
+     * How long to read from the primary after failing to get a connection from the replica pool
+     */
+    private static final long REPLICA_RETRY_INTERVAL = TimeUnit.SECONDS.toMillis(30);
+
+    private final           StorageCredentials configuration;
+    private final @Nullable StorageCredentials replicaConfiguration;
+    private                 HikariDataSource   hikari;
+    private @Nullable       HikariDataSource   replica;
+    private                 PluginLogger       logger;
+
+    /**
+     * The time before which stale reads are served by the primary, as the replica is unhealthy
+     */
+    private volatile long replicaRetryTime = 0;
 
-    public HikariConnectionFactory(StorageCredentials configuration) {
+    public HikariConnectionFactory(StorageCredentials configuration, @Nullable StorageCredentials replica) {
         this.configuration = configuration;
+        this.replicaConfiguration = replica;
     }
 
     /**
@@ -82,6 +107,17 @@ public abstract class HikariConnectionFactory implements ConnectionFactory {
 
     @Override
     public void init(MoonRisePlugin plugin) {
+        this.logger = plugin.getLogger();
+        this.hikari = createDataSource(plugin, "moonrise-hikari", this.configuration, 5000L);
+        if (this.replicaConfiguration != null) {
+            this.replica = createDataSource(plugin, "moonrise-hikari-replica", this.replicaConfiguration,
+                REPLICA_CONNECTION_TIMEOUT);
+        }
+        this.postInitialize();
+    }
+
+    private HikariDataSource createDataSource(MoonRisePlugin plugin, String poolName, StorageCredentials credentials,
+                                              long connectionTimeout) {
         HikariConfig config;
         try {
             config = new HikariConfig();
@@ -91,17 +127,17 @@ public abstract class HikariConnectionFactory implements ConnectionFactory {
         }
 
         // set pool name so the logging output can be linked back to us
-        config.setPoolName("moonrise-hikari");
+        config.setPoolName(poolName);
 
         // get the database info/credentials from the config file
-        String[] addressSplit = this.configuration.address().split(":");
+        String[] addressSplit = credentials.address().split(":");
         String address = addressSplit[0];
         String port = addressSplit.length > 1 ? addressSplit[1] : defaultPort();
 
         // allow the implementation to configure the HikariConfig appropriately with these values
         try {
-            this.configureDatabase(config, address, port, this.configuration.database(), this.configuration.username(),
-                this.configuration.password());
+            this.configureDatabase(config, address, port, credentials.database(), credentials.username(),
+                credentials.password());
         } catch (NoSuchMethodError e) {
             handleClassloadingError(e, plugin);
         }
@@ -116,18 +152,17 @@ public abstract class HikariConnectionFactory implements ConnectionFactory {
         this.setProperties(config, properties);
 
         // configure the connection pool
-        config.setMaximumPoolSize(10);
-        config.setMinimumIdle(10);
+        config.setMaximumPoolSize(MAXIMUM_POOL_SIZE);
+        config.setMinimumIdle(MAXIMUM_POOL_SIZE);
         config.setMaxLifetime(1800000L);
         config.setKeepaliveTime(0L);
-        config.setConnectionTimeout(5000L);
+        config.setConnectionTimeout(connectionTimeout);
 
         // don't perform any initial connection validation - we subsequently call #getConnection
         // to setup the schema anyways
         config.setInitializationFailTimeout(-1);
 
-        this.hikari = new HikariDataSource(config);
-        this.postInitialize();
+        return new HikariDataSource(config);
     }
 
     @Override
@@ -135,6 +170,9 @@ public abstract class HikariConnectionFactory implements ConnectionFactory {
         if (this.hikari != null) {
             this.hikari.close();
         }
+        if (this.replica != null) {
+            this.replica.close();
+        }
     }
 
     @Override
@@ -151,6 +189,36 @@ public abstract class HikariConnectionFactory implements ConnectionFactory {
         return connection;
     }
 
+    /**
+     * Gets a connection to the replica if stale reads are allowed, and one is configured and healthy.
+     *
+     * <p>If a connection to the replica can't be obtained, it is marked as unhealthy and reads are served by the
+     * primary for the next {@link #REPLICA_RETRY_INTERVAL}.</p>
+     */
+    @Override
+    public Connection getReadConnection(boolean allowStale) throws SQLException {
+        HikariDataSource replica = this.replica;
+        if (allowStale && replica != null && System.currentTimeMillis() >= this.replicaRetryTime) {
+            try {
+                return replica.getConnection();
+            } catch (SQLException e) {
+                this.replicaRetryTime = System.currentTimeMillis() + REPLICA_RETRY_INTERVAL;
+                this.logger.warn("Unable to get a connection to the read replica, reading from the primary database "
+                    + "for the next " + TimeUnit.MILLISECONDS.toSeconds(REPLICA_RETRY_INTERVAL) + " seconds", e);
+            }
+        }
+        return getReadConnection();
+    }
+
+    /**
+     * Gets the size of the primary pool only, as any operation may need a connection to the primary, whereas the
+     * replica only serves the few reads which allow stale data.
+     */
+    @Override
+    public int getMaximumConnections() {
+        return MAXIMUM_POOL_SIZE;
+    }
+
     @Override
     public StorageMetadata getMeta() {
         StorageMetadata metadata = new StorageMetadata();
@@ -159,9 +227,7 @@ public abstract class HikariConnectionFactory implements ConnectionFactory {
         long start = System.currentTimeMillis();
 
         try (Connection c = getConnection()) {
-            try (Statement s = c.createStatement()) {
-                s.execute("/* ping */ SELECT 1");
-            }
+            ping(c);
         } catch (SQLException e) {
             success = false;
         }
@@ -172,9 +238,25 @@ public abstract class HikariConnectionFactory implements ConnectionFactory {
         }
 
         metadata.connected(success);
+
+        if (this.replica != null) {
+            boolean replicaSuccess = true;
+            try (Connection c = this.replica.getConnection()) {
+                ping(c);
+            } catch (SQLException e) {
+                replicaSuccess = false;
+            }
+            metadata.replicaConnected(replicaSuccess);
+        }
         return metadata;
     }
 
+    private static void ping(Connection c) throws SQLException {
+        try (Statement s = c.createStatement()) {
+            s.execute("/* ping */ SELECT 1");
+        }
+    }
+
     // dumb plugins seem to keep doing stupid stuff with shading of SLF4J and Log4J.
     // detect this and print a more useful error message.
     private static void handleClassloadingError(Throwable throwable, MoonRisePlugin plugin) {
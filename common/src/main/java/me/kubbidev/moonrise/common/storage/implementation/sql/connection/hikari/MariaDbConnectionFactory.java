@@ -1,12 +1,16 @@
 package me.kubbidev.moonrise.common.storage.implementation.sql.connection.hikari;
 
+import me.kubbidev.moonrise.common.storage.implementation.sql.SqlDialect;
 import me.kubbidev.moonrise.common.storage.implementation.sql.StatementProcessor;
 import me.kubbidev.moonrise.common.storage.misc.StorageCredentials;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
 
 public class MariaDbConnectionFactory extends DriverBasedHikariConnectionFactory {
 
-    public MariaDbConnectionFactory(StorageCredentials configuration) {
-        super(configuration);
+    public MariaDbConnectionFactory(StorageCredentials configuration, @Nullable StorageCredentials replica) {
+        super(configuration, replica);
     }
 
     @Override
@@ -29,8 +33,26 @@ public class MariaDbConnectionFactory extends DriverBasedHikariConnectionFactory
         return "mariadb";
     }
 
+    @Override
+    protected void overrideProperties(Map<String, Object> properties) {
+        // the 3.x driver replaced rewriteBatchedStatements with the bulk protocol, which also
+        // sends a batch in a single round trip
+        properties.putIfAbsent("useBulkStmts", "true");
+
+        properties.putIfAbsent("useServerPrepStmts", "true");
+        properties.putIfAbsent("cachePrepStmts", "true");
+        properties.putIfAbsent("prepStmtCacheSize", "250");
+
+        super.overrideProperties(properties);
+    }
+
     @Override
     public StatementProcessor getStatementProcessor() {
         return StatementProcessor.USE_BACKTICKS;
     }
+
+    @Override
+    public SqlDialect getDialect() {
+        return SqlDialect.MYSQL;
+    }
 }
@@ -1,14 +1,16 @@
 package me.kubbidev.moonrise.common.storage.implementation.sql.connection.hikari;
 
+import me.kubbidev.moonrise.common.storage.implementation.sql.SqlDialect;
 import me.kubbidev.moonrise.common.storage.implementation.sql.StatementProcessor;
 import me.kubbidev.moonrise.common.storage.misc.StorageCredentials;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.Map;
 
 public class MySqlConnectionFactory extends DriverBasedHikariConnectionFactory {
 
-    public MySqlConnectionFactory(StorageCredentials configuration) {
-        super(configuration);
+    public MySqlConnectionFactory(StorageCredentials configuration, @Nullable StorageCredentials replica) {
+        super(configuration, replica);
     }
 
     @Override
@@ -47,6 +49,9 @@ public class MySqlConnectionFactory extends DriverBasedHikariConnectionFactory {
         properties.putIfAbsent("alwaysSendSetIsolation", "false");
         properties.putIfAbsent("cacheCallableStmts", "true");
 
+        // fetch large results using a server-side cursor when a fetch size is set
+        properties.putIfAbsent("useCursorFetch", "true");
+
         // https://stackoverflow.com/a/54256150
         // It's not super important which timezone we pick, because we don't use time-based
         // data types in any of our schemas/queries.
@@ -59,4 +64,9 @@ public class MySqlConnectionFactory extends DriverBasedHikariConnectionFactory {
     public StatementProcessor getStatementProcessor() {
         return StatementProcessor.USE_BACKTICKS;
     }
+
+    @Override
+    public SqlDialect getDialect() {
+        return SqlDialect.MYSQL;
+    }
 }
@@ -1,14 +1,16 @@
 package me.kubbidev.moonrise.common.storage.implementation.sql.connection.hikari;
 
+import me.kubbidev.moonrise.common.storage.implementation.sql.SqlDialect;
 import me.kubbidev.moonrise.common.storage.implementation.sql.StatementProcessor;
 import me.kubbidev.moonrise.common.storage.misc.StorageCredentials;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.Map;
 
 public class PostgresConnectionFactory extends DriverBasedHikariConnectionFactory {
 
-    public PostgresConnectionFactory(StorageCredentials configuration) {
-        super(configuration);
+    public PostgresConnectionFactory(StorageCredentials configuration, @Nullable StorageCredentials replica) {
+        super(configuration, replica);
     }
 
     @Override
@@ -33,6 +35,14 @@ public class PostgresConnectionFactory extends DriverBasedHikariConnectionFactor
 
     @Override
     protected void overrideProperties(Map<String, Object> properties) {
+        // send batched inserts and upserts as multi-row statements
+        properties.putIfAbsent("reWriteBatchedInserts", "true");
+
+        // the same handful of statements is used for all traffic, so use (and cache) server side
+        // prepared statements from their first execution
+        properties.putIfAbsent("prepareThreshold", "1");
+        properties.putIfAbsent("preparedStatementCacheQueries", "256");
+
         super.overrideProperties(properties);
 
         // remove the default config properties which don't exist for PostgreSQL
@@ -44,4 +54,9 @@ public class PostgresConnectionFactory extends DriverBasedHikariConnectionFactor
     public StatementProcessor getStatementProcessor() {
         return StatementProcessor.USE_DOUBLE_QUOTES;
     }
+
+    @Override
+    public SqlDialect getDialect() {
+        return SqlDialect.POSTGRESQL;
+    }
 }
@@ -0,0 +1,13 @@
+package me.kubbidev.moonrise.common.storage.misc;
+
+/**
+ * The experience gained by a member within a bucket of an {@link ExperienceWindow}, as it is stored.
+ *
+ * @param guildId    the guild id
+ * @param bucket     the bucket of the window
+ * @param userId     the user id
+ * @param experience the experience gained within the bucket
+ */
+public record BucketGain(long guildId, int bucket, long userId, long experience) {
+
+}
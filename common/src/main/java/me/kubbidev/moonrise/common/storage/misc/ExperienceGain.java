@@ -0,0 +1,13 @@
+package me.kubbidev.moonrise.common.storage.misc;
+
+import me.kubbidev.moonrise.common.model.ApiMember;
+
+/**
+ * The experience gained by a member within a bucket of an {@link ExperienceWindow}.
+ *
+ * @param member     the member, holding their lifetime experience
+ * @param experience the experience gained within the bucket
+ */
+public record ExperienceGain(ApiMember member, long experience) {
+
+}
@@ -0,0 +1,115 @@
+package me.kubbidev.moonrise.common.storage.misc;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Locale;
+
+/**
+ * The windows of time experience gains are totalled over.
+ *
+ * <p>Each window divides time into numbered buckets, and the storage keeps the experience gained by each member
+ * within each bucket, so that rankings over a window are read from a pre-aggregated total instead of being summed
+ * from individual grants.</p>
+ */
+public enum ExperienceWindow {
+
+    /**
+     * Calendar days, numbered from 1970-01-01
+     */
+    DAY {
+        @Override
+        public int bucket(LocalDate date) {
+            return Math.toIntExact(date.toEpochDay());
+        }
+
+        @Override
+        public LocalDate start(int bucket) {
+            return LocalDate.ofEpochDay(bucket);
+        }
+    },
+
+    /**
+     * Weeks starting on Monday, numbered from the week of 1970-01-05
+     */
+    WEEK {
+        @Override
+        public int bucket(LocalDate date) {
+            return Math.toIntExact(Math.floorDiv(date.toEpochDay() - FIRST_MONDAY, 7));
+        }
+
+        @Override
+        public LocalDate start(int bucket) {
+            return LocalDate.ofEpochDay(FIRST_MONDAY + bucket * 7L);
+        }
+    },
+
+    /**
+     * Calendar months, numbered from January of year 0
+     */
+    MONTH {
+        @Override
+        public int bucket(LocalDate date) {
+            return date.getYear() * 12 + date.getMonthValue() - 1;
+        }
+
+        @Override
+        public LocalDate start(int bucket) {
+            return LocalDate.of(Math.floorDiv(bucket, 12), Math.floorMod(bucket, 12) + 1, 1);
+        }
+    };
+
+    /**
+     * The time zone days are divided in, the same as the leaderboard schedule
+     */
+    public static final ZoneId ZONE_ID = ZoneId.of("Europe/Paris");
+
+    /**
+     * The epoch day of the first Monday after 1970-01-01, which was a Thursday
+     */
+    private static final long FIRST_MONDAY = 4;
+
+    /**
+     * Gets the current date in the {@link #ZONE_ID time zone} of the buckets.
+     *
+     * @return the current date
+     */
+    public static LocalDate today() {
+        return LocalDate.now(ZONE_ID);
+    }
+
+    /**
+     * Gets the bucket of this window which contains the given date.
+     *
+     * @param date the date
+     * @return the bucket number
+     */
+    public abstract int bucket(LocalDate date);
+
+    /**
+     * Gets the first day of the given bucket.
+     *
+     * @param bucket the bucket number
+     * @return the first day of the bucket
+     */
+    public abstract LocalDate start(int bucket);
+
+    /**
+     * Gets the last day of the given bucket.
+     *
+     * @param bucket the bucket number
+     * @return the last day of the bucket
+     */
+    public LocalDate end(int bucket) {
+        return start(bucket + 1).minusDays(1);
+    }
+
+    public static @Nullable ExperienceWindow parse(String name, @Nullable ExperienceWindow def) {
+        try {
+            return valueOf(name.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return def;
+        }
+    }
+}
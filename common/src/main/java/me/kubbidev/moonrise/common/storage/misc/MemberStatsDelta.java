@@ -0,0 +1,42 @@
+package me.kubbidev.moonrise.common.storage.misc;
+
+import java.time.LocalDate;
+
+/**
+ * An amount of experience and voice activity to add onto the stats of a member.
+ *
+ * @param guildId       the guild id
+ * @param userId        the user id
+ * @param experience    the experience to add
+ * @param voiceActivity the voice activity time to add, in milliseconds
+ * @param date          the day the experience was granted, which decides the {@link ExperienceWindow buckets} it
+ *                      counts towards
+ */
+public record MemberStatsDelta(long guildId, long userId, long experience, long voiceActivity, LocalDate date) {
+
+    /**
+     * Creates a delta for experience granted today.
+     *
+     * @param guildId       the guild id
+     * @param userId        the user id
+     * @param experience    the experience to add
+     * @param voiceActivity the voice activity time to add, in milliseconds
+     */
+    public MemberStatsDelta(long guildId, long userId, long experience, long voiceActivity) {
+        this(guildId, userId, experience, voiceActivity, ExperienceWindow.today());
+    }
+
+    /**
+     * Combines this delta with another delta for the same member, keeping the day of this delta.
+     *
+     * @param other the other delta
+     * @return the combined delta
+     */
+    public MemberStatsDelta add(MemberStatsDelta other) {
+        return new MemberStatsDelta(this.guildId, this.userId,
+            this.experience + other.experience,
+            this.voiceActivity + other.voiceActivity,
+            this.date
+        );
+    }
+}
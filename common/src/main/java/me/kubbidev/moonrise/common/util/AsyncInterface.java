@@ -5,6 +5,7 @@ import me.kubbidev.moonrise.common.plugin.MoonRisePlugin;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 /**
  * Base class for an interface which can perform operations asynchronously and return {@link CompletableFuture}s
@@ -17,6 +18,15 @@ public abstract class AsyncInterface {
         this.plugin = plugin;
     }
 
+    /**
+     * Gets the executor which operations are performed on.
+     *
+     * @return the executor
+     */
+    protected Executor executor() {
+        return this.plugin.getBootstrap().getScheduler().async();
+    }
+
     protected <T> CompletableFuture<T> future(Callable<T> supplier) {
         return CompletableFuture.supplyAsync(() -> {
             try {
@@ -27,7 +37,7 @@ public abstract class AsyncInterface {
                 }
                 throw new CompletionException(e);
             }
-        }, this.plugin.getBootstrap().getScheduler().async());
+        }, executor());
     }
 
     protected CompletableFuture<Void> future(Throwing.Runnable runnable) {
@@ -40,6 +50,6 @@ public abstract class AsyncInterface {
                 }
                 throw new CompletionException(e);
             }
-        }, this.plugin.getBootstrap().getScheduler().async());
+        }, executor());
     }
 }
\ No newline at end of file
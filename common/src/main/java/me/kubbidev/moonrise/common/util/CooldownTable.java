@@ -0,0 +1,161 @@
+package me.kubbidev.moonrise.common.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Puts pairs of ids, such as a user and a guild, on cooldown, without allocating anything per check.
+ *
+ * <p>The time each pair last started a cooldown is held in open addressing tables, by linear probing on both ids
+ * packed next to each other in a single array. The tables are striped by the hash of the pair, each stripe having
+ * its own lock.</p>
+ *
+ * <p>Expired cooldowns are never removed on their own. Their slot is reused by the next pair inserted past it, and
+ * they are dropped whenever a stripe is resized.</p>
+ */
+public final class CooldownTable {
+
+    private static final int STRIPES          = 16;
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final long     duration;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    public CooldownTable(long duration, TimeUnit unit) {
+        this.duration = unit.toNanos(duration);
+        for (int i = 0; i < STRIPES; i++) {
+            this.stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Starts the cooldown of a pair of ids, unless it is already on cooldown.
+     *
+     * @param a the first id, never 0
+     * @param b the second id
+     * @return true if the cooldown was started, false if the pair is still on cooldown
+     */
+    public boolean tryAcquire(long a, long b) {
+        return tryAcquire(a, b, System.nanoTime());
+    }
+
+    boolean tryAcquire(long a, long b, long now) {
+        long hash = hash(a, b);
+        Stripe stripe = this.stripes[(int) (hash >>> 60) & (STRIPES - 1)];
+        synchronized (stripe) {
+            return stripe.tryAcquire(a, b, (int) hash, now, this.duration);
+        }
+    }
+
+    /**
+     * Gets the number of slots in use, including expired cooldowns which haven't been dropped yet.
+     *
+     * @return the number of slots in use
+     */
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : this.stripes) {
+            synchronized (stripe) {
+                size += stripe.used;
+            }
+        }
+        return size;
+    }
+
+    private static long hash(long a, long b) {
+        // snowflakes share their high bits, so mix them before masking
+        long hash = a * 0x9E3779B97F4A7C15L ^ b * 0xC2B2AE3D27D4EB4FL;
+        return hash ^ (hash >>> 29);
+    }
+
+    private static final class Stripe {
+
+        /**
+         * The ids of each slot, at {@code slot * 2} and {@code slot * 2 + 1}. A slot is empty if its first id is 0
+         */
+        private long[] ids        = new long[INITIAL_CAPACITY * 2];
+        private long[] timestamps = new long[INITIAL_CAPACITY];
+        private int    used       = 0;
+
+        boolean tryAcquire(long a, long b, int hash, long now, long duration) {
+            int mask = this.timestamps.length - 1;
+            int expiredSlot = -1;
+
+            int i = hash & mask;
+            for (; this.ids[i * 2] != 0; i = (i + 1) & mask) {
+                boolean expired = now - this.timestamps[i] >= duration;
+                if (this.ids[i * 2] == a && this.ids[i * 2 + 1] == b) {
+                    if (!expired) {
+                        return false;
+                    }
+                    this.timestamps[i] = now;
+                    return true;
+                }
+                if (expired && expiredSlot < 0) {
+                    expiredSlot = i;
+                }
+            }
+
+            // the pair isn't further along, so take the place of the first expired cooldown passed
+            if (expiredSlot >= 0) {
+                i = expiredSlot;
+            } else if ((this.used + 1) * 4 > this.timestamps.length * 3) {
+                resize(now, duration);
+                mask = this.timestamps.length - 1;
+                i = hash & mask;
+                while (this.ids[i * 2] != 0) {
+                    i = (i + 1) & mask;
+                }
+                this.used++;
+            } else {
+                this.used++;
+            }
+
+            this.ids[i * 2] = a;
+            this.ids[i * 2 + 1] = b;
+            this.timestamps[i] = now;
+            return true;
+        }
+
+        /**
+         * Rebuilds the table with only the cooldowns still running, at most half full.
+         */
+        private void resize(long now, long duration) {
+            long[] oldIds = this.ids;
+            long[] oldTimestamps = this.timestamps;
+
+            int live = 0;
+            for (int i = 0; i < oldTimestamps.length; i++) {
+                if (oldIds[i * 2] != 0 && now - oldTimestamps[i] < duration) {
+                    live++;
+                }
+            }
+
+            int capacity = INITIAL_CAPACITY;
+            while (capacity < (live + 1) * 2) {
+                capacity *= 2;
+            }
+
+            this.ids = new long[capacity * 2];
+            this.timestamps = new long[capacity];
+            this.used = 0;
+
+            int mask = capacity - 1;
+            for (int i = 0; i < oldTimestamps.length; i++) {
+                long a = oldIds[i * 2];
+                if (a == 0 || now - oldTimestamps[i] >= duration) {
+                    continue;
+                }
+
+                long b = oldIds[i * 2 + 1];
+                int j = (int) hash(a, b) & mask;
+                while (this.ids[j * 2] != 0) {
+                    j = (j + 1) & mask;
+                }
+                this.ids[j * 2] = a;
+                this.ids[j * 2 + 1] = b;
+                this.timestamps[j] = oldTimestamps[i];
+                this.used++;
+            }
+        }
+    }
+}
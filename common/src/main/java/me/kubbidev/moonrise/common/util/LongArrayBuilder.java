@@ -0,0 +1,66 @@
+package me.kubbidev.moonrise.common.util;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Collects primitive longs into a growable array, without boxing each value.
+ */
+public final class LongArrayBuilder implements LongConsumer {
+
+    private long[] values;
+    private int    size = 0;
+
+    public LongArrayBuilder() {
+        this(64);
+    }
+
+    public LongArrayBuilder(int initialCapacity) {
+        this.values = new long[Math.max(1, initialCapacity)];
+    }
+
+    public void add(long value) {
+        if (this.size == this.values.length) {
+            this.values = Arrays.copyOf(this.values, this.size * 2);
+        }
+        this.values[this.size++] = value;
+    }
+
+    @Override
+    public void accept(long value) {
+        add(value);
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Gets the collected values, in the order they were added.
+     *
+     * @return the values
+     */
+    public long[] toArray() {
+        return Arrays.copyOf(this.values, this.size);
+    }
+
+    /**
+     * Gets the collected values in ascending order, with duplicates removed.
+     *
+     * <p>The result can be searched using {@link Arrays#binarySearch(long[], long)}.</p>
+     *
+     * @return the distinct values
+     */
+    public long[] toSortedDistinctArray() {
+        Arrays.sort(this.values, 0, this.size);
+
+        int distinct = 0;
+        for (int i = 0; i < this.size; i++) {
+            if (distinct == 0 || this.values[distinct - 1] != this.values[i]) {
+                this.values[distinct++] = this.values[i];
+            }
+        }
+        this.size = distinct;
+        return toArray();
+    }
+}
@@ -0,0 +1,70 @@
+package me.kubbidev.moonrise.common.util;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Shares a single in-flight load between all concurrent requests for the same key.
+ *
+ * <p>A key is only in flight until its load completes, results are not cached.</p>
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public final class SingleFlight<K, V> {
+
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder shared   = new LongAdder();
+
+    /**
+     * Loads the value for the given key, or joins the load already in flight for it.
+     *
+     * @param key    the key
+     * @param loader the function starting a new load
+     * @return a future for the loaded value
+     */
+    public CompletableFuture<V> load(K key, Supplier<CompletableFuture<V>> loader) {
+        this.requests.increment();
+
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> existing = this.inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            this.shared.increment();
+            return existing;
+        }
+
+        loader.get().whenComplete((value, t) -> {
+            // remove before completing, so later requests never receive a stale result
+            this.inFlight.remove(key, future);
+            if (t != null) {
+                future.completeExceptionally(t);
+            } else {
+                future.complete(value);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Gets the total number of requested loads.
+     *
+     * @return the number of requests
+     */
+    public long requests() {
+        return this.requests.sum();
+    }
+
+    /**
+     * Gets the number of requests which joined a load already in flight, instead of starting their own.
+     *
+     * @return the number of shared requests
+     */
+    public long shared() {
+        return this.shared.sum();
+    }
+}
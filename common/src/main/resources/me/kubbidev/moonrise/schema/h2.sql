@@ -33,4 +33,47 @@ CREATE TABLE `{prefix}members`
     `placement`      INT          NOT NULL,
     PRIMARY KEY (`user_id`, `guild_id`)
 );
-CREATE INDEX ON `{prefix}members` (`user_id`, `guild_id`);
\ No newline at end of file
+CREATE INDEX `{prefix}members_guild_experience` ON `{prefix}members` (`guild_id`, `experience` DESC);
+
+CREATE TABLE `{prefix}members_archive`
+(
+    `user_id`        BIGINT       NOT NULL,
+    `guild_id`       BIGINT       NOT NULL,
+    `nickname`       VARCHAR(32)  NOT NULL,
+    `guild_avatar`   VARCHAR(300) NOT NULL,
+    `biography`      VARCHAR(300) NOT NULL,
+    `experience`     BIGINT       NOT NULL,
+    `voice_activity` BIGINT       NOT NULL,
+    `placement`      INT          NOT NULL,
+    PRIMARY KEY (`user_id`, `guild_id`)
+);
+
+CREATE TABLE `{prefix}experience_daily`
+(
+    `guild_id`   BIGINT  NOT NULL,
+    `bucket`     INT     NOT NULL,
+    `user_id`    BIGINT  NOT NULL,
+    `experience` BIGINT  NOT NULL,
+    PRIMARY KEY (`guild_id`, `bucket`, `user_id`)
+);
+CREATE INDEX `{prefix}experience_daily_ranking` ON `{prefix}experience_daily` (`guild_id`, `bucket`, `experience` DESC);
+
+CREATE TABLE `{prefix}experience_weekly`
+(
+    `guild_id`   BIGINT  NOT NULL,
+    `bucket`     INT     NOT NULL,
+    `user_id`    BIGINT  NOT NULL,
+    `experience` BIGINT  NOT NULL,
+    PRIMARY KEY (`guild_id`, `bucket`, `user_id`)
+);
+CREATE INDEX `{prefix}experience_weekly_ranking` ON `{prefix}experience_weekly` (`guild_id`, `bucket`, `experience` DESC);
+
+CREATE TABLE `{prefix}experience_monthly`
+(
+    `guild_id`   BIGINT  NOT NULL,
+    `bucket`     INT     NOT NULL,
+    `user_id`    BIGINT  NOT NULL,
+    `experience` BIGINT  NOT NULL,
+    PRIMARY KEY (`guild_id`, `bucket`, `user_id`)
+);
+CREATE INDEX `{prefix}experience_monthly_ranking` ON `{prefix}experience_monthly` (`guild_id`, `bucket`, `experience` DESC);
@@ -19,6 +19,7 @@ CREATE TABLE "{prefix}guilds"
     "leaderboard_channel" BIGINT             NOT NULL
 );
 
+-- Partitioned by the hash of "guild_id" when "data.member-partitions" is set
 CREATE TABLE "{prefix}members"
 (
     "user_id"        BIGINT       NOT NULL,
@@ -31,4 +32,50 @@ CREATE TABLE "{prefix}members"
     "placement"      INTEGER      NOT NULL,
     PRIMARY KEY ("user_id", "guild_id")
 );
-CREATE INDEX "{prefix}members_user_guild_unique" ON "{prefix}members" ("user_id", "guild_id");
\ No newline at end of file
+CREATE INDEX "{prefix}members_guild_experience" ON "{prefix}members" ("guild_id", "experience" DESC);
+
+CREATE TABLE "{prefix}members_archive"
+(
+    "user_id"        BIGINT       NOT NULL,
+    "guild_id"       BIGINT       NOT NULL,
+    "nickname"       VARCHAR(32)  NOT NULL,
+    "guild_avatar"   VARCHAR(300) NOT NULL,
+    "biography"      VARCHAR(300) NOT NULL,
+    "experience"     BIGINT       NOT NULL,
+    "voice_activity" BIGINT       NOT NULL,
+    "placement"      INTEGER      NOT NULL,
+    PRIMARY KEY ("user_id", "guild_id")
+);
+
+CREATE TABLE "{prefix}experience_daily"
+(
+    "guild_id"   BIGINT  NOT NULL,
+    "bucket"     INTEGER NOT NULL,
+    "user_id"    BIGINT  NOT NULL,
+    "experience" BIGINT  NOT NULL,
+    PRIMARY KEY ("guild_id", "bucket", "user_id")
+);
+CREATE INDEX "{prefix}experience_daily_ranking" ON "{prefix}experience_daily" ("guild_id", "bucket", "experience" DESC);
+
+CREATE TABLE "{prefix}experience_weekly"
+(
+    "guild_id"   BIGINT  NOT NULL,
+    "bucket"     INTEGER NOT NULL,
+    "user_id"    BIGINT  NOT NULL,
+    "experience" BIGINT  NOT NULL,
+    PRIMARY KEY ("guild_id", "bucket", "user_id")
+);
+CREATE INDEX "{prefix}experience_weekly_ranking" ON "{prefix}experience_weekly" ("guild_id", "bucket", "experience" DESC);
+
+CREATE TABLE "{prefix}experience_monthly"
+(
+    "guild_id"   BIGINT  NOT NULL,
+    "bucket"     INTEGER NOT NULL,
+    "user_id"    BIGINT  NOT NULL,
+    "experience" BIGINT  NOT NULL,
+    PRIMARY KEY ("guild_id", "bucket", "user_id")
+);
+CREATE INDEX "{prefix}experience_monthly_ranking" ON "{prefix}experience_monthly" ("guild_id", "bucket", "experience" DESC);
+
+-- Migrations for existing installations
+DROP INDEX "{prefix}members_user_guild_unique";
@@ -0,0 +1,84 @@
+package me.kubbidev.moonrise.common.leaderboard;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ExperienceIndexTest {
+
+    private static final long FIRST_USER_ID = 1_100_000_000_000_000_000L;
+
+    @Test
+    public void testPopulate() {
+        ExperienceIndex index = new ExperienceIndex();
+
+        // a grant received before the storage is read is part of the members loaded
+        index.increment(FIRST_USER_ID + 3, 10L);
+        index.startRecording();
+        index.increment(FIRST_USER_ID + 3, 10L);
+        assertFalse(index.isPopulated());
+        assertEquals(0, index.size());
+
+        index.populate(new long[]{FIRST_USER_ID + 1, FIRST_USER_ID + 2, FIRST_USER_ID + 3},
+            new long[]{50L, 30L, 25L});
+        assertTrue(index.isPopulated());
+
+        // the grant recorded whilst loading moves the third member ahead of the second, and only once
+        assertEquals(3, index.size());
+        assertArrayEquals(new long[]{FIRST_USER_ID + 1, FIRST_USER_ID + 3, FIRST_USER_ID + 2}, index.top(10));
+        index.increment(FIRST_USER_ID + 2, 5L);
+        assertArrayEquals(new long[]{FIRST_USER_ID + 1, FIRST_USER_ID + 2, FIRST_USER_ID + 3}, index.top(10));
+        assertEquals(3, index.rank(FIRST_USER_ID + 3));
+        assertEquals(-1, index.rank(FIRST_USER_ID + 4));
+    }
+
+    @Test
+    public void testTies() {
+        ExperienceIndex index = new ExperienceIndex();
+        index.populate(new long[0], new long[0]);
+
+        index.increment(FIRST_USER_ID + 2, 10L);
+        index.increment(FIRST_USER_ID + 1, 10L);
+        index.increment(FIRST_USER_ID + 3, 10L);
+
+        // members with the same experience are ordered by user id
+        assertArrayEquals(new long[]{FIRST_USER_ID + 1, FIRST_USER_ID + 2}, index.top(2));
+        assertEquals(3, index.rank(FIRST_USER_ID + 3));
+    }
+
+    @Test
+    public void testRandomGrants() {
+        Random random = new Random(42);
+        ExperienceIndex index = new ExperienceIndex();
+        index.populate(new long[0], new long[0]);
+
+        Map<Long, Long> expected = new HashMap<>();
+        for (int i = 0; i < 20_000; i++) {
+            long userId = FIRST_USER_ID + random.nextInt(2_000);
+            long experience = random.nextInt(100);
+            index.increment(userId, experience);
+            expected.merge(userId, experience, Long::sum);
+        }
+
+        List<Long> sorted = new ArrayList<>(expected.keySet());
+        sorted.sort(Comparator.<Long>comparingLong(expected::get).reversed().thenComparingLong(id -> id));
+
+        assertEquals(sorted.size(), index.size());
+        long[] top = index.top(Integer.MAX_VALUE);
+        for (int i = 0; i < sorted.size(); i++) {
+            long userId = sorted.get(i);
+            assertEquals(userId, top[i]);
+            assertEquals(i + 1, index.rank(userId));
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package me.kubbidev.moonrise.common.leaderboard.tracker;
+
+import me.kubbidev.moonrise.common.config.ConfigKeys;
+import me.kubbidev.moonrise.common.config.MoonRiseConfiguration;
+import me.kubbidev.moonrise.common.leaderboard.activity.MemberState;
+import me.kubbidev.moonrise.common.plugin.MoonRisePlugin;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.lenient;
+
+@ExtendWith(MockitoExtension.class)
+public class ActivityTrackerTest {
+
+    private static final int MAX_VOICES = 5;
+
+    private @Mock MoonRisePlugin        plugin;
+    private @Mock MoonRiseConfiguration configuration;
+
+    @BeforeEach
+    public void setupMocks() {
+        lenient().when(this.plugin.getConfiguration()).thenReturn(this.configuration);
+        lenient().when(this.configuration.get(ConfigKeys.ACTIVITY_MAX_VOICES)).thenReturn(MAX_VOICES);
+    }
+
+    @Test
+    public void testSpeakingAlone() {
+        ActivityTracker tracker = new ActivityTracker(this.plugin, 0);
+        tracker.addMember(1L, false, 0);
+        tracker.addMember(2L, true, 0);
+        tracker.tick(60_000);
+
+        // a member doesn't earn anything without someone to speak to
+        MemberState state = tracker.removeMember(1L, 120_000);
+        assertNotNull(state);
+        assertEquals(0, state.activityTime());
+        assertEquals(0, state.activityPoints());
+        assertNull(tracker.removeMember(1L, 120_000));
+    }
+
+    @Test
+    public void testFreezing() {
+        ActivityTracker tracker = new ActivityTracker(this.plugin, 0);
+        tracker.addMember(1L, false, 0);
+        tracker.addMember(2L, false, 0);
+        tracker.addMember(3L, false, 0);
+
+        tracker.freeze(3L, true, 60_000);
+        tracker.tick(90_000);
+        tracker.freeze(3L, false, 120_000);
+
+        MemberState state = tracker.removeMember(3L, 180_000);
+        assertNotNull(state);
+        assertEquals(120_000, state.activityTime());
+        assertEquals(2 * 3 * 0.4, state.activityPoints(), 1e-6);
+
+        state = tracker.removeMember(1L, 180_000);
+        assertNotNull(state);
+        assertEquals(180_000, state.activityTime());
+        assertEquals(2 * 3 * 0.4 + 2 * 0.4, state.activityPoints(), 1e-6);
+    }
+
+    @Test
+    public void testCheckpoint() {
+        ActivityTracker tracker = new ActivityTracker(this.plugin, 0);
+        tracker.addMember(1L, false, 0);
+        tracker.addMember(2L, false, 0);
+
+        // the first member is credited with whole points only, the second couldn't be credited at all
+        Map<Long, MemberState> credited = new HashMap<>();
+        tracker.checkpoint((userId, state) -> {
+            credited.put(userId, state);
+            return userId == 1L ? Math.floor(state.activityPoints()) : -1;
+        }, 150_000);
+        assertEquals(150_000, credited.get(1L).activityTime());
+        assertEquals(2.5 * 2 * 0.4, credited.get(1L).activityPoints(), 1e-6);
+
+        MemberState state = tracker.removeMember(1L, 300_000);
+        assertNotNull(state);
+        assertEquals(150_000, state.activityTime());
+        assertEquals(5 * 2 * 0.4 - 2, state.activityPoints(), 1e-6);
+
+        state = tracker.removeMember(2L, 300_000);
+        assertNotNull(state);
+        assertEquals(300_000, state.activityTime());
+        assertEquals(5 * 2 * 0.4, state.activityPoints(), 1e-6);
+    }
+
+    @Test
+    public void testRestoreAfterCheckpoint() {
+        ActivityTracker tracker = new ActivityTracker(this.plugin, 0);
+        tracker.addMember(1L, false, 0);
+        tracker.addMember(2L, false, 0);
+
+        // the credited activity couldn't be written, so it is given back
+        Map<Long, MemberState> credited = new HashMap<>();
+        tracker.checkpoint((userId, state) -> {
+            credited.put(userId, state);
+            return state.activityPoints();
+        }, 150_000);
+        assertTrue(tracker.restore(1L, credited.get(1L)));
+        assertFalse(tracker.restore(3L, credited.get(1L)));
+
+        MemberState state = tracker.removeMember(1L, 300_000);
+        assertNotNull(state);
+        assertEquals(300_000, state.activityTime());
+        assertEquals(5 * 2 * 0.4, state.activityPoints(), 1e-6);
+    }
+
+    @Test
+    public void testMatchesPerEventAccumulation() {
+        Random random = new Random(42);
+        ActivityTracker tracker = new ActivityTracker(this.plugin, 0);
+        ReferenceTracker reference = new ReferenceTracker();
+
+        long now = 0;
+        List<Long> members = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) {
+            now += random.nextInt(30_000);
+
+            int action = random.nextInt(10);
+            if (action < 3 || members.isEmpty()) {
+                long userId = random.nextInt(100);
+                boolean frozen = random.nextInt(4) == 0;
+                if (!members.contains(userId)) {
+                    members.add(userId);
+                }
+                tracker.addMember(userId, frozen, now);
+                reference.addMember(userId, frozen, now);
+            } else if (action < 6) {
+                long userId = members.remove(random.nextInt(members.size()));
+                assertSameState(reference.removeMember(userId, now), tracker.removeMember(userId, now));
+            } else if (action < 9) {
+                long userId = members.get(random.nextInt(members.size()));
+                boolean frozen = random.nextBoolean();
+                tracker.freeze(userId, frozen, now);
+                reference.freeze(userId, frozen, now);
+            } else {
+                tracker.tick(now);
+            }
+        }
+
+        for (long userId : members) {
+            assertSameState(reference.removeMember(userId, now), tracker.removeMember(userId, now));
+        }
+        assertTrue(tracker.isEmpty());
+    }
+
+    private static void assertSameState(MemberState expected, MemberState state) {
+        assertNotNull(state);
+        assertEquals(expected.activityTime(), state.activityTime());
+        assertEquals(expected.activityPoints(), state.activityPoints());
+    }
+
+    /**
+     * Credits every member of the channel on each change, as the tracker used to, but with the points kept as the
+     * same exact weight as the tracker.
+     */
+    private static final class ReferenceTracker {
+        private final Map<Long, long[]>  times   = new HashMap<>();
+        private final Map<Long, long[]>  weights = new HashMap<>();
+        private final Map<Long, Boolean> frozen  = new HashMap<>();
+        private       long               lastAccumulated;
+
+        void addMember(long userId, boolean frozen, long now) {
+            accumulate(now);
+            this.times.put(userId, new long[1]);
+            this.weights.put(userId, new long[1]);
+            this.frozen.put(userId, frozen);
+        }
+
+        MemberState removeMember(long userId, long now) {
+            accumulate(now);
+            this.frozen.remove(userId);
+            return new MemberState(this.times.remove(userId)[0],
+                ActivityTracker.points(this.weights.remove(userId)[0]));
+        }
+
+        void freeze(long userId, boolean frozen, long now) {
+            accumulate(now);
+            this.frozen.put(userId, frozen);
+        }
+
+        private void accumulate(long currentMillis) {
+            long speakingMembers = this.frozen.values().stream().filter(f -> !f).count();
+            speakingMembers = Math.min(speakingMembers, MAX_VOICES);
+
+            for (Map.Entry<Long, Boolean> entry : this.frozen.entrySet()) {
+                if (!entry.getValue() && speakingMembers > 1) {
+                    long duration = currentMillis - this.lastAccumulated;
+
+                    this.times.get(entry.getKey())[0] += duration;
+                    this.weights.get(entry.getKey())[0] += duration * speakingMembers;
+                }
+            }
+            this.lastAccumulated = currentMillis;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package me.kubbidev.moonrise.common.storage;
+
+import me.kubbidev.moonrise.common.dependencies.DependencyManager;
+import me.kubbidev.moonrise.common.plugin.MoonRisePlugin;
+import me.kubbidev.moonrise.common.storage.implementation.sql.connection.ConnectionFactory;
+import me.kubbidev.moonrise.common.storage.implementation.sql.connection.file.H2ConnectionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class FlatfileConnectionFactoryTest {
+
+    private @Mock MoonRisePlugin    plugin;
+    private @Mock DependencyManager dependencyManager;
+    private       ConnectionFactory connectionFactory;
+
+    @BeforeEach
+    public void setupConnectionFactory(@TempDir Path directory) {
+        when(this.plugin.getDependencyManager()).thenReturn(this.dependencyManager);
+        when(this.dependencyManager.obtainClassLoaderWith(any()))
+            .thenReturn(FlatfileConnectionFactoryTest.class.getClassLoader());
+
+        this.connectionFactory = new H2ConnectionFactory(directory.resolve("test"), 2);
+        this.connectionFactory.init(this.plugin);
+    }
+
+    @AfterEach
+    public void shutdownConnectionFactory() throws Exception {
+        this.connectionFactory.shutdown();
+    }
+
+    @Test
+    public void testReadsDuringWrite() throws Exception {
+        try (Connection c = this.connectionFactory.getConnection();
+             Statement s = c.createStatement()) {
+            s.execute("CREATE TABLE test (id BIGINT)");
+        }
+
+        try (Connection writer = this.connectionFactory.getConnection()) {
+            writer.setAutoCommit(false);
+            try (Statement s = writer.createStatement()) {
+                s.execute("INSERT INTO test VALUES (1)");
+            }
+
+            // readers aren't blocked by the write, and only see committed data
+            try (Connection reader = this.connectionFactory.getReadConnection();
+                 Statement s = reader.createStatement();
+                 ResultSet rs = s.executeQuery("SELECT COUNT(*) FROM test")) {
+                assertNotSame(writer, reader);
+                assertTrue(rs.next());
+                assertEquals(0, rs.getInt(1));
+            }
+
+            writer.commit();
+            writer.setAutoCommit(true);
+        }
+
+        try (Connection reader = this.connectionFactory.getReadConnection();
+             Statement s = reader.createStatement();
+             ResultSet rs = s.executeQuery("SELECT COUNT(*) FROM test")) {
+            assertTrue(rs.next());
+            assertEquals(1, rs.getInt(1));
+        }
+    }
+
+    @Test
+    public void testCachedStatementsAreReset() throws Exception {
+        try (Connection c = this.connectionFactory.getConnection();
+             Statement s = c.createStatement()) {
+            s.execute("CREATE TABLE test (id BIGINT)");
+            s.execute("INSERT INTO test VALUES (1), (2), (3)");
+        }
+
+        try (Connection c = this.connectionFactory.getConnection()) {
+            int defaultFetchSize;
+            try (PreparedStatement ps = c.prepareStatement("SELECT id FROM test")) {
+                defaultFetchSize = ps.getFetchSize();
+                ps.setFetchSize(defaultFetchSize + 10);
+                ps.setMaxRows(2);
+                ps.setQueryTimeout(5);
+            }
+
+            // the next user of the cached statement doesn't inherit the settings of the previous one
+            try (PreparedStatement ps = c.prepareStatement("SELECT id FROM test");
+                 ResultSet rs = ps.executeQuery()) {
+                assertEquals(0, ps.getMaxRows());
+                assertEquals(defaultFetchSize, ps.getFetchSize());
+                assertEquals(0, ps.getQueryTimeout());
+
+                int rows = 0;
+                while (rs.next()) {
+                    rows++;
+                }
+                assertEquals(3, rows);
+            }
+        }
+    }
+
+    @Test
+    public void testWriteConnectionIsExclusive() throws Exception {
+        CompletableFuture<Void> second;
+        try (Connection c = this.connectionFactory.getConnection()) {
+            second = CompletableFuture.runAsync(() -> {
+                try (Connection other = this.connectionFactory.getConnection()) {
+                    other.isValid(1);
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            });
+
+            // the second connection can only be obtained once the first is released
+            Thread.sleep(100);
+            assertTrue(c.isValid(1));
+            assertFalse(second.isDone());
+        }
+
+        second.get(5, TimeUnit.SECONDS);
+    }
+}
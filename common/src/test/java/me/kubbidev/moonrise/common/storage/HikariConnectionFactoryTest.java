@@ -0,0 +1,121 @@
+package me.kubbidev.moonrise.common.storage;
+
+import com.zaxxer.hikari.HikariConfig;
+import me.kubbidev.moonrise.common.plugin.MoonRisePlugin;
+import me.kubbidev.moonrise.common.plugin.logging.PluginLogger;
+import me.kubbidev.moonrise.common.storage.implementation.sql.SqlDialect;
+import me.kubbidev.moonrise.common.storage.implementation.sql.StatementProcessor;
+import me.kubbidev.moonrise.common.storage.implementation.sql.connection.hikari.HikariConnectionFactory;
+import me.kubbidev.moonrise.common.storage.misc.StorageCredentials;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.jetbrains.annotations.Nullable;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.lenient;
+
+@ExtendWith(MockitoExtension.class)
+public class HikariConnectionFactoryTest {
+
+    private static final StorageCredentials PRIMARY = credentials("mem:primary;DB_CLOSE_DELAY=-1");
+    private static final StorageCredentials REPLICA = credentials("mem:replica;DB_CLOSE_DELAY=-1");
+
+    private @Mock MoonRisePlugin plugin;
+    private @Mock PluginLogger   logger;
+
+    private TestHikariConnectionFactory connectionFactory;
+
+    @AfterEach
+    public void shutdownConnectionFactory() {
+        if (this.connectionFactory != null) {
+            this.connectionFactory.shutdown();
+        }
+    }
+
+    private void init(@Nullable StorageCredentials replica) {
+        lenient().when(this.plugin.getLogger()).thenReturn(this.logger);
+        this.connectionFactory = new TestHikariConnectionFactory(PRIMARY, replica);
+        this.connectionFactory.init(this.plugin);
+    }
+
+    @Test
+    public void testStaleReadsUseReplica() throws SQLException {
+        init(REPLICA);
+
+        assertEquals("primary", databaseName(this.connectionFactory.getConnection()));
+        assertEquals("primary", databaseName(this.connectionFactory.getReadConnection()));
+        assertEquals("primary", databaseName(this.connectionFactory.getReadConnection(false)));
+        assertEquals("replica", databaseName(this.connectionFactory.getReadConnection(true)));
+        assertTrue(this.connectionFactory.getMeta().replicaConnected());
+    }
+
+    @Test
+    public void testStaleReadsFallBackToPrimary() throws SQLException {
+        init(credentials("./does-not-exist/replica;IFEXISTS=TRUE"));
+
+        assertEquals("primary", databaseName(this.connectionFactory.getReadConnection(true)));
+        assertFalse(this.connectionFactory.getMeta().replicaConnected());
+    }
+
+    @Test
+    public void testWithoutReplica() throws SQLException {
+        init(null);
+
+        assertEquals("primary", databaseName(this.connectionFactory.getReadConnection(true)));
+        assertEquals(null, this.connectionFactory.getMeta().replicaConnected());
+    }
+
+    private static String databaseName(Connection connection) throws SQLException {
+        try (connection) {
+            String url = connection.getMetaData().getURL();
+            return url.substring(url.lastIndexOf(':') + 1);
+        }
+    }
+
+    private static StorageCredentials credentials(String database) {
+        return new StorageCredentials("localhost", database, "sa", "");
+    }
+
+    private static final class TestHikariConnectionFactory extends HikariConnectionFactory {
+
+        TestHikariConnectionFactory(StorageCredentials configuration, @Nullable StorageCredentials replica) {
+            super(configuration, replica);
+        }
+
+        @Override
+        public String getImplementationName() {
+            return "H2";
+        }
+
+        @Override
+        protected String defaultPort() {
+            return "0";
+        }
+
+        @Override
+        protected void configureDatabase(HikariConfig config, String address, String port, String database,
+                                         String username, String password) {
+            config.setJdbcUrl("jdbc:h2:" + database);
+            config.setUsername(username);
+            config.setPassword(password);
+        }
+
+        @Override
+        public StatementProcessor getStatementProcessor() {
+            return StatementProcessor.USE_DOUBLE_QUOTES;
+        }
+
+        @Override
+        public SqlDialect getDialect() {
+            return SqlDialect.H2;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package me.kubbidev.moonrise.common.storage;
+
+import me.kubbidev.moonrise.common.model.ApiGuild;
+import me.kubbidev.moonrise.common.model.ApiMember;
+import me.kubbidev.moonrise.common.model.ApiUser;
+import me.kubbidev.moonrise.common.plugin.MoonRisePlugin;
+import me.kubbidev.moonrise.common.storage.implementation.StorageImplementation;
+import me.kubbidev.moonrise.common.storage.implementation.journal.JournalStorage;
+import me.kubbidev.moonrise.common.storage.misc.MemberStatsDelta;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class JournalDatabaseTest extends AbstractDatabaseTest {
+
+    /**
+     * A small segment size, so that the tests span several segments
+     */
+    private static final int SEGMENT_SIZE = 1024;
+
+    private @TempDir Path directory;
+
+    @Override
+    protected StorageImplementation makeDatabase(MoonRisePlugin plugin) {
+        return new JournalStorage(plugin, this.directory, SEGMENT_SIZE);
+    }
+
+    private void reopen() throws Exception {
+        this.database.shutdown();
+        this.database = makeDatabase(this.plugin);
+        this.database.init();
+    }
+
+    @Test
+    public void testUpsert() throws Exception {
+        ApiUser user = new ApiUser(1L, this.plugin);
+        user.setUsername("first");
+        this.database.saveUser(user);
+        user.setUsername("second");
+        this.database.saveUser(user);
+
+        ApiGuild guild = new ApiGuild(10L, this.plugin);
+        guild.setLeaderboardEnabled(true);
+        this.database.saveGuild(guild);
+
+        ApiMember member = new ApiMember(1L, this.plugin);
+        member.setGuildId(10L);
+        member.setExperience(100L);
+        this.database.saveMember(member);
+
+        assertEquals("second", this.database.loadUser(1L).getUsername());
+        assertTrue(this.database.loadGuild(10L).isLeaderboardEnabled());
+
+        ApiMember loaded = this.database.loadMember(10L, 1L);
+        assertEquals("second", loaded.getUsername());
+        assertEquals(100L, loaded.getExperience());
+        assertTrue(loaded.getDirtyUserFields().isEmpty());
+        assertTrue(loaded.getDirtyMemberFields().isEmpty());
+
+        assertEquals(1, this.database.getUniqueUsers().size());
+        assertEquals(1, this.database.getUniqueGuilds().size());
+        assertArrayEquals(new long[]{1L}, this.database.getUniqueMemberIds(10L));
+    }
+
+    @Test
+    public void testSaveMemberOnlyWritesChangedFields() throws Exception {
+        ApiMember member = new ApiMember(1L, this.plugin);
+        member.setGuildId(10L);
+        member.setNickname("before");
+        member.setExperience(100L);
+        this.database.saveMember(member);
+
+        ApiMember loaded = this.database.loadMember(10L, 1L);
+        this.database.incrementMemberStats(10L, 1L, 50L, 0L);
+
+        loaded.setNickname("after");
+        this.database.saveMember(loaded);
+
+        ApiMember reloaded = this.database.loadMember(10L, 1L);
+        assertEquals("after", reloaded.getNickname().orElse(null));
+        assertEquals(150L, reloaded.getExperience());
+    }
+
+    @Test
+    public void testIncrementMemberStats() throws Exception {
+        this.database.incrementMemberStats(10L, 1L, 20L, 0L);
+        this.database.incrementMemberStats(List.of(
+            new MemberStatsDelta(10L, 1L, 15L, 30_000L),
+            new MemberStatsDelta(10L, 2L, 5L, 0L)
+        ));
+
+        ApiMember loaded = this.database.loadMember(10L, 1L);
+        assertEquals(35L, loaded.getExperience());
+        assertEquals(30_000L, loaded.getVoiceActivity());
+        assertEquals(-1, loaded.getPlacement());
+        assertEquals(5L, this.database.loadMember(10L, 2L).getExperience());
+    }
+
+    @Test
+    public void testLoadMembersWithHighestExperience() throws Exception {
+        for (long userId = 1; userId <= 5; userId++) {
+            this.database.incrementMemberStats(10L, userId, userId * 10, 0L);
+        }
+        this.database.incrementMemberStats(20L, 6L, 1000L, 0L);
+
+        // overtakes every other member of the guild
+        this.database.incrementMemberStats(10L, 2L, 100L, 0L);
+
+        List<Long> ids = new ArrayList<>();
+        for (ApiMember member : this.database.loadMembersWithHighestExperience(10L, 3)) {
+            ids.add(member.getId());
+        }
+        assertEquals(List.of(2L, 5L, 4L), ids);
+    }
+
+    @Test
+    public void testRecovery() throws Exception {
+        ApiUser user = new ApiUser(1L, this.plugin);
+        user.setUsername("user");
+        this.database.saveUser(user);
+
+        for (int i = 0; i < 100; i++) {
+            this.database.incrementMemberStats(10L, 1L, 1L, 0L);
+            this.database.incrementMemberStats(10L, 2L, 2L, 0L);
+        }
+        assertTrue(segmentCount() > 1);
+
+        reopen();
+
+        assertEquals("user", this.database.loadUser(1L).getUsername());
+        assertEquals(100L, this.database.loadMember(10L, 1L).getExperience());
+        assertEquals(200L, this.database.loadMember(10L, 2L).getExperience());
+        assertEquals(2L, this.database.loadMembersWithHighestExperience(10L, 1).getFirst().getId());
+    }
+
+    @Test
+    public void testCompaction() throws Exception {
+        ApiUser user = new ApiUser(1L, this.plugin);
+        user.setUsername("user");
+        this.database.saveUser(user);
+
+        for (int i = 0; i < 100; i++) {
+            this.database.incrementMemberStats(10L, 1L, 1L, 0L);
+        }
+        long before = segmentCount();
+
+        ((JournalStorage) this.database).compact();
+        assertTrue(segmentCount() < before);
+
+        assertEquals("user", this.database.loadUser(1L).getUsername());
+        assertEquals(100L, this.database.loadMember(10L, 1L).getExperience());
+
+        reopen();
+
+        assertEquals("user", this.database.loadUser(1L).getUsername());
+        assertEquals(100L, this.database.loadMember(10L, 1L).getExperience());
+    }
+
+    private long segmentCount() throws Exception {
+        try (Stream<Path> files = Files.list(this.directory)) {
+            return files.count();
+        }
+    }
+}
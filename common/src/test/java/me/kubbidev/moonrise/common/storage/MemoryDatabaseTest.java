@@ -0,0 +1,126 @@
+package me.kubbidev.moonrise.common.storage;
+
+import me.kubbidev.moonrise.common.model.ApiGuild;
+import me.kubbidev.moonrise.common.model.ApiMember;
+import me.kubbidev.moonrise.common.model.ApiUser;
+import me.kubbidev.moonrise.common.plugin.MoonRisePlugin;
+import me.kubbidev.moonrise.common.storage.implementation.StorageImplementation;
+import me.kubbidev.moonrise.common.storage.implementation.memory.MemoryStorage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MemoryDatabaseTest extends AbstractDatabaseTest {
+
+    private @TempDir Path directory;
+
+    @Override
+    protected StorageImplementation makeDatabase(MoonRisePlugin plugin) {
+        return new MemoryStorage(plugin, this.directory.resolve("moonrise-memory.snapshot"), 60);
+    }
+
+    @Test
+    public void testSaveMemberOnlyWritesChangedFields() throws Exception {
+        ApiMember member = new ApiMember(1L, this.plugin);
+        member.setGuildId(10L);
+        member.setUsername("member");
+        member.setNickname("before");
+        member.setExperience(100L);
+        this.database.saveMember(member);
+
+        ApiMember loaded = this.database.loadMember(10L, 1L);
+        assertEquals("member", loaded.getUsername());
+        assertTrue(loaded.getDirtyMemberFields().isEmpty());
+
+        this.database.incrementMemberStats(10L, 1L, 50L, 0L);
+        loaded.setNickname("after");
+        this.database.saveMember(loaded);
+
+        ApiMember reloaded = this.database.loadMember(10L, 1L);
+        assertEquals("after", reloaded.getNickname().orElse(null));
+        assertEquals(150L, reloaded.getExperience());
+    }
+
+    @Test
+    public void testLoadMembersWithHighestExperience() throws Exception {
+        for (long userId = 1; userId <= 5; userId++) {
+            this.database.incrementMemberStats(10L, userId, userId * 10, 0L);
+        }
+        this.database.incrementMemberStats(10L, 2L, 100L, 0L);
+
+        List<Long> ids = new ArrayList<>();
+        for (ApiMember member : this.database.loadMembersWithHighestExperience(10L, 3)) {
+            ids.add(member.getId());
+        }
+        assertEquals(List.of(2L, 5L, 4L), ids);
+    }
+
+    @Test
+    public void testPages() throws Exception {
+        for (long id = 5; id >= 1; id--) {
+            ApiUser user = new ApiUser(id, this.plugin);
+            user.setUsername("user" + id);
+            this.database.saveUser(user);
+        }
+        this.database.incrementMemberStats(11L, 1L, 1L, 0L);
+        this.database.incrementMemberStats(10L, 2L, 1L, 0L);
+        this.database.incrementMemberStats(10L, 1L, 1L, 0L);
+
+        StorageImplementation.PageReader<ApiUser> users = this.database.userPages(Long.MIN_VALUE, 2);
+        assertEquals(List.of(1L, 2L), users.next().stream().map(ApiUser::getId).toList());
+        assertEquals(List.of(3L, 4L), users.next().stream().map(ApiUser::getId).toList());
+        assertEquals(List.of(5L), users.next().stream().map(ApiUser::getId).toList());
+        assertTrue(users.next().isEmpty());
+
+        StorageImplementation.PageReader<ApiMember> members = this.database.memberPages(1L, 10L, 1);
+        ApiMember member = members.next().getFirst();
+        assertEquals(1L, member.getId());
+        assertEquals(11L, member.getGuildId());
+        assertEquals(2L, members.next().getFirst().getId());
+        assertTrue(members.next().isEmpty());
+    }
+
+    @Test
+    public void testSnapshot() throws Exception {
+        ApiUser user = new ApiUser(1L, this.plugin);
+        user.setUsername("user");
+        this.database.saveUser(user);
+
+        ApiGuild guild = new ApiGuild(10L, this.plugin);
+        guild.setName("guild");
+        this.database.saveGuild(guild);
+
+        this.database.incrementMemberStats(10L, 1L, 25L, 60_000L);
+
+        this.database.shutdown();
+        this.database = makeDatabase(this.plugin);
+        this.database.init();
+
+        assertEquals("user", this.database.loadUser(1L).getUsername());
+        assertEquals("guild", this.database.loadGuild(10L).getName());
+        ApiMember member = this.database.loadMember(10L, 1L);
+        assertEquals("user", member.getUsername());
+        assertEquals(25L, member.getExperience());
+        assertEquals(60_000L, member.getVoiceActivity());
+    }
+
+    @Test
+    public void testSnapshotsDisabled() throws Exception {
+        this.database.shutdown();
+        this.database = new MemoryStorage(this.plugin, this.directory.resolve("disabled.snapshot"), 0);
+        this.database.init();
+
+        this.database.incrementMemberStats(10L, 1L, 25L, 0L);
+        this.database.shutdown();
+
+        assertFalse(Files.exists(this.directory.resolve("disabled.snapshot")));
+    }
+}
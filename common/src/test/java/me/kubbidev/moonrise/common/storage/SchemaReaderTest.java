@@ -0,0 +1,62 @@
+package me.kubbidev.moonrise.common.storage;
+
+import me.kubbidev.moonrise.common.storage.implementation.sql.SchemaReader;
+import me.kubbidev.moonrise.common.storage.implementation.sql.SqlDialect;
+import me.kubbidev.moonrise.common.storage.implementation.sql.StatementProcessor;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class SchemaReaderTest {
+
+    private static final String CREATE_MEMBERS =
+        "CREATE TABLE '{prefix}members' (user_id BIGINT, guild_id BIGINT, PRIMARY KEY (user_id, guild_id))";
+
+    private static List<String> partitionedMembers(SqlDialect dialect, StatementProcessor processor) {
+        return dialect.partitionByHash(CREATE_MEMBERS, "{prefix}members", "guild_id", 3).stream()
+            .map(processor.compose(s -> s.replace("{prefix}", "moonrise_"))::process)
+            .collect(Collectors.toList());
+    }
+
+    @Test
+    public void testPostgresPartitions() {
+        List<String> statements = partitionedMembers(SqlDialect.POSTGRESQL, StatementProcessor.USE_DOUBLE_QUOTES);
+        assertEquals(List.of(
+            "CREATE TABLE \"moonrise_members\" (user_id BIGINT, guild_id BIGINT, PRIMARY KEY (user_id, guild_id))"
+                + " PARTITION BY HASH (guild_id)",
+            "CREATE TABLE \"moonrise_members_p0\" PARTITION OF \"moonrise_members\""
+                + " FOR VALUES WITH (MODULUS 3, REMAINDER 0)",
+            "CREATE TABLE \"moonrise_members_p1\" PARTITION OF \"moonrise_members\""
+                + " FOR VALUES WITH (MODULUS 3, REMAINDER 1)",
+            "CREATE TABLE \"moonrise_members_p2\" PARTITION OF \"moonrise_members\""
+                + " FOR VALUES WITH (MODULUS 3, REMAINDER 2)"
+        ), statements);
+
+        // a fresh installation creates the table along with its partitions
+        assertEquals(statements, SchemaReader.filterStatements(statements, List.of(), Set.of()));
+
+        // partitions can't be attached to an existing table, even if it has none
+        assertEquals(List.of(), SchemaReader.filterStatements(statements, List.of("moonrise_members"), Set.of()));
+    }
+
+    @Test
+    public void testMySqlPartitions() {
+        assertEquals(List.of(
+            "CREATE TABLE `moonrise_members` (user_id BIGINT, guild_id BIGINT, PRIMARY KEY (user_id, guild_id))"
+                + " PARTITION BY KEY (guild_id) PARTITIONS 3"
+        ), partitionedMembers(SqlDialect.MYSQL, StatementProcessor.USE_BACKTICKS));
+    }
+
+    @Test
+    public void testUnsupportedPartitions() {
+        assertThrows(UnsupportedOperationException.class,
+            () -> partitionedMembers(SqlDialect.SQLITE, StatementProcessor.USE_DOUBLE_QUOTES));
+        assertThrows(UnsupportedOperationException.class,
+            () -> partitionedMembers(SqlDialect.H2, StatementProcessor.USE_DOUBLE_QUOTES));
+    }
+}
@@ -1,30 +1,610 @@
 package me.kubbidev.moonrise.common.storage;
 
 import me.kubbidev.moonrise.common.storage.implementation.StorageImplementation;
+import me.kubbidev.moonrise.common.storage.implementation.sql.SchemaReader;
+import me.kubbidev.moonrise.common.storage.implementation.sql.SqlDialect;
 import me.kubbidev.moonrise.common.storage.implementation.sql.SqlStorage;
 import me.kubbidev.moonrise.common.storage.implementation.sql.StatementProcessor;
 import me.kubbidev.moonrise.common.storage.implementation.sql.connection.ConnectionFactory;
 import me.kubbidev.moonrise.common.storage.implementation.sql.connection.file.H2ConnectionFactory;
 import me.kubbidev.moonrise.common.storage.implementation.sql.connection.file.NonClosableConnection;
+import me.kubbidev.moonrise.common.model.ApiGuild;
+import me.kubbidev.moonrise.common.model.ApiMember;
+import me.kubbidev.moonrise.common.model.ApiUser;
 import me.kubbidev.moonrise.common.plugin.MoonRisePlugin;
+import me.kubbidev.moonrise.common.storage.misc.BucketGain;
+import me.kubbidev.moonrise.common.storage.misc.ExperienceGain;
+import me.kubbidev.moonrise.common.storage.misc.ExperienceWindow;
+import me.kubbidev.moonrise.common.storage.misc.MemberStatsDelta;
+import me.kubbidev.moonrise.common.util.Long2;
+import org.junit.jupiter.api.Test;
 
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class SqlDatabaseTest extends AbstractDatabaseTest {
 
+    private TestH2ConnectionFactory connectionFactory;
+
     @Override
     protected StorageImplementation makeDatabase(MoonRisePlugin plugin) throws Exception {
-        return new SqlStorage(plugin, new TestH2ConnectionFactory(), "moonrise_");
+        this.connectionFactory = new TestH2ConnectionFactory();
+        return new SqlStorage(plugin, this.connectionFactory, "moonrise_");
+    }
+
+    @Test
+    public void testUpsertUser() throws Exception {
+        ApiUser user = new ApiUser(1L, this.plugin);
+        user.setUsername("first");
+        this.database.saveUser(user);
+
+        user.setUsername("second");
+        this.database.saveUser(user);
+
+        assertEquals("second", this.database.loadUser(1L).getUsername());
+        assertEquals(1, this.database.getUniqueUsers().size());
+    }
+
+    @Test
+    public void testUpsertGuild() throws Exception {
+        ApiGuild guild = new ApiGuild(10L, this.plugin);
+        this.database.saveGuild(guild);
+
+        guild.setLeaderboardEnabled(true);
+        guild.setLeaderboardChannelId(20L);
+        this.database.saveGuild(guild);
+
+        ApiGuild loaded = this.database.loadGuild(10L);
+        assertTrue(loaded.isLeaderboardEnabled());
+        assertEquals(20L, loaded.getLeaderboardChannelId());
+        assertEquals(1, this.database.getUniqueGuilds().size());
+    }
+
+    @Test
+    public void testUpsertMember() throws Exception {
+        ApiMember member = new ApiMember(1L, this.plugin);
+        member.setGuildId(10L);
+        member.setUsername("member");
+        member.setExperience(100L);
+        this.database.saveMember(member);
+
+        member.setExperience(250L);
+        member.setVoiceActivity(60_000L);
+        this.database.saveMember(member);
+
+        ApiMember loaded = this.database.loadMember(10L, 1L);
+        assertEquals("member", loaded.getUsername());
+        assertEquals(250L, loaded.getExperience());
+        assertEquals(60_000L, loaded.getVoiceActivity());
+        assertEquals(1, this.database.getUniqueMembers(10L).size());
+    }
+
+    @Test
+    public void testSaveMemberOnlyWritesChangedFields() throws Exception {
+        ApiMember member = new ApiMember(1L, this.plugin);
+        member.setGuildId(10L);
+        member.setUsername("member");
+        member.setNickname("before");
+        member.setExperience(100L);
+        this.database.saveMember(member);
+
+        ApiMember loaded = this.database.loadMember(10L, 1L);
+        assertTrue(loaded.getDirtyUserFields().isEmpty());
+        assertTrue(loaded.getDirtyMemberFields().isEmpty());
+
+        // written while the loaded copy is held, and must not be overwritten by it
+        this.database.incrementMemberStats(10L, 1L, 50L, 0L);
+
+        loaded.setNickname("after");
+        assertEquals(Set.of(ApiMember.Field.NICKNAME), loaded.getDirtyMemberFields().drain());
+        loaded.setNickname("after2");
+        this.database.saveMember(loaded);
+        assertTrue(loaded.getDirtyMemberFields().isEmpty());
+
+        ApiMember reloaded = this.database.loadMember(10L, 1L);
+        assertEquals("after2", reloaded.getNickname().orElse(null));
+        assertEquals(150L, reloaded.getExperience());
+    }
+
+    @Test
+    public void testNewEntitiesAreInserted() throws Exception {
+        // a user can't be stored until their username is known
+        this.database.saveUser(new ApiUser(1L, this.plugin));
+        this.database.saveGuild(new ApiGuild(10L, this.plugin));
+
+        ApiMember member = new ApiMember(2L, this.plugin);
+        member.setGuildId(10L);
+        this.database.saveMembers(List.of(member));
+
+        assertEquals(0, this.database.getUniqueUsers().size());
+        assertEquals(1, this.database.getUniqueGuilds().size());
+        assertEquals(1, this.database.getUniqueMembers(10L).size());
+
+        ApiMember loaded = this.database.loadMember(10L, 2L);
+        assertEquals(0L, loaded.getExperience());
+        assertTrue(loaded.getDirtyMemberFields().isEmpty());
+        assertTrue(this.database.loadGuild(10L).getDirtyFields().isEmpty());
+    }
+
+    @Test
+    public void testIncrementMemberStats() throws Exception {
+        this.database.incrementMemberStats(10L, 1L, 20L, 0L);
+        this.database.incrementMemberStats(10L, 1L, 15L, 30_000L);
+
+        ApiMember loaded = this.database.loadMember(10L, 1L);
+        assertEquals(35L, loaded.getExperience());
+        assertEquals(30_000L, loaded.getVoiceActivity());
+        assertEquals(-1, loaded.getPlacement());
+    }
+
+    @Test
+    public void testIncrementMemberStatsBatch() throws Exception {
+        this.database.incrementMemberStats(10L, 1L, 5L, 0L);
+        this.database.incrementMemberStats(List.of(
+            new MemberStatsDelta(10L, 1L, 10L, 1_000L),
+            new MemberStatsDelta(10L, 2L, 20L, 2_000L),
+            new MemberStatsDelta(11L, 1L, 30L, 3_000L)
+        ));
+
+        assertEquals(15L, this.database.loadMember(10L, 1L).getExperience());
+        assertEquals(20L, this.database.loadMember(10L, 2L).getExperience());
+        assertEquals(3_000L, this.database.loadMember(11L, 1L).getVoiceActivity());
+    }
+
+    @Test
+    public void testLoadMembersJoinsUsers() throws Exception {
+        ApiMember member = new ApiMember(1L, this.plugin);
+        member.setGuildId(10L);
+        member.setUsername("joined");
+        member.setExperience(50L);
+        this.database.saveMember(member);
+
+        // members without a user row are still loaded
+        this.database.incrementMemberStats(10L, 2L, 100L, 0L);
+
+        List<ApiMember> highest = this.database.loadMembersWithHighestExperience(10L, 10);
+        assertEquals(2, highest.size());
+        assertEquals(2L, highest.get(0).getId());
+        assertEquals("joined", highest.get(1).getUsername());
+
+        assertEquals("joined", this.database.loadMember(10L, 1L).getUsername());
+
+        List<ApiMember> members = this.database.loadMembers(10L, List.of(1L, 2L, 3L));
+        assertEquals(3, members.size());
+        assertEquals("joined", members.get(0).getUsername());
+        assertEquals(100L, members.get(1).getExperience());
+        assertEquals(0L, members.get(2).getExperience());
+        assertEquals(10L, members.get(2).getGuildId());
+    }
+
+    @Test
+    public void testSaveMembers() throws Exception {
+        List<ApiMember> members = new ArrayList<>();
+        for (long i = 1; i <= 3; i++) {
+            ApiMember member = new ApiMember(i, this.plugin);
+            member.setGuildId(10L);
+            member.setUsername("member" + i);
+            member.setPlacement((int) i);
+            members.add(member);
+        }
+        this.database.saveMembers(members);
+
+        members.get(0).setPlacement(3);
+        members.get(2).setPlacement(1);
+        this.database.saveMembers(List.of(members.get(0), members.get(2)));
+
+        List<ApiMember> loaded = this.database.loadMembers(10L, List.of(1L, 2L, 3L));
+        assertEquals(3, loaded.get(0).getPlacement());
+        assertEquals(2, loaded.get(1).getPlacement());
+        assertEquals(1, loaded.get(2).getPlacement());
+        assertEquals("member3", loaded.get(2).getUsername());
+    }
+
+    @Test
+    public void testUniqueIds() throws Exception {
+        this.database.incrementMemberStats(List.of(
+            new MemberStatsDelta(10L, 3L, 1L, 0L),
+            new MemberStatsDelta(10L, 1L, 1L, 0L),
+            new MemberStatsDelta(11L, 3L, 1L, 0L)
+        ));
+
+        assertArrayEquals(new long[]{1L, 3L}, this.database.getUniqueMemberIds());
+        assertArrayEquals(new long[]{3L}, this.database.getUniqueMemberIds(11L));
+        assertArrayEquals(new long[0], this.database.getUniqueUserIds());
+
+        List<Long> visited = new ArrayList<>();
+        this.database.forEachMemberId(10L, visited::add);
+        visited.sort(null);
+        assertEquals(List.of(1L, 3L), visited);
+        assertEquals(2, this.database.getUniqueMembers().size());
+    }
+
+    @Test
+    public void testMemberExperience() throws Exception {
+        this.database.incrementMemberStats(List.of(
+            new MemberStatsDelta(10L, 1L, 20L, 0L),
+            new MemberStatsDelta(10L, 2L, 50L, 0L),
+            new MemberStatsDelta(10L, 3L, 30L, 0L),
+            new MemberStatsDelta(11L, 4L, 90L, 0L)
+        ));
+
+        List<Long> visited = new ArrayList<>();
+        this.database.forEachMemberExperience(10L, 2, (userId, experience) -> {
+            visited.add(userId);
+            visited.add(experience);
+        });
+        assertEquals(List.of(2L, 50L, 3L, 30L), visited);
+    }
+
+    @Test
+    public void testPages() throws Exception {
+        List<ApiUser> users = new ArrayList<>();
+        for (long id = 5; id >= 1; id--) {
+            ApiUser user = new ApiUser(id, this.plugin);
+            user.setUsername("user" + id);
+            users.add(user);
+        }
+        this.database.saveUsers(users);
+        this.database.incrementMemberStats(List.of(
+            new MemberStatsDelta(11L, 1L, 1L, 0L),
+            new MemberStatsDelta(10L, 2L, 1L, 0L),
+            new MemberStatsDelta(10L, 1L, 1L, 0L)
+        ));
+
+        List<ApiUser> page = this.database.loadUserPage(Long.MIN_VALUE, 2);
+        assertEquals(List.of(1L, 2L), page.stream().map(ApiUser::getId).toList());
+        assertEquals("user2", page.get(1).getUsername());
+        page = this.database.loadUserPage(4L, 2);
+        assertEquals(List.of(5L), page.stream().map(ApiUser::getId).toList());
+
+        List<ApiMember> members = this.database.loadMemberPage(1L, 10L, 2);
+        assertEquals(2, members.size());
+        assertEquals(11L, members.get(0).getGuildId());
+        assertEquals(2L, members.get(1).getId());
+        assertTrue(this.database.loadMemberPage(2L, 10L, 2).isEmpty());
+    }
+
+    @Test
+    public void testPreparedStatementsAreReused() throws Exception {
+        Connection c = ((SqlStorage) this.database).getConnectionFactory().getConnection();
+
+        PreparedStatement first;
+        try (PreparedStatement ps = c.prepareStatement("SELECT 1")) {
+            first = ps.unwrap(PreparedStatement.class);
+        }
+        try (PreparedStatement ps = c.prepareStatement("SELECT 1")) {
+            assertSame(first, ps.unwrap(PreparedStatement.class));
+            assertTrue(ps.executeQuery().next());
+        }
+    }
+
+    @Test
+    public void testSchemaCreatesMissingIndexes() throws Exception {
+        SqlStorage storage = (SqlStorage) this.database;
+        try (Connection c = storage.getConnectionFactory().getConnection();
+             Statement s = c.createStatement()) {
+            s.execute("DROP INDEX `moonrise_members_guild_experience`");
+        }
+
+        // re-applying the schema to the existing tables restores the index
+        storage.init();
+
+        // H2 upper-cases backtick quoted identifiers
+        try (Connection c = storage.getConnectionFactory().getConnection();
+             ResultSet rs = c.getMetaData().getIndexInfo(c.getCatalog(), null, "MOONRISE_MEMBERS", false, true)) {
+            boolean found = false;
+            while (rs.next()) {
+                found |= "moonrise_members_guild_experience".equalsIgnoreCase(rs.getString("INDEX_NAME"));
+            }
+            assertTrue(found);
+        }
+    }
+
+    @Test
+    public void testSchemaDropsUnnamedMemberIndex() throws Exception {
+        SqlStorage storage = (SqlStorage) this.database;
+        try (Connection c = storage.getConnectionFactory().getConnection();
+             Statement s = c.createStatement()) {
+            s.execute("CREATE INDEX ON `moonrise_members` (`user_id`, `guild_id`)");
+        }
+        assertEquals(1, countNonUniqueMemberIndexes(storage, "USER_ID"));
+
+        // re-applying the schema drops the index older H2 schemas created
+        storage.init();
+        assertEquals(0, countNonUniqueMemberIndexes(storage, "USER_ID"));
+        assertEquals(1, countNonUniqueMemberIndexes(storage, "GUILD_ID"));
+    }
+
+    private static int countNonUniqueMemberIndexes(SqlStorage storage, String firstColumn) throws SQLException {
+        try (Connection c = storage.getConnectionFactory().getConnection();
+             ResultSet rs = c.getMetaData().getIndexInfo(c.getCatalog(), null, "MOONRISE_MEMBERS", false, true)) {
+            int count = 0;
+            while (rs.next()) {
+                if (rs.getBoolean("NON_UNIQUE") && rs.getShort("ORDINAL_POSITION") == 1
+                    && firstColumn.equals(rs.getString("COLUMN_NAME"))) {
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+
+    @Test
+    public void testSchemaFilterStatements() {
+        List<String> statements = List.of(
+            "CREATE TABLE `members` (`id` BIGINT)",
+            "CREATE INDEX `members_guild_experience` ON `members` (`guild_id`, `experience` DESC)",
+            "CREATE INDEX ON `members` (`user_id`)",
+            "DROP INDEX `members_user_guild_unique`"
+        );
+
+        assertEquals(statements.subList(0, 3),
+            SchemaReader.filterStatements(statements, List.of(), Set.of()));
+        assertEquals(List.of(statements.get(1), statements.get(3)),
+            SchemaReader.filterStatements(statements, List.of("members"), Set.of("members_user_guild_unique")));
+        assertEquals(List.of(),
+            SchemaReader.filterStatements(statements, List.of("members"), Set.of("members_guild_experience")));
+    }
+
+    @Test
+    public void testExperienceGains() throws Exception {
+        this.database.incrementMemberStats(List.of(
+            new MemberStatsDelta(10L, 1L, 100L, 0L),
+            new MemberStatsDelta(10L, 2L, 50L, 0L),
+            new MemberStatsDelta(20L, 3L, 500L, 0L)
+        ));
+        this.database.incrementMemberStats(10L, 2L, 75L, 0L);
+        this.database.incrementMemberStats(10L, 3L, 0L, 60_000L);
+
+        int week = ExperienceWindow.WEEK.bucket(ExperienceWindow.today());
+        List<ExperienceGain> gains = this.database.loadMembersWithHighestExperience(10L, ExperienceWindow.WEEK,
+            week, 10);
+        assertEquals(2, gains.size());
+        assertEquals(2L, gains.get(0).member().getId());
+        assertEquals(125L, gains.get(0).experience());
+        assertEquals(125L, gains.get(0).member().getExperience());
+        assertEquals(1L, gains.get(1).member().getId());
+
+        // gains within a window are separate from the lifetime experience
+        assertTrue(this.database.loadMembersWithHighestExperience(10L, ExperienceWindow.WEEK, week - 1, 10)
+            .isEmpty());
+
+        int month = ExperienceWindow.MONTH.bucket(ExperienceWindow.today());
+        this.database.pruneExperienceGains(ExperienceWindow.MONTH, month);
+        assertEquals(2, this.database.loadMembersWithHighestExperience(10L, ExperienceWindow.MONTH, month, 10)
+            .size());
+        this.database.pruneExperienceGains(ExperienceWindow.MONTH, month + 1);
+        assertTrue(this.database.loadMembersWithHighestExperience(10L, ExperienceWindow.MONTH, month, 10)
+            .isEmpty());
+    }
+
+    @Test
+    public void testExperienceGainsKeepTheirDay() throws Exception {
+        // buffered before midnight and written after it, within the same batch as a gain of the new day
+        LocalDate today = ExperienceWindow.today();
+        this.database.incrementMemberStats(List.of(
+            new MemberStatsDelta(10L, 1L, 30L, 0L, today.minusDays(1)),
+            new MemberStatsDelta(10L, 1L, 20L, 0L, today)
+        ));
+
+        int day = ExperienceWindow.DAY.bucket(today);
+        assertEquals(30L, this.database.loadMembersWithHighestExperience(10L, ExperienceWindow.DAY, day - 1, 10)
+            .getFirst().experience());
+        assertEquals(20L, this.database.loadMembersWithHighestExperience(10L, ExperienceWindow.DAY, day, 10)
+            .getFirst().experience());
+        assertEquals(50L, this.database.loadMember(10L, 1L).getExperience());
+    }
+
+    @Test
+    public void testExperienceGainPages() throws Exception {
+        int week = ExperienceWindow.WEEK.bucket(ExperienceWindow.today());
+        this.database.saveExperienceGains(ExperienceWindow.WEEK, List.of(
+            new BucketGain(20L, week, 1L, 10L),
+            new BucketGain(10L, week, 2L, 20L),
+            new BucketGain(10L, week - 1, 3L, 30L)
+        ));
+        // saving again replaces the experience rather than adding onto it
+        this.database.saveExperienceGains(ExperienceWindow.WEEK, List.of(new BucketGain(10L, week, 2L, 25L)));
+
+        StorageImplementation.PageReader<BucketGain> pages = this.database.experienceGainPages(ExperienceWindow.WEEK,
+            Long.MIN_VALUE, Integer.MIN_VALUE, Long.MIN_VALUE, 2);
+        assertEquals(List.of(new BucketGain(10L, week - 1, 3L, 30L), new BucketGain(10L, week, 2L, 25L)),
+            pages.next());
+        assertEquals(List.of(new BucketGain(20L, week, 1L, 10L)), pages.next());
+        assertTrue(pages.next().isEmpty());
+
+        assertEquals(List.of(new BucketGain(20L, week, 1L, 10L)), this.database.experienceGainPages(
+            ExperienceWindow.WEEK, 10L, week, 2L, 10).next());
+        assertTrue(this.database.experienceGainPages(ExperienceWindow.DAY, Long.MIN_VALUE, Integer.MIN_VALUE,
+            Long.MIN_VALUE, 10).next().isEmpty());
+    }
+
+    @Test
+    public void testUnarchiveMembers() throws Exception {
+        ApiUser user = new ApiUser(1L, this.plugin);
+        user.setUsername("user1");
+        user.setLastSeen(Instant.now().minus(365, ChronoUnit.DAYS));
+        this.database.saveUser(user);
+
+        for (long guildId = 10; guildId <= 30; guildId += 10) {
+            ApiMember member = new ApiMember(1L, this.plugin);
+            member.setGuildId(guildId);
+            member.setExperience(guildId);
+            this.database.saveMember(member);
+        }
+        assertEquals(3, this.database.archiveMembers(50L, Instant.now(), Long.MIN_VALUE, Long.MIN_VALUE, 100).size());
+
+        assertEquals(2, this.database.unarchiveMembers(2).size());
+        assertEquals(1, this.database.unarchiveMembers(2).size());
+        assertTrue(this.database.unarchiveMembers(2).isEmpty());
+        assertArrayEquals(new long[]{1L}, this.database.getUniqueMemberIds(30L));
+        assertEquals(20L, this.database.loadMember(20L, 1L).getExperience());
+    }
+
+    @Test
+    public void testArchiveMembers() throws Exception {
+        Instant old = Instant.now().minus(365, ChronoUnit.DAYS);
+        for (long userId = 1; userId <= 3; userId++) {
+            ApiUser user = new ApiUser(userId, this.plugin);
+            user.setUsername("user" + userId);
+            user.setLastSeen(userId == 3 ? Instant.now() : old);
+            this.database.saveUser(user);
+
+            ApiMember member = new ApiMember(userId, this.plugin);
+            member.setGuildId(10L);
+            member.setNickname("member" + userId);
+            member.setExperience(userId == 2 ? 1000L : 10L);
+            this.database.saveMember(member);
+        }
+
+        Instant cutoff = Instant.now().minus(30, ChronoUnit.DAYS);
+        assertEquals(List.of(new Long2(10L, 1L)),
+            this.database.archiveMembers(50L, cutoff, Long.MIN_VALUE, Long.MIN_VALUE, 100));
+        assertArrayEquals(new long[]{2L, 3L}, this.database.getUniqueMemberIds(10L));
+
+        // loading an archived member moves it back
+        ApiMember restored = this.database.loadMember(10L, 1L);
+        assertEquals("member1", restored.getNickname().orElse(null));
+        assertEquals(10L, restored.getExperience());
+        assertArrayEquals(new long[]{1L, 2L, 3L}, this.database.getUniqueMemberIds(10L));
+
+        // experience granted after archiving is kept when the member is restored
+        this.database.archiveMembers(50L, cutoff, Long.MIN_VALUE, Long.MIN_VALUE, 100);
+        this.database.incrementMemberStats(10L, 1L, 5L, 0L);
+        assertEquals(List.of(new Long2(10L, 1L)), this.database.restoreArchivedMembers(100));
+
+        ApiMember merged = this.database.loadMember(10L, 1L);
+        assertEquals("member1", merged.getNickname().orElse(null));
+        assertEquals(15L, merged.getExperience());
+        assertTrue(this.database.restoreArchivedMembers(100).isEmpty());
+
+        // loading a member granted experience since being archived merges it back straight away
+        this.database.archiveMembers(50L, cutoff, Long.MIN_VALUE, Long.MIN_VALUE, 100);
+        this.database.incrementMemberStats(10L, 1L, 5L, 0L);
+        assertEquals(20L, this.database.loadMember(10L, 1L).getExperience());
+        assertEquals(20L, this.database.loadMembers(10L, List.of(1L)).getFirst().getExperience());
+        assertTrue(this.database.restoreArchivedMembers(100).isEmpty());
+    }
+
+    @Test
+    public void testLoadMembersProbesArchive() throws Exception {
+        ApiUser user = new ApiUser(1L, this.plugin);
+        user.setUsername("user1");
+        user.setLastSeen(Instant.now().minus(365, ChronoUnit.DAYS));
+        this.database.saveUser(user);
+        for (long userId = 1; userId <= 3; userId++) {
+            ApiMember member = new ApiMember(userId, this.plugin);
+            member.setGuildId(10L);
+            member.setExperience(userId);
+            this.database.saveMember(member);
+        }
+        this.database.archiveMembers(50L, Instant.now(), Long.MIN_VALUE, Long.MIN_VALUE, 100);
+
+        // members which aren't archived are read with a single statement
+        List<String> prepared = new ArrayList<>();
+        this.connectionFactory.connection.beforePrepare = prepared::add;
+        assertEquals(3L, this.database.loadMember(10L, 3L).getExperience());
+        assertEquals(1, prepared.size());
+
+        // the listener is only told of the archived experience, the new row already counted the grant
+        List<List<Long>> restored = new ArrayList<>();
+        this.database.setRestoreListener((guildId, userId, experience) -> restored.add(
+            List.of(guildId, userId, experience)));
+        this.database.incrementMemberStats(10L, 1L, 10L, 0L);
+        prepared.clear();
+        List<ApiMember> members = this.database.loadMembers(10L, List.of(1L, 2L, 3L));
+        assertEquals(List.of(11L, 2L, 3L), members.stream().map(ApiMember::getExperience).toList());
+        assertEquals(List.of(List.of(10L, 1L, 1L)), restored);
+        assertEquals(1, prepared.stream().filter(sql -> sql.contains("SELECT user_id, nickname")
+            && sql.contains("FROM `moonrise_members_archive`")).count());
+        assertTrue(this.database.unarchiveMembers(100).isEmpty());
+    }
+
+    @Test
+    public void testArchiveKeepsMembersWithoutUser() throws Exception {
+        ApiMember member = new ApiMember(1L, this.plugin);
+        member.setGuildId(10L);
+        member.setExperience(10L);
+        this.database.saveMember(member);
+
+        // when the user was last seen is unknown, so the member is kept
+        assertTrue(this.database.archiveMembers(50L, Instant.now(), Long.MIN_VALUE, Long.MIN_VALUE, 100).isEmpty());
+        assertArrayEquals(new long[]{1L}, this.database.getUniqueMemberIds(10L));
+    }
+
+    @Test
+    public void testArchiveKeepsMembersChangedMeanwhile() throws Exception {
+        ApiUser user = new ApiUser(1L, this.plugin);
+        user.setUsername("user1");
+        user.setLastSeen(Instant.now().minus(365, ChronoUnit.DAYS));
+        this.database.saveUser(user);
+
+        ApiMember member = new ApiMember(1L, this.plugin);
+        member.setGuildId(10L);
+        member.setExperience(10L);
+        this.database.saveMember(member);
+
+        // experience is granted once the member has been copied into the archive, before it is deleted
+        this.connectionFactory.connection.beforePrepare = sql -> {
+            if (sql.contains("DELETE FROM `moonrise_members`")) {
+                this.connectionFactory.connection.beforePrepare = null;
+                try (Statement s = this.connectionFactory.connection.createStatement()) {
+                    s.execute("UPDATE `moonrise_members` SET `experience`=`experience`+100");
+                }
+            }
+        };
+        this.database.archiveMembers(50L, Instant.now(), Long.MIN_VALUE, Long.MIN_VALUE, 100);
+
+        // the member stays, and no archived copy is left to be counted again
+        assertArrayEquals(new long[]{1L}, this.database.getUniqueMemberIds(10L));
+        assertTrue(this.database.restoreArchivedMembers(100).isEmpty());
+        assertEquals(110L, this.database.loadMember(10L, 1L).getExperience());
+    }
+
+    @FunctionalInterface
+    private interface PrepareHook {
+
+        void accept(String sql) throws SQLException;
+    }
+
+    private static class TestH2Connection extends NonClosableConnection {
+
+        private PrepareHook beforePrepare;
+
+        TestH2Connection(Connection delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public PreparedStatement prepareStatement(String sql) throws SQLException {
+            if (this.beforePrepare != null) {
+                this.beforePrepare.accept(sql);
+            }
+            return super.prepareStatement(sql);
+        }
     }
 
     private static class TestH2ConnectionFactory implements ConnectionFactory {
 
-        private final NonClosableConnection connection;
+        private final TestH2Connection connection;
 
         TestH2ConnectionFactory() throws SQLException {
-            this.connection = new NonClosableConnection(
+            this.connection = new TestH2Connection(
                 DriverManager.getConnection("jdbc:h2:mem:test")
             );
         }
@@ -34,6 +614,11 @@ public class SqlDatabaseTest extends AbstractDatabaseTest {
             return this.connection;
         }
 
+        @Override
+        public int getMaximumConnections() {
+            return 1;
+        }
+
         @Override
         public String getImplementationName() {
             return "H2";
@@ -54,6 +639,11 @@ public class SqlDatabaseTest extends AbstractDatabaseTest {
             return H2ConnectionFactory.STATEMENT_PROCESSOR;
         }
 
+        @Override
+        public SqlDialect getDialect() {
+            return SqlDialect.H2;
+        }
+
         @Override
         public void shutdown() throws Exception {
             this.connection.shutdown();
@@ -0,0 +1,62 @@
+package me.kubbidev.moonrise.common.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StorageExecutorTest {
+
+    private final StorageExecutor executor = new StorageExecutor(2);
+
+    @AfterEach
+    public void shutdownExecutor() throws InterruptedException {
+        this.executor.shutdown(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testConcurrencyIsLimited() throws Exception {
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            futures.add(CompletableFuture.runAsync(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                running.decrementAndGet();
+            }, this.executor));
+        }
+
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        assertEquals(4, this.executor.getQueueDepth());
+
+        release.countDown();
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(10, TimeUnit.SECONDS);
+
+        assertEquals(2, maxRunning.get());
+        assertEquals(0, this.executor.getQueueDepth());
+    }
+
+    @Test
+    public void testRunsOnVirtualThreads() throws Exception {
+        boolean virtual = CompletableFuture.supplyAsync(() -> Thread.currentThread().isVirtual(), this.executor)
+            .get(10, TimeUnit.SECONDS);
+        assertTrue(virtual);
+    }
+}
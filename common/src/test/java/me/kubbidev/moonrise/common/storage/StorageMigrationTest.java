@@ -0,0 +1,135 @@
+package me.kubbidev.moonrise.common.storage;
+
+import me.kubbidev.moonrise.common.config.ConfigKeys;
+import me.kubbidev.moonrise.common.config.MoonRiseConfiguration;
+import me.kubbidev.moonrise.common.dependencies.DependencyManager;
+import me.kubbidev.moonrise.common.model.ApiGuild;
+import me.kubbidev.moonrise.common.model.ApiMember;
+import me.kubbidev.moonrise.common.model.ApiUser;
+import me.kubbidev.moonrise.common.plugin.MoonRisePlugin;
+import me.kubbidev.moonrise.common.plugin.bootstrap.MoonRiseBootstrap;
+import me.kubbidev.moonrise.common.plugin.scheduler.SchedulerAdapter;
+import me.kubbidev.moonrise.common.storage.implementation.StorageImplementation;
+import me.kubbidev.moonrise.common.storage.implementation.journal.JournalStorage;
+import me.kubbidev.moonrise.common.storage.implementation.memory.MemoryStorage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.lenient;
+
+@ExtendWith(MockitoExtension.class)
+public class StorageMigrationTest {
+
+    private static final int USERS = 2500;
+
+    private @Mock MoonRisePlugin        plugin;
+    private @Mock MoonRiseBootstrap     bootstrap;
+    private @Mock MoonRiseConfiguration configuration;
+    private @Mock SchedulerAdapter      scheduler;
+    private @Mock DependencyManager     dependencyManager;
+
+    private @TempDir Path directory;
+
+    @BeforeEach
+    public void setupMocks() {
+        lenient().when(this.plugin.getBootstrap()).thenReturn(this.bootstrap);
+        lenient().when(this.plugin.getConfiguration()).thenReturn(this.configuration);
+        lenient().when(this.plugin.getDependencyManager()).thenReturn(this.dependencyManager);
+        lenient().when(this.bootstrap.getDataDirectory()).thenReturn(this.directory);
+        lenient().when(this.bootstrap.getScheduler()).thenReturn(this.scheduler);
+        lenient().when(this.scheduler.async()).thenReturn(Runnable::run);
+        lenient().when(this.configuration.get(ConfigKeys.STORAGE_METHOD)).thenReturn(StorageType.CUSTOM);
+        lenient().when(this.configuration.get(ConfigKeys.MEMORY_SNAPSHOT_INTERVAL)).thenReturn(60);
+    }
+
+    private void populateJournal() throws Exception {
+        StorageImplementation journal = new JournalStorage(this.plugin, this.directory.resolve("journal"));
+        journal.init();
+
+        List<ApiUser> users = new ArrayList<>();
+        for (long id = 1; id <= USERS; id++) {
+            ApiUser user = new ApiUser(id, this.plugin);
+            user.setUsername("user" + id);
+            users.add(user);
+
+            journal.incrementMemberStats(10L, id, id, 0L);
+            journal.incrementMemberStats(20L, id, 2 * id, 0L);
+        }
+        journal.saveUsers(users);
+
+        ApiGuild guild = new ApiGuild(10L, this.plugin);
+        guild.setName("guild");
+        journal.saveGuild(guild);
+
+        journal.shutdown();
+    }
+
+    private StorageImplementation openTarget() throws Exception {
+        StorageImplementation memory = new MemoryStorage(this.plugin,
+            this.directory.resolve("moonrise-memory.snapshot"), 60);
+        memory.init();
+        return memory;
+    }
+
+    @Test
+    public void testMigration() throws Exception {
+        populateJournal();
+
+        StorageMigration migration = new StorageMigration(this.plugin, StorageType.JOURNAL, StorageType.MEMORY);
+        assertFalse(migration.loadProgress());
+        migration.run(() -> {}, 1);
+
+        assertEquals(USERS, migration.getCopied(StorageMigration.Table.USERS));
+        assertEquals(1, migration.getCopied(StorageMigration.Table.GUILDS));
+        assertEquals(2 * USERS, migration.getCopied(StorageMigration.Table.MEMBERS));
+        assertFalse(Files.exists(this.directory.resolve("moonrise-migration.properties")));
+
+        StorageImplementation target = openTarget();
+        assertEquals(USERS, target.getUniqueUserIds().length);
+        assertEquals("user42", target.loadUser(42L).getUsername());
+        assertEquals("guild", target.loadGuild(10L).getName());
+
+        ApiMember member = target.loadMember(20L, 42L);
+        assertEquals("user42", member.getUsername());
+        assertEquals(84L, member.getExperience());
+        target.shutdown();
+    }
+
+    @Test
+    public void testResume() throws Exception {
+        populateJournal();
+        Files.writeString(this.directory.resolve("moonrise-migration.properties"), """
+            from=JOURNAL
+            to=MEMORY
+            users=2000
+            members.user=2000
+            members.guild=10
+            """);
+
+        StorageMigration migration = new StorageMigration(this.plugin, StorageType.JOURNAL, StorageType.MEMORY);
+        assertTrue(migration.loadProgress());
+        migration.run(() -> {}, 1);
+
+        assertEquals(USERS - 2000, migration.getCopied(StorageMigration.Table.USERS));
+        assertEquals(2 * (USERS - 2000) + 1, migration.getCopied(StorageMigration.Table.MEMBERS));
+
+        StorageImplementation target = openTarget();
+        assertEquals(USERS - 2000, target.getUniqueUserIds().length);
+        assertEquals("user2001", target.loadUser(2001L).getUsername());
+        assertEquals(0L, target.loadMember(10L, 2000L).getExperience());
+        assertEquals(4000L, target.loadMember(20L, 2000L).getExperience());
+        target.shutdown();
+    }
+}
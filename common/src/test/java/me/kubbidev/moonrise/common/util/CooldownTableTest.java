@@ -0,0 +1,200 @@
+package me.kubbidev.moonrise.common.util;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CooldownTableTest {
+
+    private static final long FIRST_USER_ID  = 1_100_000_000_000_000_000L;
+    private static final long FIRST_GUILD_ID = 1_200_000_000_000_000_000L;
+    private static final long MINUTE         = TimeUnit.MINUTES.toNanos(1);
+
+    /**
+     * The message rates benchmarked, in messages per second
+     */
+    private static final int[] BENCHMARK_RATES   = {10_000, 100_000};
+    /**
+     * The number of cooldown periods each rate is sent for, and the simulated time between each batch of messages
+     */
+    private static final int   BENCHMARK_PERIODS = 3;
+    private static final long  BENCHMARK_TICK    = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final int   BENCHMARK_THREADS = 4;
+    private static final int   BENCHMARK_USERS   = 100_000;
+    private static final int   BENCHMARK_GUILDS  = 10;
+    private static final int   BENCHMARK_ROUNDS  = 3;
+
+    @Test
+    public void testCooldown() {
+        CooldownTable table = new CooldownTable(1, TimeUnit.MINUTES);
+        assertTrue(table.tryAcquire(FIRST_USER_ID, FIRST_GUILD_ID, 0));
+        assertFalse(table.tryAcquire(FIRST_USER_ID, FIRST_GUILD_ID, MINUTE - 1));
+
+        // the same user in another guild, or another user in the same guild, has its own cooldown
+        assertTrue(table.tryAcquire(FIRST_USER_ID, FIRST_GUILD_ID + 1, 1));
+        assertTrue(table.tryAcquire(FIRST_USER_ID + 1, FIRST_GUILD_ID, 1));
+
+        assertTrue(table.tryAcquire(FIRST_USER_ID, FIRST_GUILD_ID, MINUTE));
+        assertFalse(table.tryAcquire(FIRST_USER_ID, FIRST_GUILD_ID, MINUTE + 1));
+    }
+
+    @Test
+    public void testExpiredCooldownsAreDropped() {
+        CooldownTable table = new CooldownTable(1, TimeUnit.MINUTES);
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(table.tryAcquire(FIRST_USER_ID + i, FIRST_GUILD_ID, 0));
+        }
+        assertEquals(10_000, table.size());
+
+        // a new wave of users reuses the slots of the cooldowns which expired
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(table.tryAcquire(FIRST_USER_ID + 10_000 + i, FIRST_GUILD_ID, MINUTE));
+        }
+        assertEquals(10_000, table.size(), 1_000);
+    }
+
+    @Test
+    public void testRandomMessages() {
+        Random random = new Random(42);
+        CooldownTable table = new CooldownTable(1, TimeUnit.MINUTES);
+        Map<Long2, Long> expected = new HashMap<>();
+
+        long now = 0;
+        for (int i = 0; i < 200_000; i++) {
+            now += random.nextInt(5_000_000);
+            long userId = FIRST_USER_ID + random.nextInt(5_000);
+            long guildId = FIRST_GUILD_ID + random.nextInt(5);
+
+            Long2 key = new Long2(userId, guildId);
+            Long last = expected.get(key);
+            boolean acquire = last == null || now - last >= MINUTE;
+            if (acquire) {
+                expected.put(key, now);
+            }
+            assertEquals(acquire, table.tryAcquire(userId, guildId, now));
+        }
+    }
+
+    /**
+     * Compares the table with the expiring set it replaced, over the same stream of messages.
+     *
+     * <p>Only run with {@code -Pbenchmark}, as timings depend on the machine. Messages arrive at a fixed rate on a
+     * simulated clock, advanced a tick at a time, and are shared between several threads within each tick. The
+     * stream covers several cooldown periods, so that cooldowns expire and their slots are reused. The first
+     * rounds warm up the JIT, and the last round is reported, in nanoseconds of work per message.</p>
+     */
+    @Test
+    @Tag("benchmark")
+    @EnabledIfSystemProperty(named = "moonrise.benchmark", matches = "true")
+    public void benchmarkAgainstExpiringSet(TestReporter reporter) throws Exception {
+        try (ExecutorService executor = Executors.newFixedThreadPool(BENCHMARK_THREADS)) {
+            for (int rate : BENCHMARK_RATES) {
+                long[] times = new long[2];
+                for (int round = 0; round < BENCHMARK_ROUNDS; round++) {
+                    AtomicLong clock = new AtomicLong();
+
+                    CooldownTable table = new CooldownTable(1, TimeUnit.MINUTES);
+                    BenchmarkResult tableResult = runBenchmark(executor, rate, clock,
+                        (userId, guildId) -> table.tryAcquire(userId, guildId, clock.get()));
+
+                    // the set the table replaced, on the same clock
+                    Map<Long2, Boolean> set = CaffeineFactory.newBuilder()
+                        .expireAfterWrite(1, TimeUnit.MINUTES)
+                        .ticker(clock::get)
+                        .<Long2, Boolean>build().asMap();
+                    BenchmarkResult setResult = runBenchmark(executor, rate, clock,
+                        (userId, guildId) -> set.putIfAbsent(new Long2(userId, guildId), Boolean.TRUE) == null);
+
+                    // each tick has its own time, so both grant the same pairs whatever the order of the threads
+                    assertEquals(setResult.grants(), tableResult.grants());
+                    times[0] = tableResult.time();
+                    times[1] = setResult.time();
+                }
+
+                long messages = (long) rate * BENCHMARK_PERIODS * TimeUnit.MINUTES.toSeconds(1);
+                reporter.publishEntry(rate + " msgs/s", String.format(
+                    "CooldownTable: %d ns/message, ExpiringSet: %d ns/message (%d threads, %d messages)",
+                    times[0] / messages, times[1] / messages, BENCHMARK_THREADS, messages));
+            }
+        }
+    }
+
+    /**
+     * Sends messages at the given rate for {@link #BENCHMARK_PERIODS} cooldown periods.
+     *
+     * @return the number of messages granted, and the time spent in the cooldown across every thread
+     */
+    private static BenchmarkResult runBenchmark(ExecutorService executor, int rate, AtomicLong clock,
+                                                Cooldown cooldown) throws Exception {
+        int ticks = (int) (BENCHMARK_PERIODS * MINUTE / BENCHMARK_TICK);
+        int perThread = (int) (rate * BENCHMARK_TICK / TimeUnit.SECONDS.toNanos(1) / BENCHMARK_THREADS);
+
+        long[][] userIds = new long[BENCHMARK_THREADS][perThread];
+        long[][] guildIds = new long[BENCHMARK_THREADS][perThread];
+        SplittableRandom[] randoms = new SplittableRandom[BENCHMARK_THREADS];
+        for (int thread = 0; thread < BENCHMARK_THREADS; thread++) {
+            randoms[thread] = new SplittableRandom(42 + thread);
+        }
+
+        List<Callable<Long>> tasks = new ArrayList<>();
+        AtomicLong grants = new AtomicLong();
+        for (int thread = 0; thread < BENCHMARK_THREADS; thread++) {
+            long[] users = userIds[thread];
+            long[] guilds = guildIds[thread];
+            tasks.add(() -> {
+                int granted = 0;
+                long start = System.nanoTime();
+                for (int i = 0; i < perThread; i++) {
+                    if (cooldown.tryAcquire(users[i], guilds[i])) {
+                        granted++;
+                    }
+                }
+                long time = System.nanoTime() - start;
+                grants.addAndGet(granted);
+                return time;
+            });
+        }
+
+        long time = 0;
+        for (int tick = 0; tick < ticks; tick++) {
+            clock.set(tick * BENCHMARK_TICK);
+            for (int thread = 0; thread < BENCHMARK_THREADS; thread++) {
+                for (int i = 0; i < perThread; i++) {
+                    userIds[thread][i] = FIRST_USER_ID + randoms[thread].nextInt(BENCHMARK_USERS);
+                    guildIds[thread][i] = FIRST_GUILD_ID + randoms[thread].nextInt(BENCHMARK_GUILDS);
+                }
+            }
+            for (Future<Long> future : executor.invokeAll(tasks)) {
+                time += future.get();
+            }
+        }
+        return new BenchmarkResult(grants.get(), time);
+    }
+
+    @FunctionalInterface
+    private interface Cooldown {
+
+        boolean tryAcquire(long userId, long guildId);
+    }
+
+    private record BenchmarkResult(long grants, long time) {
+    }
+}
@@ -0,0 +1,31 @@
+package me.kubbidev.moonrise.common.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class LongArrayBuilderTest {
+
+    @Test
+    public void testGrows() {
+        LongArrayBuilder builder = new LongArrayBuilder(1);
+        for (long i = 0; i < 100; i++) {
+            builder.add(i);
+        }
+
+        assertEquals(100, builder.size());
+        assertEquals(99L, builder.toArray()[99]);
+    }
+
+    @Test
+    public void testSortedDistinct() {
+        LongArrayBuilder builder = new LongArrayBuilder();
+        for (long value : new long[]{5L, 1L, 5L, 3L, 1L, 9L}) {
+            builder.add(value);
+        }
+
+        assertArrayEquals(new long[]{1L, 3L, 5L, 9L}, builder.toSortedDistinctArray());
+        assertArrayEquals(new long[0], new LongArrayBuilder().toSortedDistinctArray());
+    }
+}
@@ -0,0 +1,62 @@
+package me.kubbidev.moonrise.common.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SingleFlightTest {
+
+    @Test
+    public void testConcurrentLoadsAreShared() {
+        SingleFlight<Long2, String> singleFlight = new SingleFlight<>();
+        AtomicInteger loads = new AtomicInteger();
+        CompletableFuture<String> load = new CompletableFuture<>();
+
+        CompletableFuture<String> first = singleFlight.load(new Long2(1, 2), () -> {
+            loads.incrementAndGet();
+            return load;
+        });
+        CompletableFuture<String> second = singleFlight.load(new Long2(1, 2), () -> {
+            loads.incrementAndGet();
+            return load;
+        });
+
+        assertSame(first, second);
+        assertEquals(1, loads.get());
+        assertEquals(2, singleFlight.requests());
+        assertEquals(1, singleFlight.shared());
+
+        load.complete("value");
+        assertEquals("value", first.join());
+    }
+
+    @Test
+    public void testCompletedLoadsAreNotReused() {
+        SingleFlight<Long2, String> singleFlight = new SingleFlight<>();
+        AtomicInteger loads = new AtomicInteger();
+
+        singleFlight.load(new Long2(1, 2), () -> CompletableFuture.completedFuture("a" + loads.incrementAndGet()));
+        CompletableFuture<String> second = singleFlight.load(new Long2(1, 2),
+            () -> CompletableFuture.completedFuture("a" + loads.incrementAndGet()));
+
+        assertEquals("a2", second.join());
+        assertEquals(0, singleFlight.shared());
+    }
+
+    @Test
+    public void testFailuresArePropagated() {
+        SingleFlight<Long2, String> singleFlight = new SingleFlight<>();
+        CompletableFuture<String> load = new CompletableFuture<>();
+
+        CompletableFuture<String> first = singleFlight.load(new Long2(1, 2), () -> load);
+        load.completeExceptionally(new IllegalStateException());
+
+        assertTrue(first.isCompletedExceptionally());
+        assertEquals("b", singleFlight.load(new Long2(1, 2), () -> CompletableFuture.completedFuture("b")).join());
+    }
+}
@@ -2,20 +2,43 @@ package me.kubbidev.moonrise.standalone;
 
 import com.google.common.collect.ImmutableMap;
 import me.kubbidev.moonrise.api.platform.Health;
+import me.kubbidev.moonrise.common.storage.implementation.StorageImplementation;
+import me.kubbidev.moonrise.common.storage.implementation.sql.SqlStorage;
 import me.kubbidev.moonrise.standalone.app.MoonRiseApplication;
 import me.kubbidev.moonrise.standalone.util.TestPluginBootstrap;
 import me.kubbidev.moonrise.standalone.util.TestPluginProvider;
 import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.wait.strategy.Wait;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
 
 import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class DatabaseIntegrationTest {
 
+    private static final int MEMBER_PARTITIONS = 4;
+
+    private static final Pattern POSTGRES_PARTITION_PATTERN = Pattern.compile("moonrise_members_p\\d+");
+
     private static void testStorage(MoonRiseApplication app, TestPluginBootstrap bootstrap,
                                     TestPluginBootstrap.TestPlugin plugin) {
         // check the plugin is healthy
@@ -24,6 +47,67 @@ public class DatabaseIntegrationTest {
         assertTrue(health.isHealthy());
     }
 
+    /**
+     * Populates members across several guilds, and gets the storage's connection to the database.
+     */
+    private static Connection populateMembers(TestPluginBootstrap.TestPlugin plugin) throws Exception {
+        StorageImplementation storage = plugin.getStorage().getImplementation();
+        for (long guildId = 1; guildId <= 16; guildId++) {
+            for (long userId = 1; userId <= 8; userId++) {
+                storage.incrementMemberStats(guildId, userId, guildId * userId, 0L);
+            }
+        }
+
+        assertEquals(48L, storage.loadMember(6L, 8L).getExperience());
+        return assertInstanceOf(SqlStorage.class, storage).getConnectionFactory().getConnection();
+    }
+
+    private static void testPostgresPartitionPruning(MoonRiseApplication app, TestPluginBootstrap bootstrap,
+                                                     TestPluginBootstrap.TestPlugin plugin) throws Exception {
+        testStorage(app, bootstrap, plugin);
+
+        try (Connection c = populateMembers(plugin); Statement s = c.createStatement()) {
+            assertEquals(MEMBER_PARTITIONS, postgresPartitions(s, "SELECT * FROM moonrise_members").size());
+            assertEquals(1, postgresPartitions(s,
+                "SELECT * FROM moonrise_members WHERE guild_id = 6 ORDER BY experience DESC").size());
+            assertEquals(1, postgresPartitions(s,
+                "SELECT * FROM moonrise_members WHERE user_id = 8 AND guild_id = 6").size());
+        }
+    }
+
+    private static Set<String> postgresPartitions(Statement s, String query) throws SQLException {
+        Set<String> partitions = new HashSet<>();
+        try (ResultSet rs = s.executeQuery("EXPLAIN " + query)) {
+            while (rs.next()) {
+                Matcher matcher = POSTGRES_PARTITION_PATTERN.matcher(rs.getString(1));
+                while (matcher.find()) {
+                    partitions.add(matcher.group());
+                }
+            }
+        }
+        return partitions;
+    }
+
+    private static void testMySqlPartitionPruning(MoonRiseApplication app, TestPluginBootstrap bootstrap,
+                                                  TestPluginBootstrap.TestPlugin plugin) throws Exception {
+        testStorage(app, bootstrap, plugin);
+
+        try (Connection c = populateMembers(plugin); Statement s = c.createStatement()) {
+            assertEquals(MEMBER_PARTITIONS, mySqlPartitions(s, "SELECT * FROM moonrise_members").length);
+            assertEquals(1, mySqlPartitions(s,
+                "SELECT * FROM moonrise_members WHERE guild_id = 6 ORDER BY experience DESC").length);
+            assertEquals(1, mySqlPartitions(s,
+                "SELECT * FROM moonrise_members WHERE user_id = 8 AND guild_id = 6").length);
+        }
+    }
+
+    private static String[] mySqlPartitions(Statement s, String query) throws SQLException {
+        try (ResultSet rs = s.executeQuery("EXPLAIN " + query)) {
+            assertTrue(rs.next());
+            return rs.getString("partitions").split(",");
+        }
+    }
+
     @Nested
     class FlatFileDatabase {
 
@@ -39,4 +123,71 @@ public class DatabaseIntegrationTest {
                 DatabaseIntegrationTest::testStorage);
         }
     }
+
+    @Nested
+    @Tag("docker")
+    @Testcontainers(disabledWithoutDocker = true)
+    class PostgreSqlDatabase {
+
+        @Container
+        private final GenericContainer<?> container = new GenericContainer<>(DockerImageName.parse("postgres:16"))
+            .withEnv("POSTGRES_PASSWORD", "passw0rd")
+            .withExposedPorts(5432)
+            .waitingFor(Wait.forLogMessage(".*database system is ready to accept connections.*", 2));
+
+        @Test
+        public void testPartitionedMembers(@TempDir Path tempDir) throws Exception {
+            assertTrue(this.container.isRunning());
+
+            Map<String, String> config = ImmutableMap.<String, String>builder()
+                .put("storage-method", "postgresql")
+                .put("data.address", this.container.getHost() + ":" + this.container.getFirstMappedPort())
+                .put("data.database", "postgres")
+                .put("data.username", "postgres")
+                .put("data.password", "passw0rd")
+                .put("data.member-partitions", Integer.toString(MEMBER_PARTITIONS))
+                .build();
+
+            TestPluginProvider.use(tempDir, config, DatabaseIntegrationTest::testPostgresPartitionPruning);
+        }
+    }
+
+    @Nested
+    @Tag("docker")
+    @Testcontainers(disabledWithoutDocker = true)
+    class MySqlDatabase {
+
+        @Container
+        private final GenericContainer<?> container = new GenericContainer<>(DockerImageName.parse("mysql:8"))
+            .withEnv("MYSQL_DATABASE", "moonrise")
+            .withEnv("MYSQL_ROOT_PASSWORD", "passw0rd")
+            .withExposedPorts(3306)
+            .waitingFor(Wait.forLogMessage(".*port: 3306 {2}MySQL Community Server - GPL.*", 1));
+
+        @Test
+        public void testPartitionedMembers(@TempDir Path tempDir) throws Exception {
+            assertTrue(this.container.isRunning());
+
+            Map<String, String> config = ImmutableMap.<String, String>builder()
+                .put("storage-method", "mysql")
+                .put("data.address", this.container.getHost() + ":" + this.container.getFirstMappedPort())
+                .put("data.database", "moonrise")
+                .put("data.username", "root")
+                .put("data.password", "passw0rd")
+                .put("data.member-partitions", Integer.toString(MEMBER_PARTITIONS))
+                .build();
+
+            TestPluginProvider.use(tempDir, config, DatabaseIntegrationTest::testMySqlPartitionPruning);
+        }
+    }
+
+    @Nested
+    class InMemoryDatabase {
+
+        @Test
+        public void testMemory(@TempDir Path tempDir) {
+            TestPluginProvider.use(tempDir, ImmutableMap.of("storage-method", "memory"),
+                DatabaseIntegrationTest::testStorage);
+        }
+    }
 }